@@ -17,12 +17,14 @@ import oakbot.util.PropertiesWrapper;
  * @author Michael Angstadt
  */
 public class BotProperties extends PropertiesWrapper {
-	private final String loginEmail, password, botUserName, trigger, greeting, dictionaryKey, aboutHost, catKey, reactKey, adventOfCodeSession;
+	private final String loginEmail, password, botUserName, trigger, greeting, dictionaryKey, aboutHost, catKey, reactKey, adventOfCodeSession, databaseType, inboundQueueOverflowPolicy;
 	private final List<Integer> homeRooms, quietRooms, admins, bannedUsers;
 	private final int botUserId;
-	private final Integer hideOneboxesAfter;
+	private final Integer hideOneboxesAfter, messageWorkers;
+	private final int databaseCommitWindow, databaseCommitThreshold, inboundQueueCapacity, editWindow, javadocCacheSize;
+	private final int httpMaxConnections, httpMaxConnectionsPerRoute, httpConnectTimeout, httpReadTimeout, httpKeepAlive, httpIdleTimeout;
 	private final Path javadocPath;
-	private final boolean javadocCache;
+	private final boolean javadocCache, javadocIndex;
 	private final Map<Integer, String> welcomeMessages, adventOfCodeLeaderboards;
 
 	/**
@@ -42,12 +44,27 @@ public class BotProperties extends PropertiesWrapper {
 		bannedUsers = getIntegerList("bannedUsers");
 		javadocPath = getFile("javadoc.folder");
 		javadocCache = getBoolean("javadoc.cache", true);
+		javadocIndex = getBoolean("javadoc.index", false);
+		javadocCacheSize = getInteger("javadoc.cacheSize", 20000);
 		greeting = get("greeting");
 		dictionaryKey = get("dictionary.key");
 		aboutHost = get("about.host");
 		catKey = get("cat.key");
 		reactKey = get("react.key");
 		hideOneboxesAfter = getInteger("hideOneboxesAfter");
+		messageWorkers = getInteger("messageWorkers");
+		databaseType = get("database.type", "json");
+		databaseCommitWindow = getInteger("database.commitWindow", 5000);
+		databaseCommitThreshold = getInteger("database.commitThreshold", 100);
+		inboundQueueCapacity = getInteger("inboundQueue.capacity", 1000);
+		inboundQueueOverflowPolicy = get("inboundQueue.overflowPolicy", "drop-oldest");
+		editWindow = getInteger("editWindow", 2000);
+		httpMaxConnections = getInteger("http.maxConnections", 50);
+		httpMaxConnectionsPerRoute = getInteger("http.maxConnectionsPerRoute", 10);
+		httpConnectTimeout = getInteger("http.connectTimeout", 10000);
+		httpReadTimeout = getInteger("http.readTimeout", 30000);
+		httpKeepAlive = getInteger("http.keepAlive", 30000);
+		httpIdleTimeout = getInteger("http.idleTimeout", 60000);
 
 		welcomeMessages = new HashMap<>();
 		{
@@ -170,6 +187,23 @@ public class BotProperties extends PropertiesWrapper {
 		return javadocCache;
 	}
 
+	/**
+	 * Gets the maximum size of the javadoc command's cache.
+	 * @return the maximum number of methods the cache can hold
+	 */
+	public int getJavadocCacheSize() {
+		return javadocCacheSize;
+	}
+
+	/**
+	 * Gets whether the javadoc command should read from precompiled binary
+	 * indexes of the javadoc ZIP files instead of the ZIP files themselves.
+	 * @return true to use the indexes, false not to
+	 */
+	public boolean getJavadocIndex() {
+		return javadocIndex;
+	}
+
 	/**
 	 * Gets the message to post when the bot joins a room.
 	 * @return the message or null not to broadcast anything
@@ -219,6 +253,129 @@ public class BotProperties extends PropertiesWrapper {
 		return hideOneboxesAfter;
 	}
 
+	/**
+	 * Gets the number of worker threads to use to handle incoming messages.
+	 * Messages from the same room are always handled by the same worker.
+	 * @return the number of workers or null to handle all messages on a single
+	 * thread
+	 */
+	public Integer getMessageWorkers() {
+		return messageWorkers;
+	}
+
+	/**
+	 * Gets the kind of database to store the bot's data in.
+	 * @return "json" to rewrite the entire database file on every commit,
+	 * "log" to append each change to a log file, or "directory" to store each
+	 * key in its own file (defaults to "json")
+	 */
+	public String getDatabaseType() {
+		return databaseType;
+	}
+
+	/**
+	 * Gets how long to wait before committing changes to the database. All
+	 * changes that are made during this time are batched into the same
+	 * commit, which runs on a background thread.
+	 * @return the window (in milliseconds) or zero to commit each change
+	 * immediately on the thread that made it (defaults to 5000)
+	 */
+	public int getDatabaseCommitWindow() {
+		return databaseCommitWindow;
+	}
+
+	/**
+	 * Gets the number of changed database keys that will cause the database to
+	 * be committed before its commit window expires.
+	 * @return the number of keys (defaults to 100)
+	 */
+	public int getDatabaseCommitThreshold() {
+		return databaseCommitThreshold;
+	}
+
+	/**
+	 * Gets the maximum number of received messages that can be waiting to be
+	 * handled.
+	 * @return the capacity (defaults to 1000)
+	 */
+	public int getInboundQueueCapacity() {
+		return inboundQueueCapacity;
+	}
+
+	/**
+	 * Gets what to do when too many received messages are waiting to be
+	 * handled.
+	 * @return "drop-oldest" to drop the oldest message, "drop-edits-first" to
+	 * drop edited messages before new messages, or "coalesce-by-user" to
+	 * replace a user's queued message with their newest one (defaults to
+	 * "drop-oldest")
+	 */
+	public String getInboundQueueOverflowPolicy() {
+		return inboundQueueOverflowPolicy;
+	}
+
+	/**
+	 * Gets how long to wait after a message is edited before handling it. If
+	 * the message is edited again during this time, only the latest revision
+	 * is handled.
+	 * @return the window (in milliseconds) or zero to handle every edit
+	 * immediately (defaults to 2000)
+	 */
+	public int getEditWindow() {
+		return editWindow;
+	}
+
+	/**
+	 * Gets the maximum number of HTTP connections the bot can have open at
+	 * once.
+	 * @return the maximum number of connections (defaults to 50)
+	 */
+	public int getHttpMaxConnections() {
+		return httpMaxConnections;
+	}
+
+	/**
+	 * Gets the maximum number of HTTP connections the bot can have open to
+	 * the same website at once.
+	 * @return the maximum number of connections (defaults to 10)
+	 */
+	public int getHttpMaxConnectionsPerRoute() {
+		return httpMaxConnectionsPerRoute;
+	}
+
+	/**
+	 * Gets how long to wait for an HTTP connection to be established.
+	 * @return the timeout (in milliseconds, defaults to 10000)
+	 */
+	public int getHttpConnectTimeout() {
+		return httpConnectTimeout;
+	}
+
+	/**
+	 * Gets how long to wait for an HTTP response to arrive.
+	 * @return the timeout (in milliseconds, defaults to 30000)
+	 */
+	public int getHttpReadTimeout() {
+		return httpReadTimeout;
+	}
+
+	/**
+	 * Gets how long to keep an HTTP connection open for reuse if the server
+	 * does not say.
+	 * @return the keep-alive time (in milliseconds, defaults to 30000)
+	 */
+	public int getHttpKeepAlive() {
+		return httpKeepAlive;
+	}
+
+	/**
+	 * Gets how long an HTTP connection can go unused before it is closed.
+	 * @return the timeout (in milliseconds, defaults to 60000)
+	 */
+	public int getHttpIdleTimeout() {
+		return httpIdleTimeout;
+	}
+
 	/**
 	 * Gets the messages to post when a new user joins a room.
 	 * @return the messages (key = room ID, value = message)
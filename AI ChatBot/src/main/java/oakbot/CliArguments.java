@@ -17,6 +17,7 @@ public class CliArguments {
 		OptionParser parser = new OptionParser();
 		parser.accepts("settings").withRequiredArg();
 		parser.accepts("db").withRequiredArg();
+		parser.accepts("import-db").withRequiredArg();
 		parser.accepts("quiet");
 		parser.accepts("version");
 		parser.accepts("help");
@@ -32,6 +33,10 @@ public class CliArguments {
 		return path("db");
 	}
 
+	public Path importDb() {
+		return path("import-db");
+	}
+
 	public boolean version() {
 		return options.has("version");
 	}
@@ -68,6 +73,12 @@ public class CliArguments {
 		"  The path to a JSON file for storing all persistant data." + nl +
 		"  (defaults to \"" + defaultDb + "\")." + nl +
 		nl +
+		"--import-db=PATH" + nl +
+		"  Copies the contents of a JSON database file into the database specified by" + nl +
+		"  the \"--db\" argument and then exits. Use this when switching to the" + nl +
+		"  \"directory\" database type. The \"--db\" argument is required, and must" + nl +
+		"  point to a directory." + nl +
+		nl +
 		"--quiet" + nl +
 		"  If specified, the bot will not output a greeting message when it starts up." + nl +
 		nl +
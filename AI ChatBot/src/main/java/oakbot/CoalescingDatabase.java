@@ -0,0 +1,272 @@
+package oakbot;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>
+ * Wraps another database and commits it on a background thread, batching all
+ * of the changes that are made within a window of time into a single commit.
+ * </p>
+ * <p>
+ * The bot commits the database after handling every chat message. Without
+ * this class, the message thread has to wait for the database to be written
+ * to disk before it can move on to the next message. With this class, writes
+ * mark their keys as dirty and start a timer, and the wrapped database is
+ * committed on a dedicated thread when the timer expires. If enough keys
+ * become dirty before then, the commit happens right away. Call
+ * {@link #flush} to commit immediately and wait for the commit to finish (for
+ * example, when the bot shuts down).
+ * </p>
+ * <p>
+ * Values are copied before they are passed to the wrapped database, so
+ * callers may keep modifying the objects they pass in. This class is
+ * thread-safe if the wrapped database is thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class CoalescingDatabase implements Database {
+	private static final Logger logger = Logger.getLogger(CoalescingDatabase.class.getName());
+
+	private final Database database;
+	private final long window;
+	private final int maxDirtyKeys;
+
+	//@formatter:off
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+		.setNameFormat("db-commit")
+		.setDaemon(true)
+	.build());
+	//@formatter:on
+
+	private final Set<String> dirtyKeys = new HashSet<>();
+	private ScheduledFuture<?> scheduledCommit;
+	private boolean scheduledImmediately;
+
+	private final LongAdder flushes = new LongAdder();
+	private final LongAdder totalFlushTime = new LongAdder();
+	private final AtomicLong maxFlushTime = new AtomicLong();
+	private volatile long lastFlushTime;
+
+	/**
+	 * @param database the database to wrap
+	 * @param window how long to wait after a change is made before committing
+	 * the wrapped database
+	 */
+	public CoalescingDatabase(Database database, Duration window) {
+		this(database, window, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param database the database to wrap
+	 * @param window how long to wait after a change is made before committing
+	 * the wrapped database
+	 * @param maxDirtyKeys the number of dirty keys that will cause the wrapped
+	 * database to be committed without waiting for the window to expire
+	 */
+	public CoalescingDatabase(Database database, Duration window, int maxDirtyKeys) {
+		this.database = database;
+		this.window = window.toMillis();
+		this.maxDirtyKeys = maxDirtyKeys;
+	}
+
+	@Override
+	public Object get(String key) {
+		return database.get(key);
+	}
+
+	@Override
+	public Map<String, Object> getMap(String key) {
+		return database.getMap(key);
+	}
+
+	/*
+	 * Values are copied because the wrapped database is committed on another
+	 * thread. Callers such as Rooms keep modifying the objects they pass in,
+	 * which would otherwise cause the commit thread to see a half-modified
+	 * value or throw a ConcurrentModificationException.
+	 */
+	@Override
+	public void set(String key, Object value) {
+		database.set(key, JsonValues.copy(value));
+		markDirty(key);
+	}
+
+	@Override
+	public void remove(String key) {
+		database.remove(key);
+		markDirty(key);
+	}
+
+	@Override
+	public void setMapEntry(String key, String field, Object value) {
+		database.setMapEntry(key, field, JsonValues.copy(value));
+		markDirty(key);
+	}
+
+	@Override
+	public void removeMapEntry(String key, String field) {
+		database.removeMapEntry(key, field);
+		markDirty(key);
+	}
+
+	@Override
+	public void addListItem(String key, Object item) {
+		database.addListItem(key, JsonValues.copy(item));
+		markDirty(key);
+	}
+
+	/**
+	 * Schedules a commit of the wrapped database, if there are changes to
+	 * commit and a commit isn't scheduled already. This method does not
+	 * block.
+	 */
+	@Override
+	public synchronized void commit() {
+		if (!dirtyKeys.isEmpty()) {
+			scheduleCommit(false);
+		}
+	}
+
+	/**
+	 * Cancels the scheduled commit (if any) and commits the wrapped database
+	 * on the current thread. The commit only counts towards the flush metrics
+	 * if there were changes to commit.
+	 */
+	@Override
+	public void flush() {
+		boolean dirty;
+		synchronized (this) {
+			if (scheduledCommit != null) {
+				scheduledCommit.cancel(false);
+				scheduledCommit = null;
+			}
+			dirty = !dirtyKeys.isEmpty();
+			dirtyKeys.clear();
+		}
+
+		long start = System.nanoTime();
+		database.flush();
+		if (dirty) {
+			recordFlush(start);
+		}
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return database.getBytesWritten();
+	}
+
+	/**
+	 * Gets the number of keys that have changed since the last commit.
+	 * @return the number of dirty keys
+	 */
+	public synchronized int getDirtyKeyCount() {
+		return dirtyKeys.size();
+	}
+
+	/**
+	 * Gets the number of times the wrapped database has been committed.
+	 * @return the number of commits
+	 */
+	public long getFlushCount() {
+		return flushes.sum();
+	}
+
+	/**
+	 * Gets how long the most recent commit took.
+	 * @return the duration of the last commit
+	 */
+	public Duration getLastFlushDuration() {
+		return Duration.ofNanos(lastFlushTime);
+	}
+
+	/**
+	 * Gets the average amount of time it takes to commit the wrapped database.
+	 * @return the average commit duration
+	 */
+	public Duration getAverageFlushDuration() {
+		long count = flushes.sum();
+		return (count == 0) ? Duration.ZERO : Duration.ofNanos(totalFlushTime.sum() / count);
+	}
+
+	/**
+	 * Gets the longest amount of time it has taken to commit the wrapped
+	 * database.
+	 * @return the longest commit duration
+	 */
+	public Duration getMaxFlushDuration() {
+		return Duration.ofNanos(maxFlushTime.get());
+	}
+
+	private synchronized void markDirty(String key) {
+		dirtyKeys.add(key);
+		scheduleCommit(dirtyKeys.size() >= maxDirtyKeys);
+	}
+
+	/**
+	 * Schedules a commit of the wrapped database.
+	 * @param immediately true to commit as soon as possible, false to commit
+	 * after the window expires
+	 */
+	private void scheduleCommit(boolean immediately) {
+		if (scheduledCommit != null) {
+			if (!immediately || scheduledImmediately) {
+				return;
+			}
+
+			/*
+			 * Too many keys are dirty to wait for the window to expire.
+			 */
+			scheduledCommit.cancel(false);
+		}
+
+		scheduledCommit = executor.schedule(this::commitNow, immediately ? 0 : window, TimeUnit.MILLISECONDS);
+		scheduledImmediately = immediately;
+	}
+
+	private void commitNow() {
+		synchronized (this) {
+			scheduledCommit = null;
+
+			/*
+			 * The keys may have already been committed by a call to flush()
+			 * that could not cancel this task in time.
+			 */
+			if (dirtyKeys.isEmpty()) {
+				return;
+			}
+			dirtyKeys.clear();
+		}
+
+		long start = System.nanoTime();
+		try {
+			database.commit();
+		} catch (Exception e) {
+			logger.log(Level.SEVERE, "Problem committing database.", e);
+			return;
+		}
+		recordFlush(start);
+	}
+
+	private void recordFlush(long start) {
+		long time = System.nanoTime() - start;
+
+		flushes.increment();
+		totalFlushTime.add(time);
+		maxFlushTime.accumulateAndGet(time, Math::max);
+		lastFlushTime = time;
+	}
+}
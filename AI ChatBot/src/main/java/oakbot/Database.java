@@ -1,5 +1,7 @@
 package oakbot;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -52,8 +54,103 @@ public interface Database {
 	 */
 	void set(String key, Object value);
 
+	/**
+	 * <p>
+	 * Removes a value from the database. Nothing happens if the key does not
+	 * exist.
+	 * </p>
+	 * <p>
+	 * Implementations should override this method to delete the key from
+	 * storage. By default, the key's value is set to null.
+	 * </p>
+	 * @param key the key
+	 */
+	default void remove(String key) {
+		set(key, null);
+	}
+
+	/**
+	 * <p>
+	 * Stores a single entry of a map value. If the map does not exist, it is
+	 * created.
+	 * </p>
+	 * <p>
+	 * Implementations can override this method to persist just the entry that
+	 * changed instead of the entire map.
+	 * </p>
+	 * @param key the key of the map
+	 * @param field the map entry's key
+	 * @param value the map entry's value
+	 */
+	default void setMapEntry(String key, String field, Object value) {
+		Map<String, Object> map = getMap(key);
+		if (map == null) {
+			map = new LinkedHashMap<>();
+		}
+		map.put(field, value);
+		set(key, map);
+	}
+
+	/**
+	 * <p>
+	 * Removes a single entry from a map value.
+	 * </p>
+	 * <p>
+	 * Implementations can override this method to persist just the entry that
+	 * changed instead of the entire map.
+	 * </p>
+	 * @param key the key of the map
+	 * @param field the map entry's key
+	 */
+	default void removeMapEntry(String key, String field) {
+		Map<String, Object> map = getMap(key);
+		if (map == null || !map.containsKey(field)) {
+			return;
+		}
+		map.remove(field);
+		set(key, map);
+	}
+
+	/**
+	 * <p>
+	 * Adds an item to the end of a list value. If the list does not exist, it
+	 * is created.
+	 * </p>
+	 * <p>
+	 * Implementations can override this method to persist just the new item
+	 * instead of the entire list.
+	 * </p>
+	 * @param key the key of the list
+	 * @param item the item to add
+	 */
+	default void addListItem(String key, Object item) {
+		List<Object> list = getList(key);
+		if (list == null) {
+			list = new ArrayList<>();
+		}
+		list.add(item);
+		set(key, list);
+	}
+
 	/**
 	 * Saves all changes made to the database since the last commit (if any).
 	 */
 	void commit();
+
+	/**
+	 * Saves all changes made to the database and blocks until they have been
+	 * written. Unlike {@link #commit}, this method never defers the write. It
+	 * should be called when the bot shuts down.
+	 */
+	default void flush() {
+		commit();
+	}
+
+	/**
+	 * Gets the total number of bytes that this database has written to disk.
+	 * @return the number of bytes (zero if the database does not track this)
+	 */
+	default long getBytesWritten() {
+		return 0;
+	}
 }
@@ -0,0 +1,238 @@
+package oakbot;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import oakbot.util.FileUtils;
+
+/**
+ * <p>
+ * A database that stores each key in its own file inside of a directory.
+ * </p>
+ * <p>
+ * Keys are read from disk the first time they are requested, so data that the
+ * bot never uses is never loaded into memory. When more keys are loaded than
+ * the cache can hold, the least recently used keys that have no uncommitted
+ * changes are dropped from memory and read from disk again the next time they
+ * are requested. Committing the database only rewrites the files of the keys
+ * that changed. Each file is a JSON object with
+ * a single field, in the same format as {@link JsonDatabase}, and is written
+ * atomically.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class DirectoryDatabase implements Database {
+	private static final Logger logger = Logger.getLogger(DirectoryDatabase.class.getName());
+
+	private final Path directory;
+	private final int cacheSize;
+	private final Map<String, Object> fields = new LinkedHashMap<>(16, 0.75f, true);
+	private final Set<String> dirtyKeys = new LinkedHashSet<>();
+	private long bytesWritten = 0;
+
+	/**
+	 * Creates a database that keeps up to 1000 keys in memory.
+	 * @param directory the directory the data is stored in (created if it
+	 * doesn't exist)
+	 * @throws IOException if there's a problem creating the directory
+	 */
+	public DirectoryDatabase(Path directory) throws IOException {
+		this(directory, 1000);
+	}
+
+	/**
+	 * @param directory the directory the data is stored in (created if it
+	 * doesn't exist)
+	 * @param cacheSize the maximum number of keys to keep in memory (keys with
+	 * uncommitted changes are always kept, even if this is exceeded)
+	 * @throws IOException if there's a problem creating the directory
+	 */
+	public DirectoryDatabase(Path directory, int cacheSize) throws IOException {
+		this.directory = directory;
+		this.cacheSize = cacheSize;
+		Files.createDirectories(directory);
+	}
+
+	@Override
+	public synchronized Object get(String key) {
+		if (fields.containsKey(key)) {
+			return fields.get(key);
+		}
+
+		Object value;
+		try {
+			value = load(key);
+		} catch (IOException e) {
+			/*
+			 * Don't cache the value, so that a later call can try again.
+			 */
+			logger.log(Level.SEVERE, "Could not load database key \"" + key + "\".", e);
+			return null;
+		}
+
+		fields.put(key, value);
+		evict();
+		return value;
+	}
+
+	@Override
+	public synchronized void set(String key, Object value) {
+		fields.put(key, value);
+		dirtyKeys.add(key);
+		evict();
+	}
+
+	/*
+	 * The key's file is deleted on the next commit. The null value is kept in
+	 * memory until then, so that the file is not read again.
+	 */
+	@Override
+	public synchronized void remove(String key) {
+		set(key, null);
+	}
+
+	/*
+	 * Overridden so that the map is not modified while it is being written
+	 * to disk.
+	 */
+	@Override
+	public synchronized void setMapEntry(String key, String field, Object value) {
+		Database.super.setMapEntry(key, field, value);
+	}
+
+	@Override
+	public synchronized void removeMapEntry(String key, String field) {
+		Database.super.removeMapEntry(key, field);
+	}
+
+	@Override
+	public synchronized void addListItem(String key, Object item) {
+		Database.super.addListItem(key, item);
+	}
+
+	/**
+	 * Writes the keys that have changed since the last commit to disk. The
+	 * files of keys whose values are null are deleted.
+	 */
+	@Override
+	public synchronized void commit() {
+		for (String key : dirtyKeys.toArray(new String[0])) {
+			Object value = fields.get(key);
+			byte[] data = (value == null) ? null : JsonValues.writeDocument(Collections.singletonMap(key, value));
+			try {
+				if (data == null) {
+					Files.deleteIfExists(file(key));
+				} else {
+					FileUtils.writeAtomically(file(key), data);
+				}
+			} catch (IOException e) {
+				logger.log(Level.SEVERE, "Could not persist database key \"" + key + "\".", e);
+				continue;
+			}
+
+			if (data != null) {
+				bytesWritten += data.length;
+			}
+			dirtyKeys.remove(key);
+		}
+
+		evict();
+	}
+
+	@Override
+	public synchronized long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Copies the contents of a {@link JsonDatabase} file into this database
+	 * and commits it. Existing keys are overwritten.
+	 * @param jsonFile the JSON database file
+	 * @return the number of keys that were imported
+	 * @throws IOException if there's a problem reading the file or if any of
+	 * the keys could not be written
+	 */
+	public synchronized int importJson(Path jsonFile) throws IOException {
+		Map<String, Object> values;
+		try (Reader reader = Files.newBufferedReader(jsonFile)) {
+			values = JsonValues.readDocument(reader);
+		}
+
+		for (Map.Entry<String, Object> entry : values.entrySet()) {
+			set(entry.getKey(), entry.getValue());
+		}
+		commit();
+
+		if (!dirtyKeys.isEmpty()) {
+			String failed = dirtyKeys.stream().map(key -> "\"" + key + "\"").collect(Collectors.joining(", "));
+			throw new IOException("Could not import " + dirtyKeys.size() + " of " + values.size() + " keys: " + failed);
+		}
+
+		return values.size();
+	}
+
+	/**
+	 * Drops the least recently used keys from memory until the cache is no
+	 * larger than its maximum size. Keys with uncommitted changes are never
+	 * dropped.
+	 */
+	private void evict() {
+		int excess = fields.size() - cacheSize;
+		if (excess <= 0) {
+			return;
+		}
+
+		Iterator<String> it = fields.keySet().iterator();
+		while (excess > 0 && it.hasNext()) {
+			String key = it.next();
+			if (!dirtyKeys.contains(key)) {
+				it.remove();
+				excess--;
+			}
+		}
+	}
+
+	private Object load(String key) throws IOException {
+		Path file = file(key);
+		if (!Files.exists(file)) {
+			return null;
+		}
+
+		try (Reader reader = Files.newBufferedReader(file)) {
+			return JsonValues.readDocument(reader).get(key);
+		}
+	}
+
+	/**
+	 * Gets the file that a key is stored in.
+	 * @param key the key
+	 * @return the file
+	 */
+	private Path file(String key) {
+		String fileName;
+		try {
+			fileName = URLEncoder.encode(key, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			//should never be thrown because all JVMs support UTF-8
+			throw new RuntimeException(e);
+		}
+
+		return directory.resolve(fileName + ".json");
+	}
+}
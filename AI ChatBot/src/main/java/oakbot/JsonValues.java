@@ -0,0 +1,253 @@
+package oakbot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+/**
+ * Converts {@link Database} values to and from JSON.
+ * @author Michael Angstadt
+ */
+final class JsonValues {
+	private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+	private static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern(DATE_PATTERN);
+	private static final JsonFactory factory = new JsonFactory();
+
+	/**
+	 * Reads a JSON document that contains the contents of a database. The
+	 * document is streamed, so no intermediate JSON tree is built.
+	 * @param in the JSON document
+	 * @return the database's keys and values
+	 * @throws IOException if there's a problem reading the document
+	 */
+	public static Map<String, Object> readDocument(Reader in) throws IOException {
+		try (JsonParser parser = factory.createParser(in)) {
+			JsonToken token = parser.nextToken();
+			if (token == null) {
+				return new LinkedHashMap<>();
+			}
+			if (token != JsonToken.START_OBJECT) {
+				throw new JsonParseException("Expected the document to be a JSON object.", parser.getCurrentLocation());
+			}
+			return readObject(parser);
+		}
+	}
+
+	/**
+	 * Reads a database value from a JSON stream.
+	 * @param parser the JSON stream, positioned at the first token of the value
+	 * @return the value
+	 * @throws IOException if there's a problem reading from the stream
+	 */
+	public static Object read(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+		case START_ARRAY: {
+			List<Object> list = new ArrayList<>();
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				list.add(read(parser));
+			}
+			return list;
+		}
+		case START_OBJECT:
+			return readObject(parser);
+		case VALUE_NULL:
+			return null;
+		case VALUE_NUMBER_INT:
+			if (parser.getNumberType() == JsonParser.NumberType.INT) {
+				return parser.getIntValue();
+			}
+			return parser.getText();
+		case VALUE_STRING:
+			return parseString(parser.getText());
+		default:
+			return parser.getText();
+		}
+	}
+
+	private static Map<String, Object> readObject(JsonParser parser) throws IOException {
+		Map<String, Object> map = new LinkedHashMap<>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			parser.nextToken();
+			map.put(fieldName, read(parser));
+		}
+		return map;
+	}
+
+	/**
+	 * Converts a JSON string to a database value. Dates are stored as strings,
+	 * so a string is converted to a {@link LocalDateTime} if it is formatted
+	 * as "yyyy-MM-dd HH:mm:ss". The string's characters are checked by hand
+	 * because most strings are not dates, and throwing a parse exception for
+	 * each one makes loading a large database slow.
+	 * @param text the string
+	 * @return the value
+	 */
+	private static Object parseString(String text) {
+		if (text.length() != DATE_PATTERN.length()) {
+			return text;
+		}
+
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			char p = DATE_PATTERN.charAt(i);
+			if (Character.isLetter(p)) {
+				if (c < '0' || c > '9') {
+					return text;
+				}
+			} else if (c != p) {
+				return text;
+			}
+		}
+
+		int year = digits(text, 0, 4);
+		int month = digits(text, 5, 7);
+		int day = digits(text, 8, 10);
+		int hour = digits(text, 11, 13);
+		int minute = digits(text, 14, 16);
+		int second = digits(text, 17, 19);
+
+		try {
+			return LocalDateTime.of(year, month, day, hour, minute, second);
+		} catch (DateTimeException e) {
+			//has the shape of a date, but is not a valid date (e.g. "2017-13-45 00:00:00")
+			return text;
+		}
+	}
+
+	private static int digits(String text, int start, int end) {
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			value = value * 10 + (text.charAt(i) - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Serializes the contents of a database to a pretty-printed JSON document.
+	 * @param fields the database's keys and values
+	 * @return the JSON document
+	 */
+	public static byte[] writeDocument(Map<String, Object> fields) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (JsonGenerator generator = factory.createGenerator(out)) {
+			generator.setPrettyPrinter(new DefaultPrettyPrinter());
+			generator.writeStartObject();
+
+			for (Map.Entry<String, Object> entry : fields.entrySet()) {
+				generator.writeFieldName(entry.getKey());
+				write(generator, entry.getValue());
+			}
+
+			generator.writeEndObject();
+		} catch (IOException e) {
+			//should never be thrown because it's writing to memory
+			throw new RuntimeException(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Writes a database value to a JSON stream.
+	 * @param generator the JSON stream
+	 * @param value the value
+	 * @throws IOException if there's a problem writing to the stream
+	 */
+	public static void write(JsonGenerator generator, Object value) throws IOException {
+		if (value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			generator.writeStartObject();
+
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				String fieldName = entry.getKey().toString();
+				Object v = entry.getValue();
+
+				generator.writeFieldName(fieldName);
+				write(generator, v);
+			}
+
+			generator.writeEndObject();
+			return;
+		}
+
+		if (value instanceof Collection) {
+			Collection<?> list = (Collection<?>) value;
+			generator.writeStartArray();
+
+			for (Object item : list) {
+				write(generator, item);
+			}
+
+			generator.writeEndArray();
+			return;
+		}
+
+		if (value instanceof LocalDateTime) {
+			LocalDateTime date = (LocalDateTime) value;
+			generator.writeString(date.format(dateTimeFormatter));
+			return;
+		}
+
+		if (value instanceof Integer) {
+			Integer integer = (Integer) value;
+			generator.writeNumber(integer);
+			return;
+		}
+
+		if (value == null) {
+			generator.writeNull();
+			return;
+		}
+
+		String string = value.toString();
+		generator.writeString(string);
+	}
+
+	/**
+	 * Makes a deep copy of a database value, so that the caller can keep
+	 * modifying the original without affecting the database. Maps and
+	 * collections are copied. All other values are assumed to be immutable.
+	 * @param value the value
+	 * @return the copy
+	 */
+	public static Object copy(Object value) {
+		if (value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			Map<String, Object> copy = new LinkedHashMap<>();
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				copy.put(entry.getKey().toString(), copy(entry.getValue()));
+			}
+			return copy;
+		}
+
+		if (value instanceof Collection) {
+			Collection<?> list = (Collection<?>) value;
+			List<Object> copy = new ArrayList<>(list.size());
+			for (Object item : list) {
+				copy.add(copy(item));
+			}
+			return copy;
+		}
+
+		return value;
+	}
+
+	private JsonValues() {
+		//hide constructor
+	}
+}
@@ -0,0 +1,525 @@
+package oakbot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import oakbot.util.FileUtils;
+
+/**
+ * <p>
+ * A database that persists its values to a JSON snapshot file plus an
+ * append-only change log.
+ * </p>
+ * <p>
+ * Each change is appended to the log as a single line of JSON, so the cost
+ * of a commit is proportional to the size of the change, not the size of the
+ * database. When the log grows too large, it is compacted into a new snapshot
+ * on a background thread. Snapshots are written to a temporary file and then
+ * atomically renamed, so a crash never leaves a half-written snapshot behind.
+ * On startup, the snapshot is loaded and the log is replayed on top of it.
+ * </p>
+ * <p>
+ * Each log entry has a sequence number, and the snapshot records the sequence
+ * number of the last change it contains. Entries that are already in the
+ * snapshot are skipped during replay. This matters if the bot crashes after a
+ * new snapshot is written but before the old log is deleted: replaying an
+ * "add" entry twice would add the list item twice.
+ * </p>
+ * <p>
+ * The snapshot uses the same format as {@link JsonDatabase}, so an existing
+ * JSON database file can be used as the snapshot. This class is thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class LogDatabase implements Database {
+	private static final Logger logger = Logger.getLogger(LogDatabase.class.getName());
+
+	/**
+	 * The snapshot key that holds the sequence number of the last change in
+	 * the snapshot.
+	 */
+	static final String SEQUENCE_KEY = "_log-sequence";
+
+	private final Path snapshotFile, logFile, compactingLogFile;
+	private final long compactAfter;
+	private final Map<String, Object> fields = new HashMap<>();
+	private final JsonFactory factory = new JsonFactory();
+
+	//@formatter:off
+	private final ExecutorService compactor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+		.setNameFormat("db-compactor")
+		.setDaemon(true)
+	.build());
+	//@formatter:on
+
+	private final StringBuilder pending = new StringBuilder();
+	private FileChannel log;
+	private long logSize;
+	private long sequence = 0;
+	private long bytesWritten = 0;
+	private boolean compacting = false;
+
+	/**
+	 * Creates a database that compacts its log once it exceeds 1MB.
+	 * @param file the snapshot file (the log is stored in the same directory)
+	 * @throws IOException if there's a problem reading the database files
+	 */
+	public LogDatabase(Path file) throws IOException {
+		this(file, 1024 * 1024);
+	}
+
+	/**
+	 * @param file the snapshot file (the log is stored in the same directory)
+	 * @param compactAfter the size the log must reach before it is compacted
+	 * into a new snapshot (in bytes)
+	 * @throws IOException if there's a problem reading the database files
+	 */
+	public LogDatabase(Path file, long compactAfter) throws IOException {
+		this.snapshotFile = file;
+		this.logFile = file.resolveSibling(file.getFileName() + ".log");
+		this.compactingLogFile = file.resolveSibling(file.getFileName() + ".log.compacting");
+		this.compactAfter = compactAfter;
+
+		if (Files.exists(snapshotFile)) {
+			loadSnapshot();
+		}
+
+		boolean replayed = false;
+		if (Files.exists(compactingLogFile)) {
+			replay(compactingLogFile);
+			replayed = true;
+		}
+		if (Files.exists(logFile)) {
+			replay(logFile);
+			replayed = true;
+		}
+
+		if (replayed) {
+			/*
+			 * Start from a clean snapshot. This also gets rid of any
+			 * partially-written log entry that was left behind by a crash.
+			 */
+			FileUtils.writeAtomically(snapshotFile, snapshot());
+			Files.deleteIfExists(compactingLogFile);
+			Files.deleteIfExists(logFile);
+		}
+
+		openLog();
+	}
+
+	@Override
+	public synchronized Object get(String key) {
+		return fields.get(key);
+	}
+
+	/*
+	 * Values are copied so that the caller can keep modifying them without
+	 * affecting the database (or the snapshot while it is being serialized).
+	 */
+	@Override
+	public synchronized void set(String key, Object value) {
+		fields.put(key, JsonValues.copy(value));
+		append("set", key, null, value, true);
+	}
+
+	@Override
+	public synchronized void remove(String key) {
+		if (!fields.containsKey(key)) {
+			return;
+		}
+
+		fields.remove(key);
+		append("delete", key, null, null, false);
+	}
+
+	@Override
+	public synchronized void setMapEntry(String key, String field, Object value) {
+		Map<String, Object> map = getMap(key);
+		if (map == null) {
+			map = new LinkedHashMap<>();
+			fields.put(key, map);
+		}
+
+		map.put(field, JsonValues.copy(value));
+		append("put", key, field, value, true);
+	}
+
+	@Override
+	public synchronized void removeMapEntry(String key, String field) {
+		Map<String, Object> map = getMap(key);
+		if (map == null || !map.containsKey(field)) {
+			return;
+		}
+
+		map.remove(field);
+		append("remove", key, field, null, false);
+	}
+
+	@Override
+	public synchronized void addListItem(String key, Object item) {
+		List<Object> list = getList(key);
+		if (list == null) {
+			list = new ArrayList<>();
+			fields.put(key, list);
+		}
+
+		list.add(JsonValues.copy(item));
+		append("add", key, null, item, true);
+	}
+
+	/**
+	 * Writes all pending changes to the log and flushes them to disk. If the
+	 * write fails, the changes are kept and written on the next commit.
+	 */
+	@Override
+	public synchronized void commit() {
+		if (pending.length() == 0) {
+			return;
+		}
+
+		byte[] data = pending.toString().getBytes(StandardCharsets.UTF_8);
+		try {
+			if (!log.isOpen()) {
+				//a failed log rotation could not reopen the log
+				openLog();
+			}
+
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining()) {
+				log.write(buffer);
+			}
+			log.force(false);
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Could not write to database log.", e);
+
+			/*
+			 * Part of the data may have made it into the log. Start the retry
+			 * on a new line so that the first entry is not appended to the end
+			 * of a partially-written one (which would make both unreadable).
+			 * One blank line is enough, no matter how many times it fails.
+			 */
+			if (pending.charAt(0) != '\n') {
+				pending.insert(0, '\n');
+			}
+			return;
+		}
+
+		pending.setLength(0);
+		logSize += data.length;
+		bytesWritten += data.length;
+		compactIfNeeded();
+	}
+
+	/**
+	 * Gets the size of the change log.
+	 * @return the size of the log (in bytes)
+	 */
+	public synchronized long getLogSize() {
+		return logSize;
+	}
+
+	@Override
+	public synchronized long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Compacts the log into a new snapshot. This method blocks until the
+	 * compaction finishes.
+	 */
+	public void compact() {
+		boolean compacted = false;
+		try {
+			byte[] snapshot;
+			synchronized (this) {
+				commit();
+				try {
+					rotateLog();
+				} catch (IOException e) {
+					logger.log(Level.SEVERE, "Could not rotate database log.", e);
+					return;
+				}
+				snapshot = snapshot();
+			}
+
+			/*
+			 * Writing the snapshot to disk is the slow part, so do it without
+			 * holding the lock. Changes made in the meantime go to the new
+			 * log.
+			 */
+			try {
+				FileUtils.writeAtomically(snapshotFile, snapshot);
+				Files.deleteIfExists(compactingLogFile);
+			} catch (IOException e) {
+				logger.log(Level.SEVERE, "Could not write database snapshot.", e);
+				return;
+			}
+
+			synchronized (this) {
+				bytesWritten += snapshot.length;
+			}
+			compacted = true;
+		} finally {
+			synchronized (this) {
+				compacting = false;
+
+				/*
+				 * The new log may have filled up while the snapshot was being
+				 * written. If the compaction failed, the next commit will try
+				 * again.
+				 */
+				if (compacted) {
+					compactIfNeeded();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts a compaction on the background thread if the log has grown too
+	 * large.
+	 */
+	private void compactIfNeeded() {
+		if (logSize >= compactAfter && !compacting) {
+			compacting = true;
+			compactor.execute(this::compact);
+		}
+	}
+
+	/**
+	 * Serializes the database into a snapshot.
+	 * @return the snapshot
+	 */
+	private byte[] snapshot() {
+		Map<String, Object> document = new LinkedHashMap<>(fields);
+		document.put(SEQUENCE_KEY, Long.toString(sequence));
+		return JsonValues.writeDocument(document);
+	}
+
+	/**
+	 * Serializes a change and adds it to the list of pending changes.
+	 * @param op the operation ("set", "delete", "put", "remove", or "add")
+	 * @param key the key
+	 * @param field the map field or null if the operation applies to the
+	 * entire value
+	 * @param value the value
+	 * @param hasValue true to include the value in the log entry
+	 */
+	private void append(String op, String key, String field, Object value, boolean hasValue) {
+		StringWriter writer = new StringWriter();
+		try (JsonGenerator generator = factory.createGenerator(writer)) {
+			generator.writeStartObject();
+			generator.writeNumberField("seq", ++sequence);
+			generator.writeStringField("op", op);
+			generator.writeStringField("key", key);
+			if (field != null) {
+				generator.writeStringField("field", field);
+			}
+			if (hasValue) {
+				generator.writeFieldName("value");
+				JsonValues.write(generator, value);
+			}
+			generator.writeEndObject();
+		} catch (IOException e) {
+			//should never be thrown because it's writing to a string
+			throw new RuntimeException(e);
+		}
+
+		pending.append(writer.toString()).append('\n');
+	}
+
+	private void loadSnapshot() throws IOException {
+		try (Reader reader = Files.newBufferedReader(snapshotFile)) {
+			fields.putAll(JsonValues.readDocument(reader));
+		}
+
+		Object value = fields.remove(SEQUENCE_KEY);
+		if (value != null) {
+			try {
+				sequence = Long.parseLong(value.toString());
+			} catch (NumberFormatException e) {
+				logger.warning("Ignoring invalid sequence number in database snapshot: " + value);
+			}
+		}
+	}
+
+	private void replay(Path file) throws IOException {
+		int lineNumber = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.isEmpty()) {
+					continue;
+				}
+
+				try {
+					apply(line);
+				} catch (IOException e) {
+					/*
+					 * This is most likely the last entry in the log, which was
+					 * only partially written when the bot crashed.
+					 */
+					logger.log(Level.WARNING, "Skipping unreadable entry on line " + lineNumber + " of database log " + file + ".", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses a log entry and applies it to the database. The entry is skipped
+	 * if the snapshot already contains it.
+	 * @param line the log entry
+	 * @throws IOException if the log entry can't be parsed
+	 */
+	private void apply(String line) throws IOException {
+		String op = null, key = null, field = null;
+		Object value = null;
+		long seq = 0;
+
+		try (JsonParser parser = factory.createParser(line)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException("Expected log entry to be a JSON object.", parser.getCurrentLocation());
+			}
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				parser.nextToken();
+
+				switch (name) {
+				case "seq":
+					seq = parser.getLongValue();
+					break;
+				case "op":
+					op = parser.getText();
+					break;
+				case "key":
+					key = parser.getText();
+					break;
+				case "field":
+					field = parser.getText();
+					break;
+				case "value":
+					value = JsonValues.read(parser);
+					break;
+				default:
+					parser.skipChildren();
+					break;
+				}
+			}
+
+			if (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+				throw new JsonParseException("Log entry is incomplete.", parser.getCurrentLocation());
+			}
+		}
+
+		if (op == null || key == null) {
+			throw new JsonParseException("Log entry is missing its operation or key: " + line, null);
+		}
+
+		/*
+		 * Entries written before sequence numbers were added do not have one,
+		 * and are always applied.
+		 */
+		if (seq > 0) {
+			if (seq <= sequence) {
+				return;
+			}
+			sequence = seq;
+		}
+
+		switch (op) {
+		case "set":
+			fields.put(key, value);
+			break;
+		case "delete":
+			fields.remove(key);
+			break;
+		case "put": {
+			Map<String, Object> map = getMap(key);
+			if (map == null) {
+				map = new LinkedHashMap<>();
+				fields.put(key, map);
+			}
+			map.put(field, value);
+			break;
+		}
+		case "remove": {
+			Map<String, Object> map = getMap(key);
+			if (map != null) {
+				map.remove(field);
+			}
+			break;
+		}
+		case "add": {
+			List<Object> list = getList(key);
+			if (list == null) {
+				list = new ArrayList<>();
+				fields.put(key, list);
+			}
+			list.add(value);
+			break;
+		}
+		default:
+			logger.warning("Ignoring database log entry with unknown operation: " + line);
+			break;
+		}
+	}
+
+	private void openLog() throws IOException {
+		log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		logSize = log.size();
+	}
+
+	/**
+	 * Moves the current log out of the way so that a snapshot can be taken,
+	 * and starts a new log. The log is reopened even if the rotation fails,
+	 * so that later commits can still write to it.
+	 * @throws IOException if there's a problem rotating the log
+	 */
+	private void rotateLog() throws IOException {
+		log.close();
+
+		try {
+			if (Files.exists(compactingLogFile)) {
+				/*
+				 * A previous compaction failed, so its log is still needed.
+				 * Append the current log to it. If the log can't be deleted
+				 * afterwards, its entries are skipped during replay because
+				 * their sequence numbers have already been seen.
+				 */
+				Files.write(compactingLogFile, Files.readAllBytes(logFile), StandardOpenOption.APPEND);
+				Files.delete(logFile);
+			} else {
+				Files.move(logFile, compactingLogFile, StandardCopyOption.ATOMIC_MOVE);
+			}
+		} finally {
+			openLog();
+		}
+	}
+}
@@ -8,6 +8,7 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
@@ -21,13 +22,14 @@ import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
+import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.glassfish.tyrus.client.ClientManager;
 import org.glassfish.tyrus.client.ClientProperties;
 import org.glassfish.tyrus.container.jdk.client.JdkClientContainer;
 
 import oakbot.bot.Bot;
+import oakbot.bot.InboundMessageQueue.OverflowPolicy;
 import oakbot.chat.ChatClient;
 import oakbot.chat.IChatClient;
 import oakbot.command.AboutCommand;
@@ -54,6 +56,7 @@ import oakbot.command.http.HttpCommand;
 import oakbot.command.javadoc.JavadocCommand;
 import oakbot.command.javadoc.JavadocDao;
 import oakbot.command.javadoc.JavadocDaoCached;
+import oakbot.command.javadoc.JavadocDaoIndexed;
 import oakbot.command.javadoc.JavadocDaoUncached;
 import oakbot.command.learn.LearnCommand;
 import oakbot.command.learn.LearnedCommands;
@@ -74,6 +77,7 @@ import oakbot.task.FOTD;
 import oakbot.task.HealthMonitor;
 import oakbot.task.QOTD;
 import oakbot.task.ScheduledTask;
+import oakbot.util.HttpFactory;
 
 /**
  * @author Michael Angstadt
@@ -132,15 +136,57 @@ public class Main {
 			settings = defaultSettings;
 		}
 
+		Path importDb = arguments.importDb();
+		if (importDb != null) {
+			/*
+			 * The default database path is a JSON file, which cannot also be
+			 * used as the directory of a directory database.
+			 */
+			Path db = arguments.db();
+			if (db == null) {
+				System.err.println("The \"--db\" argument is required when importing a database. It must point to the directory to import into.");
+				System.exit(1);
+				return;
+			}
+			if (Files.isRegularFile(db)) {
+				System.err.println("Cannot import into " + db + ": The \"--db\" argument must point to a directory, not a file.");
+				System.exit(1);
+				return;
+			}
+
+			setupLogging();
+
+			DirectoryDatabase database = new DirectoryDatabase(db);
+			int keys = database.importJson(importDb);
+			System.out.println("Imported " + keys + " keys from " + importDb + " into " + db + ".");
+			return;
+		}
+
 		Path db = arguments.db();
 		if (db == null) {
 			db = defaultDb;
 		}
 
 		setupLogging();
+
 		BotProperties props = loadProperties(settings);
 
-		Database database = new JsonDatabase(db);
+		/*
+		 * Commands, tasks, and API objects get their HTTP clients from the
+		 * default factory, so it must be set before any of them are created.
+		 */
+		//@formatter:off
+		HttpFactory httpFactory = new HttpFactory.Builder()
+			.maxConnections(props.getHttpMaxConnections(), props.getHttpMaxConnectionsPerRoute())
+			.connectTimeout(Duration.ofMillis(props.getHttpConnectTimeout()))
+			.readTimeout(Duration.ofMillis(props.getHttpReadTimeout()))
+			.keepAlive(Duration.ofMillis(props.getHttpKeepAlive()))
+			.idleTimeout(Duration.ofMillis(props.getHttpIdleTimeout()))
+		.build();
+		//@formatter:on
+		HttpFactory.setDefault(httpFactory);
+
+		Database database = createDatabase(props, db);
 		Statistics stats = new Statistics(database);
 		Rooms rooms = new Rooms(database, props.getHomeRooms(), props.getQuietRooms());
 		LearnedCommands learnedCommands = new LearnedCommands(database);
@@ -235,13 +281,20 @@ public class Main {
 			filters.add(upsidedownTextFilter); //should be last
 		}
 
-		CloseableHttpClient httpClient = HttpClients.createDefault();
+		CloseableHttpClient httpClient = httpFactory.newClient(new BasicCookieStore());
 
 		ClientManager websocketClient = ClientManager.createClient(JdkClientContainer.class.getName());
 		websocketClient.setDefaultMaxSessionIdleTimeout(0);
 		websocketClient.getProperties().put(ClientProperties.RETRY_AFTER_SERVICE_UNAVAILABLE, true);
 
-		IChatClient connection = new ChatClient(httpClient, websocketClient);
+		ChatClient chatClient = new ChatClient(httpClient, websocketClient);
+
+		/*
+		 * The bot's outbound sender waits out "posting too quickly" responses
+		 * without tying up a thread, so the chat client should not sleep.
+		 */
+		chatClient.setRetryWhenThrottled(false);
+		IChatClient connection = chatClient;
 
 		//@formatter:off
 		Bot bot = new Bot.Builder()
@@ -261,11 +314,17 @@ public class Main {
 			.stats(stats)
 			.database(database)
 			.hideOneboxesAfter(props.getHideOneboxesAfter())
+			.messageWorkers(props.getMessageWorkers())
+			.inboundQueue(props.getInboundQueueCapacity(), OverflowPolicy.parse(props.getInboundQueueOverflowPolicy()))
+			.editWindow(Duration.ofMillis(props.getEditWindow()))
 		.build();
 		//@formatter:on
 
 		bot.connect(arguments.quiet()).join();
 
+		logger.info("HTTP connection pool stats: " + httpFactory.getStats());
+		httpFactory.close();
+
 		logger.info("Terminating.");
 	}
 
@@ -296,14 +355,44 @@ public class Main {
 		return new BotProperties(properties);
 	}
 
+	private static Database createDatabase(BotProperties props, Path file) throws IOException {
+		Database database;
+		String type = props.getDatabaseType();
+		switch (type) {
+		case "json":
+			database = new JsonDatabase(file);
+			break;
+		case "log":
+			database = new LogDatabase(file);
+			break;
+		case "directory":
+			database = new DirectoryDatabase(file);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown database type: " + type);
+		}
+
+		int commitWindow = props.getDatabaseCommitWindow();
+		if (commitWindow > 0) {
+			database = new CoalescingDatabase(database, Duration.ofMillis(commitWindow), props.getDatabaseCommitThreshold());
+		}
+
+		return database;
+	}
+
 	private static JavadocCommand createJavadocCommand(BotProperties props) throws IOException {
 		Path javadocPath = props.getJavadocPath();
 		if (javadocPath == null) {
 			return null;
 		}
 
-		boolean javadocCache = props.getJavadocCache();
-		JavadocDao dao = javadocCache ? new JavadocDaoCached(javadocPath) : new JavadocDaoUncached(javadocPath);
+		JavadocDao dao;
+		if (props.getJavadocIndex()) {
+			dao = new JavadocDaoIndexed(javadocPath);
+		} else {
+			boolean javadocCache = props.getJavadocCache();
+			dao = javadocCache ? new JavadocDaoCached(javadocPath, props.getJavadocCacheSize()) : new JavadocDaoUncached(javadocPath);
+		}
 		return new JavadocCommand(dao);
 	}
 
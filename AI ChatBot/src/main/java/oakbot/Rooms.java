@@ -5,7 +5,8 @@ import java.util.Collections;
 import java.util.List;
 
 /**
- * Records and persists the rooms the bot has joined.
+ * Records and persists the rooms the bot has joined. This class is
+ * thread-safe.
  * @author Michael Angstadt
  */
 public class Rooms {
@@ -60,8 +61,8 @@ public class Rooms {
 	 * Gets all the rooms the bot has joined, including home rooms.
 	 * @return the room IDs
 	 */
-	public List<Integer> getRooms() {
-		return Collections.unmodifiableList(rooms);
+	public synchronized List<Integer> getRooms() {
+		return Collections.unmodifiableList(new ArrayList<>(rooms));
 	}
 
 	/**
@@ -85,7 +86,7 @@ public class Rooms {
 	 * in the list.
 	 * @param roomId the room ID
 	 */
-	public void add(int roomId) {
+	public synchronized void add(int roomId) {
 		if (rooms.contains(roomId)) {
 			return;
 		}
@@ -99,7 +100,7 @@ public class Rooms {
 	 * @param roomId the room ID
 	 * @return true if it was removed, false if no room was found
 	 */
-	public boolean remove(int roomId) {
+	public synchronized boolean remove(int roomId) {
 		boolean removed = rooms.remove((Integer) roomId);
 		if (removed) {
 			save();
@@ -112,7 +113,7 @@ public class Rooms {
 	 * @param roomId the room ID
 	 * @return true if it's in the list, false if not
 	 */
-	public boolean contains(int roomId) {
+	public synchronized boolean contains(int roomId) {
 		return rooms.contains((Integer) roomId);
 	}
 
@@ -9,12 +9,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,20 +25,25 @@ import oakbot.Database;
 import oakbot.Rooms;
 import oakbot.Statistics;
 import oakbot.bot.BotContext.JoinRoomCallback;
+import oakbot.bot.InboundMessageQueue.OverflowPolicy;
 import oakbot.chat.ChatMessage;
 import oakbot.chat.IChatClient;
 import oakbot.chat.IRoom;
 import oakbot.chat.InvalidCredentialsException;
+import oakbot.chat.Room;
 import oakbot.chat.RoomNotFoundException;
 import oakbot.chat.RoomPermissionException;
+import oakbot.chat.SplitStrategy;
 import oakbot.chat.event.MessageEditedEvent;
 import oakbot.chat.event.MessagePostedEvent;
+import oakbot.command.AsyncCommand;
 import oakbot.command.Command;
-import oakbot.command.learn.LearnedCommand;
 import oakbot.command.learn.LearnedCommands;
 import oakbot.filter.ChatResponseFilter;
+import oakbot.listener.AsyncListener;
 import oakbot.listener.Listener;
 import oakbot.task.ScheduledTask;
+import oakbot.util.ChatBuilder;
 
 /**
  * A Stackoverflow chat bot.
@@ -49,14 +55,14 @@ public class Bot {
 	private final String email, password, userName, trigger, greeting;
 	private final Integer userId;
 	private final IChatClient connection;
-	private final BlockingQueue<ChatMessage> newMessages = new LinkedBlockingQueue<>();
-	private final ChatMessage CLOSE_MESSAGE = new ChatMessage.Builder().build();
+	private final InboundMessageQueue newMessages;
+	private final EditCoalescer editCoalescer;
+	private final OutboundSender outboundSender;
 	private final List<Integer> admins, bannedUsers;
 	private final Integer hideOneboxesAfter;
 	private final Rooms rooms;
 	private final Integer maxRooms;
-	private final List<Command> commands;
-	private final LearnedCommands learnedCommands;
+	private final CommandIndex commandIndex;
 	private final List<Listener> listeners;
 	private final List<ChatResponseFilter> responseFilters;
 	private final List<ScheduledTask> scheduledTasks;
@@ -64,6 +70,10 @@ public class Bot {
 	private final Database database;
 	private final UnknownCommandHandler unknownCommandHandler;
 	private final Timer timer = new Timer();
+	private final Integer messageWorkers;
+	private final String stillWorkingMessage;
+	private final Duration stillWorkingAfter;
+	private volatile ShardedMessageProcessor messageProcessor;
 	private final InactiveRoomTasks inactiveRoomTasks = new InactiveRoomTasks(Duration.ofHours(6).toMillis(), Duration.ofDays(3).toMillis());
 
 	/**
@@ -85,6 +95,42 @@ public class Bot {
 	 */
 	private final Map<Long, PostedMessage> postedMessages = new HashMap<>();
 
+	/**
+	 * Messages that were posted by the bot and echoed back before the bot
+	 * finished recording them in {@link #postedMessages}. This can happen
+	 * because messages are posted on a different thread. This map is guarded
+	 * by {@link #postedMessages}.
+	 */
+	private final Map<Long, ChatMessage> earlyEchoes = new LinkedHashMap<Long, ChatMessage>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, ChatMessage> eldest) {
+			return size() > 100;
+		}
+	};
+
+	/**
+	 * <p>
+	 * The replies the bot posted in response to recent messages. When one of
+	 * these messages is edited, the bot edits its replies instead of posting
+	 * new ones.
+	 * </p>
+	 * <ul>
+	 * <li>Key = The ID of the message that the bot responded to.</li>
+	 * <li>Value = The bot's replies (which may still be waiting to be
+	 * posted).</li>
+	 * </ul>
+	 */
+	private final Map<Long, List<CompletableFuture<PostedReply>>> answeredMessages = new LinkedHashMap<Long, List<CompletableFuture<PostedReply>>>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, List<CompletableFuture<PostedReply>>> eldest) {
+			return size() > 1000;
+		}
+	};
+
 	private Bot(Builder builder) {
 		connection = builder.connection;
 		email = builder.email;
@@ -101,11 +147,16 @@ public class Bot {
 		stats = builder.stats;
 		database = builder.database;
 		unknownCommandHandler = builder.unknownCommandHandler;
-		commands = builder.commands.build();
-		learnedCommands = builder.learnedCommands;
+		commandIndex = new CommandIndex(builder.commands.build(), builder.learnedCommands);
 		listeners = builder.listeners.build();
 		scheduledTasks = builder.tasks.build();
 		responseFilters = builder.responseFilters.build();
+		messageWorkers = builder.messageWorkers;
+		stillWorkingMessage = builder.stillWorkingMessage;
+		stillWorkingAfter = builder.stillWorkingAfter;
+		newMessages = new InboundMessageQueue(builder.inboundQueueCapacity, builder.inboundQueueOverflowPolicy);
+		editCoalescer = new EditCoalescer(builder.editWindow, newMessages::add);
+		outboundSender = new OutboundSender(builder.outboundBurst, builder.outboundRefillInterval);
 	}
 
 	private void scheduleTask(ScheduledTask task) {
@@ -163,6 +214,10 @@ public class Bot {
 			}
 		}
 
+		if (messageWorkers != null && messageWorkers > 1) {
+			messageProcessor = new ShardedMessageProcessor(messageWorkers, newMessages, this::handleMessage);
+		}
+
 		Thread thread = new Thread(() -> {
 			try {
 				for (ScheduledTask task : scheduledTasks) {
@@ -170,23 +225,56 @@ public class Bot {
 				}
 				scheduleNextRoomCheck();
 
-				while (true) {
-					ChatMessage message;
+				if (messageProcessor == null) {
+					while (true) {
+						ChatMessage message;
+						try {
+							message = newMessages.take();
+						} catch (InterruptedException e) {
+							break;
+						}
+
+						if (message == null) {
+							//the bot was stopped
+							break;
+						}
+
+						handleMessage(message);
+					}
+				} else {
+					/*
+					 * The workers take the messages from the queue themselves.
+					 * They stop when the bot is stopped.
+					 */
 					try {
-						message = newMessages.take();
+						messageProcessor.awaitTermination();
 					} catch (InterruptedException e) {
-						break;
-					}
-
-					if (message == CLOSE_MESSAGE) {
-						break;
+						//stop the workers below
 					}
-
-					handleMessage(message);
 				}
 			} catch (Exception e) {
 				logger.log(Level.SEVERE, "Bot terminated due to unexpected exception.", e);
 			} finally {
+				if (messageProcessor != null) {
+					try {
+						messageProcessor.shutdown();
+					} catch (InterruptedException e) {
+						logger.log(Level.WARNING, "Interrupted while waiting for the message workers to finish.", e);
+					}
+				}
+
+				try {
+					if (!outboundSender.shutdown(Duration.ofSeconds(30))) {
+						logger.warning("Gave up waiting for the remaining messages to be posted.");
+					}
+				} catch (InterruptedException e) {
+					logger.log(Level.WARNING, "Interrupted while waiting for the remaining messages to be posted.", e);
+				}
+
+				for (Map.Entry<Integer, OutboundSender.Stats> entry : outboundSender.getStats().entrySet()) {
+					logger.info("Outbound message stats [room=" + entry.getKey() + "]: " + entry.getValue());
+				}
+
 				try {
 					connection.close();
 				} catch (IOException e) {
@@ -194,7 +282,7 @@ public class Bot {
 				}
 
 				if (database != null) {
-					database.commit();
+					database.flush();
 				}
 
 				timer.cancel();
@@ -229,47 +317,13 @@ public class Bot {
 			PostedMessage originalMessage;
 			synchronized (postedMessages) {
 				originalMessage = postedMessages.remove(message.getMessageId());
-			}
-
-			/*
-			 * Check to see if the message should be edited for brevity after a
-			 * short time so it doesn't spam the chat history.
-			 * 
-			 * This could happen if (1) the bot posted something that Stack
-			 * Overflow Chat converted to a onebox (e.g. an image) or (2) the
-			 * message itself has asked to be edited (e.g. a javadoc
-			 * description).
-			 * 
-			 * Stack Overflow Chat converts certain URLs to "oneboxes". Oneboxes
-			 * can be fairly large and can spam the chat. For example, if the
-			 * message is a URL to an image, the image itself will be displayed
-			 * in the chat room. This is nice, but gets annoying if the image is
-			 * large or if it's an animated GIF.
-			 * 
-			 * After giving people some time to see the onebox, edit the message
-			 * so that the onebox no longer displays, but the URL is still
-			 * preserved.
-			 */
-			if (originalMessage != null && hideOneboxesAfter != null && (message.getContent().isOnebox() || originalMessage.hide())) {
-				long hideIn = hideOneboxesAfter - (System.currentTimeMillis() - originalMessage.getTimePosted());
-				if (logger.isLoggable(Level.INFO)) {
-					String action = message.getContent().isOnebox() ? "Hiding onebox" : "Condensing message";
-					logger.info(action + " in " + hideIn + "ms [room=" + message.getRoomId() + ", id=" + message.getMessageId() + "]: " + message.getContent());
+				if (originalMessage == null) {
+					earlyEchoes.put(message.getMessageId(), message);
 				}
+			}
 
-				timer.schedule(new TimerTask() {
-					@Override
-					public void run() {
-						try {
-							room.editMessage(message.getMessageId(), "> " + originalMessage.getContent());
-							for (Long id : originalMessage.getRelatedMessageIds()) {
-								room.deleteMessage(id);
-							}
-						} catch (Exception e) {
-							logger.log(Level.SEVERE, "Problem editing chat message [room=" + message.getRoomId() + ", id=" + message.getMessageId() + "]", e);
-						}
-					}
-				}, hideIn);
+			if (originalMessage != null) {
+				hideLater(room, message, originalMessage);
 			}
 
 			return;
@@ -278,27 +332,24 @@ public class Bot {
 		inactiveRoomTasks.resetTimer(room);
 
 		List<ChatResponse> replies = new ArrayList<>();
+		List<CompletableFuture<ChatResponse>> asyncReplies = new ArrayList<>();
 		boolean isUserAdmin = admins.contains(message.getUserId());
 		BotContext context = new BotContext(isUserAdmin, trigger, connection, rooms.getRooms(), rooms.getHomeRooms(), maxRooms);
 
-		replies.addAll(handleListeners(message, context));
+		replies.addAll(handleListeners(room, message, context, asyncReplies));
 
 		ChatCommand command = ChatCommand.fromMessage(message, trigger);
 		if (command != null) {
-			replies.addAll(handleCommands(command, context));
+			replies.addAll(handleCommands(room, command, context, asyncReplies));
 		}
 
 		if (context.isShutdown()) {
 			String shutdownMessage = context.getShutdownMessage();
 			if (shutdownMessage != null) {
-				try {
-					if (context.isShutdownMessageBroadcast()) {
-						broadcast(shutdownMessage);
-					} else {
-						sendMessage(room, shutdownMessage);
-					}
-				} catch (IOException e) {
-					logger.log(Level.SEVERE, "Problem sending shutdown message.", e);
+				if (context.isShutdownMessageBroadcast()) {
+					broadcast(shutdownMessage);
+				} else {
+					sendMessage(room, shutdownMessage);
 				}
 			}
 
@@ -308,22 +359,49 @@ public class Bot {
 			return;
 		}
 
-		if (!replies.isEmpty()) {
-			if (logger.isLoggable(Level.INFO)) {
-				logger.info("Responding to message [room=" + message.getRoomId() + ", user=" + message.getUsername() + ", id=" + message.getMessageId() + "]: " + message.getContent());
-			}
+		if (!replies.isEmpty() || !asyncReplies.isEmpty()) {
+			if (!replies.isEmpty()) {
+				if (logger.isLoggable(Level.INFO)) {
+					logger.info("Responding to message [room=" + message.getRoomId() + ", user=" + message.getUsername() + ", id=" + message.getMessageId() + "]: " + message.getContent());
+				}
 
-			if (stats != null) {
-				stats.incMessagesRespondedTo(replies.size());
+				if (stats != null) {
+					stats.incMessagesRespondedTo(replies.size());
+				}
 			}
 
-			for (ChatResponse reply : replies) {
-				try {
-					sendMessage(room, reply);
-				} catch (IOException e) {
-					logger.log(Level.SEVERE, "Problem posting message [room=" + room.getRoomId() + "]: " + reply.getMessage(), e);
+			List<CompletableFuture<PostedReply>> previousReplies = null;
+			if (message.getEdits() > 0) {
+				synchronized (answeredMessages) {
+					previousReplies = answeredMessages.get(message.getMessageId());
 				}
 			}
+
+			List<CompletableFuture<PostedReply>> postedReplies = new ArrayList<>(replies.size() + asyncReplies.size());
+			for (int i = 0; i < replies.size(); i++) {
+				ChatResponse reply = replies.get(i);
+				CompletableFuture<PostedReply> previousReply = previousReply(previousReplies, i);
+				postedReplies.add((previousReply == null) ? postReply(room, reply) : updateReply(room, reply, previousReply));
+			}
+
+			/*
+			 * Replies that are not ready yet are recorded too, so that if the
+			 * message is edited, their replies are edited instead of new ones
+			 * being posted.
+			 */
+			for (int i = 0; i < asyncReplies.size(); i++) {
+				CompletableFuture<PostedReply> previousReply = previousReply(previousReplies, replies.size() + i);
+				postedReplies.add(asyncReplies.get(i).thenCompose(reply -> {
+					if (reply == null) {
+						return CompletableFuture.completedFuture(null);
+					}
+					return (previousReply == null) ? postReply(room, reply) : updateReply(room, reply, previousReply);
+				}));
+			}
+
+			synchronized (answeredMessages) {
+				answeredMessages.put(message.getMessageId(), postedReplies);
+			}
 		}
 
 		for (Map.Entry<Integer, JoinRoomCallback> entry : context.getRoomsToJoin().entrySet()) {
@@ -355,11 +433,7 @@ public class Bot {
 			}
 
 			if (response != null) {
-				try {
-					sendMessage(room, response);
-				} catch (IOException e) {
-					logger.log(Level.SEVERE, "Problem posting leave message [room=" + room.getRoomId() + "]: " + response, e);
-				}
+				sendMessage(room, response);
 			}
 		}
 
@@ -378,42 +452,177 @@ public class Bot {
 
 	/**
 	 * Posts a message to a room. If the bot has not joined the given room, then
-	 * it will not post anything.
+	 * it will not post anything. This method does not wait for the message to
+	 * be posted.
 	 * @param roomId the room ID
 	 * @param message the message to post
-	 * @throws IOException if there's a problem sending the message
+	 * @return a future that completes with the IDs of the posted messages
+	 * (empty if the bot is not in the room) or completes exceptionally if the
+	 * message could not be posted
 	 */
-	public void sendMessage(int roomId, ChatResponse message) throws IOException {
+	public CompletableFuture<List<Long>> sendMessage(int roomId, ChatResponse message) {
 		IRoom room = connection.getRoom(roomId);
-		if (room != null) {
-			sendMessage(room, message);
+		if (room == null) {
+			return CompletableFuture.completedFuture(Collections.emptyList());
 		}
+		return sendMessage(room, message);
 	}
 
-	private void sendMessage(IRoom room, String message) throws IOException {
+	private void sendMessage(IRoom room, String message) {
 		sendMessage(room, new ChatResponse(message));
 	}
 
-	private void sendMessage(IRoom room, ChatResponse reply) throws IOException {
-		final String filteredMessage;
-		if (reply.isBypassFilters()) {
-			filteredMessage = reply.getMessage();
-		} else {
-			String messageText = reply.getMessage();
-			for (ChatResponseFilter filter : responseFilters) {
-				if (filter.isEnabled(room.getRoomId())) {
-					messageText = filter.filter(messageText);
+	/**
+	 * Gets a reply that the bot previously posted in response to a message.
+	 * @param previousReplies the replies to the message or null if the bot
+	 * has not responded to it
+	 * @param i the position of the reply
+	 * @return the reply or null if there is no reply at that position
+	 */
+	private static CompletableFuture<PostedReply> previousReply(List<CompletableFuture<PostedReply>> previousReplies, int i) {
+		return (previousReplies == null || i >= previousReplies.size()) ? null : previousReplies.get(i);
+	}
+
+	/**
+	 * Posts a reply to a message.
+	 * @param room the room to post the reply to
+	 * @param reply the reply
+	 * @return the posted reply
+	 */
+	private CompletableFuture<PostedReply> postReply(IRoom room, ChatResponse reply) {
+		return sendMessage(room, reply).thenApply(messageIds -> new PostedReply(messageIds.get(0), reply.getMessage()));
+	}
+
+	/**
+	 * Replaces a reply that the bot previously posted in response to a message
+	 * that has since been edited. If the reply can no longer be edited (for
+	 * example, because it is too old), a new reply is posted.
+	 * @param room the room the reply is in
+	 * @param reply the new reply
+	 * @param previousReply the reply to replace
+	 * @return the posted reply
+	 */
+	private CompletableFuture<PostedReply> updateReply(IRoom room, ChatResponse reply, CompletableFuture<PostedReply> previousReply) {
+		return previousReply.handle((previous, thrown) -> {
+			if (previous == null) {
+				//the previous reply could not be posted
+				return postReply(room, reply);
+			}
+
+			if (reply.getMessage().equals(previous.getContent())) {
+				return CompletableFuture.completedFuture(previous);
+			}
+
+			String filteredMessage = filter(room, reply);
+			if (logger.isLoggable(Level.INFO)) {
+				logger.info("Updating reply [room=" + room.getRoomId() + ", id=" + previous.getMessageId() + "]: " + filteredMessage);
+			}
+
+			return outboundSender.submit(room, (r) -> {
+				r.editMessage(previous.getMessageId(), filteredMessage);
+				return new PostedReply(previous.getMessageId(), reply.getMessage());
+			}).handle((updated, e) -> {
+				if (updated != null) {
+					return CompletableFuture.completedFuture(updated);
 				}
+
+				logger.log(Level.WARNING, "Could not update reply, posting a new one instead [room=" + room.getRoomId() + ", id=" + previous.getMessageId() + "].", e);
+				return postReply(room, reply);
+			}).thenCompose(future -> future);
+		}).thenCompose(future -> future);
+	}
+
+	/**
+	 * Runs a message through the response filters that are enabled for a room.
+	 * @param room the room the message will be posted to
+	 * @param reply the message
+	 * @return the filtered message text
+	 */
+	private String filter(IRoom room, ChatResponse reply) {
+		return filter(enabledFilters(room, reply), reply);
+	}
+
+	/**
+	 * Gets the response filters that apply to a message.
+	 * @param room the room the message will be posted to
+	 * @param reply the message
+	 * @return the filters, in the order they should be applied
+	 */
+	private List<ChatResponseFilter> enabledFilters(IRoom room, ChatResponse reply) {
+		if (reply.isBypassFilters()) {
+			return Collections.emptyList();
+		}
+
+		List<ChatResponseFilter> enabled = new ArrayList<>(responseFilters.size());
+		for (ChatResponseFilter filter : responseFilters) {
+			if (filter.isEnabled(room.getRoomId())) {
+				enabled.add(filter);
 			}
-			filteredMessage = messageText;
 		}
+		return enabled;
+	}
+
+	/**
+	 * Runs a message through a list of response filters.
+	 * @param filters the filters
+	 * @param reply the message
+	 * @return the filtered message text
+	 */
+	private static String filter(List<ChatResponseFilter> filters, ChatResponse reply) {
+		String messageText = reply.getMessage();
+		for (ChatResponseFilter filter : filters) {
+			messageText = filter.filter(messageText);
+		}
+		return messageText;
+	}
 
+	/**
+	 * Queues a message to be posted.
+	 * @param room the room to post the message to
+	 * @param reply the message
+	 * @return the IDs of the posted messages
+	 */
+	private CompletableFuture<List<Long>> sendMessage(IRoom room, ChatResponse reply) {
+		return sendMessage(room, reply, filter(room, reply));
+	}
+
+	/**
+	 * Queues a message to be posted.
+	 * @param room the room to post the message to
+	 * @param reply the message
+	 * @param filteredMessage the message text, after it has been run through
+	 * the room's response filters
+	 * @return the IDs of the posted messages
+	 */
+	private CompletableFuture<List<Long>> sendMessage(IRoom room, ChatResponse reply, String filteredMessage) {
 		if (logger.isLoggable(Level.INFO)) {
 			logger.info("Sending message [room=" + room.getRoomId() + "]: " + filteredMessage);
 		}
 
-		synchronized (postedMessages) {
-			List<Long> messageIds = room.sendMessage(filteredMessage, reply.getSplitStrategy());
+		/*
+		 * Each part of a long message is queued as its own operation, so that
+		 * if the chat system says the bot is posting too quickly, only the
+		 * part that was rejected is posted again. The room's queue posts the
+		 * parts in order.
+		 */
+		List<String> parts = Room.split(filteredMessage, reply.getSplitStrategy());
+		List<CompletableFuture<Long>> postedParts = new ArrayList<>(parts.size());
+		for (String part : parts) {
+			CompletableFuture<Long> previousPart = postedParts.isEmpty() ? null : postedParts.get(postedParts.size() - 1);
+			postedParts.add(outboundSender.submit(room, (r) -> {
+				if (previousPart != null && previousPart.isCompletedExceptionally()) {
+					throw new IOException("The previous part of the message could not be posted.");
+				}
+				return r.sendMessage(part, SplitStrategy.NONE).get(0);
+			}));
+		}
+
+		CompletableFuture<List<Long>> future = CompletableFuture.allOf(postedParts.toArray(new CompletableFuture<?>[0])).thenApply((v) -> {
+			List<Long> messageIds = new ArrayList<>(postedParts.size());
+			for (CompletableFuture<Long> postedPart : postedParts) {
+				messageIds.add(postedPart.join());
+			}
+
 			long now = System.currentTimeMillis();
 
 			String hideMessage = reply.getHideMessage();
@@ -423,8 +632,87 @@ public class Bot {
 			}
 
 			PostedMessage postedMessage = new PostedMessage(now, hideMessage, hide, messageIds.subList(1, messageIds.size()));
-			postedMessages.put(messageIds.get(0), postedMessage);
+			ChatMessage echo;
+			synchronized (postedMessages) {
+				echo = earlyEchoes.remove(messageIds.get(0));
+				if (echo == null) {
+					postedMessages.put(messageIds.get(0), postedMessage);
+				}
+			}
+
+			if (echo != null) {
+				hideLater(room, echo, postedMessage);
+			}
+
+			return messageIds;
+		});
+
+		future.whenComplete((messageIds, thrown) -> {
+			if (thrown != null) {
+				logger.log(Level.SEVERE, "Problem posting message [room=" + room.getRoomId() + "]: " + filteredMessage, thrown);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Checks to see if a message the bot posted should be edited for brevity
+	 * after a short time so it doesn't spam the chat history, and schedules
+	 * the edit if so.
+	 * @param room the room the message was posted to
+	 * @param message the message, as it was echoed back by the chat room
+	 * @param originalMessage the message, as it was sent by the bot
+	 */
+	private void hideLater(IRoom room, ChatMessage message, PostedMessage originalMessage) {
+		/*
+		 * This could happen if (1) the bot posted something that Stack
+		 * Overflow Chat converted to a onebox (e.g. an image) or (2) the
+		 * message itself has asked to be edited (e.g. a javadoc description).
+		 * 
+		 * Stack Overflow Chat converts certain URLs to "oneboxes". Oneboxes can
+		 * be fairly large and can spam the chat. For example, if the message
+		 * is a URL to an image, the image itself will be displayed in the chat
+		 * room. This is nice, but gets annoying if the image is large or if
+		 * it's an animated GIF.
+		 * 
+		 * After giving people some time to see the onebox, edit the message so
+		 * that the onebox no longer displays, but the URL is still preserved.
+		 */
+		if (hideOneboxesAfter == null || !(message.getContent().isOnebox() || originalMessage.hide())) {
+			return;
 		}
+
+		long hideIn = hideOneboxesAfter - (System.currentTimeMillis() - originalMessage.getTimePosted());
+		if (logger.isLoggable(Level.INFO)) {
+			String action = message.getContent().isOnebox() ? "Hiding onebox" : "Condensing message";
+			logger.info(action + " in " + hideIn + "ms [room=" + message.getRoomId() + ", id=" + message.getMessageId() + "]: " + message.getContent());
+		}
+
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				outboundSender.submit(room, (r) -> {
+					r.editMessage(message.getMessageId(), "> " + originalMessage.getContent());
+					return null;
+				}).whenComplete((result, thrown) -> {
+					if (thrown != null) {
+						logger.log(Level.SEVERE, "Problem editing chat message [room=" + message.getRoomId() + ", id=" + message.getMessageId() + "]", thrown);
+					}
+				});
+
+				for (Long id : originalMessage.getRelatedMessageIds()) {
+					outboundSender.submit(room, (r) -> {
+						r.deleteMessage(id);
+						return null;
+					}).whenComplete((result, thrown) -> {
+						if (thrown != null) {
+							logger.log(Level.SEVERE, "Problem deleting chat message [room=" + message.getRoomId() + ", id=" + id + "]", thrown);
+						}
+					});
+				}
+			}
+		}, Math.max(hideIn, 0));
 	}
 
 	/**
@@ -460,7 +748,7 @@ public class Bot {
 			newMessages.add(event.getMessage());
 		});
 		room.addEventListener(MessageEditedEvent.class, (event) -> {
-			newMessages.add(event.getMessage());
+			editCoalescer.add(event.getMessage());
 		});
 
 		if (!quiet && greeting != null) {
@@ -506,23 +794,74 @@ public class Bot {
 		return rooms;
 	}
 
-	private List<ChatResponse> handleListeners(ChatMessage message, BotContext context) {
+	/**
+	 * Gets the number of messages that have been received from the chat rooms,
+	 * but have not been handled yet.
+	 * @return the number of queued messages
+	 */
+	public int getQueueDepth() {
+		return newMessages.size();
+	}
+
+	/**
+	 * Gets the queue that holds the messages that have been received from the
+	 * chat rooms, but have not been handled yet. This can be used to monitor
+	 * how many messages were shed because the bot could not keep up.
+	 * @return the queue
+	 */
+	public InboundMessageQueue getInboundQueue() {
+		return newMessages;
+	}
+
+	/**
+	 * Gets the object that holds on to edited messages so that bursts of edits
+	 * are only handled once. This can be used to monitor how many edits were
+	 * coalesced.
+	 * @return the edit coalescer
+	 */
+	public EditCoalescer getEditCoalescer() {
+		return editCoalescer;
+	}
+
+	/**
+	 * Gets the worker pool that handles incoming messages. This can be used to
+	 * monitor its queue depths, lag, and latency.
+	 * @return the worker pool or null if messages are handled serially on the
+	 * bot's thread (the default) or if the bot has not been started yet
+	 */
+	public ShardedMessageProcessor getMessageProcessor() {
+		return messageProcessor;
+	}
+
+	private List<ChatResponse> handleListeners(IRoom room, ChatMessage message, BotContext context, List<CompletableFuture<ChatResponse>> asyncReplies) {
 		List<ChatResponse> replies = new ArrayList<>();
 		for (Listener listener : listeners) {
+			CompletableFuture<ChatResponse> future;
+			Duration timeout;
 			try {
-				ChatResponse reply = listener.onMessage(message, context);
-				if (reply != null) {
-					replies.add(reply);
+				if (listener instanceof AsyncListener) {
+					AsyncListener asyncListener = (AsyncListener) listener;
+					future = asyncListener.onMessageAsync(message, context);
+					timeout = asyncListener.timeout();
+				} else {
+					future = CompletableFuture.completedFuture(listener.onMessage(message, context));
+					timeout = null;
 				}
 			} catch (Exception e) {
 				logger.log(Level.SEVERE, "A listener threw an exception responding to a message.", e);
+				continue;
+			}
+
+			ChatResponse reply = collect(future, timeout, room, message, asyncReplies, "A listener threw an exception responding to a message.");
+			if (reply != null) {
+				replies.add(reply);
 			}
 		}
 		return replies;
 	}
 
-	private List<ChatResponse> handleCommands(ChatCommand chatCommand, BotContext context) {
-		List<Command> commands = getCommands(chatCommand.getCommandName());
+	private List<ChatResponse> handleCommands(IRoom room, ChatCommand chatCommand, BotContext context, List<CompletableFuture<ChatResponse>> asyncReplies) {
+		List<Command> commands = commandIndex.get(chatCommand.getCommandName());
 		if (commands.isEmpty()) {
 			if (unknownCommandHandler == null) {
 				return Collections.emptyList();
@@ -534,56 +873,166 @@ public class Bot {
 
 		List<ChatResponse> replies = new ArrayList<>(commands.size());
 		for (Command command : commands) {
+			CompletableFuture<ChatResponse> future;
+			Duration timeout;
 			try {
-				ChatResponse reply = command.onMessage(chatCommand, context);
-				if (reply != null) {
-					replies.add(reply);
+				if (command instanceof AsyncCommand) {
+					AsyncCommand asyncCommand = (AsyncCommand) command;
+					future = asyncCommand.onMessageAsync(chatCommand, context);
+					timeout = asyncCommand.timeout();
+				} else {
+					future = CompletableFuture.completedFuture(command.onMessage(chatCommand, context));
+					timeout = null;
 				}
 			} catch (Exception e) {
 				logger.log(Level.SEVERE, "A command threw an exception responding to a message.", e);
+				continue;
+			}
+
+			ChatResponse reply = collect(future, timeout, room, chatCommand.getMessage(), asyncReplies, "A command threw an exception responding to a message.");
+			if (reply != null) {
+				replies.add(reply);
 			}
 		}
 		return replies;
 	}
 
 	/**
-	 * Gets all commands that have a given name.
-	 * @param name the command name
-	 * @return the matching commands
+	 * Gets the response of a command or listener. If the response is not ready
+	 * yet, it is added to the list of async replies, which are posted to the
+	 * chat room once they are ready.
+	 * @param future the response
+	 * @param timeout how long to wait for the response before giving up (null
+	 * to wait indefinitely)
+	 * @param room the chat room
+	 * @param message the message that is being responded to
+	 * @param asyncReplies the list to add the response to if it is not ready
+	 * yet (the future added to this list completes with null if the command
+	 * or listener fails or does not respond)
+	 * @param errorMessage the message to log if the response completes
+	 * exceptionally
+	 * @return the response or null if the response is not ready yet or if
+	 * there is no response
 	 */
-	private List<Command> getCommands(String name) {
-		List<Command> result = new ArrayList<>();
-		for (Command command : commands) {
-			if (command.name().equals(name) || command.aliases().contains(name)) {
-				result.add(command);
-			}
+	private ChatResponse collect(CompletableFuture<ChatResponse> future, Duration timeout, IRoom room, ChatMessage message, List<CompletableFuture<ChatResponse>> asyncReplies, String errorMessage) {
+		if (future == null) {
+			return null;
 		}
-		for (LearnedCommand command : learnedCommands) {
-			if (command.name().equals(name) || command.aliases().contains(name)) {
-				result.add(command);
+
+		if (future.isDone()) {
+			try {
+				return future.join();
+			} catch (Exception e) {
+				logger.log(Level.SEVERE, errorMessage, e);
+				return null;
 			}
 		}
-		return result;
+
+		TimerTask stillWorkingTask;
+		if (stillWorkingMessage == null) {
+			stillWorkingTask = null;
+		} else {
+			stillWorkingTask = new TimerTask() {
+				@Override
+				public void run() {
+					if (future.isDone()) {
+						return;
+					}
+
+					try {
+						sendMessage(room, new ChatResponse(new ChatBuilder().reply(message).append(stillWorkingMessage)));
+					} catch (Exception e) {
+						logger.log(Level.SEVERE, "Problem posting message [room=" + room.getRoomId() + "]: " + stillWorkingMessage, e);
+					}
+				}
+			};
+			timer.schedule(stillWorkingTask, stillWorkingAfter.toMillis());
+		}
+
+		/*
+		 * A null timeout means the bot waits for the response for as long as
+		 * it takes. Completing the future on timeout also interrupts the task
+		 * if it is running on the IoExecutor.
+		 */
+		TimerTask timeoutTask;
+		if (timeout == null) {
+			timeoutTask = null;
+		} else {
+			timeoutTask = new TimerTask() {
+				@Override
+				public void run() {
+					future.completeExceptionally(new TimeoutException("No response after " + timeout.toMillis() + "ms."));
+				}
+			};
+			timer.schedule(timeoutTask, timeout.toMillis());
+		}
+
+		asyncReplies.add(future.handle((reply, thrown) -> {
+			if (stillWorkingTask != null) {
+				stillWorkingTask.cancel();
+			}
+			if (timeoutTask != null) {
+				timeoutTask.cancel();
+			}
+
+			if (thrown != null) {
+				logger.log(Level.SEVERE, errorMessage, thrown);
+				return null;
+			}
+
+			if (reply == null) {
+				return null;
+			}
+
+			if (logger.isLoggable(Level.INFO)) {
+				logger.info("Responding to message [room=" + message.getRoomId() + ", user=" + message.getUsername() + ", id=" + message.getMessageId() + "]: " + message.getContent());
+			}
+
+			if (stats != null) {
+				stats.incMessagesRespondedTo(1);
+			}
+
+			return reply;
+		}));
+
+		return null;
 	}
 
 	/**
 	 * Sends a message to all the chat rooms the bot is logged into.
 	 * @param message the message to send
-	 * @throws IOException if there's a problem sending the message
+	 * @return the delivery result of each room (see
+	 * {@link #broadcast(ChatResponse)})
 	 */
-	public void broadcast(String message) throws IOException {
-		broadcast(new ChatResponse(message));
+	public Map<Integer, CompletableFuture<List<Long>>> broadcast(String message) {
+		return broadcast(new ChatResponse(message));
 	}
 
 	/**
-	 * Sends a message to all the chat rooms the bot is logged into.
+	 * Sends a message to all the chat rooms the bot is logged into. The
+	 * message is queued for every room at once, so the rooms are posted to
+	 * in parallel (each within its own rate limit). This method does not wait
+	 * for the message to be posted.
 	 * @param message the message to send
-	 * @throws IOException if there's a problem sending the message
+	 * @return the delivery result of each room (key = room ID, value = a
+	 * future that completes with the IDs of the posted messages or completes
+	 * exceptionally if the message could not be posted to that room).
+	 * Failures are reported through these futures, not thrown.
 	 */
-	public void broadcast(ChatResponse message) throws IOException {
+	public Map<Integer, CompletableFuture<List<Long>>> broadcast(ChatResponse message) {
+		/*
+		 * Rooms that have the same filters enabled get the same text, so run
+		 * each distinct combination of filters only once.
+		 */
+		Map<List<ChatResponseFilter>, String> filteredMessages = new HashMap<>();
+
+		Map<Integer, CompletableFuture<List<Long>>> results = new LinkedHashMap<>();
 		for (IRoom room : connection.getRooms()) {
-			sendMessage(room, message);
+			List<ChatResponseFilter> filters = enabledFilters(room, message);
+			String filteredMessage = filteredMessages.computeIfAbsent(filters, (key) -> filter(key, message));
+			results.put(room.getRoomId(), sendMessage(room, message, filteredMessage));
 		}
+		return results;
 	}
 
 	/**
@@ -591,7 +1040,8 @@ public class Bot {
 	 * existing messages in its queue.
 	 */
 	public void stop() {
-		newMessages.add(CLOSE_MESSAGE);
+		editCoalescer.shutdown();
+		newMessages.close();
 	}
 
 	private void scheduleNextRoomCheck() {
@@ -635,7 +1085,7 @@ public class Bot {
 			this.leaveRoomAfter = leaveRoomAfter;
 		}
 
-		public void resetTimer(IRoom room) {
+		public synchronized void resetTimer(IRoom room) {
 			int roomId = room.getRoomId();
 			if (rooms.getQuietRooms().contains(roomId)) {
 				return;
@@ -684,7 +1134,7 @@ public class Bot {
 			timer.scheduleAtFixedRate(task, waitTime, waitTime);
 		}
 
-		public void cancelTimer(IRoom room) {
+		public synchronized void cancelTimer(IRoom room) {
 			TimerTask task = tasks.remove(room);
 			if (task != null) {
 				task.cancel();
@@ -722,6 +1172,24 @@ public class Bot {
 		}
 	}
 
+	private static class PostedReply {
+		private final long messageId;
+		private final String content;
+
+		public PostedReply(long messageId, String content) {
+			this.messageId = messageId;
+			this.content = content;
+		}
+
+		public long getMessageId() {
+			return messageId;
+		}
+
+		public String getContent() {
+			return content;
+		}
+	}
+
 	/**
 	 * Builds {@link Bot} instances.
 	 * @author Michael Angstadt
@@ -742,6 +1210,14 @@ public class Bot {
 		private Statistics stats;
 		private Database database;
 		private UnknownCommandHandler unknownCommandHandler;
+		private Integer messageWorkers;
+		private String stillWorkingMessage = "Still working on it...";
+		private Duration stillWorkingAfter = Duration.ofSeconds(5);
+		private int inboundQueueCapacity = 1000;
+		private OverflowPolicy inboundQueueOverflowPolicy = OverflowPolicy.DROP_OLDEST;
+		private Duration editWindow = Duration.ofSeconds(2);
+		private int outboundBurst = 5;
+		private Duration outboundRefillInterval = Duration.ofSeconds(1);
 
 		public Builder login(String email, String password) {
 			this.email = email;
@@ -863,6 +1339,77 @@ public class Bot {
 			return this;
 		}
 
+		/**
+		 * Sets the number of worker threads to use to handle incoming messages.
+		 * Messages from the same room are always handled in order by the same
+		 * worker. Note that commands and listeners must be thread-safe if more
+		 * than one worker is used.
+		 * @param messageWorkers the number of workers or null to handle all
+		 * messages serially on the bot's thread (default)
+		 * @return this
+		 */
+		public Builder messageWorkers(Integer messageWorkers) {
+			this.messageWorkers = messageWorkers;
+			return this;
+		}
+
+		/**
+		 * Sets the message to post when an asynchronous command or listener is
+		 * taking a long time to respond.
+		 * @param message the message or null not to post anything (defaults
+		 * to "Still working on it...")
+		 * @param after how long to wait before posting the message (defaults
+		 * to 5 seconds)
+		 * @return this
+		 */
+		public Builder stillWorking(String message, Duration after) {
+			this.stillWorkingMessage = message;
+			this.stillWorkingAfter = after;
+			return this;
+		}
+
+		/**
+		 * Sets the size of the queue that holds the messages that have been
+		 * received, but not handled yet, and what to do when it fills up.
+		 * @param capacity the maximum number of messages to hold (defaults to
+		 * 1000)
+		 * @param overflowPolicy what to do when the queue is full (defaults
+		 * to {@link OverflowPolicy#DROP_OLDEST})
+		 * @return this
+		 */
+		public Builder inboundQueue(int capacity, OverflowPolicy overflowPolicy) {
+			this.inboundQueueCapacity = capacity;
+			this.inboundQueueOverflowPolicy = overflowPolicy;
+			return this;
+		}
+
+		/**
+		 * Sets how long to wait after a message is edited before handling it.
+		 * If the message is edited again during this time, only the latest
+		 * revision is handled.
+		 * @param editWindow the window (defaults to 2 seconds) or
+		 * {@link Duration#ZERO} to handle every edit immediately
+		 * @return this
+		 */
+		public Builder editWindow(Duration editWindow) {
+			this.editWindow = editWindow;
+			return this;
+		}
+
+		/**
+		 * Sets how quickly the bot can post to a room.
+		 * @param burst the number of messages the bot can post in a row to a
+		 * room before it has to slow down (defaults to 5)
+		 * @param refillInterval how often the bot can post a message to a room
+		 * once it has used up its burst (defaults to 1 second)
+		 * @return this
+		 */
+		public Builder outboundRateLimit(int burst, Duration refillInterval) {
+			this.outboundBurst = burst;
+			this.outboundRefillInterval = refillInterval;
+			return this;
+		}
+
 		public Bot build() {
 			if (connection == null) {
 				throw new IllegalStateException("No ChatConnection given.");
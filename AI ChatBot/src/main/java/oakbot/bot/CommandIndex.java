@@ -0,0 +1,118 @@
+package oakbot.bot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import oakbot.command.Command;
+import oakbot.command.learn.LearnedCommand;
+import oakbot.command.learn.LearnedCommands;
+
+/**
+ * Looks up commands by name or alias in constant time. Names are case
+ * insensitive. The index of hard-coded commands is built once, while the index
+ * of learned commands is updated whenever a command is learned or unlearned.
+ * This class is thread-safe.
+ * @author Michael Angstadt
+ */
+public class CommandIndex {
+	private final Map<String, List<Command>> commands;
+	private final Map<String, LearnedCommand> learnedCommands = new ConcurrentHashMap<>();
+
+	/**
+	 * @param commands the hard-coded commands
+	 * @param learnedCommands the learned commands
+	 */
+	public CommandIndex(Collection<Command> commands, LearnedCommands learnedCommands) {
+		Map<String, List<Command>> map = new HashMap<>();
+		for (Command command : commands) {
+			for (String name : names(command)) {
+				List<Command> list = map.get(name);
+				if (list == null) {
+					list = new ArrayList<>(1);
+					map.put(name, list);
+				}
+				list.add(command);
+			}
+		}
+		for (Map.Entry<String, List<Command>> entry : map.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		this.commands = map;
+
+		/*
+		 * Register the listener first so that no changes are missed while the
+		 * existing commands are being indexed.
+		 */
+		learnedCommands.addChangeListener(new LearnedCommands.ChangeListener() {
+			@Override
+			public void added(LearnedCommand command) {
+				add(command);
+			}
+
+			@Override
+			public void removed(LearnedCommand command) {
+				remove(command);
+			}
+		});
+		for (LearnedCommand command : learnedCommands) {
+			add(command);
+		}
+	}
+
+	/**
+	 * Gets all commands that have a given name or alias.
+	 * @param name the command name (case insensitive)
+	 * @return the matching commands (hard-coded commands are listed first)
+	 */
+	public List<Command> get(String name) {
+		String key = normalize(name);
+		List<Command> commands = this.commands.get(key);
+		LearnedCommand learnedCommand = learnedCommands.get(key);
+
+		if (learnedCommand == null) {
+			return (commands == null) ? Collections.emptyList() : commands;
+		}
+		if (commands == null) {
+			return Collections.singletonList(learnedCommand);
+		}
+
+		List<Command> result = new ArrayList<>(commands.size() + 1);
+		result.addAll(commands);
+		result.add(learnedCommand);
+		return result;
+	}
+
+	private void add(LearnedCommand command) {
+		for (String name : names(command)) {
+			learnedCommands.put(name, command);
+		}
+	}
+
+	private void remove(LearnedCommand command) {
+		for (String name : names(command)) {
+			learnedCommands.remove(name, command);
+		}
+	}
+
+	private static Set<String> names(Command command) {
+		Collection<String> aliases = command.aliases();
+		Set<String> names = new LinkedHashSet<>(aliases.size() + 1);
+		names.add(normalize(command.name()));
+		for (String alias : aliases) {
+			names.add(normalize(alias));
+		}
+		return names;
+	}
+
+	private static String normalize(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+}
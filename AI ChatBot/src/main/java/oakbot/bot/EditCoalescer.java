@@ -0,0 +1,146 @@
+package oakbot.bot;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import oakbot.chat.ChatMessage;
+
+/**
+ * <p>
+ * Holds on to edited messages for a short time so that a burst of edits to
+ * the same message is only handled once.
+ * </p>
+ * <p>
+ * When the first edit of a message arrives, a timer is started. Any further
+ * edits of the same message that arrive before the timer expires replace the
+ * edit that is being held. When the timer expires, the latest revision of the
+ * message is passed on.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class EditCoalescer {
+	private final long window;
+	private final Consumer<ChatMessage> next;
+
+	//@formatter:off
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+		.setNameFormat("edit-coalescer")
+		.setDaemon(true)
+	.build());
+	//@formatter:on
+
+	/*
+	 * These fields are guarded by "this".
+	 */
+	private final Map<Long, ChatMessage> pending = new LinkedHashMap<>();
+	private long coalesced = 0;
+	private boolean shutdown = false;
+
+	/**
+	 * @param window how long to hold on to an edited message
+	 * @param next receives the latest revision of each edited message when
+	 * its window expires
+	 */
+	public EditCoalescer(Duration window, Consumer<ChatMessage> next) {
+		this.window = window.toMillis();
+		this.next = next;
+	}
+
+	/**
+	 * Adds an edited message. If the coalescer has been shut down, the message
+	 * is passed on immediately.
+	 * @param message the edited message
+	 */
+	public void add(ChatMessage message) {
+		if (window <= 0) {
+			next.accept(message);
+			return;
+		}
+
+		long messageId = message.getMessageId();
+		synchronized (this) {
+			if (!shutdown) {
+				ChatMessage replaced = pending.put(messageId, message);
+				if (replaced != null) {
+					coalesced++;
+					return;
+				}
+
+				/*
+				 * Scheduled while holding the lock so that shutdown() cannot
+				 * stop the timer thread in between.
+				 */
+				executor.schedule(() -> release(messageId), window, TimeUnit.MILLISECONDS);
+				return;
+			}
+		}
+
+		//the timer thread is gone, so the edit would never be released
+		next.accept(message);
+	}
+
+	/**
+	 * Immediately passes on all of the edits that are being held.
+	 */
+	public void flush() {
+		List<ChatMessage> messages;
+		synchronized (this) {
+			messages = new ArrayList<>(pending.values());
+			pending.clear();
+		}
+
+		messages.forEach(next);
+	}
+
+	/**
+	 * Passes on all of the edits that are being held and stops the timer
+	 * thread.
+	 */
+	public void shutdown() {
+		synchronized (this) {
+			shutdown = true;
+			executor.shutdownNow();
+		}
+		flush();
+	}
+
+	/**
+	 * Gets the number of edits that are being held.
+	 * @return the number of edits
+	 */
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Gets the number of edits that were never handled because a newer
+	 * revision of the same message arrived within the window.
+	 * @return the number of coalesced edits
+	 */
+	public synchronized long getCoalescedCount() {
+		return coalesced;
+	}
+
+	private void release(long messageId) {
+		ChatMessage message;
+		synchronized (this) {
+			message = pending.remove(messageId);
+		}
+
+		if (message != null) {
+			next.accept(message);
+		}
+	}
+}
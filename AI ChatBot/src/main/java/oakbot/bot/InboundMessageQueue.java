@@ -0,0 +1,378 @@
+package oakbot.bot;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.logging.Logger;
+
+import oakbot.chat.ChatMessage;
+
+/**
+ * <p>
+ * Holds the messages that the bot has received, but has not handled yet.
+ * </p>
+ * <p>
+ * The queue has a fixed capacity, so a spam flood (or a large batch of missed
+ * messages after a reconnect) cannot use up all of the bot's memory. When the
+ * queue is full, messages are shed according to its {@link OverflowPolicy}.
+ * Messages are always shed from the room that has the most queued messages,
+ * so a flooded room pays for its own flood.
+ * </p>
+ * <p>
+ * Each room has its own queue, and the rooms take turns: {@link #take}
+ * returns one message from each room that has messages waiting before it
+ * returns a second message from any of them. This means that one busy room
+ * cannot starve the others. Messages from the same room are always returned
+ * in the order in which they were received.
+ * </p>
+ * <p>
+ * Multiple threads can take messages from the same queue, each one taking
+ * only the messages of certain rooms (see {@link #take(IntPredicate)}). This
+ * lets a pool of workers share the queue's capacity and overflow policy.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class InboundMessageQueue {
+	private static final Logger logger = Logger.getLogger(InboundMessageQueue.class.getName());
+
+	private final int capacity;
+	private final OverflowPolicy overflowPolicy;
+
+	/*
+	 * These fields are guarded by "this".
+	 */
+	private final Map<Integer, LinkedList<Entry>> roomQueues = new HashMap<>();
+	private final Deque<Integer> roomsWithMessages = new ArrayDeque<>();
+	private int size = 0;
+	private long dropped = 0, coalesced = 0;
+	private boolean closed = false;
+
+	/**
+	 * @param capacity the maximum number of messages the queue can hold
+	 * @param overflowPolicy what to do when the queue is full
+	 */
+	public InboundMessageQueue(int capacity, OverflowPolicy overflowPolicy) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1.");
+		}
+
+		this.capacity = capacity;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Adds a message to the queue. This method never blocks. If the queue is
+	 * full, a message is shed according to the queue's overflow policy. If the
+	 * queue has been closed, the message is ignored.
+	 * @param message the message
+	 */
+	public synchronized void add(ChatMessage message) {
+		if (closed) {
+			return;
+		}
+
+		if (size >= capacity && shed(message)) {
+			return;
+		}
+
+		int roomId = message.getRoomId();
+		LinkedList<Entry> roomQueue = roomQueues.get(roomId);
+		if (roomQueue == null) {
+			roomQueue = new LinkedList<>();
+			roomQueues.put(roomId, roomQueue);
+			roomsWithMessages.add(roomId);
+		}
+		roomQueue.add(new Entry(message, System.nanoTime()));
+		size++;
+
+		notifyAll();
+	}
+
+	/**
+	 * Removes the next message from the queue, waiting for one to arrive if
+	 * the queue is empty.
+	 * @return the message or null if the queue has been closed and all of its
+	 * messages have been taken
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public ChatMessage take() throws InterruptedException {
+		return take(roomId -> true);
+	}
+
+	/**
+	 * Removes the next message that was posted in one of the given rooms,
+	 * waiting for one to arrive if there are none. The rooms take turns in the
+	 * same way as they do in {@link #take()}.
+	 * @param rooms determines which rooms to take messages from
+	 * @return the message or null if the queue has been closed and all of the
+	 * messages from the given rooms have been taken
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public synchronized ChatMessage take(IntPredicate rooms) throws InterruptedException {
+		while (true) {
+			Iterator<Integer> it = roomsWithMessages.iterator();
+			while (it.hasNext()) {
+				int roomId = it.next();
+				if (!rooms.test(roomId)) {
+					continue;
+				}
+
+				it.remove();
+				LinkedList<Entry> roomQueue = roomQueues.get(roomId);
+				ChatMessage message = roomQueue.poll().message;
+				size--;
+
+				if (roomQueue.isEmpty()) {
+					roomQueues.remove(roomId);
+				} else {
+					//go to the back of the line
+					roomsWithMessages.add(roomId);
+				}
+
+				return message;
+			}
+
+			if (closed) {
+				return null;
+			}
+			wait();
+		}
+	}
+
+	/**
+	 * Closes the queue. Messages that are already in the queue can still be
+	 * taken, but new messages are ignored. Once the queue is empty,
+	 * {@link #take} returns null.
+	 */
+	public synchronized void close() {
+		closed = true;
+		notifyAll();
+	}
+
+	/**
+	 * Removes all messages from the queue.
+	 */
+	public synchronized void clear() {
+		roomQueues.clear();
+		roomsWithMessages.clear();
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of messages in the queue.
+	 * @return the number of messages
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of messages in the queue that were posted in a given
+	 * room.
+	 * @param roomId the room ID
+	 * @return the number of messages
+	 */
+	public synchronized int size(int roomId) {
+		LinkedList<Entry> roomQueue = roomQueues.get(roomId);
+		return (roomQueue == null) ? 0 : roomQueue.size();
+	}
+
+	/**
+	 * Gets the number of messages in the queue that were posted in any of the
+	 * given rooms.
+	 * @param rooms determines which rooms to count
+	 * @return the number of messages
+	 */
+	public synchronized int size(IntPredicate rooms) {
+		int size = 0;
+		for (Map.Entry<Integer, LinkedList<Entry>> entry : roomQueues.entrySet()) {
+			if (rooms.test(entry.getKey())) {
+				size += entry.getValue().size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Gets how long the oldest message that was posted in any of the given
+	 * rooms has been waiting in the queue.
+	 * @param rooms determines which rooms to look at
+	 * @return the wait time (zero if there are no messages from those rooms)
+	 */
+	public synchronized Duration getOldestWaitTime(IntPredicate rooms) {
+		long now = System.nanoTime();
+		long longestWait = 0;
+		for (Map.Entry<Integer, LinkedList<Entry>> entry : roomQueues.entrySet()) {
+			if (rooms.test(entry.getKey())) {
+				//the first message in each room's queue is its oldest
+				long wait = now - entry.getValue().getFirst().queued;
+				longestWait = Math.max(longestWait, wait);
+			}
+		}
+		return Duration.ofNanos(longestWait);
+	}
+
+	/**
+	 * Gets the maximum number of messages the queue can hold.
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets what the queue does when it is full.
+	 * @return the overflow policy
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Gets the number of messages that were dropped because the queue was
+	 * full.
+	 * @return the number of dropped messages
+	 */
+	public synchronized long getDroppedCount() {
+		return dropped;
+	}
+
+	/**
+	 * Gets the number of messages that were replaced by a newer message from
+	 * the same user because the queue was full.
+	 * @return the number of coalesced messages
+	 */
+	public synchronized long getCoalescedCount() {
+		return coalesced;
+	}
+
+	/**
+	 * Makes room for a new message.
+	 * @param message the message that is being added
+	 * @return true if the new message took the place of a queued message and
+	 * should not be added, false if the new message should be added
+	 */
+	private boolean shed(ChatMessage message) {
+		if (overflowPolicy == OverflowPolicy.COALESCE_BY_USER) {
+			LinkedList<Entry> roomQueue = roomQueues.get(message.getRoomId());
+			if (roomQueue != null) {
+				/*
+				 * Replace the user's most recent queued message with the new
+				 * one. The new message keeps the old message's place in line.
+				 */
+				Iterator<Entry> it = roomQueue.descendingIterator();
+				for (int i = roomQueue.size() - 1; it.hasNext(); i--) {
+					Entry queued = it.next();
+					if (queued.message.getUserId() == message.getUserId()) {
+						roomQueue.set(i, new Entry(message, queued.queued));
+						coalesced++;
+						return true;
+					}
+				}
+			}
+		}
+
+		int roomId = largestRoom();
+		LinkedList<Entry> roomQueue = roomQueues.get(roomId);
+
+		ChatMessage removed = null;
+		if (overflowPolicy == OverflowPolicy.DROP_EDITS_FIRST) {
+			Iterator<Entry> it = roomQueue.iterator();
+			while (it.hasNext()) {
+				ChatMessage queued = it.next().message;
+				if (queued.getEdits() > 0) {
+					it.remove();
+					removed = queued;
+					break;
+				}
+			}
+		}
+		if (removed == null) {
+			removed = roomQueue.poll().message;
+		}
+
+		size--;
+		dropped++;
+		if (roomQueue.isEmpty()) {
+			roomQueues.remove(roomId);
+			roomsWithMessages.remove(roomId);
+		}
+
+		if (dropped == 1 || dropped % 100 == 0) {
+			logger.warning("Inbound message queue is full. " + dropped + " messages have been dropped so far [room=" + roomId + ", id=" + removed.getMessageId() + "].");
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets the room that has the most messages in the queue.
+	 * @return the room ID
+	 */
+	private int largestRoom() {
+		int largestRoomId = 0, largestSize = -1;
+		for (Map.Entry<Integer, LinkedList<Entry>> entry : roomQueues.entrySet()) {
+			int roomSize = entry.getValue().size();
+			if (roomSize > largestSize) {
+				largestRoomId = entry.getKey();
+				largestSize = roomSize;
+			}
+		}
+		return largestRoomId;
+	}
+
+	private static class Entry {
+		private final ChatMessage message;
+		private final long queued;
+
+		public Entry(ChatMessage message, long queued) {
+			this.message = message;
+			this.queued = queued;
+		}
+	}
+
+	/**
+	 * Defines what an {@link InboundMessageQueue} does when it is full.
+	 * @author Michael Angstadt
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Drop the oldest message of the room with the most queued messages.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * Drop the oldest edited message of the room with the most queued
+		 * messages. If that room has no edited messages queued, drop its
+		 * oldest message.
+		 */
+		DROP_EDITS_FIRST,
+
+		/**
+		 * Replace the most recent queued message from the same user in the
+		 * same room with the new message. If that user has no messages
+		 * queued, drop the oldest message of the room with the most queued
+		 * messages.
+		 */
+		COALESCE_BY_USER;
+
+		/**
+		 * Parses a policy from its name in a properties file.
+		 * @param value the value (e.g. "drop-oldest")
+		 * @return the policy
+		 * @throws IllegalArgumentException if the value is not recognized
+		 */
+		public static OverflowPolicy parse(String value) {
+			return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+		}
+	}
+}
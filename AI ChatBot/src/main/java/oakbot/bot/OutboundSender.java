@@ -0,0 +1,502 @@
+package oakbot.bot;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import oakbot.chat.IRoom;
+import oakbot.util.Http.ThrottledException;
+
+/**
+ * <p>
+ * Posts, edits, and deletes chat messages on background threads, so that the
+ * thread that handles incoming messages never has to wait for the chat system.
+ * </p>
+ * <p>
+ * Each room has its own queue, and the operations of a room are run one at a
+ * time in the order in which they were submitted. Each room also has a token
+ * bucket that limits how quickly the bot posts to it. If the chat system
+ * responds that the bot is posting too quickly (HTTP 409), the room's queue is
+ * paused for as long as the chat system asks and the operation is tried again.
+ * No thread sleeps while a room is paused, so a throttled room does not hold
+ * up the other rooms.
+ * </p>
+ * <p>
+ * The time each operation spends in the queue and the time each room spends
+ * throttled are recorded, see {@link #getStats}. This class is thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class OutboundSender {
+	private static final Logger logger = Logger.getLogger(OutboundSender.class.getName());
+
+	/**
+	 * The number of times an operation is tried before giving up.
+	 */
+	private static final int MAX_ATTEMPTS = 5;
+
+	private final int burst;
+	private final long refillInterval;
+
+	//@formatter:off
+	private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4, new ThreadFactoryBuilder()
+		.setNameFormat("outbound-sender-%d")
+		.setDaemon(true)
+	.build());
+	//@formatter:on
+
+	/*
+	 * This field is guarded by "this".
+	 */
+	private final Map<Integer, RoomQueue> queues = new HashMap<>();
+
+	private volatile boolean stopped = false;
+
+	/**
+	 * Creates a sender that lets the bot post 5 messages in a row to a room,
+	 * and then one message per second after that.
+	 */
+	public OutboundSender() {
+		this(5, Duration.ofSeconds(1));
+	}
+
+	/**
+	 * @param burst the number of messages the bot can post in a row to a room
+	 * before it has to slow down
+	 * @param refillInterval how often the bot can post a message to a room
+	 * once it has used up its burst
+	 */
+	public OutboundSender(int burst, Duration refillInterval) {
+		if (burst < 1) {
+			throw new IllegalArgumentException("Burst must be at least 1.");
+		}
+
+		this.burst = burst;
+		this.refillInterval = refillInterval.toNanos();
+	}
+
+	/**
+	 * Adds an operation to a room's queue.
+	 * @param room the room
+	 * @param operation the operation (e.g. posts a message)
+	 * @return a future that completes with the operation's result, or
+	 * completes exceptionally if the operation fails
+	 */
+	public <T> CompletableFuture<T> submit(IRoom room, Operation<T> operation) {
+		Task<T> task = new Task<>(room, operation);
+		if (stopped) {
+			task.future.completeExceptionally(new RejectedExecutionException("The sender has been shut down."));
+			return task.future;
+		}
+
+		RoomQueue queue;
+		synchronized (this) {
+			queue = queues.get(room.getRoomId());
+			if (queue == null) {
+				queue = new RoomQueue();
+				queues.put(room.getRoomId(), queue);
+			}
+		}
+
+		boolean start;
+		synchronized (queue) {
+			queue.tasks.add(task);
+			start = !queue.draining;
+			queue.draining = true;
+		}
+
+		if (start) {
+			RoomQueue q = queue;
+			try {
+				executor.execute(() -> drain(q));
+			} catch (RejectedExecutionException e) {
+				//the sender was shut down
+				failQueued(queue, e);
+			}
+		}
+
+		return task.future;
+	}
+
+	/**
+	 * Waits for all queued operations to finish, and then stops the sender
+	 * threads. If the timeout elapses, the operations that are still queued
+	 * are failed with a {@link RejectedExecutionException}.
+	 * @param timeout how long to wait
+	 * @return true if all operations finished, false if the timeout elapsed
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public boolean shutdown(Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+
+		List<RoomQueue> queues;
+		synchronized (this) {
+			queues = new ArrayList<>(this.queues.values());
+		}
+
+		boolean finished = true;
+		for (RoomQueue queue : queues) {
+			synchronized (queue) {
+				while (queue.draining) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						finished = false;
+						break;
+					}
+					TimeUnit.NANOSECONDS.timedWait(queue, remaining);
+				}
+			}
+		}
+
+		stopped = true;
+		executor.shutdownNow();
+
+		/*
+		 * Get the queues again, in case a room was added while waiting.
+		 */
+		synchronized (this) {
+			queues = new ArrayList<>(this.queues.values());
+		}
+
+		RejectedExecutionException e = new RejectedExecutionException("The sender has been shut down.");
+		for (RoomQueue queue : queues) {
+			failQueued(queue, e);
+		}
+
+		return finished;
+	}
+
+	/**
+	 * Gets the statistics of a room.
+	 * @param roomId the room ID
+	 * @return the statistics
+	 */
+	public Stats getStats(int roomId) {
+		RoomQueue queue;
+		synchronized (this) {
+			queue = queues.get(roomId);
+		}
+
+		if (queue == null) {
+			return new Stats(0, 0, 0, 0, 0, 0);
+		}
+
+		synchronized (queue) {
+			return new Stats(queue.tasks.size(), queue.completed, queue.totalLatency, queue.maxLatency, queue.throttled, queue.throttledTime);
+		}
+	}
+
+	/**
+	 * Gets the statistics of every room the bot has sent something to.
+	 * @return the statistics (key = room ID)
+	 */
+	public Map<Integer, Stats> getStats() {
+		List<Integer> roomIds;
+		synchronized (this) {
+			roomIds = new ArrayList<>(queues.keySet());
+		}
+
+		Map<Integer, Stats> stats = new HashMap<>();
+		for (Integer roomId : roomIds) {
+			stats.put(roomId, getStats(roomId));
+		}
+		return stats;
+	}
+
+	/**
+	 * Runs a room's operations until its queue is empty, it runs out of
+	 * tokens, or it gets throttled. In the latter two cases, the method
+	 * reschedules itself.
+	 * @param queue the room's queue
+	 */
+	private void drain(RoomQueue queue) {
+		while (true) {
+			if (stopped) {
+				failQueued(queue, new RejectedExecutionException("The sender has been shut down."));
+				return;
+			}
+
+			Task<?> task;
+			long waitForToken = 0;
+			synchronized (queue) {
+				task = queue.tasks.peek();
+				if (task == null) {
+					queue.draining = false;
+					queue.notifyAll();
+					return;
+				}
+
+				waitForToken = queue.takeToken(System.nanoTime());
+				if (waitForToken <= 0) {
+					queue.running = task;
+				}
+			}
+
+			if (waitForToken > 0) {
+				schedule(queue, waitForToken);
+				return;
+			}
+
+			try {
+				task.run();
+			} catch (ThrottledException e) {
+				long wait = TimeUnit.MILLISECONDS.toNanos(e.getWaitTime());
+				boolean retry;
+				synchronized (queue) {
+					queue.running = null;
+					queue.throttled++;
+					queue.throttledTime += wait;
+					queue.throttledUntil = System.nanoTime() + wait;
+
+					/*
+					 * Allow the operation to be retried as soon as the pause
+					 * is over, but don't let the room burst again right away.
+					 */
+					queue.tokens = 1;
+					queue.lastRefill = queue.throttledUntil;
+
+					retry = (task.attempts < MAX_ATTEMPTS);
+				}
+
+				if (retry) {
+					logger.info("Posting too quickly, pausing for " + e.getWaitTime() + "ms [room=" + task.room.getRoomId() + "].");
+					schedule(queue, wait);
+					return;
+				}
+
+				logger.log(Level.SEVERE, "Giving up after " + task.attempts + " attempts [room=" + task.room.getRoomId() + "].", e);
+				finish(queue, task, e);
+				continue;
+			} catch (Throwable t) {
+				finish(queue, task, t);
+				continue;
+			}
+
+			finish(queue, task, null);
+		}
+	}
+
+	/**
+	 * Schedules a room's queue to be drained later. If the sender has been
+	 * shut down, the room's remaining operations are failed instead. Must not
+	 * be called while holding the queue's lock.
+	 * @param queue the room's queue
+	 * @param delay how long to wait (in nanoseconds)
+	 */
+	private void schedule(RoomQueue queue, long delay) {
+		try {
+			executor.schedule(() -> drain(queue), delay, TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			//the sender was shut down
+			failQueued(queue, e);
+		}
+	}
+
+	/**
+	 * Fails all of a room's queued operations, except for the one that is
+	 * currently running (its drain thread fails the rest of the queue once it
+	 * finishes). Must not be called while holding the queue's lock.
+	 * @param queue the room's queue
+	 * @param e the exception to fail the operations with
+	 */
+	private void failQueued(RoomQueue queue, RejectedExecutionException e) {
+		List<Task<?>> tasks;
+		synchronized (queue) {
+			tasks = new ArrayList<>(queue.tasks);
+			queue.tasks.clear();
+
+			if (queue.running == null) {
+				queue.draining = false;
+				queue.notifyAll();
+			} else {
+				tasks.remove(queue.running);
+				queue.tasks.add(queue.running);
+			}
+		}
+
+		for (Task<?> task : tasks) {
+			task.future.completeExceptionally(e);
+		}
+	}
+
+	private void finish(RoomQueue queue, Task<?> task, Throwable error) {
+		long latency = System.nanoTime() - task.queued;
+		synchronized (queue) {
+			queue.tasks.remove(task);
+			queue.running = null;
+			queue.completed++;
+			queue.totalLatency += latency;
+			queue.maxLatency = Math.max(queue.maxLatency, latency);
+		}
+
+		if (error != null) {
+			task.future.completeExceptionally(error);
+		} else {
+			task.complete();
+		}
+	}
+
+	/**
+	 * Something to do in a chat room, such as posting a message.
+	 * @author Michael Angstadt
+	 * @param <T> the result type
+	 */
+	@FunctionalInterface
+	public interface Operation<T> {
+		/**
+		 * Runs the operation.
+		 * @param room the room
+		 * @return the result
+		 * @throws IOException if there's a problem
+		 */
+		T run(IRoom room) throws IOException;
+	}
+
+	/**
+	 * The statistics of a room.
+	 * @author Michael Angstadt
+	 */
+	public static class Stats {
+		private final int queued;
+		private final long completed, totalLatency, maxLatency, throttled, throttledTime;
+
+		private Stats(int queued, long completed, long totalLatency, long maxLatency, long throttled, long throttledTime) {
+			this.queued = queued;
+			this.completed = completed;
+			this.totalLatency = totalLatency;
+			this.maxLatency = maxLatency;
+			this.throttled = throttled;
+			this.throttledTime = throttledTime;
+		}
+
+		/**
+		 * Gets the number of operations that are waiting to be run.
+		 * @return the number of operations
+		 */
+		public int getQueued() {
+			return queued;
+		}
+
+		/**
+		 * Gets the number of operations that have finished (successfully or
+		 * not).
+		 * @return the number of operations
+		 */
+		public long getCompleted() {
+			return completed;
+		}
+
+		/**
+		 * Gets the average time it took for an operation to finish, measured
+		 * from when it was submitted.
+		 * @return the average latency
+		 */
+		public Duration getAverageLatency() {
+			return Duration.ofNanos((completed == 0) ? 0 : totalLatency / completed);
+		}
+
+		/**
+		 * Gets the longest time it took for an operation to finish, measured
+		 * from when it was submitted.
+		 * @return the maximum latency
+		 */
+		public Duration getMaxLatency() {
+			return Duration.ofNanos(maxLatency);
+		}
+
+		/**
+		 * Gets the number of times the chat system said that the bot was
+		 * posting too quickly.
+		 * @return the number of times
+		 */
+		public long getThrottledCount() {
+			return throttled;
+		}
+
+		/**
+		 * Gets the total amount of time the room was paused because the chat
+		 * system said that the bot was posting too quickly.
+		 * @return the time
+		 */
+		public Duration getThrottledTime() {
+			return Duration.ofNanos(throttledTime);
+		}
+
+		@Override
+		public String toString() {
+			return "queued=" + queued + ", completed=" + completed + ", avgLatency=" + getAverageLatency().toMillis() + "ms, maxLatency=" + getMaxLatency().toMillis() + "ms, throttled=" + throttled + ", throttledTime=" + getThrottledTime().toMillis() + "ms";
+		}
+	}
+
+	private class RoomQueue {
+		/*
+		 * These fields are guarded by "this".
+		 */
+		private final Deque<Task<?>> tasks = new ArrayDeque<>();
+		private boolean draining = false;
+		private Task<?> running;
+		private double tokens = burst;
+		private long lastRefill = System.nanoTime();
+		private long throttledUntil = lastRefill;
+		private long completed = 0, totalLatency = 0, maxLatency = 0, throttled = 0, throttledTime = 0;
+
+		/**
+		 * Takes a token from the bucket.
+		 * @param now the current time
+		 * @return 0 if a token was taken, or how long to wait (in nanoseconds)
+		 * until the room can be posted to again
+		 */
+		long takeToken(long now) {
+			if (now - throttledUntil < 0) {
+				return throttledUntil - now;
+			}
+
+			tokens = Math.min(burst, tokens + (double) (now - lastRefill) / refillInterval);
+			lastRefill = now;
+
+			if (tokens < 1) {
+				return (long) Math.ceil((1 - tokens) * refillInterval);
+			}
+
+			tokens--;
+			return 0;
+		}
+	}
+
+	private static class Task<T> {
+		private final IRoom room;
+		private final Operation<T> operation;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		private final long queued = System.nanoTime();
+		private int attempts = 0;
+		private T result;
+
+		public Task(IRoom room, Operation<T> operation) {
+			this.room = room;
+			this.operation = operation;
+		}
+
+		void run() throws IOException {
+			attempts++;
+			result = operation.run(room);
+		}
+
+		void complete() {
+			future.complete(result);
+		}
+	}
+}
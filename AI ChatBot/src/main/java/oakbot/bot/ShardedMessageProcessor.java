@@ -0,0 +1,209 @@
+package oakbot.bot;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import oakbot.chat.ChatMessage;
+
+/**
+ * <p>
+ * Handles chat messages on a pool of worker threads.
+ * </p>
+ * <p>
+ * Each room is assigned to exactly one worker (based on its room ID). This
+ * means that messages from the same room are always handled in the order in
+ * which they were received, while a slow command in one room (such as a
+ * network-bound lookup) does not hold up the messages of rooms that are
+ * assigned to other workers.
+ * </p>
+ * <p>
+ * The workers take their messages straight from the bot's
+ * {@link InboundMessageQueue}, so every message that is waiting to be handled
+ * counts against the queue's capacity and is subject to its overflow policy.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class ShardedMessageProcessor {
+	private static final Logger logger = Logger.getLogger(ShardedMessageProcessor.class.getName());
+
+	private final Shard[] shards;
+	private final InboundMessageQueue queue;
+	private final Consumer<ChatMessage> handler;
+
+	private final LongAdder messagesHandled = new LongAdder();
+	private final LongAdder totalLatency = new LongAdder();
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	/**
+	 * @param workers the number of worker threads to create
+	 * @param queue the queue to take the messages from
+	 * @param handler handles each message (invoked from the worker threads)
+	 */
+	public ShardedMessageProcessor(int workers, InboundMessageQueue queue, Consumer<ChatMessage> handler) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("There must be at least one worker.");
+		}
+
+		this.queue = queue;
+		this.handler = handler;
+
+		shards = new Shard[workers];
+		for (int i = 0; i < shards.length; i++) {
+			shards[i] = new Shard(i);
+		}
+		for (Shard shard : shards) {
+			shard.start();
+		}
+	}
+
+	/**
+	 * Waits for the workers to stop. The workers stop once the queue has been
+	 * closed and all of its messages have been handled.
+	 * @throws InterruptedException if the current thread is interrupted while
+	 * waiting for the workers to finish
+	 */
+	public void awaitTermination() throws InterruptedException {
+		for (Shard shard : shards) {
+			shard.join();
+		}
+	}
+
+	/**
+	 * Closes the queue and stops the workers. This method blocks until the
+	 * workers have finished processing the messages that are already in the
+	 * queue.
+	 * @throws InterruptedException if the current thread is interrupted while
+	 * waiting for the workers to finish
+	 */
+	public void shutdown() throws InterruptedException {
+		queue.close();
+		awaitTermination();
+	}
+
+	/**
+	 * Gets the number of worker threads.
+	 * @return the number of workers
+	 */
+	public int getWorkerCount() {
+		return shards.length;
+	}
+
+	/**
+	 * Gets the worker that handles the messages of a given room.
+	 * @param roomId the room ID
+	 * @return the worker index
+	 */
+	public int getWorker(int roomId) {
+		return Math.floorMod(roomId, shards.length);
+	}
+
+	/**
+	 * Gets the total number of messages that are waiting to be handled.
+	 * @return the number of queued messages
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Gets the number of messages that are waiting to be handled by a specific
+	 * worker.
+	 * @param worker the worker index
+	 * @return the number of queued messages
+	 */
+	public int getQueueDepth(int worker) {
+		return queue.size(shards[worker]);
+	}
+
+	/**
+	 * Gets how far behind a worker is. This is how long the oldest message in
+	 * the worker's queue has been waiting to be handled.
+	 * @param worker the worker index
+	 * @return the lag (zero if the worker's queue is empty)
+	 */
+	public Duration getLag(int worker) {
+		return queue.getOldestWaitTime(shards[worker]);
+	}
+
+	/**
+	 * Gets the total number of messages that have been handled.
+	 * @return the number of handled messages
+	 */
+	public long getMessagesHandled() {
+		return messagesHandled.sum();
+	}
+
+	/**
+	 * Gets the average amount of time it takes to handle a message.
+	 * @return the average latency
+	 */
+	public Duration getAverageLatency() {
+		long count = messagesHandled.sum();
+		return (count == 0) ? Duration.ZERO : Duration.ofNanos(totalLatency.sum() / count);
+	}
+
+	/**
+	 * Gets the longest amount of time it has taken to handle a message.
+	 * @return the max latency
+	 */
+	public Duration getMaxLatency() {
+		return Duration.ofNanos(maxLatency.get());
+	}
+
+	private void handle(ChatMessage message) {
+		long start = System.nanoTime();
+		try {
+			handler.accept(message);
+		} catch (Exception e) {
+			logger.log(Level.SEVERE, "Problem handling message [room=" + message.getRoomId() + ", id=" + message.getMessageId() + "].", e);
+		}
+		long latency = System.nanoTime() - start;
+
+		messagesHandled.increment();
+		totalLatency.add(latency);
+		maxLatency.accumulateAndGet(latency, Math::max);
+	}
+
+	/**
+	 * A worker thread. It only takes the messages of the rooms that are
+	 * assigned to it.
+	 */
+	private class Shard extends Thread implements IntPredicate {
+		private final int index;
+
+		public Shard(int index) {
+			super("message-worker-" + index);
+			setDaemon(true);
+			this.index = index;
+		}
+
+		@Override
+		public boolean test(int roomId) {
+			return getWorker(roomId) == index;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				ChatMessage next;
+				try {
+					next = queue.take(this);
+				} catch (InterruptedException e) {
+					break;
+				}
+
+				if (next == null) {
+					//the queue was closed
+					break;
+				}
+
+				handle(next);
+			}
+		}
+	}
+}
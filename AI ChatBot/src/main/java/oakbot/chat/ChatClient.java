@@ -1,24 +1,47 @@
 package oakbot.chat;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.ClientEndpointConfig.Configurator;
+import javax.websocket.CloseReason;
+import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Session;
 import javax.websocket.WebSocketContainer;
 
 import org.apache.http.impl.client.CloseableHttpClient;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import oakbot.chat.event.Event;
 import oakbot.util.ChatUtils;
 import oakbot.util.Http;
 import oakbot.util.Http.Response;
 
 /**
  * A connection to Stack Overflow Chat that uses web sockets to retrieve new
- * messages. This class is thread-safe.
+ * messages. The chat system sends the events of every room the user is in over
+ * the same web socket, so all rooms share a single connection. If the connection
+ * drops, it is automatically re-established, and the messages that were posted
+ * in the meantime are published. This class is thread-safe.
  * @author Michael Angstadt
  * @see <a href="https://chat.stackoverflow.com">chat.stackoverflow.com</a>
  * @see <a href=
@@ -28,10 +51,37 @@ import oakbot.util.Http.Response;
 public class ChatClient implements IChatClient {
 	private static final Logger logger = Logger.getLogger(ChatClient.class.getName());
 
-	private final Http http;
+	private final Http http, failFastHttp;
+	private volatile boolean retryWhenThrottled = true;
 	private final WebSocketContainer webSocketClient;
 	private final String domain, chatDomain;
 	private final Map<Integer, Room> rooms = new LinkedHashMap<>();
+	private final WebSocketEventDecoder decoder = new WebSocketEventDecoder();
+
+	//@formatter:off
+	private final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+		.setNameFormat("websocket-reconnect")
+		.setDaemon(true)
+	.build());
+	//@formatter:on
+
+	/**
+	 * Serializes the operations that join rooms and (re)connect the web
+	 * socket. These operations involve network I/O, so they must not hold the
+	 * "rooms" lock, which the web socket thread needs in order to dispatch
+	 * events.
+	 */
+	private final Object connectLock = new Object();
+
+	/*
+	 * These fields are guarded by "rooms".
+	 */
+	private Session session;
+	private long initialReconnectDelay = Duration.ofSeconds(1).toMillis();
+	private long maxReconnectDelay = Duration.ofMinutes(5).toMillis();
+	private int reconnectAttempts = 0;
+	private boolean reconnectScheduled = false;
+	private boolean closed = false;
 
 	/**
 	 * Creates a web socket connection to Stack Overflow Chat.
@@ -53,6 +103,7 @@ public class ChatClient implements IChatClient {
 	 */
 	public ChatClient(CloseableHttpClient httpClient, WebSocketContainer webSocketClient, String domain) {
 		this.http = new Http(httpClient);
+		this.failFastHttp = http.withoutRetries();
 		this.webSocketClient = webSocketClient;
 		this.domain = domain;
 		chatDomain = "https://chat." + domain;
@@ -87,19 +138,316 @@ public class ChatClient implements IChatClient {
 
 	@Override
 	public Room joinRoom(int roomId) throws RoomNotFoundException, IOException {
-		synchronized (rooms) {
-			Room room = rooms.get(roomId);
-			if (room != null) {
+		synchronized (connectLock) {
+			boolean connected;
+			synchronized (rooms) {
+				if (closed) {
+					throw new IOException("Chat client has been closed.");
+				}
+
+				Room room = rooms.get(roomId);
+				if (room != null) {
+					return room;
+				}
+
+				connected = (session != null);
+			}
+
+			/*
+			 * The network requests are made without holding the "rooms" lock.
+			 * The lock is only held to publish the result.
+			 */
+			Room room = new Room(roomId, domain, http, this);
+			if (connected) {
+				room.join();
+				synchronized (rooms) {
+					rooms.put(roomId, room);
+				}
 				return room;
 			}
 
-			room = new Room(roomId, domain, http, webSocketClient, this);
-			rooms.put(roomId, room);
+			AtomicBoolean dropped = new AtomicBoolean();
+			Session session = connect(room, dropped);
+			Session stale;
+			boolean clientClosed;
+			synchronized (rooms) {
+				clientClosed = closed;
+				if (clientClosed) {
+					stale = session;
+				} else {
+					rooms.put(roomId, room);
+					stale = publishSession(session, dropped);
+				}
+			}
+			close(stale);
 
+			if (clientClosed) {
+				throw new IOException("Chat client has been closed.");
+			}
 			return room;
 		}
 	}
 
+	/**
+	 * Creates the web socket connection. The connection is not used until it
+	 * is published with {@link #publishSession}.
+	 * @param room the room to use to authenticate the connection
+	 * @param dropped set to true if the connection fails or is closed by the
+	 * server
+	 * @return the web socket session
+	 * @throws IOException if there's a problem creating the connection
+	 */
+	private Session connect(Room room, AtomicBoolean dropped) throws IOException {
+		String webSocketUrl = room.getWebSocketUrl();
+
+		//@formatter:off
+		ClientEndpointConfig config = ClientEndpointConfig.Builder.create()
+			.configurator(new Configurator() {
+				@Override
+				public void beforeRequest(Map<String, List<String>> headers) {
+					headers.put("Origin", Arrays.asList(chatDomain));
+				}
+			})
+		.build();
+		//@formatter:on
+
+		logger.info("Connecting to web socket: " + webSocketUrl);
+
+		Session session;
+		try {
+			session = webSocketClient.connectToServer(new Endpoint() {
+				@Override
+				public void onOpen(Session session, EndpointConfig config) {
+					session.addMessageHandler(String.class, ChatClient.this::handleWebSocketMessage);
+				}
+
+				@Override
+				public void onError(Session session, Throwable t) {
+					logger.log(Level.SEVERE, "Problem with web socket.", t);
+					dropped.set(true);
+					disconnected(session);
+				}
+
+				@Override
+				public void onClose(Session session, CloseReason closeReason) {
+					logger.warning("Web socket closed: " + closeReason);
+					dropped.set(true);
+					disconnected(session);
+				}
+			}, config, new URI(webSocketUrl));
+		} catch (DeploymentException | URISyntaxException e) {
+			throw new IOException(e);
+		}
+
+		logger.info("Web socket connection successful: " + webSocketUrl);
+
+		return session;
+	}
+
+	/**
+	 * Makes a new web socket connection the current one. Must be called while
+	 * holding the "rooms" lock.
+	 * @param session the new connection
+	 * @param dropped whether the connection failed or was closed by the server
+	 * before it was published (in which case {@link #disconnected} ignored it)
+	 * @return the session to close once the lock is released or null if there
+	 * is nothing to close
+	 */
+	private Session publishSession(Session session, AtomicBoolean dropped) {
+		this.session = session;
+		if (dropped.get()) {
+			scheduleReconnect();
+			return detachSession();
+		}
+		return null;
+	}
+
+	/**
+	 * Called when the web socket connection fails or is closed by the server.
+	 * @param session the session that was disconnected
+	 */
+	private void disconnected(Session session) {
+		Session stale;
+		synchronized (rooms) {
+			if (session != this.session) {
+				//the session was closed on purpose or has already been replaced
+				return;
+			}
+
+			stale = detachSession();
+			scheduleReconnect();
+		}
+		close(stale);
+	}
+
+	/**
+	 * Schedules an attempt to reconnect to the web socket. The delay between
+	 * attempts grows exponentially, and a random amount is subtracted from
+	 * each delay so that many clients do not all reconnect at the same time.
+	 * Must be called while holding the "rooms" lock.
+	 */
+	private void scheduleReconnect() {
+		if (closed || reconnectScheduled || rooms.isEmpty()) {
+			return;
+		}
+
+		long delay = initialReconnectDelay << Math.min(reconnectAttempts, 20);
+		delay = Math.min(delay, maxReconnectDelay);
+		delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+		reconnectAttempts++;
+
+		logger.info("Reconnecting to web socket in " + delay + "ms (attempt " + reconnectAttempts + ").");
+		reconnectScheduled = true;
+		reconnector.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Reconnects to the web socket and catches up on the messages that were
+	 * posted while it was disconnected.
+	 */
+	private void reconnect() {
+		synchronized (connectLock) {
+			reconnectAndBackfill();
+		}
+	}
+
+	private void reconnectAndBackfill() {
+		Map<Room, Long> latestMessageIds = new LinkedHashMap<>();
+		synchronized (rooms) {
+			reconnectScheduled = false;
+			if (closed || rooms.isEmpty()) {
+				return;
+			}
+
+			for (Room room : rooms.values()) {
+				latestMessageIds.put(room, room.getLatestMessageId());
+
+				/*
+				 * Events from the new connection are held until the room has
+				 * caught up, so that they are not published ahead of the
+				 * messages that were missed.
+				 */
+				room.holdEvents();
+			}
+		}
+
+		/*
+		 * The network requests are made without holding the "rooms" lock.
+		 * The lock is only held to publish the new session.
+		 */
+		AtomicBoolean dropped = new AtomicBoolean();
+		Session session = null;
+		try {
+			Iterator<Room> it = latestMessageIds.keySet().iterator();
+			session = connect(it.next(), dropped);
+			while (it.hasNext()) {
+				it.next().join();
+			}
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Could not reconnect to web socket.", e);
+			if (session != null) {
+				close(session);
+			}
+			latestMessageIds.keySet().forEach(Room::releaseEvents);
+			synchronized (rooms) {
+				scheduleReconnect();
+			}
+			return;
+		}
+
+		Session stale;
+		boolean published;
+		synchronized (rooms) {
+			if (closed || rooms.isEmpty()) {
+				stale = session;
+				published = false;
+			} else {
+				stale = publishSession(session, dropped);
+				published = (this.session != null);
+				if (published) {
+					reconnectAttempts = 0;
+				}
+			}
+		}
+		close(stale);
+
+		if (!published) {
+			latestMessageIds.keySet().forEach(Room::releaseEvents);
+			return;
+		}
+
+		for (Map.Entry<Room, Long> entry : latestMessageIds.entrySet()) {
+			Room room = entry.getKey();
+			try {
+				room.backfill(entry.getValue());
+			} catch (IOException e) {
+				logger.log(Level.SEVERE, "[room=" + room.getRoomId() + "]: Could not retrieve the messages that were posted while the web socket was disconnected.", e);
+			}
+		}
+	}
+
+	/**
+	 * Sets what happens when a message is posted, edited, or deleted too soon
+	 * after the previous one. By default, the calling thread sleeps for as long
+	 * as the chat system asks and then resends the request. If this is turned
+	 * off, an {@link oakbot.util.Http.ThrottledException} is thrown instead, so
+	 * the caller can decide when to try again. This only affects the blocking
+	 * methods. The asynchronous methods always retry, since they do so without
+	 * blocking a thread.
+	 * @param retryWhenThrottled true to sleep and resend, false to throw
+	 * (defaults to true)
+	 */
+	public void setRetryWhenThrottled(boolean retryWhenThrottled) {
+		this.retryWhenThrottled = retryWhenThrottled;
+	}
+
+	/**
+	 * Gets the object to use for blocking requests that post, edit, or delete
+	 * messages. For internal use only (invoked by {@link Room}).
+	 * @return the HTTP object
+	 */
+	Http getMessageHttp() {
+		return retryWhenThrottled ? http : failFastHttp;
+	}
+
+	/**
+	 * Sets how long to wait before trying to reconnect to the web socket. This
+	 * method is for unit testing.
+	 * @param initial the delay before the first attempt
+	 * @param max the maximum delay between attempts
+	 */
+	void setReconnectDelay(Duration initial, Duration max) {
+		synchronized (rooms) {
+			initialReconnectDelay = initial.toMillis();
+			maxReconnectDelay = max.toMillis();
+		}
+	}
+
+	/**
+	 * Handles web socket messages.
+	 * @param json the content of the message (formatted as a JSON object)
+	 */
+	private void handleWebSocketMessage(String json) {
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Received message:\n" + json + "\n");
+		}
+
+		Map<Integer, List<Event>> eventsByRoom;
+		try {
+			eventsByRoom = decoder.decode(json);
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Problem parsing JSON from web socket:\n" + json, e);
+			return;
+		}
+
+		for (Map.Entry<Integer, List<Event>> entry : eventsByRoom.entrySet()) {
+			Room room = getRoom(entry.getKey());
+			if (room != null) {
+				room.publish(entry.getValue());
+			}
+		}
+	}
+
 	@Override
 	public List<Room> getRooms() {
 		synchronized (rooms) {
@@ -122,44 +470,82 @@ public class ChatClient implements IChatClient {
 	}
 
 	/**
-	 * Removes a room from the list of connected rooms. For internal use only
-	 * (invoked by {@link Room#leave}).
+	 * Removes a room from the list of connected rooms. The web socket
+	 * connection is closed when there are no more rooms left. For internal use
+	 * only (invoked by {@link Room#leave} and {@link Room#close}).
 	 * @param room the room to remove from the list of connected rooms
 	 */
 	void removeRoom(Room room) {
+		Session stale = null;
 		synchronized (rooms) {
 			rooms.remove(room.getRoomId());
+			if (rooms.isEmpty()) {
+				stale = detachSession();
+			}
+		}
+		close(stale);
+	}
+
+	/**
+	 * Clears the current web socket connection. Must be called while holding
+	 * the "rooms" lock. The session must be closed with {@link #close(Session)}
+	 * after the lock is released, because closing it is network I/O and
+	 * invokes the "onClose" callback.
+	 * @return the session or null if there is no connection
+	 */
+	private Session detachSession() {
+		/*
+		 * Clear the field first so that the "onClose" callback knows that the
+		 * session was closed on purpose.
+		 */
+		Session session = this.session;
+		this.session = null;
+		return session;
+	}
+
+	/**
+	 * Closes a web socket connection. Must not be called while holding the
+	 * "rooms" lock.
+	 * @param session the connection (may be null)
+	 */
+	private static void close(Session session) {
+		if (session == null) {
+			return;
+		}
+
+		try {
+			session.close();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Problem closing web socket connection.", e);
 		}
 	}
 
 	@Override
 	public void close() throws IOException {
+		String fkey;
+		Session stale;
 		synchronized (rooms) {
-			//leave all rooms
-			if (!rooms.isEmpty()) {
-				Room anyRoom = rooms.values().iterator().next();
-				String fkey = anyRoom.getFkey();
-
-				try {
-					//@formatter:off
-					http.post(chatDomain + "/chats/leave/all",
-						"quiet", "true", //setting this parameter to "false" results in an error
-						"fkey", fkey
-					);
-					//@formatter:on
-				} catch (IOException e) {
-					logger.log(Level.SEVERE, "Problem leaving all rooms.", e);
-				}
-			}
+			closed = true;
+			reconnector.shutdownNow();
 
-			for (Room room : rooms.values()) {
-				try {
-					room.close();
-				} catch (IOException e) {
-					logger.log(Level.WARNING, "Problem closing websocket connection for room " + room.getRoomId() + ".", e);
-				}
-			}
+			fkey = rooms.isEmpty() ? null : rooms.values().iterator().next().getFkey();
 			rooms.clear();
+			stale = detachSession();
+		}
+		close(stale);
+
+		//leave all rooms
+		if (fkey != null) {
+			try {
+				//@formatter:off
+				http.post(chatDomain + "/chats/leave/all",
+					"quiet", "true", //setting this parameter to "false" results in an error
+					"fkey", fkey
+				);
+				//@formatter:on
+			} catch (IOException e) {
+				logger.log(Level.SEVERE, "Problem leaving all rooms.", e);
+			}
 		}
 
 		try {
@@ -4,6 +4,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 import oakbot.chat.event.Event;
@@ -86,6 +87,19 @@ public interface IRoom extends Closeable {
 	 */
 	List<Long> sendMessage(String message, SplitStrategy splitStrategy) throws RoomPermissionException, IOException;
 
+	/**
+	 * Posts a message to the room without blocking the calling thread. If the
+	 * chat system responds that the user is posting too quickly, the request
+	 * is retried after the requested delay.
+	 * @param message the message to post
+	 * @param splitStrategy defines how the message should be split up if the
+	 * message exceeds the chat connection's max message size
+	 * @return a future that completes with the ID(s) of the new message(s),
+	 * or completes exceptionally with a {@link RoomPermissionException} or
+	 * {@link IOException} if the message could not be posted
+	 */
+	CompletableFuture<List<Long>> sendMessageAsync(String message, SplitStrategy splitStrategy);
+
 	/**
 	 * <p>
 	 * Edits a message.
@@ -100,6 +114,17 @@ public interface IRoom extends Closeable {
 	 */
 	void editMessage(long messageId, String content) throws IOException;
 
+	/**
+	 * Edits a message without blocking the calling thread.
+	 * @param messageId the ID of the message to edit
+	 * @param content the updated message content
+	 * @return a future that completes when the message has been edited, or
+	 * completes exceptionally with an {@link IOException} if the message could
+	 * not be edited
+	 * @see #editMessage
+	 */
+	CompletableFuture<Void> editMessageAsync(long messageId, String content);
+
 	/**
 	 * <p>
 	 * Deletes a message.
@@ -113,6 +138,16 @@ public interface IRoom extends Closeable {
 	 */
 	void deleteMessage(long messageId) throws IOException;
 
+	/**
+	 * Deletes a message without blocking the calling thread.
+	 * @param messageId the ID of the message to delete
+	 * @return a future that completes when the message has been deleted, or
+	 * completes exceptionally with an {@link IOException} if the message could
+	 * not be deleted
+	 * @see #deleteMessage
+	 */
+	CompletableFuture<Void> deleteMessageAsync(long messageId);
+
 	/**
 	 * Gets information about room users, such as their reputation and username.
 	 * @param userIds the user ID(s)
@@ -121,6 +156,13 @@ public interface IRoom extends Closeable {
 	 */
 	List<UserInfo> getUserInfo(List<Integer> userIds) throws IOException;
 
+	/**
+	 * Gets information about room users without blocking the calling thread.
+	 * @param userIds the user ID(s)
+	 * @return a future that completes with the user information
+	 */
+	CompletableFuture<List<UserInfo>> getUserInfoAsync(List<Integer> userIds);
+
 	/**
 	 * Gets the users in a room that are "pingable". Pingable users receive
 	 * notifications if they are mentioned. If a user is pingable, it does not
@@ -130,6 +172,14 @@ public interface IRoom extends Closeable {
 	 */
 	List<PingableUser> getPingableUsers() throws IOException;
 
+	/**
+	 * Gets the users in a room that are "pingable" without blocking the
+	 * calling thread.
+	 * @return a future that completes with the pingable users
+	 * @see #getPingableUsers
+	 */
+	CompletableFuture<List<PingableUser>> getPingableUsersAsync();
+
 	/**
 	 * Gets information about the room, such as its name and description.
 	 * @return the room info
@@ -1,44 +1,32 @@
 package oakbot.chat;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import javax.websocket.ClientEndpointConfig;
-import javax.websocket.ClientEndpointConfig.Configurator;
-import javax.websocket.DeploymentException;
-import javax.websocket.Endpoint;
-import javax.websocket.EndpointConfig;
-import javax.websocket.Session;
-import javax.websocket.WebSocketContainer;
-
 import org.apache.commons.lang3.StringUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Element;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
 
 import oakbot.chat.event.Event;
 import oakbot.chat.event.MessageDeletedEvent;
@@ -51,7 +39,6 @@ import oakbot.chat.event.UserLeftEvent;
 import oakbot.util.ChatUtils;
 import oakbot.util.Http;
 import oakbot.util.Http.Response;
-import oakbot.util.JsonUtils;
 
 /**
  * Represents the connection to a room the user has joined. Use the
@@ -63,29 +50,76 @@ public class Room implements IRoom {
 	private static final Logger logger = Logger.getLogger(Room.class.getName());
 	private static final int MAX_MESSAGE_LENGTH = 500;
 
+	/**
+	 * The number of messages to request when catching up on the messages that
+	 * were posted while the web socket was disconnected.
+	 */
+	private static final int BACKFILL_COUNT = 100;
+
+	/**
+	 * The number of message IDs to remember in order to detect duplicate
+	 * "message posted" events.
+	 */
+	private static final int RECENT_MESSAGE_IDS = 1000;
+
 	private final int roomId;
 	private final String fkey;
 	private final String chatDomain;
 	private final boolean canPost;
 	private final Http http;
 	private final ChatClient chatClient;
-	private final Session session;
-	private final ObjectMapper mapper = new ObjectMapper();
-	private Instant timeOfLastReceivedMessagePostedEvent = Instant.now();
-
-	private final Map<Class<? extends Event>, List<Consumer<Event>>> listeners;
-	{
-		Map<Class<? extends Event>, List<Consumer<Event>>> map = new HashMap<>();
-		map.put(Event.class, new ArrayList<>());
-		map.put(MessageDeletedEvent.class, new ArrayList<>());
-		map.put(MessageEditedEvent.class, new ArrayList<>());
-		map.put(MessagePostedEvent.class, new ArrayList<>());
-		map.put(MessagesMovedEvent.class, new ArrayList<>());
-		map.put(MessageStarredEvent.class, new ArrayList<>());
-		map.put(UserEnteredEvent.class, new ArrayList<>());
-		map.put(UserLeftEvent.class, new ArrayList<>());
-		this.listeners = Collections.unmodifiableMap(map);
-	}
+	private volatile Instant timeOfLastReceivedMessagePostedEvent = Instant.now();
+
+	/*
+	 * These fields are used to catch up on missed messages after the web
+	 * socket reconnects. The set and the list are guarded by "this".
+	 */
+	private final AtomicLong latestMessageId = new AtomicLong();
+	private final Set<Long> recentMessageIds = Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+			return size() > RECENT_MESSAGE_IDS;
+		}
+	});
+
+	/**
+	 * The web socket events that arrived while the room was catching up on
+	 * missed messages. They are published after the missed messages, so that
+	 * listeners see the messages in order. Null if the room is not catching
+	 * up.
+	 */
+	private List<Event> heldEvents;
+
+	/**
+	 * The kinds of events that are published.
+	 */
+	//@formatter:off
+	private static final List<Class<? extends Event>> eventClasses = Arrays.asList(
+		MessageDeletedEvent.class,
+		MessageEditedEvent.class,
+		MessagePostedEvent.class,
+		MessagesMovedEvent.class,
+		MessageStarredEvent.class,
+		UserEnteredEvent.class,
+		UserLeftEvent.class
+	);
+	//@formatter:on
+
+	/**
+	 * The registered listeners, in the order in which they were registered,
+	 * keyed by the class they listen for. Guarded by itself.
+	 */
+	private final Map<Class<? extends Event>, List<Consumer<Event>>> listeners = new HashMap<>();
+
+	/**
+	 * Maps each kind of event to every listener that receives it (the
+	 * listeners that receive all events come first). This map is never
+	 * modified. A new one is built whenever a listener is registered, so
+	 * events can be dispatched without locking.
+	 */
+	private volatile Map<Class<? extends Event>, List<Consumer<Event>>> dispatchTable = buildDispatchTable();
 
 	/**
 	 * Creates a connection to a specific chat room. This constructor is meant
@@ -93,15 +127,13 @@ public class Room implements IRoom {
 	 * @param roomId the room ID
 	 * @param domain the Stack Exchange domain (e.g. "stackoverflow.com")
 	 * @param http the HTTP client
-	 * @param webSocketContainer the object used to create the web socket
-	 * connection
 	 * @param chatClient the {@link ChatClient} object that created this
 	 * connection
 	 * @throws IOException if there's a problem joining the room
 	 * @throws RoomNotFoundException if the room does not exist or the user does
 	 * not have permission to view the room
 	 */
-	Room(int roomId, String domain, Http http, WebSocketContainer webSocketContainer, ChatClient chatClient) throws IOException, RoomNotFoundException {
+	Room(int roomId, String domain, Http http, ChatClient chatClient) throws IOException, RoomNotFoundException {
 		this.roomId = roomId;
 		chatDomain = "https://chat." + domain;
 		this.http = http;
@@ -131,45 +163,6 @@ public class Room implements IRoom {
 		 * post to the room.
 		 */
 		canPost = body.contains("<textarea id=\"input\">");
-
-		/*
-		 * Create the web socket connection.
-		 */
-		{
-			String webSocketUrl = getWebSocketUrl();
-
-			//@formatter:off
-			ClientEndpointConfig config = ClientEndpointConfig.Builder.create()
-				.configurator(new Configurator() {
-					@Override
-					public void beforeRequest(Map<String, List<String>> headers) {
-						headers.put("Origin", Arrays.asList(chatDomain));
-					}
-				})
-			.build();
-			//@formatter:on
-
-			logger.info("Connecting to web socket [room=" + roomId + "]: " + webSocketUrl);
-
-			try {
-				session = webSocketContainer.connectToServer(new Endpoint() {
-					@Override
-					public void onOpen(Session session, EndpointConfig config) {
-						session.addMessageHandler(String.class, Room.this::handleWebSocketMessage);
-					}
-
-					@Override
-					public void onError(Session session, Throwable t) {
-						logger.log(Level.SEVERE, "Problem with web socket [room=" + roomId + "]. Leaving room.", t);
-						leave();
-					}
-				}, config, new URI(webSocketUrl));
-			} catch (DeploymentException | URISyntaxException e) {
-				throw new IOException(e);
-			}
-
-			logger.info("Web socket connection successful [room=" + roomId + "]: " + webSocketUrl);
-		}
 	}
 
 	@Override
@@ -192,7 +185,14 @@ public class Room implements IRoom {
 		return timeOfLastReceivedMessagePostedEvent;
 	}
 
-	private String getWebSocketUrl() throws IOException {
+	/**
+	 * Gets the URL of a new web socket connection. The web socket sends the
+	 * events of every room the user is in, so only one connection is needed.
+	 * For internal use only (invoked by {@link ChatClient#joinRoom}).
+	 * @return the web socket URL
+	 * @throws IOException if there's a problem getting the URL
+	 */
+	String getWebSocketUrl() throws IOException {
 		//@formatter:off
 		Response response = http.post(chatDomain + "/ws-auth",
 			"roomid", roomId,
@@ -201,151 +201,226 @@ public class Room implements IRoom {
 		//@formatter:on
 
 		String url = response.getBodyAsJson().get("url").asText();
+		return url + "?l=" + join();
+	}
 
+	/**
+	 * Adds the room to the list of rooms whose events are sent over the web
+	 * socket. For internal use only (invoked by {@link ChatClient#joinRoom}).
+	 * @return the timestamp of the latest message in the room (seconds since
+	 * epoch) or zero if the room has no messages
+	 * @throws IOException if there's a problem joining the room
+	 */
+	long join() throws IOException {
+		/*
+		 * Requesting the room's messages is what tells the chat system that
+		 * the user is in the room.
+		 */
 		List<ChatMessage> messages = getMessages(1);
 		ChatMessage latest = messages.isEmpty() ? null : messages.get(0);
-		long time = (latest == null) ? 0 : latest.getTimestamp().toEpochSecond(ZoneOffset.UTC);
-		return url + "?l=" + time;
+		if (latest == null) {
+			return 0;
+		}
+
+		latestMessageId.accumulateAndGet(latest.getMessageId(), Math::max);
+		return latest.getTimestamp().toEpochSecond(ZoneOffset.UTC);
 	}
 
 	/**
-	 * Handles web socket messages.
-	 * @param json the content of the message (formatted as a JSON object)
+	 * Gets the ID of the most recent message the bot knows about. For internal
+	 * use only (invoked by {@link ChatClient} before it reconnects).
+	 * @return the message ID or zero if the room has no messages
 	 */
-	private void handleWebSocketMessage(String json) {
-		JsonNode node;
-		try {
-			node = mapper.readTree(json);
-		} catch (IOException e) {
-			logger.log(Level.SEVERE, "[room " + roomId + "]: Problem parsing JSON from web socket:\n" + json, e);
-			return;
-		}
+	long getLatestMessageId() {
+		return latestMessageId.get();
+	}
 
-		if (logger.isLoggable(Level.FINE)) {
-			logger.fine("[room " + roomId + "]: Received message:\n" + JsonUtils.prettyPrint(node) + "\n");
+	/**
+	 * Holds on to the events that are received from the web socket instead of
+	 * publishing them, until {@link #backfill} or {@link #releaseEvents} is
+	 * called. For internal use only (invoked by {@link ChatClient} before it
+	 * reconnects).
+	 */
+	synchronized void holdEvents() {
+		if (heldEvents == null) {
+			heldEvents = new ArrayList<>();
 		}
+	}
+
+	/**
+	 * Publishes the events that were held since {@link #holdEvents} was
+	 * called, and goes back to publishing events as they are received. For
+	 * internal use only (invoked by {@link ChatClient}).
+	 */
+	void releaseEvents() {
+		while (true) {
+			List<Event> events;
+			synchronized (this) {
+				if (heldEvents == null) {
+					return;
+				}
+
+				/*
+				 * More events may arrive while these are being published. They
+				 * are held until the next pass, so that they are not published
+				 * ahead of these ones.
+				 */
+				events = heldEvents;
+				heldEvents = events.isEmpty() ? null : new ArrayList<>();
+			}
 
-		JsonNode roomNode = node.get("r" + roomId);
-		if (roomNode == null) {
-			return;
+			dispatch(events);
 		}
+	}
 
-		JsonNode eventsNode = roomNode.get("e");
-		if (eventsNode == null || !eventsNode.isArray()) {
-			return;
+	/**
+	 * Publishes the messages that were posted after the given message, followed
+	 * by the events that were held since {@link #holdEvents} was called. This
+	 * is used to catch up on the messages that were posted while the web
+	 * socket was disconnected. For internal use only (invoked by
+	 * {@link ChatClient} after it reconnects).
+	 * @param since the ID of the last message that was received before the
+	 * web socket was disconnected
+	 * @throws IOException if there's a problem retrieving the messages
+	 */
+	void backfill(long since) throws IOException {
+		try {
+			dispatch(getMissedMessages(since));
+		} finally {
+			releaseEvents();
 		}
+	}
 
-		Multimap<EventType, JsonNode> eventsByType = ArrayListMultimap.create();
-		for (JsonNode eventNode : eventsNode) {
-			JsonNode eventTypeNode = eventNode.get("event_type");
-			if (eventTypeNode == null || !eventTypeNode.canConvertToInt()) {
-				logger.warning("[room " + roomId + "]: Ignoring JSON object that does not have a valid \"event_type\" field:\n" + JsonUtils.prettyPrint(eventNode) + "\n");
-				continue;
-			}
+	private List<Event> getMissedMessages(long since) throws IOException {
+		List<ChatMessage> messages = new ArrayList<>(getMessages(BACKFILL_COUNT));
+		messages.sort(Comparator.comparingLong(ChatMessage::getMessageId));
+
+		if (messages.size() == BACKFILL_COUNT && messages.get(0).getMessageId() > since) {
+			logger.warning("[room=" + roomId + "]: More than " + BACKFILL_COUNT + " messages were posted while the web socket was disconnected. Some messages will not be processed.");
+		}
 
-			EventType eventType = EventType.get(eventTypeNode.asInt());
-			if (eventType == null) {
-				logger.warning("[room " + roomId + "]: Ignoring event with unknown \"event_type\":\n" + JsonUtils.prettyPrint(eventNode) + "\n");
+		List<Event> missed = new ArrayList<>();
+		for (ChatMessage message : messages) {
+			if (message.getMessageId() <= since) {
 				continue;
 			}
 
-			eventsByType.put(eventType, eventNode);
+			//@formatter:off
+			missed.add(new MessagePostedEvent.Builder()
+				.timestamp(message.getTimestamp())
+				.message(message)
+			.build());
+			//@formatter:on
 		}
 
-		List<Event> eventsToPublish = new ArrayList<>();
-
-		eventsToPublish.addAll(EventParsers.reply(eventsByType));
-		eventsToPublish.addAll(EventParsers.mention(eventsByType));
+		logger.info("[room=" + roomId + "]: Found " + missed.size() + " messages that were posted while the web socket was disconnected.");
+		return missed;
+	}
 
-		Event movedOut = EventParsers.messagesMovedOut(eventsByType);
-		if (movedOut != null) {
-			eventsToPublish.add(movedOut);
-		}
-		Event movedIn = EventParsers.messagesMovedIn(eventsByType);
-		if (movedIn != null) {
-			eventsToPublish.add(movedIn);
+	/**
+	 * Publishes events that were received from the web socket to this room's
+	 * listeners. "Message posted" events for messages that were already
+	 * published are dropped. If the room is catching up on missed messages,
+	 * the events are held until it is done. For internal use only (invoked by
+	 * {@link ChatClient}).
+	 * @param events the events, in the order in which they should be published
+	 */
+	void publish(List<Event> events) {
+		synchronized (this) {
+			if (heldEvents != null) {
+				heldEvents.addAll(events);
+				return;
+			}
 		}
 
-		/**
-		 * Sort the remaining event nodes by event ID, just to make sure they
-		 * are processed in the same order they were received from the web
-		 * socket.
-		 */
-		List<JsonNode> remainingEventNodes = new ArrayList<>(eventsByType.values());
-		Collections.sort(remainingEventNodes, new Comparator<JsonNode>() {
-			@Override
-			public int compare(JsonNode a, JsonNode b) {
-				JsonNode idNode = a.get("id");
-				long id1 = (idNode == null) ? 0 : idNode.asLong();
-
-				idNode = b.get("id");
-				long id2 = (idNode == null) ? 0 : idNode.asLong();
+		dispatch(events);
+	}
 
-				/*
-				 * Don't just return "id1-id2" because this could result in a
-				 * value that won't fit into an integer.
-				 */
-				return (id1 < id2) ? -1 : (id1 > id2) ? 1 : 0;
-			}
-		});
+	/**
+	 * Sends events to this room's listeners.
+	 * @param events the events, in the order in which they should be published
+	 */
+	private void dispatch(List<Event> events) {
+		List<Event> eventsToPublish = removeDuplicates(events);
+		Map<Class<? extends Event>, List<Consumer<Event>>> dispatchTable = this.dispatchTable;
 
-		for (JsonNode eventNode : remainingEventNodes) {
-			EventType eventType = EventType.get(eventNode.get("event_type").asInt());
-
-			Event event;
-			switch (eventType) {
-			case MESSAGE_POSTED:
-				event = EventParsers.messagePosted(eventNode);
-				timeOfLastReceivedMessagePostedEvent = Instant.now();
-				break;
-			case MESSAGE_EDITED:
-				event = EventParsers.messageEdited(eventNode);
-				break;
-			case USER_ENTERED:
-				event = EventParsers.userEntered(eventNode);
-				break;
-			case USER_LEFT:
-				event = EventParsers.userLeft(eventNode);
-				break;
-			case MESSAGE_STARRED:
-				event = EventParsers.messageStarred(eventNode);
-				break;
-			case MESSAGE_DELETED:
-				event = EventParsers.messageDeleted(eventNode);
-				break;
-			default:
-				logger.warning("[room " + roomId + "]: Ignoring event with unknown \"event_type\":\n" + JsonUtils.prettyPrint(eventNode) + "\n");
+		for (Event event : eventsToPublish) {
+			List<Consumer<Event>> eventListeners = dispatchTable.get(event.getClass());
+			if (eventListeners == null) {
 				continue;
 			}
 
-			eventsToPublish.add(event);
+			for (Consumer<Event> listener : eventListeners) {
+				listener.accept(event);
+			}
 		}
+	}
 
-		List<Consumer<Event>> genericListeners = listeners.get(Event.class);
-		synchronized (genericListeners) {
-			for (Consumer<Event> listener : genericListeners) {
-				for (Event event : eventsToPublish) {
-					listener.accept(event);
+	/**
+	 * Removes the "message posted" events for messages that were already
+	 * published.
+	 * @param events the events
+	 * @return the events that have not been published yet (this will be the
+	 * given list if there are no duplicates)
+	 */
+	private synchronized List<Event> removeDuplicates(List<Event> events) {
+		List<Event> filtered = null;
+		for (int i = 0; i < events.size(); i++) {
+			Event event = events.get(i);
+
+			boolean duplicate = false;
+			if (event instanceof MessagePostedEvent) {
+				long messageId = ((MessagePostedEvent) event).getMessage().getMessageId();
+				duplicate = !recentMessageIds.add(messageId);
+				if (!duplicate) {
+					latestMessageId.accumulateAndGet(messageId, Math::max);
+					timeOfLastReceivedMessagePostedEvent = Instant.now();
 				}
 			}
-		}
 
-		for (Event event : eventsToPublish) {
-			List<Consumer<Event>> eventListeners = listeners.get(event.getClass());
-			synchronized (eventListeners) {
-				for (Consumer<Event> listener : eventListeners) {
-					listener.accept(event);
+			if (duplicate) {
+				if (filtered == null) {
+					filtered = new ArrayList<>(events.subList(0, i));
 				}
+			} else if (filtered != null) {
+				filtered.add(event);
 			}
 		}
+
+		return (filtered == null) ? events : filtered;
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
 	public <T extends Event> void addEventListener(Class<T> clazz, Consumer<T> listener) {
-		List<Consumer<Event>> eventListeners = listeners.get(clazz);
-		synchronized (eventListeners) {
-			eventListeners.add((Consumer<Event>) listener);
+		synchronized (listeners) {
+			listeners.computeIfAbsent(clazz, k -> new ArrayList<>()).add((Consumer<Event>) listener);
+			dispatchTable = buildDispatchTable();
+		}
+	}
+
+	/**
+	 * Builds the table that is used to look up the listeners of each kind of
+	 * event.
+	 * @return the dispatch table
+	 */
+	private Map<Class<? extends Event>, List<Consumer<Event>>> buildDispatchTable() {
+		synchronized (listeners) {
+			List<Consumer<Event>> genericListeners = listeners.getOrDefault(Event.class, Collections.emptyList());
+
+			Map<Class<? extends Event>, List<Consumer<Event>>> table = new HashMap<>();
+			for (Class<? extends Event> eventClass : eventClasses) {
+				List<Consumer<Event>> eventListeners = new ArrayList<>(genericListeners);
+				for (Map.Entry<Class<? extends Event>, List<Consumer<Event>>> entry : listeners.entrySet()) {
+					Class<? extends Event> listenerClass = entry.getKey();
+					if (listenerClass != Event.class && listenerClass.isAssignableFrom(eventClass)) {
+						eventListeners.addAll(entry.getValue());
+					}
+				}
+
+				table.put(eventClass, Collections.unmodifiableList(eventListeners));
+			}
+			return table;
 		}
 	}
 
@@ -365,14 +440,8 @@ public class Room implements IRoom {
 			throw new RoomPermissionException(roomId);
 		}
 
-		List<String> parts;
-		if (message.contains("\n")) {
-			//messages with newlines have no length limit
-			parts = Arrays.asList(message);
-		} else {
-			parts = splitStrategy.split(message, MAX_MESSAGE_LENGTH);
-		}
-
+		Http http = chatClient.getMessageHttp();
+		List<String> parts = split(message, splitStrategy);
 		List<Long> messageIds = new ArrayList<>(parts.size());
 		for (String part : parts) {
 			//@formatter:off
@@ -382,27 +451,85 @@ public class Room implements IRoom {
 			);
 			//@formatter:on
 
-			if (response.getStatusCode() == 404) {
-				/*
-				 * We already checked to make sure the room exists. So, if a 404
-				 * response is returned when trying to send a message, it likely
-				 * means that the bot's permission to post messages has been
-				 * revoked.
-				 * 
-				 * If a 404 response is returned from this request, the response
-				 * body reads:
-				 * "The room does not exist, or you do not have permission"
-				 */
-				throw notFound(response, "post a message");
-			}
+			messageIds.add(parseNewMessageId(response));
+		}
+		return messageIds;
+	}
 
-			JsonNode body = response.getBodyAsJson();
-			JsonNode idNode = body.get("id");
-			long id = (idNode == null) ? 0 : idNode.asLong();
-			messageIds.add(id);
+	@Override
+	public CompletableFuture<List<Long>> sendMessageAsync(String message, SplitStrategy splitStrategy) {
+		if (!canPost) {
+			return failed(new RoomPermissionException(roomId));
 		}
 
-		return messageIds;
+		List<String> parts = split(message, splitStrategy);
+
+		/*
+		 * Post the parts one after another so they appear in the right order.
+		 * The retrying HTTP object is always used, because it waits out "posting
+		 * too quickly" responses without blocking a thread.
+		 */
+		CompletableFuture<List<Long>> future = CompletableFuture.completedFuture(new ArrayList<>(parts.size()));
+		for (String part : parts) {
+			future = future.thenCompose((messageIds) -> {
+				//@formatter:off
+				CompletableFuture<Response> response = http.postAsync(chatDomain + "/chats/" + roomId + "/messages/new",
+					"text", part,
+					"fkey", fkey
+				);
+				//@formatter:on
+
+				return parse(response, (r) -> {
+					messageIds.add(parseNewMessageId(r));
+					return messageIds;
+				});
+			});
+		}
+
+		return future;
+	}
+
+	/**
+	 * Splits a message up into the individual chat messages it will be posted
+	 * as.
+	 * @param message the message
+	 * @param splitStrategy defines how the message should be split up if the
+	 * message exceeds the max message size
+	 * @return the parts of the message (contains just the message itself if
+	 * it does not need to be split up)
+	 */
+	public static List<String> split(String message, SplitStrategy splitStrategy) {
+		if (message.contains("\n")) {
+			//messages with newlines have no length limit
+			return Arrays.asList(message);
+		}
+		return splitStrategy.split(message, MAX_MESSAGE_LENGTH);
+	}
+
+	/**
+	 * Parses the response of a "post message" request.
+	 * @param response the response
+	 * @return the ID of the new message
+	 * @throws IOException if the message could not be posted
+	 */
+	private long parseNewMessageId(Response response) throws IOException {
+		if (response.getStatusCode() == 404) {
+			/*
+			 * We already checked to make sure the room exists. So, if a 404
+			 * response is returned when trying to send a message, it likely
+			 * means that the bot's permission to post messages has been
+			 * revoked.
+			 * 
+			 * If a 404 response is returned from this request, the response
+			 * body reads:
+			 * "The room does not exist, or you do not have permission"
+			 */
+			throw notFound(response, "post a message");
+		}
+
+		JsonNode body = response.getBodyAsJson();
+		JsonNode idNode = body.get("id");
+		return (idNode == null) ? 0 : idNode.asLong();
 	}
 
 	@Override
@@ -430,7 +557,7 @@ public class Room implements IRoom {
 			Iterator<JsonNode> it = events.elements();
 			while (it.hasNext()) {
 				JsonNode element = it.next();
-				ChatMessage chatMessage = EventParsers.extractChatMessage(element);
+				ChatMessage chatMessage = WebSocketEventDecoder.parseChatMessage(element);
 				messages.add(chatMessage);
 			}
 		}
@@ -441,11 +568,35 @@ public class Room implements IRoom {
 	@Override
 	public void deleteMessage(long messageId) throws IOException {
 		//@formatter:off
-		Response response = http.post(chatDomain + "/messages/" + messageId + "/delete",
+		Response response = chatClient.getMessageHttp().post(chatDomain + "/messages/" + messageId + "/delete",
+			"fkey", fkey
+		);
+		//@formatter:on
+
+		parseDeleteResponse(messageId, response);
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteMessageAsync(long messageId) {
+		//@formatter:off
+		CompletableFuture<Response> future = http.postAsync(chatDomain + "/messages/" + messageId + "/delete",
 			"fkey", fkey
 		);
 		//@formatter:on
 
+		return parse(future, (response) -> {
+			parseDeleteResponse(messageId, response);
+			return null;
+		});
+	}
+
+	/**
+	 * Parses the response of a "delete message" request.
+	 * @param messageId the ID of the message that was deleted
+	 * @param response the response
+	 * @throws IOException if the message could not be deleted
+	 */
+	private void parseDeleteResponse(long messageId, Response response) throws IOException {
 		int statusCode = response.getStatusCode();
 		if (statusCode == 302) {
 			throw new IOException("Message ID " + messageId + " was never assigned to a message.");
@@ -470,12 +621,37 @@ public class Room implements IRoom {
 	@Override
 	public void editMessage(long messageId, String updatedMessage) throws IOException {
 		//@formatter:off
-		Response response = http.post(chatDomain + "/messages/" + messageId,
+		Response response = chatClient.getMessageHttp().post(chatDomain + "/messages/" + messageId,
+			"text", updatedMessage,
+			"fkey", fkey
+		);
+		//@formatter:on
+
+		parseEditResponse(messageId, response);
+	}
+
+	@Override
+	public CompletableFuture<Void> editMessageAsync(long messageId, String updatedMessage) {
+		//@formatter:off
+		CompletableFuture<Response> future = http.postAsync(chatDomain + "/messages/" + messageId,
 			"text", updatedMessage,
 			"fkey", fkey
 		);
 		//@formatter:on
 
+		return parse(future, (response) -> {
+			parseEditResponse(messageId, response);
+			return null;
+		});
+	}
+
+	/**
+	 * Parses the response of an "edit message" request.
+	 * @param messageId the ID of the message that was edited
+	 * @param response the response
+	 * @throws IOException if the message could not be edited
+	 */
+	private void parseEditResponse(long messageId, Response response) throws IOException {
 		int statusCode = response.getStatusCode();
 		if (statusCode == 302) {
 			throw new IOException("Message ID " + messageId + " was never assigned to a message.");
@@ -507,6 +683,28 @@ public class Room implements IRoom {
 		);
 		//@formatter:on
 
+		return parseUserInfo(response);
+	}
+
+	@Override
+	public CompletableFuture<List<UserInfo>> getUserInfoAsync(List<Integer> userIds) {
+		//@formatter:off
+		CompletableFuture<Response> future = http.postAsync(chatDomain + "/user/info",
+			"ids", StringUtils.join(userIds, ","),
+			"roomId", roomId
+		);
+		//@formatter:on
+
+		return parse(future, this::parseUserInfo);
+	}
+
+	/**
+	 * Parses the response of a "user info" request.
+	 * @param response the response
+	 * @return the users
+	 * @throws IOException if the response could not be parsed
+	 */
+	private List<UserInfo> parseUserInfo(Response response) throws IOException {
 		List<UserInfo> users = new ArrayList<>();
 		JsonNode usersNode = response.getBodyAsJson().get("users");
 		if (usersNode == null || !usersNode.isArray()) {
@@ -573,8 +771,23 @@ public class Room implements IRoom {
 
 	@Override
 	public List<PingableUser> getPingableUsers() throws IOException {
-		Response response = http.get(chatDomain + "/rooms/pingable/" + roomId);
+		return parsePingableUsers(http.get(chatDomain + "/rooms/pingable/" + roomId));
+	}
 
+	@Override
+	public CompletableFuture<List<PingableUser>> getPingableUsersAsync() {
+		CompletableFuture<Response> future = http.getAsync(chatDomain + "/rooms/pingable/" + roomId);
+
+		return parse(future, this::parsePingableUsers);
+	}
+
+	/**
+	 * Parses the response of a "pingable users" request.
+	 * @param response the response
+	 * @return the users
+	 * @throws IOException if the response could not be parsed
+	 */
+	private List<PingableUser> parsePingableUsers(Response response) throws IOException {
 		if (response.getStatusCode() == 404) {
 			throw notFound(response, "getting pingable users");
 		}
@@ -634,604 +847,47 @@ public class Room implements IRoom {
 		} catch (Exception e) {
 			logger.log(Level.SEVERE, "[room=" + roomId + "]: Problem leaving room.", e);
 		}
-
-		try {
-			close();
-		} catch (IOException e) {
-			logger.log(Level.SEVERE, "[room=" + roomId + "]: Problem closing websocket session.", e);
-		}
 	}
 
-	private IOException notFound(Response response, String action) {
-		return new IOException("[roomId=" + roomId + "]: 404 response received when trying to " + action + ": " + response.getBody());
+	/**
+	 * Parses the response of an asynchronous request.
+	 * @param future the request
+	 * @param parser parses the response
+	 * @return a future that completes with the parsed response, or completes
+	 * exceptionally if the request failed or the response could not be parsed
+	 */
+	private static <T> CompletableFuture<T> parse(CompletableFuture<Response> future, ResponseParser<T> parser) {
+		return future.thenCompose((response) -> {
+			try {
+				return CompletableFuture.completedFuture(parser.parse(response));
+			} catch (IOException | RuntimeException e) {
+				return failed(e);
+			}
+		});
 	}
 
-	@Override
-	public void close() throws IOException {
-		session.close();
+	private static <T> CompletableFuture<T> failed(Throwable t) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.completeExceptionally(t);
+		return future;
 	}
 
-	private static class EventParsers {
-		/**
-		 * Parses a "message posted" event.
-		 * @param element the JSON element to parse
-		 * @return the parsed event
-		 */
-		public static MessagePostedEvent messagePosted(JsonNode element) {
-			MessagePostedEvent.Builder builder = new MessagePostedEvent.Builder();
-
-			extractEventFields(element, builder);
-			builder.message(extractChatMessage(element));
-
-			return builder.build();
-		}
-
-		/**
-		 * Parses a "message edited" event.
-		 * @param element the JSON element to parse
-		 * @return the parsed event
-		 */
-		public static MessageEditedEvent messageEdited(JsonNode element) {
-			MessageEditedEvent.Builder builder = new MessageEditedEvent.Builder();
-
-			extractEventFields(element, builder);
-			builder.message(extractChatMessage(element));
-
-			return builder.build();
-		}
-
-		/**
-		 * Parses a "message deleted" event.
-		 * @param element the JSON element to parse
-		 * @return the parsed event
-		 */
-		public static MessageDeletedEvent messageDeleted(JsonNode element) {
-			MessageDeletedEvent.Builder builder = new MessageDeletedEvent.Builder();
-
-			extractEventFields(element, builder);
-			builder.message(extractChatMessage(element));
-
-			return builder.build();
-		}
-
-		/**
-		 * Parses a "message starred" event.
-		 * @param element the JSON element to parse
-		 * @return the parsed event
-		 */
-		public static MessageStarredEvent messageStarred(JsonNode element) {
-			MessageStarredEvent.Builder builder = new MessageStarredEvent.Builder();
-
-			extractEventFields(element, builder);
-			builder.message(extractChatMessage(element));
-
-			return builder.build();
-		}
-
-		/**
-		 * Parses a "user entered" event.
-		 * @param element the JSON element to parse
-		 * @return the parsed event
-		 */
-		public static UserEnteredEvent userEntered(JsonNode element) {
-			UserEnteredEvent.Builder builder = new UserEnteredEvent.Builder();
-
-			extractEventFields(element, builder);
-
-			JsonNode value = element.get("room_id");
-			if (value != null) {
-				builder.roomId(value.asInt());
-			}
-
-			value = element.get("room_name");
-			if (value != null) {
-				builder.roomName(value.asText());
-			}
-
-			value = element.get("user_id");
-			if (value != null) {
-				builder.userId(value.asInt());
-			}
-
-			value = element.get("user_name");
-			if (value != null) {
-				builder.username(value.asText());
-			}
-
-			return builder.build();
-		}
-
-		/**
-		 * Parses a "user left" event.
-		 * @param element the JSON element to parse
-		 * @return the parsed event
-		 */
-		public static UserLeftEvent userLeft(JsonNode element) {
-			UserLeftEvent.Builder builder = new UserLeftEvent.Builder();
-
-			extractEventFields(element, builder);
-
-			JsonNode value = element.get("room_id");
-			if (value != null) {
-				builder.roomId(value.asInt());
-			}
-
-			value = element.get("room_name");
-			if (value != null) {
-				builder.roomName(value.asText());
-			}
-
-			value = element.get("user_id");
-			if (value != null) {
-				builder.userId(value.asInt());
-			}
-
-			value = element.get("user_name");
-			if (value != null) {
-				builder.username(value.asText());
-			}
-
-			return builder.build();
-		}
-
-		/*
-		 * When messages are moved out of a room, the chat system posts a new
-		 * message under the name of the user who moved the messages. The
-		 * content of this message contains the ID and name of the room that the
-		 * messages were moved to. This regex parses that content.
-		 */
-		private static final Pattern messagesMovedOutRegex = Pattern.compile("^&rarr; <i><a href=\".*?\">\\d+ messages?</a> moved to <a href=\".*?/rooms/(\\d+)/.*?\">(.*?)</a></i>$");
-
-		/**
-		 * Parses a "messages moved out" event.
-		 * @param eventsByType the complete list of events pushed to us by the
-		 * web socket. This parameter must be mutable because this method will
-		 * remove items from it to indicate that they shouldn't be processed by
-		 * another event handler.
-		 * @return the event to fire on our end or null if the given map does
-		 * not contain any "message moved" events
-		 */
-		public static MessagesMovedEvent messagesMovedOut(Multimap<EventType, JsonNode> eventsByType) {
-			Collection<JsonNode> moveEvents = eventsByType.removeAll(EventType.MESSAGE_MOVED_OUT);
-			if (moveEvents.isEmpty()) {
-				return null;
-			}
-
-			MessagesMovedEvent.Builder builder = new MessagesMovedEvent.Builder();
-
-			List<ChatMessage> messages = new ArrayList<>(moveEvents.size());
-			for (JsonNode event : moveEvents) {
-				ChatMessage message = extractChatMessage(event);
-				messages.add(message);
-			}
-			builder.messages(messages);
-
-			/*
-			 * When messages are moved, the chat system posts a new message
-			 * under the name of the user who moved the messages. This causes a
-			 * "new message" event to be posted. The content of this message
-			 * contains the ID and name of the room that the messages were moved
-			 * to.
-			 */
-			Collection<JsonNode> messagePostedEvents = eventsByType.get(EventType.MESSAGE_POSTED);
-			JsonNode matchingEvent = null;
-			for (JsonNode event : messagePostedEvents) {
-				MessagePostedEvent messagePostedEvent = EventParsers.messagePosted(event);
-				ChatMessage message = messagePostedEvent.getMessage();
-
-				Matcher m = messagesMovedOutRegex.matcher(message.getContent().getContent());
-				if (!m.find()) {
-					continue;
-				}
-
-				//@formatter:off
-				builder
-				.destRoomId(Integer.parseInt(m.group(1)))
-				.destRoomName(m.group(2))
-				.sourceRoomId(message.getRoomId())
-				.sourceRoomName(message.getRoomName())
-				.moverUserId(message.getUserId())
-				.moverUsername(message.getUsername())
-				.eventId(messagePostedEvent.getEventId())
-				.timestamp(messagePostedEvent.getTimestamp());
-				//@formatter:on
-
-				matchingEvent = event;
-
-				break;
-			}
-
-			/*
-			 * Remove the "new message" event so it is not processed again as a
-			 * normal message. The event cannot be removed from within the
-			 * foreach loop because a "concurrent modification" exception will
-			 * be thrown.
-			 */
-			if (matchingEvent != null) {
-				messagePostedEvents.remove(matchingEvent);
-			}
-
-			return builder.build();
-		}
-
-		/*
-		 * When messages are moved into a room, the chat system posts a new
-		 * message under the name of the user who moved the messages. The
-		 * content of this message contains the ID and name of the room that the
-		 * messages were moved from. This regex parses that content.
-		 */
-		private static final Pattern messagesMovedInRegex = Pattern.compile("^&larr; <i>\\d+ messages? moved from <a href=\".*?/rooms/(\\d+)/.*?\">(.*?)</a></i>$");
-
-		/**
-		 * Parses a "messages moved in" event.
-		 * @param eventsByType the complete list of events pushed to us by the
-		 * web socket. This parameter must be mutable because this method will
-		 * remove items from it to indicate that they shouldn't be processed by
-		 * another event handler.
-		 * @return the event to fire on our end or null if the given map does
-		 * not contain any "message moved" events
-		 */
-		public static MessagesMovedEvent messagesMovedIn(Multimap<EventType, JsonNode> eventsByType) {
-			Collection<JsonNode> moveEvents = eventsByType.removeAll(EventType.MESSAGE_MOVED_IN);
-			if (moveEvents.isEmpty()) {
-				return null;
-			}
-
-			MessagesMovedEvent.Builder builder = new MessagesMovedEvent.Builder();
-
-			List<ChatMessage> messages = new ArrayList<>(moveEvents.size());
-			for (JsonNode event : moveEvents) {
-				ChatMessage message = extractChatMessage(event);
-				messages.add(message);
-			}
-			builder.messages(messages);
-
-			/*
-			 * When messages are moved, the chat system posts a new message
-			 * under the name of the user who moved the messages. This causes a
-			 * "new message" event to be posted. The content of this message
-			 * contains the ID and name of the room that the messages were moved
-			 * from.
-			 */
-			Collection<JsonNode> messagePostedEvents = eventsByType.get(EventType.MESSAGE_POSTED);
-			JsonNode matchingEvent = null;
-			for (JsonNode event : messagePostedEvents) {
-				MessagePostedEvent messagePostedEvent = EventParsers.messagePosted(event);
-				ChatMessage message = messagePostedEvent.getMessage();
-
-				Matcher m = messagesMovedInRegex.matcher(message.getContent().getContent());
-				if (!m.find()) {
-					continue;
-				}
-
-				//@formatter:off
-				builder
-				.sourceRoomId(Integer.parseInt(m.group(1)))
-				.sourceRoomName(m.group(2))
-				.destRoomId(message.getRoomId())
-				.destRoomName(message.getRoomName())
-				.moverUserId(message.getUserId())
-				.moverUsername(message.getUsername())
-				.eventId(messagePostedEvent.getEventId())
-				.timestamp(messagePostedEvent.getTimestamp());
-				//@formatter:on
-
-				matchingEvent = event;
-
-				break;
-			}
-
-			/*
-			 * Remove the "new message" event so it is not processed again as a
-			 * normal message. The event cannot be removed from within the
-			 * foreach loop because a "concurrent modification" exception will
-			 * be thrown.
-			 */
-			if (matchingEvent != null) {
-				messagePostedEvents.remove(matchingEvent);
-			}
-
-			return builder.build();
-		}
-
-		/**
-		 * Parses any "reply" events that were pushed to us by the web socket.
-		 * @param eventsByType the complete list of events pushed to us by the
-		 * web socket. This parameter must be mutable because this method will
-		 * remove items from it to indicate that they shouldn't be processed by
-		 * another event handler.
-		 * @return the events to fire on our end. This list will consist of
-		 * {@link MessagePostedEvent} and {@link MessageEditedEvent} objects.
-		 */
-		public static List<Event> reply(Multimap<EventType, JsonNode> eventsByType) {
-			List<Event> events = new ArrayList<>();
-
-			Collection<JsonNode> newMessageEvents = eventsByType.get(EventType.MESSAGE_POSTED);
-			Collection<JsonNode> editedMessageEvents = eventsByType.get(EventType.MESSAGE_EDITED);
-			Collection<JsonNode> replyEvents = eventsByType.removeAll(EventType.REPLY_POSTED);
-
-			for (JsonNode replyEvent : replyEvents) {
-				ChatMessage message = extractChatMessage(replyEvent);
-
-				JsonNode value = replyEvent.get("id");
-				long eventId = (value == null) ? 0 : value.asLong();
-
-				/*
-				 * Whenever a "reply" event is posted, an accompanying
-				 * "new message" or "message edited" event is also posted. This
-				 * event has less information than the "reply" event, so ignore
-				 * it. But we need to know whether a "new message" or
-				 * "message edited" event was fired so we know what kind of
-				 * event to fire on our end.
-				 */
-
-				JsonNode event = findMessageWithId(newMessageEvents, message.getMessageId());
-				if (event != null) {
-					newMessageEvents.remove(event);
-
-					//@formatter:off
-					events.add(new MessagePostedEvent.Builder()
-						.message(message)
-						.eventId(eventId)
-						.timestamp(message.getTimestamp())
-						.build()
-					);
-					//@formatter:on
-
-					continue;
-				}
-
-				event = findMessageWithId(editedMessageEvents, message.getMessageId());
-				if (event != null) {
-					editedMessageEvents.remove(event);
-
-					//@formatter:off
-					events.add(new MessageEditedEvent.Builder()
-						.message(message)
-						.eventId(eventId)
-						.timestamp(message.getTimestamp())
-						.build()
-					);
-					//@formatter:on
-					continue;
-				}
-
-				/*
-				 * If an accompanying "new message" or "message edited" event is
-				 * not found, it means that the "reply" event is from another
-				 * room, so ignore it.
-				 */
-			}
-
-			return events;
-		}
-
-		/**
-		 * Parses any "user mentioned" events that were pushed to us by the web
-		 * socket.
-		 * @param eventsByType the complete list of events pushed to us by the
-		 * web socket. This parameter must be mutable because this method will
-		 * remove items from it to indicate that they shouldn't be processed by
-		 * another event handler.
-		 * @return the events to fire on our end. This list will consist of
-		 * {@link MessagePostedEvent} and {@link MessageEditedEvent} objects.
-		 */
-		public static List<Event> mention(Multimap<EventType, JsonNode> eventsByType) {
-			List<Event> events = new ArrayList<>();
-
-			Collection<JsonNode> newMessageEvents = eventsByType.get(EventType.MESSAGE_POSTED);
-			Collection<JsonNode> editedMessageEvents = eventsByType.get(EventType.MESSAGE_EDITED);
-			Collection<JsonNode> mentionEvents = eventsByType.removeAll(EventType.USER_MENTIONED);
-
-			for (JsonNode mentionEvent : mentionEvents) {
-				ChatMessage message = extractChatMessage(mentionEvent);
-
-				JsonNode value = mentionEvent.get("id");
-				long eventId = (value == null) ? 0 : value.asLong();
-
-				/*
-				 * Whenever a "user mentioned" event is posted, an accompanying
-				 * "new message" or "message edited" event is also posted. This
-				 * event has less information than the "user mentioned" event,
-				 * so ignore it. But we need to know whether a "new message" or
-				 * "message edited" event was fired so we know what kind of
-				 * event to fire on our end.
-				 */
-
-				JsonNode event = findMessageWithId(newMessageEvents, message.getMessageId());
-				if (event != null) {
-					newMessageEvents.remove(event);
-
-					//@formatter:off
-					events.add(new MessagePostedEvent.Builder()
-						.eventId(eventId)
-						.timestamp(message.getTimestamp())
-						.message(message)
-						.build()
-					);
-					//@formatter:on
-				}
-
-				event = findMessageWithId(editedMessageEvents, message.getMessageId());
-				if (event != null) {
-					editedMessageEvents.remove(event);
-
-					//@formatter:off
-					events.add(new MessageEditedEvent.Builder()
-						.eventId(eventId)
-						.timestamp(message.getTimestamp())
-						.message(message)
-						.build()
-					);
-					//@formatter:on
-				}
-			}
-
-			return events;
-		}
-
-		private static JsonNode findMessageWithId(Collection<JsonNode> events, long id) {
-			for (JsonNode event : events) {
-				JsonNode value = event.get("message_id");
-				if (value == null) {
-					continue;
-				}
-
-				if (id == value.asLong()) {
-					return event;
-				}
-			}
-			return null;
-		}
-
-		private static void extractEventFields(JsonNode element, Event.Builder<?, ?> builder) {
-			JsonNode value = element.get("id");
-			if (value != null) {
-				builder.eventId(value.asLong());
-			}
-
-			value = element.get("time_stamp");
-			if (value != null) {
-				builder.timestamp(timestamp(value.asLong()));
-			}
-		}
-
-		/**
-		 * Parses a {@link ChatMessage} object from the given JSON node.
-		 * @param element the JSON node
-		 * @return the parsed chat message
-		 */
-		public static ChatMessage extractChatMessage(JsonNode element) {
-			ChatMessage.Builder builder = new ChatMessage.Builder();
-
-			JsonNode value = element.get("message_id");
-			if (value != null) {
-				builder.messageId(value.asLong());
-			}
-
-			value = element.get("time_stamp");
-			if (value != null) {
-				LocalDateTime ts = timestamp(value.asLong());
-				builder.timestamp(ts);
-			}
-
-			value = element.get("room_id");
-			if (value != null) {
-				builder.roomId(value.asInt());
-			}
-
-			value = element.get("room_name");
-			if (value != null) {
-				builder.roomName(value.asText());
-			}
-
-			/*
-			 * This field is not present for "message starred" events".
-			 */
-			value = element.get("user_id");
-			if (value != null) {
-				builder.userId(value.asInt());
-			}
-
-			/*
-			 * This field is not present for "message starred" events".
-			 */
-			value = element.get("user_name");
-			if (value != null) {
-				builder.username(value.asText());
-			}
-
-			/*
-			 * This field is only present if the message has been edited.
-			 */
-			value = element.get("message_edits");
-			if (value != null) {
-				builder.edits(value.asInt());
-			}
-
-			/*
-			 * This field is only present if the message has been starred.
-			 */
-			value = element.get("message_stars");
-			if (value != null) {
-				builder.stars(value.asInt());
-			}
-
-			/*
-			 * This field is only present when the message is a reply to another
-			 * message.
-			 */
-			value = element.get("parent_id");
-			if (value != null) {
-				builder.parentMessageId(value.asLong());
-			}
-
-			/*
-			 * This field is only present if the message contains a valid
-			 * mention or if the message is a reply to another message.
-			 */
-			value = element.get("target_user_id");
-			if (value != null) {
-				builder.mentionedUserId(value.asInt());
-			}
-
-			/*
-			 * This field is not present for "message deleted" events.
-			 */
-			value = element.get("content");
-			if (value != null && !value.isNull()) {
-				builder.content(Content.parse(value.asText()));
-			}
+	@FunctionalInterface
+	private interface ResponseParser<T> {
+		T parse(Response response) throws IOException;
+	}
 
-			return builder.build();
-		}
+	private IOException notFound(Response response, String action) {
+		return new IOException("[roomId=" + roomId + "]: 404 response received when trying to " + action + ": " + response.getBody());
 	}
 
 	/**
-	 * Provides a list of all the types of events that the web socket API will
-	 * push.
-	 * @author Michael Angstadt
+	 * Stops receiving events from this room. The web socket connection is
+	 * closed when there are no more rooms left.
 	 */
-	private enum EventType {
-		//@formatter:off
-		MESSAGE_POSTED(1),
-		MESSAGE_EDITED(2),
-		USER_ENTERED(3),
-		USER_LEFT(4),
-		MESSAGE_STARRED(6),
-		USER_MENTIONED(8),
-		MESSAGE_DELETED(10),
-		REPLY_POSTED(18),
-		MESSAGE_MOVED_OUT(19),
-		MESSAGE_MOVED_IN(20);
-		//@formatter:on
-
-		/**
-		 * The value of the "event_type" field in the JSON object that the web
-		 * socket sends.
-		 */
-		private final int id;
-
-		/**
-		 * @param id the event type ID
-		 */
-		private EventType(int id) {
-			this.id = id;
-		}
-
-		/**
-		 * Gets an event type given its ID
-		 * @param id the event type ID
-		 * @return the event type or null if not found
-		 */
-		public static EventType get(int id) {
-			for (EventType eventType : values()) {
-				if (eventType.id == id) {
-					return eventType;
-				}
-			}
-			return null;
-		}
+	@Override
+	public void close() throws IOException {
+		chatClient.removeRoom(this);
 	}
 
 	/**
@@ -1239,7 +895,7 @@ public class Room implements IRoom {
 	 * @param ts the timestamp (seconds since epoch)
 	 * @return the {@link LocalDateTime} instance
 	 */
-	private static LocalDateTime timestamp(long ts) {
+	static LocalDateTime timestamp(long ts) {
 		Instant instant = Instant.ofEpochSecond(ts);
 		return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
 	}
@@ -0,0 +1,801 @@
+package oakbot.chat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import oakbot.chat.event.Event;
+import oakbot.chat.event.MessageDeletedEvent;
+import oakbot.chat.event.MessageEditedEvent;
+import oakbot.chat.event.MessagePostedEvent;
+import oakbot.chat.event.MessageStarredEvent;
+import oakbot.chat.event.MessagesMovedEvent;
+import oakbot.chat.event.UserEnteredEvent;
+import oakbot.chat.event.UserLeftEvent;
+
+/**
+ * <p>
+ * Decodes the JSON messages that the chat system's web socket sends into
+ * {@link Event} objects.
+ * </p>
+ * <p>
+ * Messages are read with a streaming parser, so no JSON tree is built. Each
+ * event's fields are copied into a flat object as they are read. The web socket
+ * sends the events of every room the user is in, and the events of all these
+ * rooms are decoded in a single pass.
+ * </p>
+ * @author Michael Angstadt
+ * @see <a href=
+ * "https://github.com/JavaChat/OakBot/wiki/Example-WebSocket-Messages">Example
+ * WebSocket Messages</a>
+ */
+class WebSocketEventDecoder {
+	private static final Logger logger = Logger.getLogger(WebSocketEventDecoder.class.getName());
+	private static final JsonFactory factory = new JsonFactory();
+
+	/**
+	 * Decodes a web socket message. The web socket sends the events of every
+	 * room the user is in, so a single message may contain events for more
+	 * than one room.
+	 * @param json the content of the message (formatted as a JSON object)
+	 * @return the events, keyed by room ID, in the order in which they should
+	 * be published
+	 * @throws IOException if the message is not valid JSON
+	 */
+	public Map<Integer, List<Event>> decode(String json) throws IOException {
+		Map<Integer, List<Event>> eventsByRoom = new LinkedHashMap<>();
+
+		try (JsonParser parser = factory.createParser(json)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return eventsByRoom;
+			}
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+
+				int roomId = roomId(fieldName);
+				if (token != JsonToken.START_OBJECT || roomId < 0) {
+					parser.skipChildren();
+					continue;
+				}
+
+				List<Event> events = toEvents(roomId, readRoom(parser));
+				if (!events.isEmpty()) {
+					eventsByRoom.put(roomId, events);
+				}
+			}
+		}
+
+		return eventsByRoom;
+	}
+
+	/**
+	 * Parses the room ID out of a room key (for example, "r1").
+	 * @param fieldName the field name
+	 * @return the room ID or -1 if the field name is not a room key
+	 */
+	private static int roomId(String fieldName) {
+		int length = fieldName.length();
+		if (length < 2 || length > 10 || fieldName.charAt(0) != 'r') {
+			return -1;
+		}
+
+		int roomId = 0;
+		for (int i = 1; i < length; i++) {
+			char c = fieldName.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			roomId = roomId * 10 + (c - '0');
+		}
+		return roomId;
+	}
+
+	/**
+	 * Parses a {@link ChatMessage} object from the given JSON node.
+	 * @param element the JSON node
+	 * @return the parsed chat message
+	 * @throws IOException if there's a problem reading the node
+	 */
+	public static ChatMessage parseChatMessage(JsonNode element) throws IOException {
+		try (JsonParser parser = element.traverse()) {
+			parser.nextToken();
+			return chatMessage(readEvent(parser));
+		}
+	}
+
+	/**
+	 * Reads the events of a room.
+	 * @param parser the parser, positioned at the start of the room's object
+	 * @return the events
+	 * @throws IOException if there's a problem parsing the JSON
+	 */
+	private static List<RawEvent> readRoom(JsonParser parser) throws IOException {
+		List<RawEvent> events = new ArrayList<>();
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+
+			if (token != JsonToken.START_ARRAY || !"e".equals(fieldName)) {
+				parser.skipChildren();
+				continue;
+			}
+
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (token == JsonToken.START_OBJECT) {
+					events.add(readEvent(parser));
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+
+		return events;
+	}
+
+	/**
+	 * Reads a single event.
+	 * @param parser the parser, positioned at the start of the event's object
+	 * @return the event
+	 * @throws IOException if there's a problem parsing the JSON
+	 */
+	private static RawEvent readEvent(JsonParser parser) throws IOException {
+		RawEvent event = new RawEvent();
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+
+			if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+				parser.skipChildren();
+				continue;
+			}
+
+			switch (fieldName) {
+			case "event_type":
+				if (token.isNumeric()) {
+					event.eventTypeId = parser.getValueAsInt();
+				}
+				break;
+			case "id":
+				event.id = parser.getValueAsLong();
+				break;
+			case "time_stamp":
+				event.timestamp = parser.getValueAsLong();
+				break;
+			case "message_id":
+				event.messageId = parser.getValueAsLong();
+				break;
+			case "room_id":
+				event.roomId = parser.getValueAsInt();
+				break;
+			case "room_name":
+				event.roomName = text(parser);
+				break;
+			case "user_id":
+				event.userId = parser.getValueAsInt();
+				break;
+			case "user_name":
+				event.username = text(parser);
+				break;
+			case "message_edits":
+				event.edits = parser.getValueAsInt();
+				break;
+			case "message_stars":
+				event.stars = parser.getValueAsInt();
+				break;
+			case "parent_id":
+				event.parentId = parser.getValueAsLong();
+				break;
+			case "target_user_id":
+				event.targetUserId = parser.getValueAsInt();
+				break;
+			case "content":
+				event.content = text(parser);
+				break;
+			}
+		}
+
+		return event;
+	}
+
+	private static String text(JsonParser parser) throws IOException {
+		return (parser.getCurrentToken() == JsonToken.VALUE_NULL) ? null : parser.getText();
+	}
+
+	/**
+	 * Converts the raw events of a web socket message into the events to
+	 * publish.
+	 * @param roomId the room the events belong to
+	 * @param rawEvents the raw events
+	 * @return the events to publish
+	 */
+	private static List<Event> toEvents(int roomId, List<RawEvent> rawEvents) {
+		Map<EventType, List<RawEvent>> eventsByType = new EnumMap<>(EventType.class);
+		for (RawEvent rawEvent : rawEvents) {
+			if (rawEvent.eventTypeId == null) {
+				logger.warning("[room " + roomId + "]: Ignoring JSON object that does not have a valid \"event_type\" field: " + rawEvent);
+				continue;
+			}
+
+			EventType eventType = EventType.get(rawEvent.eventTypeId);
+			if (eventType == null) {
+				logger.warning("[room " + roomId + "]: Ignoring event with unknown \"event_type\": " + rawEvent);
+				continue;
+			}
+
+			List<RawEvent> list = eventsByType.get(eventType);
+			if (list == null) {
+				list = new ArrayList<>();
+				eventsByType.put(eventType, list);
+			}
+			list.add(rawEvent);
+		}
+
+		List<Event> eventsToPublish = new ArrayList<>();
+
+		eventsToPublish.addAll(reply(eventsByType));
+		eventsToPublish.addAll(mention(eventsByType));
+
+		Event movedOut = messagesMoved(eventsByType, EventType.MESSAGE_MOVED_OUT);
+		if (movedOut != null) {
+			eventsToPublish.add(movedOut);
+		}
+		Event movedIn = messagesMoved(eventsByType, EventType.MESSAGE_MOVED_IN);
+		if (movedIn != null) {
+			eventsToPublish.add(movedIn);
+		}
+
+		/**
+		 * Sort the remaining events by event ID, just to make sure they are
+		 * processed in the same order they were received from the web socket.
+		 */
+		List<RawEvent> remainingEvents = new ArrayList<>();
+		for (List<RawEvent> list : eventsByType.values()) {
+			remainingEvents.addAll(list);
+		}
+		Collections.sort(remainingEvents, Comparator.comparingLong(RawEvent::id));
+
+		for (RawEvent rawEvent : remainingEvents) {
+			Event event;
+			switch (EventType.get(rawEvent.eventTypeId)) {
+			case MESSAGE_POSTED:
+				event = messagePosted(rawEvent);
+				break;
+			case MESSAGE_EDITED:
+				event = messageEdited(rawEvent);
+				break;
+			case USER_ENTERED:
+				event = userEntered(rawEvent);
+				break;
+			case USER_LEFT:
+				event = userLeft(rawEvent);
+				break;
+			case MESSAGE_STARRED:
+				event = messageStarred(rawEvent);
+				break;
+			case MESSAGE_DELETED:
+				event = messageDeleted(rawEvent);
+				break;
+			default:
+				logger.warning("[room " + roomId + "]: Ignoring event with unknown \"event_type\": " + rawEvent);
+				continue;
+			}
+
+			eventsToPublish.add(event);
+		}
+
+		return eventsToPublish;
+	}
+
+	/**
+	 * Parses a "message posted" event.
+	 * @param rawEvent the raw event
+	 * @return the parsed event
+	 */
+	private static MessagePostedEvent messagePosted(RawEvent rawEvent) {
+		MessagePostedEvent.Builder builder = new MessagePostedEvent.Builder();
+
+		extractEventFields(rawEvent, builder);
+		builder.message(chatMessage(rawEvent));
+
+		return builder.build();
+	}
+
+	/**
+	 * Parses a "message edited" event.
+	 * @param rawEvent the raw event
+	 * @return the parsed event
+	 */
+	private static MessageEditedEvent messageEdited(RawEvent rawEvent) {
+		MessageEditedEvent.Builder builder = new MessageEditedEvent.Builder();
+
+		extractEventFields(rawEvent, builder);
+		builder.message(chatMessage(rawEvent));
+
+		return builder.build();
+	}
+
+	/**
+	 * Parses a "message deleted" event.
+	 * @param rawEvent the raw event
+	 * @return the parsed event
+	 */
+	private static MessageDeletedEvent messageDeleted(RawEvent rawEvent) {
+		MessageDeletedEvent.Builder builder = new MessageDeletedEvent.Builder();
+
+		extractEventFields(rawEvent, builder);
+		builder.message(chatMessage(rawEvent));
+
+		return builder.build();
+	}
+
+	/**
+	 * Parses a "message starred" event.
+	 * @param rawEvent the raw event
+	 * @return the parsed event
+	 */
+	private static MessageStarredEvent messageStarred(RawEvent rawEvent) {
+		MessageStarredEvent.Builder builder = new MessageStarredEvent.Builder();
+
+		extractEventFields(rawEvent, builder);
+		builder.message(chatMessage(rawEvent));
+
+		return builder.build();
+	}
+
+	/**
+	 * Parses a "user entered" event.
+	 * @param rawEvent the raw event
+	 * @return the parsed event
+	 */
+	private static UserEnteredEvent userEntered(RawEvent rawEvent) {
+		UserEnteredEvent.Builder builder = new UserEnteredEvent.Builder();
+
+		extractEventFields(rawEvent, builder);
+
+		if (rawEvent.roomId != null) {
+			builder.roomId(rawEvent.roomId);
+		}
+		if (rawEvent.roomName != null) {
+			builder.roomName(rawEvent.roomName);
+		}
+		if (rawEvent.userId != null) {
+			builder.userId(rawEvent.userId);
+		}
+		if (rawEvent.username != null) {
+			builder.username(rawEvent.username);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Parses a "user left" event.
+	 * @param rawEvent the raw event
+	 * @return the parsed event
+	 */
+	private static UserLeftEvent userLeft(RawEvent rawEvent) {
+		UserLeftEvent.Builder builder = new UserLeftEvent.Builder();
+
+		extractEventFields(rawEvent, builder);
+
+		if (rawEvent.roomId != null) {
+			builder.roomId(rawEvent.roomId);
+		}
+		if (rawEvent.roomName != null) {
+			builder.roomName(rawEvent.roomName);
+		}
+		if (rawEvent.userId != null) {
+			builder.userId(rawEvent.userId);
+		}
+		if (rawEvent.username != null) {
+			builder.username(rawEvent.username);
+		}
+
+		return builder.build();
+	}
+
+	/*
+	 * When messages are moved, the chat system posts a new message under the
+	 * name of the user who moved the messages. The content of this message
+	 * contains the ID and name of the room that the messages were moved to (or
+	 * from). These regexes parse that content.
+	 */
+	private static final Pattern messagesMovedOutRegex = Pattern.compile("^&rarr; <i><a href=\".*?\">\\d+ messages?</a> moved to <a href=\".*?/rooms/(\\d+)/.*?\">(.*?)</a></i>$");
+	private static final Pattern messagesMovedInRegex = Pattern.compile("^&larr; <i>\\d+ messages? moved from <a href=\".*?/rooms/(\\d+)/.*?\">(.*?)</a></i>$");
+
+	/**
+	 * Parses a "messages moved out" or "messages moved in" event.
+	 * @param eventsByType the complete list of events pushed to us by the web
+	 * socket. This method will remove items from it to indicate that they
+	 * shouldn't be processed by another event handler.
+	 * @param type the type of move event to parse
+	 * @return the event to fire on our end or null if the given map does not
+	 * contain any move events of the given type
+	 */
+	private static MessagesMovedEvent messagesMoved(Map<EventType, List<RawEvent>> eventsByType, EventType type) {
+		List<RawEvent> moveEvents = eventsByType.remove(type);
+		if (moveEvents == null) {
+			return null;
+		}
+
+		boolean movedOut = (type == EventType.MESSAGE_MOVED_OUT);
+		MessagesMovedEvent.Builder builder = new MessagesMovedEvent.Builder();
+
+		List<ChatMessage> messages = new ArrayList<>(moveEvents.size());
+		for (RawEvent event : moveEvents) {
+			messages.add(chatMessage(event));
+		}
+		builder.messages(messages);
+
+		/*
+		 * When messages are moved, the chat system posts a new message under
+		 * the name of the user who moved the messages. This causes a "new
+		 * message" event to be posted. The content of this message contains
+		 * the ID and name of the room that the messages were moved to (or
+		 * from).
+		 */
+		List<RawEvent> messagePostedEvents = eventsByType.get(EventType.MESSAGE_POSTED);
+		if (messagePostedEvents == null) {
+			return builder.build();
+		}
+
+		Pattern regex = movedOut ? messagesMovedOutRegex : messagesMovedInRegex;
+		Iterator<RawEvent> it = messagePostedEvents.iterator();
+		while (it.hasNext()) {
+			RawEvent event = it.next();
+			if (event.content == null) {
+				continue;
+			}
+
+			ChatMessage message = chatMessage(event);
+			Matcher m = regex.matcher(message.getContent().getContent());
+			if (!m.find()) {
+				continue;
+			}
+
+			int otherRoomId = Integer.parseInt(m.group(1));
+			String otherRoomName = m.group(2);
+			if (movedOut) {
+				//@formatter:off
+				builder
+				.destRoomId(otherRoomId)
+				.destRoomName(otherRoomName)
+				.sourceRoomId(message.getRoomId())
+				.sourceRoomName(message.getRoomName());
+				//@formatter:on
+			} else {
+				//@formatter:off
+				builder
+				.sourceRoomId(otherRoomId)
+				.sourceRoomName(otherRoomName)
+				.destRoomId(message.getRoomId())
+				.destRoomName(message.getRoomName());
+				//@formatter:on
+			}
+
+			//@formatter:off
+			builder
+			.moverUserId(message.getUserId())
+			.moverUsername(message.getUsername())
+			.eventId(event.id())
+			.timestamp(message.getTimestamp());
+			//@formatter:on
+
+			/*
+			 * Remove the "new message" event so it is not processed again as
+			 * a normal message.
+			 */
+			it.remove();
+			break;
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Parses any "reply" events that were pushed to us by the web socket.
+	 * @param eventsByType the complete list of events pushed to us by the web
+	 * socket. This method will remove items from it to indicate that they
+	 * shouldn't be processed by another event handler.
+	 * @return the events to fire on our end. This list will consist of
+	 * {@link MessagePostedEvent} and {@link MessageEditedEvent} objects.
+	 */
+	private static List<Event> reply(Map<EventType, List<RawEvent>> eventsByType) {
+		List<RawEvent> replyEvents = eventsByType.remove(EventType.REPLY_POSTED);
+		if (replyEvents == null) {
+			return Collections.emptyList();
+		}
+
+		List<Event> events = new ArrayList<>();
+		List<RawEvent> newMessageEvents = eventsByType.get(EventType.MESSAGE_POSTED);
+		List<RawEvent> editedMessageEvents = eventsByType.get(EventType.MESSAGE_EDITED);
+
+		for (RawEvent replyEvent : replyEvents) {
+			ChatMessage message = chatMessage(replyEvent);
+
+			/*
+			 * Whenever a "reply" event is posted, an accompanying "new
+			 * message" or "message edited" event is also posted. This event
+			 * has less information than the "reply" event, so ignore it. But
+			 * we need to know whether a "new message" or "message edited"
+			 * event was fired so we know what kind of event to fire on our
+			 * end.
+			 */
+
+			if (removeMessageWithId(newMessageEvents, message.getMessageId())) {
+				//@formatter:off
+				events.add(new MessagePostedEvent.Builder()
+					.message(message)
+					.eventId(replyEvent.id())
+					.timestamp(message.getTimestamp())
+					.build()
+				);
+				//@formatter:on
+				continue;
+			}
+
+			if (removeMessageWithId(editedMessageEvents, message.getMessageId())) {
+				//@formatter:off
+				events.add(new MessageEditedEvent.Builder()
+					.message(message)
+					.eventId(replyEvent.id())
+					.timestamp(message.getTimestamp())
+					.build()
+				);
+				//@formatter:on
+				continue;
+			}
+
+			/*
+			 * If an accompanying "new message" or "message edited" event is
+			 * not found, it means that the "reply" event is from another room,
+			 * so ignore it.
+			 */
+		}
+
+		return events;
+	}
+
+	/**
+	 * Parses any "user mentioned" events that were pushed to us by the web
+	 * socket.
+	 * @param eventsByType the complete list of events pushed to us by the web
+	 * socket. This method will remove items from it to indicate that they
+	 * shouldn't be processed by another event handler.
+	 * @return the events to fire on our end. This list will consist of
+	 * {@link MessagePostedEvent} and {@link MessageEditedEvent} objects.
+	 */
+	private static List<Event> mention(Map<EventType, List<RawEvent>> eventsByType) {
+		List<RawEvent> mentionEvents = eventsByType.remove(EventType.USER_MENTIONED);
+		if (mentionEvents == null) {
+			return Collections.emptyList();
+		}
+
+		List<Event> events = new ArrayList<>();
+		List<RawEvent> newMessageEvents = eventsByType.get(EventType.MESSAGE_POSTED);
+		List<RawEvent> editedMessageEvents = eventsByType.get(EventType.MESSAGE_EDITED);
+
+		for (RawEvent mentionEvent : mentionEvents) {
+			ChatMessage message = chatMessage(mentionEvent);
+
+			/*
+			 * Whenever a "user mentioned" event is posted, an accompanying
+			 * "new message" or "message edited" event is also posted. This
+			 * event has less information than the "user mentioned" event, so
+			 * ignore it. But we need to know whether a "new message" or
+			 * "message edited" event was fired so we know what kind of event
+			 * to fire on our end.
+			 */
+
+			if (removeMessageWithId(newMessageEvents, message.getMessageId())) {
+				//@formatter:off
+				events.add(new MessagePostedEvent.Builder()
+					.eventId(mentionEvent.id())
+					.timestamp(message.getTimestamp())
+					.message(message)
+					.build()
+				);
+				//@formatter:on
+			}
+
+			if (removeMessageWithId(editedMessageEvents, message.getMessageId())) {
+				//@formatter:off
+				events.add(new MessageEditedEvent.Builder()
+					.eventId(mentionEvent.id())
+					.timestamp(message.getTimestamp())
+					.message(message)
+					.build()
+				);
+				//@formatter:on
+			}
+		}
+
+		return events;
+	}
+
+	/**
+	 * Removes the first event with the given message ID from a list.
+	 * @param events the list of events (may be null)
+	 * @param messageId the message ID
+	 * @return true if an event was removed, false if not
+	 */
+	private static boolean removeMessageWithId(List<RawEvent> events, long messageId) {
+		if (events == null) {
+			return false;
+		}
+
+		Iterator<RawEvent> it = events.iterator();
+		while (it.hasNext()) {
+			RawEvent event = it.next();
+			if (event.messageId != null && event.messageId == messageId) {
+				it.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void extractEventFields(RawEvent rawEvent, Event.Builder<?, ?> builder) {
+		if (rawEvent.id != null) {
+			builder.eventId(rawEvent.id);
+		}
+		if (rawEvent.timestamp != null) {
+			builder.timestamp(Room.timestamp(rawEvent.timestamp));
+		}
+	}
+
+	/**
+	 * Creates a {@link ChatMessage} object from a raw event.
+	 * @param rawEvent the raw event
+	 * @return the chat message
+	 */
+	private static ChatMessage chatMessage(RawEvent rawEvent) {
+		ChatMessage.Builder builder = new ChatMessage.Builder();
+
+		if (rawEvent.messageId != null) {
+			builder.messageId(rawEvent.messageId);
+		}
+		if (rawEvent.timestamp != null) {
+			builder.timestamp(Room.timestamp(rawEvent.timestamp));
+		}
+		if (rawEvent.roomId != null) {
+			builder.roomId(rawEvent.roomId);
+		}
+		if (rawEvent.roomName != null) {
+			builder.roomName(rawEvent.roomName);
+		}
+
+		/*
+		 * These fields are not present for "message starred" events".
+		 */
+		if (rawEvent.userId != null) {
+			builder.userId(rawEvent.userId);
+		}
+		if (rawEvent.username != null) {
+			builder.username(rawEvent.username);
+		}
+
+		/*
+		 * This field is only present if the message has been edited.
+		 */
+		if (rawEvent.edits != null) {
+			builder.edits(rawEvent.edits);
+		}
+
+		/*
+		 * This field is only present if the message has been starred.
+		 */
+		if (rawEvent.stars != null) {
+			builder.stars(rawEvent.stars);
+		}
+
+		/*
+		 * This field is only present when the message is a reply to another
+		 * message.
+		 */
+		if (rawEvent.parentId != null) {
+			builder.parentMessageId(rawEvent.parentId);
+		}
+
+		/*
+		 * This field is only present if the message contains a valid mention
+		 * or if the message is a reply to another message.
+		 */
+		if (rawEvent.targetUserId != null) {
+			builder.mentionedUserId(rawEvent.targetUserId);
+		}
+
+		/*
+		 * This field is not present for "message deleted" events.
+		 */
+		if (rawEvent.content != null) {
+			builder.content(Content.parse(rawEvent.content));
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * The fields of a single event, as they appear in the JSON. A null value
+	 * means that the field was not present.
+	 */
+	private static class RawEvent {
+		private Integer eventTypeId, roomId, userId, edits, stars, targetUserId;
+		private Long id, timestamp, messageId, parentId;
+		private String roomName, username, content;
+
+		public long id() {
+			return (id == null) ? 0 : id;
+		}
+
+		@Override
+		public String toString() {
+			return "[event_type=" + eventTypeId + ", id=" + id + ", message_id=" + messageId + ", room_id=" + roomId + "]";
+		}
+	}
+
+	/**
+	 * Provides a list of all the types of events that the web socket API will
+	 * push.
+	 * @author Michael Angstadt
+	 */
+	private enum EventType {
+		//@formatter:off
+		MESSAGE_POSTED(1),
+		MESSAGE_EDITED(2),
+		USER_ENTERED(3),
+		USER_LEFT(4),
+		MESSAGE_STARRED(6),
+		USER_MENTIONED(8),
+		MESSAGE_DELETED(10),
+		REPLY_POSTED(18),
+		MESSAGE_MOVED_OUT(19),
+		MESSAGE_MOVED_IN(20);
+		//@formatter:on
+
+		/**
+		 * The value of the "event_type" field in the JSON object that the web
+		 * socket sends.
+		 */
+		private final int id;
+
+		/**
+		 * @param id the event type ID
+		 */
+		private EventType(int id) {
+			this.id = id;
+		}
+
+		/**
+		 * Gets an event type given its ID
+		 * @param id the event type ID
+		 * @return the event type or null if not found
+		 */
+		public static EventType get(int id) {
+			for (EventType eventType : values()) {
+				if (eventType.id == id) {
+					return eventType;
+				}
+			}
+			return null;
+		}
+	}
+}
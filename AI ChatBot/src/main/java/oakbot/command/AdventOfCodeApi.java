@@ -16,18 +16,20 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.cookie.BasicClientCookie;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import oakbot.util.HttpFactory;
+
 /**
  * Interacts with the adventofcode.com website.
  * @author Michael Angstadt
  */
 public class AdventOfCodeApi {
 	private final CookieStore cookieStore = new BasicCookieStore();
+	private final CloseableHttpClient client = HttpFactory.getDefault().newClient(cookieStore);
 	private final String htmlUrlTemplate = "http://adventofcode.com/%s/leaderboard/private/view/%s";
 	private final String jsonUrlTemplate = htmlUrlTemplate + ".json";
 
@@ -114,12 +116,10 @@ public class AdventOfCodeApi {
 	 */
 	JsonNode get(String url) throws IOException {
 		HttpGet request = new HttpGet(url);
-		try (CloseableHttpClient client = HttpClientBuilder.create().setDefaultCookieStore(cookieStore).build()) {
-			try (CloseableHttpResponse response = client.execute(request)) {
-				try (InputStream in = response.getEntity().getContent()) {
-					ObjectMapper mapper = new ObjectMapper();
-					return mapper.readTree(in);
-				}
+		try (CloseableHttpResponse response = client.execute(request)) {
+			try (InputStream in = response.getEntity().getContent()) {
+				ObjectMapper mapper = new ObjectMapper();
+				return mapper.readTree(in);
 			}
 		}
 	}
@@ -5,9 +5,9 @@ import static oakbot.command.Command.reply;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import oakbot.bot.BotContext;
 import oakbot.bot.ChatCommand;
@@ -18,7 +18,7 @@ import oakbot.bot.ChatResponse;
  * @author Michael Angstadt
  */
 public class AfkCommand implements Command {
-	private final Map<Integer, AfkUser> afkUsersById = new HashMap<>();
+	private final Map<Integer, AfkUser> afkUsersById = new ConcurrentHashMap<>();
 
 	@Override
 	public String name() {
@@ -120,7 +120,7 @@ public class AfkCommand implements Command {
 	 * @author Michael Angstadt
 	 */
 	public static class AfkUser {
-		private final Map<Integer, Long> lastWarnedUser = new HashMap<>();
+		private final Map<Integer, Long> lastWarnedUser = new ConcurrentHashMap<>();
 		private final String username, awayMessage;
 		private final int userId;
 
@@ -0,0 +1,44 @@
+package oakbot.command;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import oakbot.bot.BotContext;
+import oakbot.bot.ChatCommand;
+import oakbot.bot.ChatResponse;
+import oakbot.util.IoExecutor;
+
+/**
+ * <p>
+ * A chat bot command whose response is computed in the background, such as a
+ * command that has to make a network request.
+ * </p>
+ * <p>
+ * The bot posts the response when the returned future completes, so the
+ * command does not hold up the handling of other messages. Because of this,
+ * asynchronous commands should not use the {@link BotContext} to join rooms,
+ * leave rooms, or shut down the bot.
+ * </p>
+ * @author Michael Angstadt
+ */
+public interface AsyncCommand extends Command {
+	/**
+	 * Called when a user invokes this command. The default implementation runs
+	 * {@link #onMessage} on the shared {@link IoExecutor} thread pool.
+	 * @param chatCommand the command that the user has sent
+	 * @param context the bot context
+	 * @return a future that completes with the response (the response can be
+	 * null not to send a response)
+	 */
+	default CompletableFuture<ChatResponse> onMessageAsync(ChatCommand chatCommand, BotContext context) {
+		return IoExecutor.supplyAsync(() -> onMessage(chatCommand, context));
+	}
+
+	/**
+	 * Gets how long the bot should wait for a response before giving up.
+	 * @return the timeout or null to wait indefinitely
+	 */
+	default Duration timeout() {
+		return Duration.ofSeconds(30);
+	}
+}
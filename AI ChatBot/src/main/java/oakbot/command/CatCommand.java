@@ -2,8 +2,8 @@ package oakbot.command;
 
 import static oakbot.command.Command.reply;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
@@ -18,7 +18,7 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.ErrorHandler;
@@ -31,6 +31,7 @@ import oakbot.bot.BotContext;
 import oakbot.bot.ChatCommand;
 import oakbot.bot.ChatResponse;
 import oakbot.util.ChatBuilder;
+import oakbot.util.HttpFactory;
 import oakbot.util.XPathWrapper;
 
 /**
@@ -39,7 +40,7 @@ import oakbot.util.XPathWrapper;
  * @see <a href=
  * "http://thecatapi.com/docs.html">http://thecatapi.com/docs.html</a>
  */
-public class CatCommand implements Command {
+public class CatCommand implements AsyncCommand {
 	private static final Logger logger = Logger.getLogger(CatCommand.class.getName());
 
 	private final DocumentBuilder docBuilder;
@@ -106,7 +107,8 @@ public class CatCommand implements Command {
 	@Override
 	public ChatResponse onMessage(ChatCommand chatCommand, BotContext context) {
 		int repeats = 0;
-		try (CloseableHttpClient client = createClient()) {
+		CloseableHttpClient client = getClient();
+		try {
 			while (repeats < 5) {
 				String catUrl = nextCat(client);
 				if (isCatThere(client, catUrl)) {
@@ -139,12 +141,14 @@ public class CatCommand implements Command {
 	 */
 	private String nextCat(CloseableHttpClient client) throws IOException, SAXException {
 		HttpGet request = new HttpGet(requestUrl);
+		byte[] body;
 		try (CloseableHttpResponse response = client.execute(request)) {
-			Document document;
-			try (InputStream in = response.getEntity().getContent()) {
-				document = docBuilder.parse(in);
-			}
+			body = EntityUtils.toByteArray(response.getEntity());
+		}
 
+		//the parser is shared, so only parse under the lock, not the download
+		synchronized (docBuilder) {
+			Document document = docBuilder.parse(new ByteArrayInputStream(body));
 			Element urlElement = xpath.element("/response/data/images/image/url", document);
 			return urlElement.getTextContent();
 		}
@@ -167,10 +171,10 @@ public class CatCommand implements Command {
 	}
 
 	/**
-	 * Creates an HTTP client. This method is for unit testing.
+	 * Gets the HTTP client. This method is for unit testing.
 	 * @return the HTTP client
 	 */
-	CloseableHttpClient createClient() {
-		return HttpClients.createDefault();
+	CloseableHttpClient getClient() {
+		return HttpFactory.getDefault().getClient();
 	}
 }
@@ -16,7 +16,7 @@ import oakbot.util.ChatBuilder;
 
 /**
  * Displays a random fat cat picture from a list of user-defined fat cat
- * pictures.
+ * pictures. This class is thread-safe.
  * @author Michael Angstadt
  */
 public class FatCatCommand implements Command {
@@ -59,7 +59,7 @@ public class FatCatCommand implements Command {
 	}
 
 	@Override
-	public ChatResponse onMessage(ChatCommand chatCommand, BotContext context) {
+	public synchronized ChatResponse onMessage(ChatCommand chatCommand, BotContext context) {
 		String params[] = chatCommand.getContent().split("\\s+", 2);
 
 		String action = params[0].toLowerCase();
@@ -172,7 +172,7 @@ public class FatCatCommand implements Command {
 		return reply("Deleted.", chatCommand);
 	}
 
-	public String handleResponse(ChatMessage message) {
+	public synchronized String handleResponse(ChatMessage message) {
 		Conversation conversation = conversations.get(message.getRoomId(), message.getUserId());
 		if (conversation == null) {
 			return null;
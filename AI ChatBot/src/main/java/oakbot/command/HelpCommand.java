@@ -181,11 +181,9 @@ public class HelpCommand implements Command {
 			}
 		}
 
-		for (LearnedCommand command : learnedCommands) {
-			String name = command.name().toLowerCase();
-			if (name.equals(commandText)) {
-				helpTexts.add(command.helpText(trigger));
-			}
+		LearnedCommand learnedCommand = learnedCommands.get(commandText);
+		if (learnedCommand != null) {
+			helpTexts.add(learnedCommand.helpText(trigger));
 		}
 
 		for (Listener listener : listeners) {
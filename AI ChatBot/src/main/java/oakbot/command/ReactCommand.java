@@ -5,6 +5,7 @@ import static oakbot.command.Command.reply;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
@@ -13,8 +14,6 @@ import java.util.logging.Logger;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,23 +22,20 @@ import oakbot.bot.BotContext;
 import oakbot.bot.ChatCommand;
 import oakbot.bot.ChatResponse;
 import oakbot.util.ChatBuilder;
+import oakbot.util.HttpFactory;
 
 /**
  * Displays reaction gifs of human emotions.
  * @author Michael Angstadt
  */
-public class ReactCommand implements Command {
+public class ReactCommand implements AsyncCommand {
 	private static final Logger logger = Logger.getLogger(ReactCommand.class.getName());
 
 	private final ObjectMapper mapper = new ObjectMapper();
-	private final URIBuilder uriBuilder;
+	private final String key;
 
 	public ReactCommand(String key) {
-		uriBuilder = new URIBuilder(URI.create("http://replygif.net/api/gifs"));
-		uriBuilder.addParameter("tag-operator", "and");
-		if (key != null) {
-			uriBuilder.addParameter("api-key", key);
-		}
+		this.key = key;
 	}
 
 	@Override
@@ -69,10 +65,8 @@ public class ReactCommand implements Command {
 			return reply("Please specify a human emotion.", chatCommand);
 		}
 
-		uriBuilder.setParameter("tag", content);
-
 		try {
-			JsonNode node = get(uriBuilder.build());
+			JsonNode node = get(buildUri(content));
 			if (node.size() == 0) {
 				return reply("Unknown human emotion. Please visit http://replygif.net/t for a list of emotions.", chatCommand);
 			}
@@ -92,6 +86,23 @@ public class ReactCommand implements Command {
 		}
 	}
 
+	/**
+	 * Builds the API request URL. A new builder is created each time because
+	 * URIBuilder is not thread-safe.
+	 * @param tag the emotion to search for
+	 * @return the URL
+	 * @throws URISyntaxException if the URL is invalid
+	 */
+	private URI buildUri(String tag) throws URISyntaxException {
+		URIBuilder uriBuilder = new URIBuilder(URI.create("http://replygif.net/api/gifs"));
+		uriBuilder.addParameter("tag-operator", "and");
+		if (key != null) {
+			uriBuilder.addParameter("api-key", key);
+		}
+		uriBuilder.addParameter("tag", tag);
+		return uriBuilder.build();
+	}
+
 	/**
 	 * Makes an HTTP GET request to the given URL.
 	 * @param uri the URL
@@ -100,11 +111,9 @@ public class ReactCommand implements Command {
 	 */
 	JsonNode get(URI uri) throws IOException {
 		HttpGet request = new HttpGet(uri);
-		try (CloseableHttpClient client = HttpClients.createDefault()) {
-			try (CloseableHttpResponse response = client.execute(request)) {
-				try (InputStream in = response.getEntity().getContent()) {
-					return mapper.readTree(in);
-				}
+		try (CloseableHttpResponse response = HttpFactory.getDefault().getClient().execute(request)) {
+			try (InputStream in = response.getEntity().getContent()) {
+				return mapper.readTree(in);
 			}
 		}
 	}
@@ -81,35 +81,40 @@ public class SummonCommand implements Command {
 			return reply("I'm already there... -_-", chatCommand);
 		}
 
-		if (!context.isAuthorAdmin()) {
-			Pending pending = pendingSummons.get(roomToJoin);
-			long elapsed = System.currentTimeMillis() - ((pending == null) ? 0 : pending.getStarted());
-			if (elapsed > summonTime) {
-				pending = new Pending(roomToJoin);
-				pendingSummons.put(roomToJoin, pending);
-			}
+		/*
+		 * Users in different rooms may vote at the same time.
+		 */
+		synchronized (pendingSummons) {
+			if (!context.isAuthorAdmin()) {
+				Pending pending = pendingSummons.get(roomToJoin);
+				long elapsed = System.currentTimeMillis() - ((pending == null) ? 0 : pending.getStarted());
+				if (elapsed > summonTime) {
+					pending = new Pending(roomToJoin);
+					pendingSummons.put(roomToJoin, pending);
+				}
 
-			int userId = chatCommand.getMessage().getUserId();
-			boolean alreadyVoted = !pending.getUserIds().add(userId);
-			int votesNeeded = minSummonsRequired - pending.getUserIds().size();
-			if (alreadyVoted) {
-				if (votesNeeded == 1) {
-					return reply("I need a vote from " + votesNeeded + " other person.", chatCommand);
-				} else {
-					return reply("I need votes from " + votesNeeded + " other people.", chatCommand);
+				int userId = chatCommand.getMessage().getUserId();
+				boolean alreadyVoted = !pending.getUserIds().add(userId);
+				int votesNeeded = minSummonsRequired - pending.getUserIds().size();
+				if (alreadyVoted) {
+					if (votesNeeded == 1) {
+						return reply("I need a vote from " + votesNeeded + " other person.", chatCommand);
+					} else {
+						return reply("I need votes from " + votesNeeded + " other people.", chatCommand);
+					}
 				}
-			}
 
-			if (votesNeeded > 0) {
-				if (votesNeeded == 1) {
-					return reply(votesNeeded + " more vote needed.", chatCommand);
-				} else {
-					return reply(votesNeeded + " more votes needed.", chatCommand);
+				if (votesNeeded > 0) {
+					if (votesNeeded == 1) {
+						return reply(votesNeeded + " more vote needed.", chatCommand);
+					} else {
+						return reply(votesNeeded + " more votes needed.", chatCommand);
+					}
 				}
 			}
-		}
 
-		pendingSummons.remove(roomToJoin);
+			pendingSummons.remove(roomToJoin);
+		}
 
 		context.joinRoom(roomToJoin, new JoinRoomCallback() {
 			@Override
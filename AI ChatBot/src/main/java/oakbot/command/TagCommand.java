@@ -6,11 +6,9 @@ import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -24,13 +22,14 @@ import oakbot.bot.ChatCommand;
 import oakbot.bot.ChatResponse;
 import oakbot.chat.SplitStrategy;
 import oakbot.util.ChatBuilder;
+import oakbot.util.HttpFactory;
 
 /**
  * Displays StackOverflow tag descriptions (can sort of act like a Computer
  * Science urban dictionary).
  * @author Michael Angstadt
  */
-public class TagCommand implements Command {
+public class TagCommand implements AsyncCommand {
 	private static final Logger logger = Logger.getLogger(TagCommand.class.getName());
 
 	@Override
@@ -104,8 +103,7 @@ public class TagCommand implements Command {
 	 */
 	String get(String url) throws IOException {
 		HttpUriRequest request = new HttpGet(url);
-		try (CloseableHttpClient client = HttpClientBuilder.create().build()) {
-			HttpResponse response = client.execute(request);
+		try (CloseableHttpResponse response = HttpFactory.getDefault().getClient().execute(request)) {
 			return EntityUtils.toString(response.getEntity());
 		}
 	}
@@ -3,10 +3,10 @@ package oakbot.command.define;
 import static oakbot.command.Command.reply;
 import static oakbot.util.XPathWrapper.children;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -26,21 +26,23 @@ import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
 import com.google.common.escape.Escaper;
+import com.google.common.io.ByteStreams;
 import com.google.common.net.UrlEscapers;
 
 import oakbot.bot.BotContext;
 import oakbot.bot.ChatCommand;
 import oakbot.bot.ChatResponse;
 import oakbot.chat.SplitStrategy;
-import oakbot.command.Command;
+import oakbot.command.AsyncCommand;
 import oakbot.util.ChatBuilder;
+import oakbot.util.HttpFactory;
 import oakbot.util.XPathWrapper;
 
 /**
  * Gets word definitions from urbandictionary.com
  * @author Michael Angstadt
  */
-public class DefineCommand implements Command {
+public class DefineCommand implements AsyncCommand {
 	private static final Logger logger = Logger.getLogger(DefineCommand.class.getName());
 
 	private final DocumentBuilder docBuilder;
@@ -109,15 +111,24 @@ public class DefineCommand implements Command {
 			return reply("Please specify the word you'd like to define.", chatCommand);
 		}
 
-		Document response;
+		List<Definition> definitions;
+		List<String> suggestions;
 		try {
 			Escaper escaper = UrlEscapers.urlPathSegmentEscaper();
 			URIBuilder b = new URIBuilder("http://www.dictionaryapi.com/api/v1/references/collegiate/xml/" + escaper.escape(word));
 			b.addParameter("key", apiKey);
 
 			String url = b.toString();
+			byte[] body;
 			try (InputStream in = get(url)) {
-				response = docBuilder.parse(in);
+				body = ByteStreams.toByteArray(in);
+			}
+
+			//docBuilder and xpath are not thread-safe
+			synchronized (docBuilder) {
+				Document response = docBuilder.parse(new ByteArrayInputStream(body));
+				definitions = parseResponse(word, response);
+				suggestions = definitions.isEmpty() ? parseSuggestions(response) : null;
 			}
 		} catch (IOException | SAXException | URISyntaxException e) {
 			logger.log(Level.SEVERE, "Problem getting word from dictionary.", e);
@@ -131,9 +142,7 @@ public class DefineCommand implements Command {
 			//@formatter:on
 		}
 
-		List<Definition> definitions = parseResponse(word, response);
 		if (definitions.isEmpty()) {
-			List<String> suggestions = parseSuggestions(response);
 			if (suggestions.isEmpty()) {
 				return reply("No definitions found.", chatCommand);
 			} else {
@@ -277,7 +286,6 @@ public class DefineCommand implements Command {
 	 * @throws IOException
 	 */
 	InputStream get(String url) throws IOException {
-		URL urlObj = new URL(url);
-		return urlObj.openStream();
+		return HttpFactory.getDefault().get(url);
 	}
 }
\ No newline at end of file
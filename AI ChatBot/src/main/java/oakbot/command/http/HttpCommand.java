@@ -65,8 +65,11 @@ public class HttpCommand implements Command {
 		//@formatter:on
 	}
 
+	/*
+	 * Synchronized because neither the DOM nor XPath are thread-safe.
+	 */
 	@Override
-	public ChatResponse onMessage(ChatCommand chatCommand, BotContext context) {
+	public synchronized ChatResponse onMessage(ChatCommand chatCommand, BotContext context) {
 		String split[] = chatCommand.getContent().split("\\s+");
 		String code = split[0].toUpperCase();
 		if (code.isEmpty()) {
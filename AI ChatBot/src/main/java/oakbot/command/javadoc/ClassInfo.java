@@ -4,6 +4,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
@@ -23,7 +25,7 @@ public class ClassInfo {
 	private final String description, since;
 	private final Set<String> modifiers;
 	private final Set<ClassName> interfaces;
-	private final Multimap<String, MethodInfo> methods;
+	private final Supplier<Multimap<String, MethodInfo>> methods;
 	private final boolean deprecated;
 	private final JavadocZipFile zipFile;
 
@@ -34,7 +36,7 @@ public class ClassInfo {
 		description = builder.description;
 		modifiers = builder.modifiers.build();
 		interfaces = builder.interfaces.build();
-		methods = builder.methods.build();
+		methods = (builder.lazyMethods == null) ? Suppliers.ofInstance(builder.methods.build()) : Suppliers.memoize(builder.lazyMethods);
 		deprecated = builder.deprecated;
 		zipFile = builder.zipFile;
 	}
@@ -103,7 +105,7 @@ public class ClassInfo {
 	 * @return the methods
 	 */
 	public Collection<MethodInfo> getMethod(String name) {
-		return methods.get(name.toLowerCase());
+		return methods.get().get(name.toLowerCase());
 	}
 
 	/**
@@ -111,7 +113,7 @@ public class ClassInfo {
 	 * @return the class's methods
 	 */
 	public Collection<MethodInfo> getMethods() {
-		return methods.values();
+		return methods.get().values();
 	}
 
 	/**
@@ -139,6 +141,7 @@ public class ClassInfo {
 		private ImmutableSet.Builder<String> modifiers = ImmutableSet.builder();
 		private ImmutableSet.Builder<ClassName> interfaces = ImmutableSet.builder();
 		private ImmutableMultimap.Builder<String, MethodInfo> methods = ImmutableMultimap.builder();
+		private Supplier<Multimap<String, MethodInfo>> lazyMethods;
 		private boolean deprecated = false;
 		private JavadocZipFile zipFile;
 
@@ -182,6 +185,19 @@ public class ClassInfo {
 			return this;
 		}
 
+		/**
+		 * Sets a function that creates the class's methods the first time
+		 * they are asked for. If this is set, any methods added with
+		 * {@link #method} are ignored.
+		 * @param methods creates the methods (key = method name in lower
+		 * case). It is only called once.
+		 * @return this
+		 */
+		public Builder methods(Supplier<Multimap<String, MethodInfo>> methods) {
+			this.lazyMethods = methods;
+			return this;
+		}
+
 		public Builder deprecated(boolean deprecated) {
 			this.deprecated = deprecated;
 			return this;
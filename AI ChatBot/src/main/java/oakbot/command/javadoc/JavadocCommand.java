@@ -15,6 +15,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.ArrayListMultimap;
@@ -91,7 +92,7 @@ public class JavadocCommand implements Command {
 	 * Value = state information
 	 * </p>
 	 */
-	private final Map<Integer, Conversation> conversations = new HashMap<>();
+	private final Map<Integer, Conversation> conversations = new ConcurrentHashMap<>();
 
 	/**
 	 * @param dao the Javadoc DAO
@@ -1,6 +1,7 @@
 package oakbot.command.javadoc;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -9,18 +10,30 @@ import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.sun.nio.file.SensitivityWatchEventModifier;
 
 /**
- * Stores metadata in memory to allow for faster lookup times.
+ * Stores metadata in memory to allow for faster lookup times. When the DAO is
+ * created, the Javadoc ZIP files are read in parallel.
  * @author Michael Angstadt
  */
 public class JavadocDaoCached implements JavadocDao {
@@ -52,30 +65,128 @@ public class JavadocDaoCached implements JavadocDao {
 	private final Multimap<String, String> aliases = HashMultimap.create();
 
 	/**
-	 * Caches class info that was parsed from the Javadoc ZIP files.
+	 * Caches class info that was parsed from the Javadoc ZIP files. The size
+	 * of the cache is measured in methods, since that is what most of a
+	 * class's memory goes to. The least recently used classes are evicted
+	 * first. Classes that could not be found are cached too, so that repeated
+	 * lookups of a class that doesn't exist don't have to search the ZIP
+	 * files again.
 	 * 
 	 * <ul>
 	 * <li><b>Key:</b> The fully-qualified class name.</li>
-	 * <li><b>Value:</b> The parsed Javadoc info for the class.</li>
+	 * <li><b>Value:</b> The parsed Javadoc info for the class or empty if the
+	 * class does not exist.</li>
 	 * </ul>
 	 */
-	private final Map<String, ClassInfo> cache = new HashMap<>();
+	private final LoadingCache<String, Optional<ClassInfo>> cache;
 
 	/**
+	 * Creates a DAO whose cache can hold up to 20,000 methods.
 	 * @param dir the directory where the Javadoc ZIP files are stored
 	 * @throws IOException if there's a problem reading any of the ZIP files
 	 */
 	public JavadocDaoCached(Path dir) throws IOException {
-		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, JavadocDaoCached::isZipFile)) {
-			for (Path file : stream) {
-				register(file);
+		this(dir, 20000);
+	}
+
+	/**
+	 * @param dir the directory where the Javadoc ZIP files are stored
+	 * @param cacheSize the maximum number of methods the cache can hold (each
+	 * class counts as one method in addition to its actual methods)
+	 * @throws IOException if there's a problem reading any of the ZIP files
+	 */
+	public JavadocDaoCached(Path dir, long cacheSize) throws IOException {
+		//@formatter:off
+		cache = CacheBuilder.newBuilder()
+			.maximumWeight(cacheSize)
+			.weigher((String fullName, Optional<ClassInfo> info) -> 1 + (info.isPresent() ? info.get().getMethods().size() : 0))
+			.recordStats()
+		.build(new CacheLoader<String, Optional<ClassInfo>>() {
+			@Override
+			public Optional<ClassInfo> load(String fullName) throws IOException {
+				return Optional.ofNullable(parse(fullName));
 			}
+		});
+		//@formatter:on
+
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, JavadocDaoCached::isZipFile)) {
+			stream.forEach(files::add);
 		}
+		registerAll(files);
 
 		WatchThread watchThread = new WatchThread(dir);
 		watchThread.start();
 	}
 
+	/**
+	 * Reads the class names of many Javadoc ZIP files at once, and then
+	 * registers the ZIP files with the DAO.
+	 * @param files the ZIP files
+	 * @throws IOException if there was a problem reading any of the ZIP files
+	 */
+	private void registerAll(List<Path> files) throws IOException {
+		if (files.isEmpty()) {
+			return;
+		}
+
+		int threads = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		List<ForkJoinTask<Library>> tasks = new ArrayList<>(files.size());
+		boolean registered = false;
+		try {
+			for (Path file : files) {
+				tasks.add(pool.submit(() -> load(file)));
+			}
+
+			/*
+			 * Merge the results in directory order, so that the alias maps are
+			 * built the same way no matter which ZIP file finishes first.
+			 */
+			for (ForkJoinTask<Library> task : tasks) {
+				register(task.get());
+			}
+			registered = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			Throwables.propagateIfPossible(cause, IOException.class);
+			throw new IOException(cause);
+		} finally {
+			pool.shutdown();
+			if (!registered) {
+				closeAll(pool, tasks);
+			}
+		}
+	}
+
+	/**
+	 * Closes the ZIP files that were opened by a failed call to
+	 * {@link #registerAll}. The DAO is never constructed in this case, so
+	 * nothing else would close them.
+	 * @param pool the pool the ZIP files were loaded on
+	 * @param tasks the load tasks
+	 */
+	private static void closeAll(ForkJoinPool pool, List<ForkJoinTask<Library>> tasks) {
+		//let the tasks that are still running finish, so their ZIP files can be closed too
+		pool.awaitQuiescence(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+		for (ForkJoinTask<Library> task : tasks) {
+			if (!task.isCompletedNormally()) {
+				continue;
+			}
+
+			JavadocZipFile zip = task.getRawResult().zip;
+			try {
+				zip.close();
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Could not close Javadoc ZIP file " + zip.getPath() + ".", e);
+			}
+		}
+	}
+
 	/**
 	 * Registers a Javadoc ZIP file with the DAO.
 	 * @param file the ZIP file containing the Javadoc info (generated by
@@ -83,17 +194,72 @@ public class JavadocDaoCached implements JavadocDao {
 	 * @throws IOException if there was a problem reading the ZIP file
 	 */
 	private void register(Path file) throws IOException {
+		register(load(file));
+	}
+
+	/**
+	 * Reads the names of the classes in a Javadoc ZIP file. If the ZIP file
+	 * has an up-to-date index (see {@link JavadocIndexWriter}), the names are
+	 * read from the index instead, and the ZIP file is not opened until a
+	 * class is looked up.
+	 * @param file the ZIP file
+	 * @return the ZIP file and its classes
+	 * @throws IOException if there was a problem reading the ZIP file
+	 */
+	private static Library load(Path file) throws IOException {
+		Path indexFile = JavadocIndex.getIndexFile(file);
+		if (Files.exists(indexFile)) {
+			try {
+				Path realFile = file.toRealPath();
+				JavadocIndex index = JavadocIndex.read(indexFile, realFile);
+				if (index.isUpToDate(Files.size(realFile), Files.getLastModifiedTime(realFile).toMillis())) {
+					return new Library(index.getZipFile(), index.getClassNames());
+				}
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Could not read Javadoc index " + indexFile + ". Reading the ZIP file instead.", e);
+			}
+		}
+
 		JavadocZipFile zip = new JavadocZipFile(file);
-		for (ClassName className : zip.getClassNames()) {
-			String fullName = className.getFullyQualifiedName();
-			String simpleName = className.getSimpleName();
+		try {
+			return new Library(zip, zip.getClassNames());
+		} catch (IOException | RuntimeException e) {
+			zip.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds the classes of a Javadoc ZIP file to the DAO.
+	 * @param library the ZIP file and its classes
+	 * @throws IOException if there was a problem closing the ZIP file
+	 */
+	private void register(Library library) throws IOException {
+		JavadocZipFile zip = library.zip;
+		Collection<ClassName> classNames = library.classNames;
+		if (classNames.isEmpty()) {
+			//don't hold on to the file handle if the ZIP file will never be read from again
+			zip.close();
+			return;
+		}
 
-			aliases.put(simpleName.toLowerCase(), fullName);
-			aliases.put(simpleName, fullName);
-			aliases.put(fullName.toLowerCase(), fullName);
-			aliases.put(fullName, fullName);
-			libraryClasses.put(zip, fullName);
+		List<String> fullNames = new ArrayList<>(classNames.size());
+		synchronized (this) {
+			for (ClassName className : classNames) {
+				String fullName = className.getFullyQualifiedName();
+				String simpleName = className.getSimpleName();
+
+				aliases.put(simpleName.toLowerCase(), fullName);
+				aliases.put(simpleName, fullName);
+				aliases.put(fullName.toLowerCase(), fullName);
+				aliases.put(fullName, fullName);
+				libraryClasses.put(zip, fullName);
+				fullNames.add(fullName);
+			}
 		}
+
+		//forget that these classes could not be found
+		cache.invalidateAll(fullNames);
 	}
 
 	@Override
@@ -107,23 +273,44 @@ public class JavadocDaoCached implements JavadocDao {
 	}
 
 	@Override
-	public synchronized ClassInfo getClassInfo(String fullyQualifiedClassName) throws IOException {
-		//check the cache
-		ClassInfo info = cache.get(fullyQualifiedClassName);
-		if (info != null) {
-			return info;
-		}
-
-		//parse the class info from the Javadocs
-		for (JavadocZipFile zip : libraryClasses.keySet()) {
-			info = zip.getClassInfo(fullyQualifiedClassName);
-			if (info != null) {
-				cache.put(fullyQualifiedClassName, info);
-				return info;
+	public ClassInfo getClassInfo(String fullyQualifiedClassName) throws IOException {
+		try {
+			return cache.get(fullyQualifiedClassName).orElse(null);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw (cause instanceof IOException) ? (IOException) cause : new IOException(cause);
+		} catch (UncheckedExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	/**
+	 * Gets the statistics of the class info cache.
+	 * @return the statistics (e.g. hit count, miss count, eviction count)
+	 */
+	public CacheStats getCacheStats() {
+		return cache.stats();
+	}
+
+	/**
+	 * Parses the class info of a class from the ZIP file that contains it.
+	 * Different classes can be parsed at the same time.
+	 * @param fullyQualifiedClassName the class's fully-qualified class name
+	 * @return the class info or null if the class was not found
+	 * @throws IOException if there's a problem reading the ZIP file
+	 */
+	private ClassInfo parse(String fullyQualifiedClassName) throws IOException {
+		JavadocZipFile zip = null;
+		synchronized (this) {
+			for (JavadocZipFile z : libraryClasses.keySet()) {
+				if (libraryClasses.containsEntry(z, fullyQualifiedClassName)) {
+					zip = z;
+					break;
+				}
 			}
 		}
 
-		return null;
+		return (zip == null) ? null : zip.getClassInfo(fullyQualifiedClassName);
 	}
 
 	/**
@@ -228,13 +415,32 @@ public class JavadocDaoCached implements JavadocDao {
 
 				Collection<String> classNames = libraryClasses.removeAll(found);
 				aliases.values().removeAll(classNames);
-				cache.keySet().removeAll(classNames);
+				cache.invalidateAll(classNames);
+
+				try {
+					found.close();
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "Could not close ZIP file \"" + file + "\".", e);
+				}
 			}
 
 			logger.info("ZIP file " + file + " removed.");
 		}
 	}
 
+	/**
+	 * A Javadoc ZIP file and the names of the classes it contains.
+	 */
+	private static class Library {
+		private final JavadocZipFile zip;
+		private final Collection<ClassName> classNames;
+
+		public Library(JavadocZipFile zip, Collection<ClassName> classNames) {
+			this.zip = zip;
+			this.classNames = classNames;
+		}
+	}
+
 	/**
 	 * Determines if a file has a ".zip" extension (case sensitive).
 	 * @param file the file
@@ -0,0 +1,161 @@
+package oakbot.command.javadoc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * <p>
+ * Retrieves class information from precompiled binary indexes of the Javadoc
+ * ZIP files (see {@link JavadocIndexWriter}), so that looking up a class does
+ * not involve any XML parsing.
+ * </p>
+ * <p>
+ * The indexes are memory-mapped, so they do not take up heap space, and no
+ * {@link ClassInfo} objects are cached. A class is decoded from its index
+ * every time it is looked up, and its methods are only decoded if they are
+ * needed. This means that the heap does not grow as users look up more
+ * classes.
+ * </p>
+ * <p>
+ * Each index is stored next to its ZIP file. If a ZIP file does not have an
+ * index, or if the ZIP file has changed since its index was created, the
+ * index is created when the DAO is constructed. The ZIP files are only read
+ * when the DAO is constructed.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class JavadocDaoIndexed implements JavadocDao {
+	private static final Logger logger = Logger.getLogger(JavadocDaoIndexed.class.getName());
+
+	/**
+	 * Maps class name aliases to their fully qualified names. For example, maps
+	 * "string" to "java.lang.String".
+	 *
+	 * <ul>
+	 * <li><b>Key:</b> The alias (in lower case)</li>
+	 * <li><b>Value:</b> The fully-qualified class names that are mapped to the
+	 * alias.</li>
+	 * </ul>
+	 */
+	private final Multimap<String, String> aliases = HashMultimap.create();
+
+	/**
+	 * Maps each fully-qualified class name to the index that contains it.
+	 */
+	private final Map<String, JavadocIndex> indexes = new HashMap<>();
+
+	/**
+	 * @param dir the directory where the Javadoc ZIP files are stored
+	 * @throws IOException if there's a problem reading any of the ZIP files
+	 */
+	public JavadocDaoIndexed(Path dir) throws IOException {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, JavadocDaoIndexed::isZipFile)) {
+			for (Path file : stream) {
+				Library library = load(file);
+				JavadocIndex index = library.index;
+				for (ClassName className : library.classNames) {
+					String fullName = className.getFullyQualifiedName();
+					String simpleName = className.getSimpleName();
+
+					aliases.put(simpleName.toLowerCase(), fullName);
+					aliases.put(simpleName, fullName);
+					aliases.put(fullName.toLowerCase(), fullName);
+					aliases.put(fullName, fullName);
+					indexes.put(fullName, index);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads the index of a Javadoc ZIP file, creating the index if it doesn't
+	 * exist, is out of date, or is corrupt.
+	 * @param file the ZIP file
+	 * @return the index and its classes
+	 * @throws IOException if there's a problem reading the ZIP file
+	 */
+	private static Library load(Path file) throws IOException {
+		file = file.toRealPath();
+		long size = Files.size(file);
+		long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+		Path indexFile = JavadocIndex.getIndexFile(file);
+		if (Files.exists(indexFile)) {
+			try {
+				JavadocIndex index = JavadocIndex.read(indexFile, file);
+				if (index.isUpToDate(size, lastModified)) {
+					return new Library(index, index.getClassNames());
+				}
+				logger.info("Javadoc index " + indexFile + " is out of date.");
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Could not read Javadoc index " + indexFile + ".", e);
+			}
+		}
+
+		logger.info("Creating Javadoc index for " + file + "...");
+		byte[] data;
+		try (JavadocZipFile zip = new JavadocZipFile(file)) {
+			data = JavadocIndexWriter.compile(zip, size, lastModified);
+		}
+
+		JavadocIndex index;
+		try {
+			JavadocIndexWriter.save(data, indexFile);
+			index = JavadocIndex.read(indexFile, file);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Could not save Javadoc index " + indexFile + ". It will be kept in memory, and will have to be created again the next time the bot starts.", e);
+			index = new JavadocIndex(ByteBuffer.wrap(data), file);
+		}
+		return new Library(index, index.getClassNames());
+	}
+
+	@Override
+	public Collection<String> search(String className) {
+		Collection<String> names = aliases.get(className);
+		if (names.isEmpty()) {
+			//try case-insensitive search
+			names = aliases.get(className.toLowerCase());
+		}
+		return names;
+	}
+
+	@Override
+	public ClassInfo getClassInfo(String fullyQualifiedClassName) throws IOException {
+		JavadocIndex index = indexes.get(fullyQualifiedClassName);
+		return (index == null) ? null : index.getClassInfo(fullyQualifiedClassName);
+	}
+
+	/**
+	 * An index and the names of the classes it contains.
+	 */
+	private static class Library {
+		private final JavadocIndex index;
+		private final List<ClassName> classNames;
+
+		public Library(JavadocIndex index, List<ClassName> classNames) {
+			this.index = index;
+			this.classNames = classNames;
+		}
+	}
+
+	/**
+	 * Determines if a file has a ".zip" extension (case sensitive).
+	 * @param file the file
+	 * @return true if it does, false it not
+	 */
+	private static boolean isZipFile(Path file) {
+		return file.getFileName().toString().toLowerCase().endsWith(".zip");
+	}
+}
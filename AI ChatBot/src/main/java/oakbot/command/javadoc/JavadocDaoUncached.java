@@ -27,12 +27,13 @@ public class JavadocDaoUncached implements JavadocDao {
 	public Collection<String> search(String query) throws IOException {
 		Collection<String> names = new HashSet<>();
 		for (Path file : getZipFiles()) {
-			JavadocZipFile zip = new JavadocZipFile(file);
-			for (ClassName className : zip.getClassNames()) {
-				String fullName = className.getFullyQualifiedName();
-				String simpleName = className.getSimpleName();
-				if (fullName.equalsIgnoreCase(query) || simpleName.equalsIgnoreCase(query)) {
-					names.add(fullName);
+			try (JavadocZipFile zip = new JavadocZipFile(file)) {
+				for (ClassName className : zip.getClassNames()) {
+					String fullName = className.getFullyQualifiedName();
+					String simpleName = className.getSimpleName();
+					if (fullName.equalsIgnoreCase(query) || simpleName.equalsIgnoreCase(query)) {
+						names.add(fullName);
+					}
 				}
 			}
 		}
@@ -42,10 +43,11 @@ public class JavadocDaoUncached implements JavadocDao {
 	@Override
 	public ClassInfo getClassInfo(String fullyQualifiedClassName) throws IOException {
 		for (Path file : getZipFiles()) {
-			JavadocZipFile zip = new JavadocZipFile(file);
-			ClassInfo info = zip.getClassInfo(fullyQualifiedClassName);
-			if (info != null) {
-				return info;
+			try (JavadocZipFile zip = new JavadocZipFile(file)) {
+				ClassInfo info = zip.getClassInfo(fullyQualifiedClassName);
+				if (info != null) {
+					return info;
+				}
 			}
 		}
 
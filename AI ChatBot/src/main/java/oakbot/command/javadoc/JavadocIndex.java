@@ -0,0 +1,460 @@
+package oakbot.command.javadoc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * <p>
+ * Reads a binary index of the classes in a Javadoc ZIP file. Indexes are
+ * created by {@link JavadocIndexWriter}.
+ * </p>
+ * <p>
+ * Looking up a class does not involve any XML parsing. The class name is found
+ * with a binary search over a sorted table, and only the record of that class
+ * is decoded. The class's methods are not decoded until they are asked for.
+ * The only objects that are created are the ones that make up the returned
+ * {@link ClassInfo}.
+ * </p>
+ * <p>
+ * The buffer can be a memory-mapped file, in which case the index does not
+ * take up any heap space.
+ * </p>
+ * <p>
+ * The index is laid out as follows (all numbers are big-endian). Every string
+ * is stored once in the string pool at the end of the file and is referenced
+ * by its offset within the pool (-1 for null). Every offset is checked before
+ * it is followed, so a corrupt or truncated index causes an
+ * {@link IOException} to be thrown.
+ * </p>
+ *
+ * <pre>
+ * int     magic number
+ * int     format version
+ * long    size of the ZIP file the index was created from
+ * long    last modified time of the ZIP file
+ * int x5  library name, version, base URL, project URL, Javadoc URL pattern
+ * int     number of classes
+ * int     size of the class records section
+ * [int, int] x N  fully-qualified class name, offset of the class record
+ *                 (sorted by class name)
+ * class records
+ * string pool ([int length, UTF-8 bytes] x N)
+ * </pre>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class JavadocIndex {
+	static final int MAGIC = 0x4F414B4A; //"OAKJ"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 52;
+	static final String EXTENSION = ".idx";
+
+	static final int FLAG_DEPRECATED = 1;
+	static final int FLAG_SUPER_CLASS = 2;
+	static final int FLAG_RETURN_VALUE = 2;
+	static final int FLAG_ARRAY = 1;
+	static final int FLAG_VARARGS = 2;
+
+	/**
+	 * Only absolute get methods are called on this buffer, so it can be shared
+	 * between threads.
+	 */
+	private final ByteBuffer buffer;
+
+	private final long zipSize, zipLastModified;
+	private final int classCount, recordsOffset, poolOffset;
+	private final JavadocZipFile zipFile;
+
+	/**
+	 * @param buffer the contents of the index
+	 * @param zipFile the ZIP file the index was created from
+	 * @throws IOException if the buffer does not contain an index, the index
+	 * was created by a different version of this class, or the index is
+	 * corrupt
+	 */
+	public JavadocIndex(ByteBuffer buffer, Path zipFile) throws IOException {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a Javadoc index.");
+		}
+
+		int version = buffer.getInt(4);
+		if (version != VERSION) {
+			throw new IOException("Unsupported Javadoc index version: " + version);
+		}
+
+		this.buffer = buffer;
+		zipSize = buffer.getLong(8);
+		zipLastModified = buffer.getLong(16);
+		classCount = buffer.getInt(44);
+		int recordsSize = buffer.getInt(48);
+		long recordsOffset = HEADER_SIZE + classCount * 8L;
+		long poolOffset = recordsOffset + recordsSize;
+		if (classCount < 0 || recordsSize < 0 || poolOffset > buffer.limit()) {
+			throw new IOException("Javadoc index is truncated.");
+		}
+		this.recordsOffset = (int) recordsOffset;
+		this.poolOffset = (int) poolOffset;
+
+		/*
+		 * Check the class table up front, since it is used by every lookup.
+		 */
+		for (int i = 0; i < classCount; i++) {
+			stringPosition(buffer.getInt(HEADER_SIZE + i * 8));
+
+			int recordOffset = buffer.getInt(HEADER_SIZE + i * 8 + 4);
+			if (recordOffset < 0 || recordOffset >= recordsSize) {
+				throw corrupt();
+			}
+		}
+
+		//@formatter:off
+		this.zipFile = new JavadocZipFile(zipFile,
+			string(buffer.getInt(24)),
+			string(buffer.getInt(28)),
+			string(buffer.getInt(32)),
+			string(buffer.getInt(36)),
+			string(buffer.getInt(40))
+		);
+		//@formatter:on
+	}
+
+	/**
+	 * Memory-maps an index file. The file does not have to stay open for the
+	 * mapping to remain valid.
+	 * @param indexFile the index file
+	 * @param zipFile the ZIP file the index was created from
+	 * @return the index
+	 * @throws IOException if there's a problem reading the file or the file is
+	 * not a valid index
+	 */
+	public static JavadocIndex read(Path indexFile, Path zipFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+			return new JavadocIndex(channel.map(MapMode.READ_ONLY, 0, channel.size()), zipFile);
+		}
+	}
+
+	/**
+	 * Gets the path to the index file of a Javadoc ZIP file.
+	 * @param zipFile the ZIP file (e.g. "java.zip")
+	 * @return the index file (e.g. "java.zip.idx")
+	 */
+	public static Path getIndexFile(Path zipFile) {
+		return zipFile.resolveSibling(zipFile.getFileName() + EXTENSION);
+	}
+
+	/**
+	 * Determines if the index was created from the current version of its ZIP
+	 * file.
+	 * @param size the size of the ZIP file
+	 * @param lastModified the last modified time of the ZIP file
+	 * @return true if the index is up to date, false if it needs to be
+	 * recreated
+	 */
+	public boolean isUpToDate(long size, long lastModified) {
+		return zipSize == size && zipLastModified == lastModified;
+	}
+
+	/**
+	 * Gets the ZIP file the index was created from.
+	 * @return the ZIP file
+	 */
+	public JavadocZipFile getZipFile() {
+		return zipFile;
+	}
+
+	/**
+	 * Gets the number of classes in the index.
+	 * @return the number of classes
+	 */
+	public int size() {
+		return classCount;
+	}
+
+	/**
+	 * Gets the names of all the classes in the index.
+	 * @return the class names (sorted)
+	 * @throws IOException if the index is corrupt
+	 */
+	public List<ClassName> getClassNames() throws IOException {
+		List<ClassName> classNames = new ArrayList<>(classCount);
+		for (int i = 0; i < classCount; i++) {
+			Cursor cursor = new Cursor(recordOffset(i));
+			classNames.add(cursor.className());
+		}
+		return Collections.unmodifiableList(classNames);
+	}
+
+	/**
+	 * Gets information about a class.
+	 * @param fullName the fully-qualified class name (e.g. "java.lang.String",
+	 * case-sensitive)
+	 * @return the class info or null if the class is not in the index
+	 * @throws IOException if the index is corrupt
+	 */
+	public ClassInfo getClassInfo(String fullName) throws IOException {
+		int i = find(fullName.getBytes(StandardCharsets.UTF_8));
+		if (i < 0) {
+			return null;
+		}
+
+		Cursor cursor = new Cursor(recordOffset(i));
+		return cursor.classInfo();
+	}
+
+	/**
+	 * Searches the class table for a class.
+	 * @param name the fully-qualified class name, encoded in UTF-8
+	 * @return the position of the class in the table or -1 if not found
+	 * @throws IOException if the index is corrupt
+	 */
+	private int find(byte[] name) throws IOException {
+		int low = 0;
+		int high = classCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compare(buffer.getInt(HEADER_SIZE + mid * 8), name);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares a string in the string pool to another string without decoding
+	 * it.
+	 * @param ref the pool offset of the string
+	 * @param other the other string, encoded in UTF-8
+	 * @return a negative number, zero, or a positive number if the pool string
+	 * comes before, is equal to, or comes after the other string
+	 * @throws IOException if the index is corrupt
+	 */
+	private int compare(int ref, byte[] other) throws IOException {
+		int pos = stringPosition(ref);
+		int length = buffer.getInt(pos);
+		pos += 4;
+
+		int n = Math.min(length, other.length);
+		for (int i = 0; i < n; i++) {
+			int a = buffer.get(pos + i) & 0xFF;
+			int b = other[i] & 0xFF;
+			if (a != b) {
+				return a - b;
+			}
+		}
+		return length - other.length;
+	}
+
+	private int recordOffset(int i) {
+		return recordsOffset + buffer.getInt(HEADER_SIZE + i * 8 + 4);
+	}
+
+	/**
+	 * Decodes a string from the string pool.
+	 * @param ref the pool offset of the string or -1 for null
+	 * @return the string
+	 * @throws IOException if the index is corrupt
+	 */
+	private String string(int ref) throws IOException {
+		if (ref == -1) {
+			return null;
+		}
+
+		int pos = stringPosition(ref);
+		int length = buffer.getInt(pos);
+		pos += 4;
+
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(pos + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Makes sure that a string in the string pool lies entirely within the
+	 * buffer.
+	 * @param ref the pool offset of the string
+	 * @return the position of the string in the buffer
+	 * @throws IOException if the string is outside of the buffer
+	 */
+	private int stringPosition(int ref) throws IOException {
+		if (ref < 0 || ref > buffer.limit() - poolOffset - 4) {
+			throw corrupt();
+		}
+
+		int pos = poolOffset + ref;
+		int length = buffer.getInt(pos);
+		if (length < 0 || length > buffer.limit() - pos - 4) {
+			throw corrupt();
+		}
+
+		return pos;
+	}
+
+	private static IOException corrupt() {
+		return new IOException("Javadoc index is corrupt.");
+	}
+
+	/**
+	 * Decodes a class record.
+	 */
+	private class Cursor {
+		private int pos;
+
+		public Cursor(int pos) {
+			this.pos = pos;
+		}
+
+		ClassInfo classInfo() throws IOException {
+			ClassInfo.Builder builder = new ClassInfo.Builder();
+			builder.zipFile(zipFile);
+
+			ClassName name = className();
+			builder.name(name);
+
+			int flags = u8();
+			builder.deprecated((flags & FLAG_DEPRECATED) != 0);
+			if ((flags & FLAG_SUPER_CLASS) != 0) {
+				builder.superClass(className());
+			}
+
+			builder.since(string());
+			builder.description(string());
+			builder.modifiers(strings());
+
+			int interfaces = u16();
+			for (int i = 0; i < interfaces; i++) {
+				builder.interface_(className());
+			}
+
+			/*
+			 * The methods are not decoded until they are needed. The supplier
+			 * cannot throw a checked exception, so if the methods turn out to
+			 * be corrupt, an UncheckedIOException is thrown.
+			 */
+			int methodsPos = pos;
+			builder.methods(() -> {
+				try {
+					return new Cursor(methodsPos).methods();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+
+			return builder.build();
+		}
+
+		private Multimap<String, MethodInfo> methods() throws IOException {
+			ImmutableMultimap.Builder<String, MethodInfo> methods = ImmutableMultimap.builder();
+			int count = i32();
+			for (int i = 0; i < count; i++) {
+				MethodInfo method = methodInfo();
+				methods.put(method.getName().toLowerCase(), method);
+			}
+			return methods.build();
+		}
+
+		private MethodInfo methodInfo() throws IOException {
+			MethodInfo.Builder builder = new MethodInfo.Builder();
+
+			builder.name(string());
+
+			int flags = u8();
+			builder.deprecated((flags & FLAG_DEPRECATED) != 0);
+			if ((flags & FLAG_RETURN_VALUE) != 0) {
+				builder.returnValue(className());
+			}
+
+			builder.since(string());
+			builder.description(string());
+			builder.modifiers(strings());
+
+			int parameters = u16();
+			for (int i = 0; i < parameters; i++) {
+				ClassName type = className();
+				String name = string();
+				flags = u8();
+				String generic = string();
+				builder.parameter(new ParameterInfo(type, name, (flags & FLAG_ARRAY) != 0, (flags & FLAG_VARARGS) != 0, generic));
+			}
+
+			return builder.build();
+		}
+
+		ClassName className() throws IOException {
+			String packageName = string();
+
+			int count = u8();
+			List<String> outerClassNames = (count == 0) ? Collections.emptyList() : new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				outerClassNames.add(string());
+			}
+
+			String simpleName = string();
+
+			return new ClassName(packageName, outerClassNames, simpleName);
+		}
+
+		private List<String> strings() throws IOException {
+			int count = u16();
+			List<String> strings = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				strings.add(string());
+			}
+			return strings;
+		}
+
+		private String string() throws IOException {
+			return JavadocIndex.this.string(i32());
+		}
+
+		private int u8() throws IOException {
+			check(1);
+			return buffer.get(pos++) & 0xFF;
+		}
+
+		private int u16() throws IOException {
+			check(2);
+			int value = buffer.getShort(pos) & 0xFFFF;
+			pos += 2;
+			return value;
+		}
+
+		private int i32() throws IOException {
+			check(4);
+			int value = buffer.getInt(pos);
+			pos += 4;
+			return value;
+		}
+
+		/**
+		 * Makes sure that a value lies within the class records section.
+		 * @param size the size of the value
+		 * @throws IOException if the value is outside of the section
+		 */
+		private void check(int size) throws IOException {
+			if (pos < recordsOffset || pos > poolOffset - size) {
+				throw corrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package oakbot.command.javadoc;
+
+import static oakbot.command.javadoc.JavadocIndex.FLAG_ARRAY;
+import static oakbot.command.javadoc.JavadocIndex.FLAG_DEPRECATED;
+import static oakbot.command.javadoc.JavadocIndex.FLAG_RETURN_VALUE;
+import static oakbot.command.javadoc.JavadocIndex.FLAG_SUPER_CLASS;
+import static oakbot.command.javadoc.JavadocIndex.FLAG_VARARGS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * <p>
+ * Compiles a Javadoc ZIP file into a binary index that can be read by
+ * {@link JavadocIndex}. See {@link JavadocIndex} for a description of the
+ * format.
+ * </p>
+ * <p>
+ * Indexes can be created ahead of time by running this class from the command
+ * line:
+ * </p>
+ *
+ * <pre>
+ * java oakbot.command.javadoc.JavadocIndexWriter java.zip jsoup.zip ...
+ * </pre>
+ * @author Michael Angstadt
+ */
+public class JavadocIndexWriter {
+	private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+	private final DataOutputStream records = new DataOutputStream(recordBytes);
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+
+	/**
+	 * Maps each string that has been written to the pool to its offset.
+	 */
+	private final Map<String, Integer> strings = new HashMap<>();
+
+	/**
+	 * Creates an index file for each of the given Javadoc ZIP files. Each
+	 * index is saved next to its ZIP file.
+	 * @param args the paths to the ZIP files
+	 * @throws IOException if there's a problem reading a ZIP file or writing an
+	 * index
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: JavadocIndexWriter ZIP_FILE...");
+			return;
+		}
+
+		for (String arg : args) {
+			Path file = Paths.get(arg);
+			Path indexFile = JavadocIndex.getIndexFile(file);
+			try (JavadocZipFile zip = new JavadocZipFile(file)) {
+				byte[] index = compile(zip, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+				save(index, indexFile);
+			}
+			System.out.println(file + " -> " + indexFile);
+		}
+	}
+
+	/**
+	 * Compiles the index of a Javadoc ZIP file.
+	 * @param zip the ZIP file
+	 * @param zipSize the size of the ZIP file (used to tell if the index is
+	 * out of date)
+	 * @param zipLastModified the last modified time of the ZIP file (used to
+	 * tell if the index is out of date)
+	 * @return the index
+	 * @throws IOException if there's a problem reading the ZIP file
+	 */
+	public static byte[] compile(JavadocZipFile zip, long zipSize, long zipLastModified) throws IOException {
+		return new JavadocIndexWriter().write(zip, zipSize, zipLastModified);
+	}
+
+	/**
+	 * Saves an index to disk. The index is written to a temporary file, which
+	 * then replaces the index file, so that anything that has the old index
+	 * file memory-mapped does not see a half-written file.
+	 * @param index the index
+	 * @param indexFile the index file
+	 * @throws IOException if there's a problem writing the file
+	 */
+	public static void save(byte[] index, Path indexFile) throws IOException {
+		Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+		try {
+			Files.write(temp, index);
+			Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private JavadocIndexWriter() {
+		//use the static methods
+	}
+
+	private byte[] write(JavadocZipFile zip, long zipSize, long zipLastModified) throws IOException {
+		/*
+		 * The class table must be sorted in the same order that JavadocIndex
+		 * compares names in (by their UTF-8 bytes).
+		 */
+		SortedMap<byte[], ClassInfo> classes = new TreeMap<>(UnsignedBytes.lexicographicalComparator());
+		for (ClassName className : zip.getClassNames()) {
+			String fullName = className.getFullyQualifiedName();
+			ClassInfo info = zip.getClassInfo(fullName);
+			if (info != null) {
+				classes.put(fullName.getBytes(StandardCharsets.UTF_8), info);
+			}
+		}
+
+		int[] nameRefs = new int[classes.size()];
+		int[] recordOffsets = new int[classes.size()];
+		int i = 0;
+		for (ClassInfo info : classes.values()) {
+			nameRefs[i] = string(info.getName().getFullyQualifiedName());
+			recordOffsets[i] = records.size();
+			writeClass(info);
+			i++;
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(JavadocIndex.HEADER_SIZE + classes.size() * 8 + records.size() + pool.size());
+		DataOutputStream data = new DataOutputStream(out);
+
+		data.writeInt(JavadocIndex.MAGIC);
+		data.writeInt(JavadocIndex.VERSION);
+		data.writeLong(zipSize);
+		data.writeLong(zipLastModified);
+		data.writeInt(string(zip.getName()));
+		data.writeInt(string(zip.getVersion()));
+		data.writeInt(string(zip.getBaseUrl()));
+		data.writeInt(string(zip.getProjectUrl()));
+		data.writeInt(string(zip.getJavadocUrlPattern()));
+		data.writeInt(classes.size());
+		data.writeInt(records.size());
+
+		for (i = 0; i < nameRefs.length; i++) {
+			data.writeInt(nameRefs[i]);
+			data.writeInt(recordOffsets[i]);
+		}
+
+		recordBytes.writeTo(data);
+		poolBytes.writeTo(data);
+
+		return out.toByteArray();
+	}
+
+	private void writeClass(ClassInfo info) throws IOException {
+		writeClassName(info.getName());
+
+		ClassName superClass = info.getSuperClass();
+		int flags = 0;
+		if (info.isDeprecated()) {
+			flags |= FLAG_DEPRECATED;
+		}
+		if (superClass != null) {
+			flags |= FLAG_SUPER_CLASS;
+		}
+		records.writeByte(flags);
+		if (superClass != null) {
+			writeClassName(superClass);
+		}
+
+		records.writeInt(string(info.getSince()));
+		records.writeInt(string(info.getDescription()));
+		writeStrings(info.getModifiers());
+
+		records.writeShort(count(info.getInterfaces().size()));
+		for (ClassName interface_ : info.getInterfaces()) {
+			writeClassName(interface_);
+		}
+
+		Collection<MethodInfo> methods = info.getMethods();
+		records.writeInt(methods.size());
+		for (MethodInfo method : methods) {
+			writeMethod(method);
+		}
+	}
+
+	private void writeMethod(MethodInfo method) throws IOException {
+		records.writeInt(string(method.getName()));
+
+		ClassName returnValue = method.getReturnValue();
+		int flags = 0;
+		if (method.isDeprecated()) {
+			flags |= FLAG_DEPRECATED;
+		}
+		if (returnValue != null) {
+			flags |= FLAG_RETURN_VALUE;
+		}
+		records.writeByte(flags);
+		if (returnValue != null) {
+			writeClassName(returnValue);
+		}
+
+		records.writeInt(string(method.getSince()));
+		records.writeInt(string(method.getDescription()));
+		writeStrings(method.getModifiers());
+
+		records.writeShort(count(method.getParameters().size()));
+		for (ParameterInfo parameter : method.getParameters()) {
+			writeClassName(parameter.getType());
+			records.writeInt(string(parameter.getName()));
+
+			flags = 0;
+			if (parameter.isArray()) {
+				flags |= FLAG_ARRAY;
+			}
+			if (parameter.isVarargs()) {
+				flags |= FLAG_VARARGS;
+			}
+			records.writeByte(flags);
+
+			records.writeInt(string(parameter.getGeneric()));
+		}
+	}
+
+	private void writeClassName(ClassName className) throws IOException {
+		records.writeInt(string(className.getPackageName()));
+
+		int count = className.getOuterClassNames().size();
+		if (count > 0xFF) {
+			throw new IOException("Class is nested too deeply: " + className);
+		}
+		records.writeByte(count);
+		for (String outerClassName : className.getOuterClassNames()) {
+			records.writeInt(string(outerClassName));
+		}
+
+		records.writeInt(string(className.getSimpleName()));
+	}
+
+	private void writeStrings(Collection<String> values) throws IOException {
+		records.writeShort(count(values.size()));
+		for (String value : values) {
+			records.writeInt(string(value));
+		}
+	}
+
+	/**
+	 * Adds a string to the string pool if it's not already there.
+	 * @param value the string
+	 * @return the string's offset in the pool or -1 if the string is null
+	 * @throws IOException never thrown
+	 */
+	private int string(String value) throws IOException {
+		if (value == null) {
+			return -1;
+		}
+
+		Integer ref = strings.get(value);
+		if (ref != null) {
+			return ref;
+		}
+
+		ref = pool.size();
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		pool.writeInt(bytes.length);
+		pool.write(bytes);
+		strings.put(value, ref);
+		return ref;
+	}
+
+	private static int count(int count) throws IOException {
+		if (count > 0xFFFF) {
+			throw new IOException("Too many items to fit in the index: " + count);
+		}
+		return count;
+	}
+}
@@ -1,20 +1,20 @@
 package oakbot.command.javadoc;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -26,11 +26,23 @@ import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 
 /**
+ * <p>
  * Represents a Javadoc ZIP file that was generated by <a
  * href="https://github.com/mangstadt/oakbot-doclet">oakbot-doclet</a>.
+ * </p>
+ * <p>
+ * The ZIP file is kept open after it is first read so that its table of
+ * contents does not have to be read again every time a class is looked up.
+ * Call {@link #close} to release the file handle when the ZIP file is no
+ * longer needed. Once closed, the ZIP file cannot be read from again.
+ * </p>
+ * <p>
+ * This class is thread-safe. Many threads can read from the ZIP file at
+ * once, and {@link #close} waits for them to finish.
+ * </p>
  * @author Michael Angstadt
  */
-public class JavadocZipFile {
+public class JavadocZipFile implements Closeable {
 	private static final String extension = ".xml";
 	private static final String infoFileName = "info" + extension;
 
@@ -71,6 +83,19 @@ public class JavadocZipFile {
 	 */
 	private final String javadocUrlPattern;
 
+	/**
+	 * Held for reading while the ZIP file is being read from, and for writing
+	 * while it is being closed.
+	 */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * The open ZIP file or null if it is not open. These fields are guarded by
+	 * "this".
+	 */
+	private ZipFile zipFile;
+	private boolean closed = false;
+
 	/**
 	 * @param file the ZIP file
 	 * @throws IOException if there's a problem reading the metadata from the
@@ -79,17 +104,16 @@ public class JavadocZipFile {
 	public JavadocZipFile(Path file) throws IOException {
 		this.file = file.toRealPath();
 
-		Document document;
-		try (FileSystem fs = open()) {
-			Path info = fs.getPath("/" + infoFileName);
-			if (!Files.exists(info)) {
-				baseUrl = name = version = projectUrl = javadocUrlPattern = null;
-				return;
-			}
-
-			document = parseXml(info);
+		ZipFile zip = open();
+		ZipEntry info = zip.getEntry(infoFileName);
+		if (info == null) {
+			baseUrl = name = version = projectUrl = javadocUrlPattern = null;
+			return;
 		}
 
+		//no other thread can see this object yet, so the lock is not needed
+		Document document = parseXml(zip, info);
+
 		XPathWrapper xpath = new XPathWrapper();
 		Element infoElement = xpath.element("/info", document);
 		if (infoElement == null) {
@@ -118,6 +142,26 @@ public class JavadocZipFile {
 		this.javadocUrlPattern = javadocUrlPattern.isEmpty() ? null : javadocUrlPattern;
 	}
 
+	/**
+	 * Creates an instance using metadata that was read from somewhere else
+	 * (such as a {@link JavadocIndex}).
+	 * @param file the ZIP file
+	 * @param name the project's name
+	 * @param version the project's version
+	 * @param baseUrl the base URL for the project's online Javadoc page
+	 * @param projectUrl the URL to the project's webpage
+	 * @param javadocUrlPattern defines how the URL for a particular class's
+	 * Javadoc page should be constructed
+	 */
+	JavadocZipFile(Path file, String name, String version, String baseUrl, String projectUrl, String javadocUrlPattern) {
+		this.file = file;
+		this.name = name;
+		this.version = version;
+		this.baseUrl = baseUrl;
+		this.projectUrl = projectUrl;
+		this.javadocUrlPattern = javadocUrlPattern;
+	}
+
 	/**
 	 * Gets the URL to a class's Javadoc page.
 	 * @param info the class
@@ -189,57 +233,63 @@ public class JavadocZipFile {
 	 * @throws IOException if there's a problem reading the ZIP file
 	 */
 	public Collection<ClassName> getClassNames() throws IOException {
-		final Collection<ClassName> classNames = new ArrayList<>();
-		try (FileSystem fs = open()) {
-			Path root = fs.getPath("/");
-			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
-				@Override
-				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-					if (isJavadocFile(file)) {
-						classNames.add(toClassName(file));
-					}
-					return FileVisitResult.CONTINUE;
+		Collection<ClassName> classNames = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			Enumeration<? extends ZipEntry> entries = open().entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (isJavadocFile(entry)) {
+					classNames.add(toClassName(entry));
 				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return Collections.unmodifiableCollection(classNames);
+	}
 
-				private boolean isJavadocFile(Path file) {
-					String fullPath = file.toString();
-					if (!fullPath.endsWith(extension)) {
-						return false;
-					}
+	private static boolean isJavadocFile(ZipEntry entry) {
+		if (entry.isDirectory()) {
+			return false;
+		}
 
-					return !fullPath.equals('/' + infoFileName);
-				}
+		String fullPath = entry.getName();
+		if (!fullPath.endsWith(extension)) {
+			return false;
+		}
 
-				private ClassName toClassName(Path file) {
-					String packageName;
-					Path directory = file.getParent();
-					if (directory == null) {
-						//class is in the default package
-						packageName = null;
-					} else {
-						//e.g. "/java/util"
-						packageName = directory.toString();
+		return !fullPath.equals(infoFileName);
+	}
 
-						//e.g. "java.util"
-						packageName = packageName.substring(1).replace('/', '.');
-					}
+	private static ClassName toClassName(ZipEntry entry) {
+		//e.g. "java/util/Map.Entry.xml"
+		String fullPath = entry.getName();
+
+		String packageName;
+		String fileName;
+		int slash = fullPath.lastIndexOf('/');
+		if (slash < 0) {
+			//class is in the default package
+			packageName = null;
+			fileName = fullPath;
+		} else {
+			//e.g. "java.util"
+			packageName = fullPath.substring(0, slash).replace('/', '.');
 
-					//e.g. "Map.Entry.xml"
-					String fileName = file.getFileName().toString();
+			//e.g. "Map.Entry.xml"
+			fileName = fullPath.substring(slash + 1);
+		}
 
-					String split[] = fileName.split("\\.");
-					List<String> outerClasses = new ArrayList<>();
-					for (int i = 0; i < split.length - 2; i++) { //ignore extension and simple name
-						outerClasses.add(split[i]);
-					}
+		String split[] = fileName.split("\\.");
+		List<String> outerClasses = new ArrayList<>();
+		for (int i = 0; i < split.length - 2; i++) { //ignore extension and simple name
+			outerClasses.add(split[i]);
+		}
 
-					String simpleName = split[split.length - 2];
+		String simpleName = split[split.length - 2];
 
-					return new ClassName(packageName, outerClasses, simpleName);
-				}
-			});
-		}
-		return Collections.unmodifiableCollection(classNames);
+		return new ClassName(packageName, outerClasses, simpleName);
 	}
 
 	/**
@@ -251,41 +301,48 @@ public class JavadocZipFile {
 	 */
 	public ClassInfo getClassInfo(String fullName) throws IOException {
 		Document document;
-		try (FileSystem fs = open()) {
-			Path path = findClassFile(fs, fullName);
-			if (path == null) {
+		lock.readLock().lock();
+		try {
+			ZipFile zip = open();
+			ZipEntry entry = findClassFile(zip, fullName);
+			if (entry == null) {
 				return null;
 			}
 
-			document = parseXml(path);
+			document = parseXml(zip, entry);
+		} finally {
+			lock.readLock().unlock();
 		}
 
 		return ClassInfoXmlParser.parse(document, this);
 	}
 
 	/**
-	 * Gets the path to a class's XML file.
-	 * @param fs the ZIP file
+	 * Gets the ZIP entry of a class's XML file.
+	 * @param zip the ZIP file
 	 * @param fullName the fully-qualified class name (e.g.
 	 * "java.util.Map.Entry")
-	 * @return the path to the class's XML file or null if not found
+	 * @return the class's XML file or null if not found
 	 */
-	private Path findClassFile(FileSystem fs, String fullName) {
-		//e.g. "/java/util/Map/Entry.xml", followed by "/java/util/Map.Entry.xml", etc
+	private static ZipEntry findClassFile(ZipFile zip, String fullName) {
+		//e.g. "java/util/Map/Entry.xml", followed by "java/util/Map.Entry.xml", etc
 		String split[] = fullName.split("\\.");
 		for (int i = split.length; i > 0; i--) {
 			StringBuilder sb = new StringBuilder();
 			for (int j = 0; j < i; j++) {
-				sb.append('/').append(split[j]);
+				if (j > 0) {
+					sb.append('/');
+				}
+				sb.append(split[j]);
 			}
 			for (int j = i; j < split.length; j++) {
 				sb.append('.').append(split[j]);
 			}
 			sb.append(extension);
 
-			Path path = fs.getPath(sb.toString());
-			if (Files.exists(path)) {
-				return path;
+			ZipEntry entry = zip.getEntry(sb.toString());
+			if (entry != null) {
+				return entry;
 			}
 		}
 
@@ -324,6 +381,15 @@ public class JavadocZipFile {
 		return projectUrl;
 	}
 
+	/**
+	 * Gets the pattern that defines how the URL for a particular class's
+	 * Javadoc page should be constructed.
+	 * @return the pattern or null if none was defined
+	 */
+	String getJavadocUrlPattern() {
+		return javadocUrlPattern;
+	}
+
 	/**
 	 * Get the path to the ZIP file.
 	 * @return the path to the ZIP file
@@ -350,14 +416,36 @@ public class JavadocZipFile {
 		return true;
 	}
 
+	/**
+	 * Releases the handle to the ZIP file. Waits for any threads that are
+	 * reading from the ZIP file to finish first.
+	 * @throws IOException if there's a problem closing the file
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			synchronized (this) {
+				closed = true;
+				if (zipFile != null) {
+					zipFile.close();
+					zipFile = null;
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
 	/**
 	 * Parses an XML file.
-	 * @param path the path to the file
+	 * @param zip the ZIP file
+	 * @param entry the file in the ZIP file
 	 * @return the DOM tree
 	 * @throws IOException if there's a problem opening or parsing the file
 	 */
-	private static Document parseXml(Path path) throws IOException {
-		try (InputStream in = Files.newInputStream(path)) {
+	private static Document parseXml(ZipFile zip, ZipEntry entry) throws IOException {
+		try (InputStream in = zip.getInputStream(entry)) {
 			return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
 		} catch (SAXException e) {
 			throw new IOException(e);
@@ -368,11 +456,19 @@ public class JavadocZipFile {
 	}
 
 	/**
-	 * Opens the ZIP file.
-	 * @return the file system handle
-	 * @throws IOException if there's a problem opening the ZIP file
+	 * Opens the ZIP file if it is not already open. The read lock must be held
+	 * while the returned ZIP file is used.
+	 * @return the ZIP file
+	 * @throws IOException if there's a problem opening the ZIP file or this
+	 * object has been closed
 	 */
-	private FileSystem open() throws IOException {
-		return FileSystems.newFileSystem(file, null);
+	private synchronized ZipFile open() throws IOException {
+		if (closed) {
+			throw new IOException("Javadoc ZIP file has been closed: " + file);
+		}
+		if (zipFile == null) {
+			zipFile = new ZipFile(file.toFile());
+		}
+		return zipFile;
 	}
 }
\ No newline at end of file
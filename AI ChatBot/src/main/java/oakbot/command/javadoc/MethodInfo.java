@@ -92,6 +92,15 @@ public class MethodInfo {
 		return modifiers;
 	}
 
+	/**
+	 * Gets the method's return value.
+	 * @return the return value or null if the method returns void (or is a
+	 * constructor)
+	 */
+	public ClassName getReturnValue() {
+		return returnValue;
+	}
+
 	/**
 	 * Gets this method's Javadoc URL anchor.
 	 * @return the URL anchor (e.g. "substring-int-int-")
@@ -1,20 +1,27 @@
 package oakbot.command.learn;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import oakbot.Database;
 
 /**
- * Manages all of the bot's learned commands
+ * Manages all of the bot's learned commands. Commands are indexed by their
+ * lower-cased names, so lookups and modifications take constant time. This
+ * class is thread-safe.
  * @author Michael Angstadt
  */
 public class LearnedCommands implements Iterable<LearnedCommand> {
+	private static final String DB_KEY = "learned-commands";
+
 	private final Database db;
-	private final List<LearnedCommand> commands = new ArrayList<>();
+	private final Map<String, LearnedCommand> commands = new LinkedHashMap<>();
+	private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
 
 	/**
 	 * Using this constructor will not persist any learned commands.
@@ -45,23 +52,33 @@ public class LearnedCommands implements Iterable<LearnedCommand> {
 	 * @param commandName the name of the command (case insensitive)
 	 * @return the command or null if not found
 	 */
-	public LearnedCommand get(String commandName) {
-		for (LearnedCommand command : commands) {
-			if (commandName.equalsIgnoreCase(command.name())) {
-				return command;
-			}
-		}
-		return null;
+	public synchronized LearnedCommand get(String commandName) {
+		return commands.get(key(commandName));
 	}
 
 	/**
-	 * Adds a command.
+	 * Adds a command. If a command with the same name already exists, it is
+	 * replaced.
 	 * @param commandName the command name
 	 * @param output the command output
 	 */
-	public void add(String commandName, String output) {
-		commands.add(new LearnedCommand(commandName, output));
-		save();
+	public synchronized void add(String commandName, String output) {
+		LearnedCommand command = new LearnedCommand(commandName, output);
+		LearnedCommand replaced = commands.put(key(commandName), command);
+
+		if (db != null) {
+			if (replaced != null) {
+				db.removeMapEntry(DB_KEY, replaced.name());
+			}
+			db.setMapEntry(DB_KEY, command.name(), command.output());
+		}
+
+		for (ChangeListener listener : listeners) {
+			if (replaced != null) {
+				listener.removed(replaced);
+			}
+			listener.added(command);
+		}
 	}
 
 	/**
@@ -70,17 +87,29 @@ public class LearnedCommands implements Iterable<LearnedCommand> {
 	 * @return true if the command was successfully removed, false if a command
 	 * with the given name could not be found
 	 */
-	public boolean remove(String commandName) {
-		Iterator<LearnedCommand> it = commands.iterator();
-		while (it.hasNext()) {
-			LearnedCommand command = it.next();
-			if (commandName.equalsIgnoreCase(command.name())) {
-				it.remove();
-				save();
-				return true;
-			}
+	public synchronized boolean remove(String commandName) {
+		LearnedCommand command = commands.remove(key(commandName));
+		if (command == null) {
+			return false;
+		}
+
+		if (db != null) {
+			db.removeMapEntry(DB_KEY, command.name());
 		}
-		return false;
+
+		for (ChangeListener listener : listeners) {
+			listener.removed(command);
+		}
+		return true;
+	}
+
+	/**
+	 * Registers a listener that is notified whenever a command is added or
+	 * removed.
+	 * @param listener the listener
+	 */
+	public void addChangeListener(ChangeListener listener) {
+		listeners.add(listener);
 	}
 
 	private void load() {
@@ -88,42 +117,68 @@ public class LearnedCommands implements Iterable<LearnedCommand> {
 			return;
 		}
 
-		List<Object> list = db.getList("learned-commands");
-		if (list == null) {
+		Object value = db.get(DB_KEY);
+		if (value == null) {
 			return;
 		}
 
-		for (Object item : list) {
-			@SuppressWarnings("unchecked")
-			Map<String, String> map = (Map<String, String>) item;
-
-			String name = map.get("name");
-			String output = map.get("output");
-			commands.add(new LearnedCommand(name, output));
-		}
-	}
+		if (value instanceof List) {
+			/*
+			 * Older versions of the bot stored the commands as a list of
+			 * name/output maps. Convert it to the current format, which maps
+			 * each command name to its output.
+			 */
+			Map<String, Object> map = new LinkedHashMap<>();
+			for (Object item : (List<?>) value) {
+				@SuppressWarnings("unchecked")
+				Map<String, String> itemMap = (Map<String, String>) item;
+
+				String name = itemMap.get("name");
+				String output = itemMap.get("output");
+				commands.put(key(name), new LearnedCommand(name, output));
+				map.put(name, output);
+			}
 
-	/**
-	 * Persists the commands to the file system.
-	 */
-	private void save() {
-		if (db == null) {
+			db.set(DB_KEY, map);
 			return;
 		}
 
-		List<Map<String, String>> list = new ArrayList<>();
-		for (LearnedCommand command : commands) {
-			Map<String, String> map = new HashMap<>();
-			map.put("name", command.name());
-			map.put("output", command.output());
-			list.add(map);
+		Map<String, Object> map = db.getMap(DB_KEY);
+		for (Map.Entry<String, Object> entry : map.entrySet()) {
+			String name = entry.getKey();
+			Object output = entry.getValue();
+			commands.put(key(name), new LearnedCommand(name, (output == null) ? null : output.toString()));
 		}
+	}
 
-		db.set("learned-commands", list);
+	private static String key(String commandName) {
+		return commandName.toLowerCase(Locale.ROOT);
 	}
 
+	/**
+	 * Iterates over a snapshot of the commands, in the order in which they
+	 * were added.
+	 */
 	@Override
-	public Iterator<LearnedCommand> iterator() {
-		return commands.iterator();
+	public synchronized Iterator<LearnedCommand> iterator() {
+		return new ArrayList<>(commands.values()).iterator();
+	}
+
+	/**
+	 * Receives notifications when learned commands are added or removed.
+	 * @author Michael Angstadt
+	 */
+	public interface ChangeListener {
+		/**
+		 * Called when a command is added.
+		 * @param command the command
+		 */
+		void added(LearnedCommand command);
+
+		/**
+		 * Called when a command is removed.
+		 * @param command the command
+		 */
+		void removed(LearnedCommand command);
 	}
 }
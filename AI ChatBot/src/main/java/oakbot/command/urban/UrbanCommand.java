@@ -5,7 +5,6 @@ import static oakbot.command.Command.reply;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
-import java.net.URL;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -20,14 +19,15 @@ import oakbot.bot.BotContext;
 import oakbot.bot.ChatCommand;
 import oakbot.bot.ChatResponse;
 import oakbot.chat.SplitStrategy;
-import oakbot.command.Command;
+import oakbot.command.AsyncCommand;
 import oakbot.util.ChatBuilder;
+import oakbot.util.HttpFactory;
 
 /**
  * Gets word definitions from urbandictionary.com
  * @author Michael Angstadt
  */
-public class UrbanCommand implements Command {
+public class UrbanCommand implements AsyncCommand {
 	private static final Logger logger = Logger.getLogger(UrbanCommand.class.getName());
 
 	private final ObjectMapper mapper = new ObjectMapper();
@@ -180,7 +180,6 @@ public class UrbanCommand implements Command {
 	 * @throws IOException
 	 */
 	InputStream get(String url) throws IOException {
-		URL urlObj = new URL(url);
-		return urlObj.openStream();
+		return HttpFactory.getDefault().get(url);
 	}
 }
\ No newline at end of file
@@ -1,22 +1,24 @@
 package oakbot.filter;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Modifies the content of a chat message before it is sent.
+ * Modifies the content of a chat message before it is sent. Filters can be
+ * enabled in one room while messages are being sent to another, so the
+ * enabled state is thread-safe.
  * @author Michael Angstadt
  */
 public abstract class ChatResponseFilter {
 	/**
 	 * Is the filter enabled in all rooms?
 	 */
-	protected boolean globallyEnabled = false;
+	protected volatile boolean globallyEnabled = false;
 
 	/**
 	 * The rooms the filter is enabled in.
 	 */
-	protected Set<Integer> enabledRooms = new HashSet<>();
+	protected Set<Integer> enabledRooms = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Determines if the filter is enabled. It only processes messages if it is
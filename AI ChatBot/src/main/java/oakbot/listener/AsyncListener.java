@@ -0,0 +1,38 @@
+package oakbot.listener;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import oakbot.bot.BotContext;
+import oakbot.bot.ChatResponse;
+import oakbot.chat.ChatMessage;
+import oakbot.util.IoExecutor;
+
+/**
+ * A listener whose response is computed in the background. The bot posts the
+ * response when the returned future completes, so the listener does not hold
+ * up the handling of other messages.
+ * @author Michael Angstadt
+ * @see oakbot.command.AsyncCommand
+ */
+public interface AsyncListener extends Listener {
+	/**
+	 * Called whenever a new message is received. The default implementation
+	 * runs {@link #onMessage} on the shared {@link IoExecutor} thread pool.
+	 * @param message the message
+	 * @param context the bot context
+	 * @return a future that completes with the response (the response can be
+	 * null not to send a response)
+	 */
+	default CompletableFuture<ChatResponse> onMessageAsync(ChatMessage message, BotContext context) {
+		return IoExecutor.supplyAsync(() -> onMessage(message, context));
+	}
+
+	/**
+	 * Gets how long the bot should wait for a response before giving up.
+	 * @return the timeout or null to wait indefinitely
+	 */
+	default Duration timeout() {
+		return Duration.ofSeconds(30);
+	}
+}
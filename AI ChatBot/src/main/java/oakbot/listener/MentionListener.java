@@ -1,7 +1,7 @@
 package oakbot.listener;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import oakbot.bot.BotContext;
@@ -16,8 +16,14 @@ import oakbot.util.ChatBuilder;
 public class MentionListener implements Listener {
 	private final String botUsername;
 	private final long cooldown = TimeUnit.MINUTES.toMillis(1);
-	private Map<Integer, Long> prevResponses = new HashMap<>();
-	private boolean ignore = false;
+	private final Map<Integer, Long> prevResponses = new ConcurrentHashMap<>();
+
+	/**
+	 * A message is handled by all of the listeners on the same thread, so
+	 * this flag is kept per thread. Otherwise, a message from another room
+	 * could be ignored instead.
+	 */
+	private final ThreadLocal<Boolean> ignore = ThreadLocal.withInitial(() -> false);
 
 	public MentionListener(String botUsername) {
 		this.botUsername = botUsername;
@@ -40,8 +46,8 @@ public class MentionListener implements Listener {
 
 	@Override
 	public ChatResponse onMessage(ChatMessage message, BotContext context) {
-		if (ignore) {
-			ignore = false;
+		if (ignore.get()) {
+			ignore.set(false);
 			return null;
 		}
 
@@ -71,9 +77,10 @@ public class MentionListener implements Listener {
 	}
 
 	/**
-	 * Tells this listener to not respond to the next message it receives.
+	 * Tells this listener to not respond to the next message it receives on
+	 * the calling thread.
 	 */
 	public void ignoreNextMessage() {
-		ignore = true;
+		ignore.set(true);
 	}
 }
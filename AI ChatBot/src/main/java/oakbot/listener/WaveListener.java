@@ -1,7 +1,7 @@
 package oakbot.listener;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -20,7 +20,7 @@ public class WaveListener implements Listener {
 	private final long hesitation;
 	private final String botUsername;
 	private final MentionListener mentionListener;
-	private final Map<Integer, Long> lastWaves = new HashMap<>();
+	private final Map<Integer, Long> lastWaves = new ConcurrentHashMap<>();
 
 	/**
 	 * @param botUsername the bot's username
@@ -1,12 +1,11 @@
 package oakbot.listener;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,16 +17,24 @@ import oakbot.chat.IRoom;
 import oakbot.chat.SplitStrategy;
 import oakbot.chat.UserInfo;
 import oakbot.util.ChatBuilder;
+import oakbot.util.IntSet;
 
 /**
- * Welcomes new users to the chat room.
+ * Welcomes new users to the chat room. The IDs of the users that have been
+ * seen in each room are kept in memory as {@link IntSet IntSets} and each
+ * newly seen user ID is appended to its room's list in the database. Note
+ * that the database backends keep their own in-memory copy of each list (as
+ * boxed integers), so the {@link IntSet IntSets} only shrink the listener's
+ * share of the memory (see WelcomeListenerBenchmark).
  * @author Michael Angstadt
  */
 public class WelcomeListener implements Listener {
 	private static final Logger logger = Logger.getLogger(WelcomeListener.class.getName());
+	private static final String LEGACY_DB_KEY = "welcome";
+
 	private final Database db;
 	private final Map<Integer, String> welcomeMessagesByRoom;
-	private final Map<Integer, Set<Integer>> welcomedUsersByRoom = new HashMap<>();
+	private final Map<Integer, IntSet> welcomedUsersByRoom = new HashMap<>();
 
 	public WelcomeListener(Database db, Map<Integer, String> welcomeMessagesByRoom) {
 		this.db = db;
@@ -37,7 +44,7 @@ public class WelcomeListener implements Listener {
 
 		for (Integer roomId : welcomeMessagesByRoom.keySet()) {
 			if (!welcomedUsersByRoom.containsKey(roomId)) {
-				welcomedUsersByRoom.put(roomId, new HashSet<>());
+				welcomedUsersByRoom.put(roomId, new IntSet());
 			}
 		}
 	}
@@ -65,13 +72,15 @@ public class WelcomeListener implements Listener {
 		}
 
 		int userId = message.getUserId();
-		Set<Integer> userIds = welcomedUsersByRoom.get(roomId);
-		if (hasSeenUserBefore(userId, userIds)) {
-			return null;
+		IntSet userIds = welcomedUsersByRoom.get(roomId);
+		synchronized (userIds) {
+			if (!userIds.add(userId)) {
+				//user has been seen before
+				return null;
+			}
 		}
 
-		userIds.add(userId);
-		saveData();
+		db.addListItem(dbKey(roomId), userId);
 
 		List<UserInfo> userInfo;
 		try {
@@ -106,7 +115,24 @@ public class WelcomeListener implements Listener {
 	 */
 	@SuppressWarnings("unchecked")
 	private void loadData() {
-		Map<String, Object> map = (Map<String, Object>) db.get("welcome");
+		convertLegacyData();
+
+		for (Integer roomId : welcomeMessagesByRoom.keySet()) {
+			List<Object> userIds = db.getList(dbKey(roomId));
+			if (userIds != null) {
+				welcomedUsersByRoom.put(roomId, new IntSet((List<Integer>) (List<?>) userIds));
+			}
+		}
+	}
+
+	/**
+	 * Older versions of the bot stored the welcomed users of every room under
+	 * a single key, which meant the entire structure had to be persisted
+	 * whenever a new user was seen. Moves each room's users to its own key.
+	 */
+	@SuppressWarnings("unchecked")
+	private void convertLegacyData() {
+		Map<String, Object> map = db.getMap(LEGACY_DB_KEY);
 		if (map == null) {
 			return;
 		}
@@ -114,29 +140,15 @@ public class WelcomeListener implements Listener {
 		for (Map.Entry<String, Object> entry : map.entrySet()) {
 			Integer roomId = Integer.parseInt(entry.getKey());
 			Map<String, Object> roomData = (Map<String, Object>) entry.getValue();
-			List<Integer> userIds = (List<Integer>) roomData.get("users");
+			List<Object> userIds = (List<Object>) roomData.get("users");
 
-			welcomedUsersByRoom.put(roomId, new HashSet<>(userIds));
+			db.set(dbKey(roomId), new ArrayList<>(userIds));
 		}
+		db.remove(LEGACY_DB_KEY);
 	}
 
-	/**
-	 * Persists this listener's data to the database.
-	 */
-	private void saveData() {
-		Map<String, Object> data = new HashMap<>();
-
-		for (Map.Entry<Integer, Set<Integer>> entry : welcomedUsersByRoom.entrySet()) {
-			Integer roomId = entry.getKey();
-			Set<Integer> userIds = entry.getValue();
-
-			Map<String, Object> roomInfo = new HashMap<>(1);
-			roomInfo.put("users", userIds);
-
-			data.put(Integer.toString(roomId), roomInfo);
-		}
-
-		db.set("welcome", data);
+	private static String dbKey(int roomId) {
+		return "welcome-" + roomId;
 	}
 
 	/**
@@ -148,16 +160,6 @@ public class WelcomeListener implements Listener {
 		return welcomeMessagesByRoom.containsKey(roomId);
 	}
 
-	/**
-	 * Determines if a user has been seen before by the bot.
-	 * @param userId the user ID
-	 * @param seenUsers the IDs of the users that have been seen before
-	 * @return true if the user has been seen before, false if not
-	 */
-	private boolean hasSeenUserBefore(int userId, Set<Integer> seenUsers) {
-		return seenUsers.contains(userId);
-	}
-
 	/**
 	 * Determines if the given user should receive a welcome message.
 	 * @param userInfo the user info
@@ -9,14 +9,13 @@ import java.util.regex.Pattern;
 
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 
 import oakbot.bot.Bot;
 import oakbot.bot.ChatResponse;
 import oakbot.chat.SplitStrategy;
 import oakbot.util.ChatBuilder;
+import oakbot.util.HttpFactory;
 
 /**
  * Posts a fact once per day at noon.
@@ -63,10 +62,8 @@ public class FOTD implements ScheduledTask {
 	 */
 	private String getResponse() throws IOException {
 		HttpGet request = new HttpGet("http://www.refdesk.com");
-		try (CloseableHttpClient client = HttpClients.createDefault()) {
-			try (CloseableHttpResponse response = client.execute(request)) {
-				return EntityUtils.toString(response.getEntity());
-			}
+		try (CloseableHttpResponse response = HttpFactory.getDefault().getClient().execute(request)) {
+			return EntityUtils.toString(response.getEntity());
 		}
 	}
 }
@@ -83,11 +83,7 @@ public class HealthMonitor implements ScheduledTask {
 				ChatBuilder cb = new ChatBuilder();
 				cb.italic(Command.random(responses));
 				ChatResponse response = new ChatResponse(cb, SplitStrategy.NONE, true);
-				try {
-					bot.sendMessage(roomId, response);
-				} catch (Exception e) {
-					logger.log(Level.WARNING, "Problem sending cough message [room=" + roomId + "].", e);
-				}
+				bot.sendMessage(roomId, response);
 			}
 		}
 	}
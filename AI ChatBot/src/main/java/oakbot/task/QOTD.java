@@ -7,8 +7,6 @@ import java.time.temporal.ChronoUnit;
 
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -17,6 +15,7 @@ import oakbot.bot.Bot;
 import oakbot.bot.ChatResponse;
 import oakbot.chat.SplitStrategy;
 import oakbot.util.ChatBuilder;
+import oakbot.util.HttpFactory;
 
 /**
  * Posts a quote once per day at midnight.
@@ -56,11 +55,9 @@ public class QOTD implements ScheduledTask {
 	private JsonNode getResponse() throws IOException {
 		ObjectMapper mapper = new ObjectMapper();
 		HttpGet request = new HttpGet("http://quotes.rest/qod.json");
-		try (CloseableHttpClient client = HttpClients.createDefault()) {
-			try (CloseableHttpResponse response = client.execute(request)) {
-				try (InputStream in = response.getEntity().getContent()) {
-					return mapper.readTree(in);
-				}
+		try (CloseableHttpResponse response = HttpFactory.getDefault().getClient().execute(request)) {
+			try (InputStream in = response.getEntity().getContent()) {
+				return mapper.readTree(in);
 			}
 		}
 	}
@@ -0,0 +1,59 @@
+package oakbot.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File utility methods.
+ * @author Michael Angstadt
+ */
+public final class FileUtils {
+	/**
+	 * Replaces the contents of a file without the risk of leaving a
+	 * half-written file behind if the process dies. The data is written to a
+	 * temporary file, flushed to disk, and then renamed over the original
+	 * file. The parent directory is then flushed too, so that the rename is not
+	 * lost if the power goes out.
+	 * @param file the file
+	 * @param data the new contents of the file
+	 * @throws IOException if there's a problem writing the file
+	 */
+	public static void writeAtomically(Path file, byte[] data) throws IOException {
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		forceDirectory(file.toAbsolutePath().getParent());
+	}
+
+	/**
+	 * Flushes a directory's entries to disk. Some platforms (such as Windows)
+	 * don't allow directories to be opened, in which case nothing happens.
+	 * @param directory the directory
+	 */
+	private static void forceDirectory(Path directory) {
+		if (directory == null) {
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			//directories can't be opened on this platform
+		}
+	}
+
+	private FileUtils() {
+		//hide constructor
+	}
+}
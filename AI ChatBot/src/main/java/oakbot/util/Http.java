@@ -4,6 +4,10 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -24,6 +28,7 @@ import org.apache.http.util.EntityUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Helper class for sending HTTP requests.
@@ -32,13 +37,62 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 public class Http implements Closeable {
 	private static final Logger logger = Logger.getLogger(Http.class.getName());
 
+	/**
+	 * The number of times a request is sent before giving up if the chat
+	 * system keeps responding with HTTP 409.
+	 */
+	private static final int MAX_ATTEMPTS = 5;
+
+	/**
+	 * Sends the asynchronous requests. The pool is small and bounded: the
+	 * number of requests in flight is capped at the pool size, and requests
+	 * that are waiting to be resent after an HTTP 409 response do not hold a
+	 * thread. The threads are not started until the first asynchronous request
+	 * is sent, and are stopped when this object is closed. Synchronous
+	 * requests are sent on the calling thread.
+	 */
+	private final ScheduledExecutorService asyncExecutor;
+
 	private final CloseableHttpClient client;
+	private final boolean retryWhenThrottled;
 
 	/**
 	 * @param client the HTTP client object to wrap
 	 */
 	public Http(CloseableHttpClient client) {
+		this(client, true);
+	}
+
+	/**
+	 * @param client the HTTP client object to wrap
+	 * @param retryWhenThrottled true to sleep and resend a request when an HTTP
+	 * 409 response is returned, false to throw a {@link ThrottledException}
+	 */
+	public Http(CloseableHttpClient client, boolean retryWhenThrottled) {
+		//@formatter:off
+		this(client, retryWhenThrottled, Executors.newScheduledThreadPool(8, new ThreadFactoryBuilder()
+			.setNameFormat("http-async-%d")
+			.setDaemon(true)
+		.build()));
+		//@formatter:on
+	}
+
+	private Http(CloseableHttpClient client, boolean retryWhenThrottled, ScheduledExecutorService asyncExecutor) {
 		this.client = client;
+		this.retryWhenThrottled = retryWhenThrottled;
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	/**
+	 * Creates an object that sends requests using the same HTTP client and
+	 * threads as this one, but that throws a {@link ThrottledException}
+	 * instead of resending a request when an HTTP 409 response is returned.
+	 * Closing this object also stops the returned object from sending
+	 * asynchronous requests.
+	 * @return the new object (it does not need to be closed)
+	 */
+	public Http withoutRetries() {
+		return new Http(client, false, asyncExecutor);
 	}
 
 	/**
@@ -48,13 +102,17 @@ public class Http implements Closeable {
 	 * @throws IOException if there's a problem sending the request
 	 */
 	public Response get(String uri) throws IOException {
-		HttpGet request = new HttpGet(uri);
-
-		if (logger.isLoggable(Level.FINE)) {
-			logger.fine("Sending request [method=GET; URI=" + uri + "]...");
-		}
+		return send(createGet(uri));
+	}
 
-		return send(request);
+	/**
+	 * Sends an HTTP GET request without blocking the calling thread.
+	 * @param uri the URI
+	 * @return a future that completes with the response, or completes
+	 * exceptionally if there's a problem sending the request
+	 */
+	public CompletableFuture<Response> getAsync(String uri) {
+		return sendAsync(createGet(uri));
 	}
 
 	/**
@@ -68,6 +126,34 @@ public class Http implements Closeable {
 	 * in the "parameters" vararg
 	 */
 	public Response post(String uri, Object... parameters) throws IOException {
+		return send(createPost(uri, parameters));
+	}
+
+	/**
+	 * Sends an HTTP POST request without blocking the calling thread.
+	 * @param uri the URI
+	 * @param parameters the parameters to include in the request body (key,
+	 * value, key, value, etc)
+	 * @return a future that completes with the response, or completes
+	 * exceptionally if there's a problem sending the request
+	 * @throws IllegalArgumentException if there is an odd number of arguments
+	 * in the "parameters" vararg
+	 */
+	public CompletableFuture<Response> postAsync(String uri, Object... parameters) {
+		return sendAsync(createPost(uri, parameters));
+	}
+
+	private static HttpGet createGet(String uri) {
+		HttpGet request = new HttpGet(uri);
+
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Sending request [method=GET; URI=" + uri + "]...");
+		}
+
+		return request;
+	}
+
+	private static HttpPost createPost(String uri, Object... parameters) {
 		if (parameters.length % 2 != 0) {
 			throw new IllegalArgumentException("\"parameters\" vararg must have an even number of values.");
 		}
@@ -86,71 +172,131 @@ public class Http implements Closeable {
 			logger.fine("Sending request [method=POST; URI=" + uri + "; params=" + parameters + "]...");
 		}
 
-		return send(request);
+		return request;
 	}
 
 	/**
 	 * Sends an HTTP request. If an HTTP 409 response is returned, this method
 	 * will automatically sleep the requested amount of time, and then resend
-	 * the request.
+	 * the request (unless this object was configured to not retry throttled
+	 * requests).
 	 * @param request the request
 	 * @return the response
+	 * @throws ThrottledException if an HTTP 409 response is returned and this
+	 * object was configured to not retry throttled requests
 	 * @throws IOException if there was a problem sending the request
 	 */
 	private Response send(HttpUriRequest request) throws IOException {
-		long sleep = 0;
 		int attempts = 0;
 
-		while (attempts < 5) {
-			if (sleep > 0) {
+		while (true) {
+			try {
+				return sendOnce(request);
+			} catch (ThrottledException e) {
+				attempts++;
+				if (!retryWhenThrottled) {
+					throw e;
+				}
+				if (attempts >= MAX_ATTEMPTS) {
+					throw new IOException("Request could not be sent after " + attempts + " attempts [request-method=" + request.getMethod() + "; request-URI=" + request.getURI() + "].", e);
+				}
+
+				long sleep = e.getWaitTime();
 				logger.info("Sleeping for " + sleep + "ms before resending the request...");
 				try {
 					Thread.sleep(sleep);
-				} catch (InterruptedException e) {
-					throw new RuntimeException(e);
+				} catch (InterruptedException e2) {
+					throw new RuntimeException(e2);
 				}
 			}
+		}
+	}
+
+	/**
+	 * Sends an HTTP request on a background thread. If an HTTP 409 response
+	 * is returned, the request is resent after the requested amount of time
+	 * (unless this object was configured to not retry throttled requests). No
+	 * thread is tied up while waiting to resend the request.
+	 * @param request the request
+	 * @return a future that completes with the response
+	 */
+	private CompletableFuture<Response> sendAsync(HttpUriRequest request) {
+		CompletableFuture<Response> future = new CompletableFuture<>();
+		try {
+			asyncExecutor.execute(() -> sendAsync(request, 1, future));
+		} catch (RejectedExecutionException e) {
+			//this object was closed
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
 
-			int statusCode;
-			String body;
-			try (CloseableHttpResponse response = client.execute(request)) {
-				statusCode = response.getStatusLine().getStatusCode();
-				body = EntityUtils.toString(response.getEntity());
+	private void sendAsync(HttpUriRequest request, int attempt, CompletableFuture<Response> future) {
+		try {
+			future.complete(sendOnce(request));
+		} catch (ThrottledException e) {
+			if (!retryWhenThrottled) {
+				future.completeExceptionally(e);
+			} else if (attempt >= MAX_ATTEMPTS) {
+				future.completeExceptionally(new IOException("Request could not be sent after " + attempt + " attempts [request-method=" + request.getMethod() + "; request-URI=" + request.getURI() + "].", e));
+			} else {
+				logger.info("Resending the request in " + e.getWaitTime() + "ms...");
+				try {
+					asyncExecutor.schedule(() -> sendAsync(request, attempt + 1, future), e.getWaitTime(), TimeUnit.MILLISECONDS);
+				} catch (RejectedExecutionException e2) {
+					//this object was closed
+					future.completeExceptionally(e2);
+				}
 			}
+		} catch (Throwable t) {
+			future.completeExceptionally(t);
+		}
+	}
+
+	/**
+	 * Sends an HTTP request once.
+	 * @param request the request
+	 * @return the response
+	 * @throws ThrottledException if an HTTP 409 response is returned
+	 * @throws IOException if there was a problem sending the request
+	 */
+	private Response sendOnce(HttpUriRequest request) throws IOException {
+		int statusCode;
+		String body;
+		try (CloseableHttpResponse response = client.execute(request)) {
+			statusCode = response.getStatusLine().getStatusCode();
+			body = EntityUtils.toString(response.getEntity());
+		}
 
-			/*
-			 * An HTTP 409 response means that the bot is sending messages too
-			 * quickly. The response body contains the number of seconds the bot
-			 * must wait before it can post another message.
-			 */
-			if (statusCode == 409) {
-				Long waitTime = parse409Response(body);
-				sleep = (waitTime == null) ? 5000 : waitTime;
+		/*
+		 * An HTTP 409 response means that the bot is sending messages too
+		 * quickly. The response body contains the number of seconds the bot
+		 * must wait before it can post another message.
+		 */
+		if (statusCode == 409) {
+			Long waitTime = parse409Response(body);
+			long wait = (waitTime == null) ? 5000 : waitTime;
 
-				logger.info("HTTP " + statusCode + " response, sleeping " + sleep + "ms [request-method=" + request.getMethod() + "; request-URI=" + request.getURI() + "]: " + body);
+			logger.info("HTTP " + statusCode + " response, must wait " + wait + "ms [request-method=" + request.getMethod() + "; request-URI=" + request.getURI() + "]: " + body);
 
-				attempts++;
-				continue;
-			}
+			throw new ThrottledException(wait, body);
+		}
 
-			Response response = new Response(statusCode, body);
+		Response response = new Response(statusCode, body);
 
-			if (logger.isLoggable(Level.FINE)) {
-				String bodyDebug;
-				try {
-					JsonNode node = response.getBodyAsJson();
-					bodyDebug = JsonUtils.prettyPrint(node);
-				} catch (JsonProcessingException e) {
-					//not JSON
-					bodyDebug = body;
-				}
-				logger.fine("Received response [status=" + statusCode + "; request-method=" + request.getMethod() + "; request-URI=" + request.getURI() + "]: " + bodyDebug);
+		if (logger.isLoggable(Level.FINE)) {
+			String bodyDebug;
+			try {
+				JsonNode node = response.getBodyAsJson();
+				bodyDebug = JsonUtils.prettyPrint(node);
+			} catch (JsonProcessingException e) {
+				//not JSON
+				bodyDebug = body;
 			}
-
-			return response;
+			logger.fine("Received response [status=" + statusCode + "; request-method=" + request.getMethod() + "; request-URI=" + request.getURI() + "]: " + bodyDebug);
 		}
 
-		throw new IOException("Request could not be sent after " + attempts + " attempts [request-method=" + request.getMethod() + "; request-URI=" + request.getURI() + "].");
+		return response;
 	}
 
 	private static final Pattern response409Regex = Pattern.compile("\\d+");
@@ -164,7 +310,7 @@ public class Http implements Closeable {
 	 * chat system will accept the request, or null if this value could not be
 	 * parsed from the response body
 	 */
-	private static Long parse409Response(String body) {
+	public static Long parse409Response(String body) {
 		Matcher m = response409Regex.matcher(body);
 		if (!m.find()) {
 			return null;
@@ -182,11 +328,51 @@ public class Http implements Closeable {
 		return client;
 	}
 
+	/**
+	 * Closes the wrapped HTTP client and stops the threads that send
+	 * asynchronous requests. Asynchronous requests that have not been sent
+	 * yet complete exceptionally.
+	 */
 	@Override
 	public void close() throws IOException {
+		/*
+		 * Requests that are still queued are allowed to run so that their
+		 * futures are completed (they will fail because the client is
+		 * closed). The threads stop once the queue is empty.
+		 */
+		asyncExecutor.shutdown();
 		client.close();
 	}
 
+	/**
+	 * Thrown when the chat system rejects a request because the bot is sending
+	 * messages too quickly (HTTP 409).
+	 * @author Michael Angstadt
+	 */
+	public static class ThrottledException extends IOException {
+		private static final long serialVersionUID = 1L;
+		private final long waitTime;
+
+		/**
+		 * @param waitTime the amount of time (in milliseconds) the bot must
+		 * wait before the chat system will accept the request
+		 * @param body the response body
+		 */
+		public ThrottledException(long waitTime, String body) {
+			super("Sending messages too quickly, must wait " + waitTime + "ms: " + body);
+			this.waitTime = waitTime;
+		}
+
+		/**
+		 * Gets the amount of time the bot must wait before the chat system
+		 * will accept the request.
+		 * @return the wait time (in milliseconds)
+		 */
+		public long getWaitTime() {
+			return waitTime;
+		}
+	}
+
 	/**
 	 * Represents an HTTP response.
 	 * @author Michael Angstadt
@@ -0,0 +1,285 @@
+package oakbot.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>
+ * Creates the HTTP clients that the bot uses. All clients share one pool of
+ * connections, so a command that sends a request to a website the bot has
+ * recently talked to can reuse an open connection instead of paying for a
+ * new TCP and TLS handshake.
+ * </p>
+ * <p>
+ * Every request has connect and read timeouts, so a slow website cannot tie
+ * up a thread forever. Connections that have been idle for too long are
+ * closed on a background thread.
+ * </p>
+ * <p>
+ * The clients returned by this class must <b>not</b> be closed by the code
+ * that uses them. Close the factory instead. This class is thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class HttpFactory implements Closeable {
+	private static volatile HttpFactory defaultFactory;
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final RequestConfig requestConfig;
+	private final ConnectionKeepAliveStrategy keepAliveStrategy;
+	private final CloseableHttpClient client;
+
+	//@formatter:off
+	private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+		.setNameFormat("http-idle-evictor")
+		.setDaemon(true)
+	.build());
+	//@formatter:on
+
+	private HttpFactory(Builder builder) {
+		connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(builder.maxConnections);
+		connectionManager.setDefaultMaxPerRoute(builder.maxConnectionsPerRoute);
+
+		/*
+		 * Check that a pooled connection is still open before reusing it if it
+		 * has been sitting in the pool for a while. The server may have closed
+		 * it in the meantime.
+		 */
+		connectionManager.setValidateAfterInactivity(2000);
+
+		//@formatter:off
+		requestConfig = RequestConfig.custom()
+			.setConnectTimeout((int) builder.connectTimeout.toMillis())
+			.setSocketTimeout((int) builder.readTimeout.toMillis())
+			.setConnectionRequestTimeout((int) builder.connectTimeout.toMillis())
+			.setCookieSpec(CookieSpecs.STANDARD)
+		.build();
+		//@formatter:on
+
+		/*
+		 * Use the server's keep-alive timeout if it sends one. Otherwise, use
+		 * the default.
+		 */
+		long keepAlive = builder.keepAlive.toMillis();
+		keepAliveStrategy = (response, context) -> {
+			long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return (duration > 0) ? Math.min(duration, keepAlive) : keepAlive;
+		};
+
+		client = newClient(new BasicCookieStore());
+
+		long idleTimeout = builder.idleTimeout.toMillis();
+		long period = Math.max(idleTimeout / 2, 1000);
+		evictor.scheduleWithFixedDelay(() -> {
+			connectionManager.closeExpiredConnections();
+			connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Gets the factory that the bot's commands and tasks use. If no factory
+	 * has been set, one with the default settings is created.
+	 * @return the factory
+	 */
+	public static HttpFactory getDefault() {
+		HttpFactory factory = defaultFactory;
+		if (factory != null) {
+			return factory;
+		}
+
+		synchronized (HttpFactory.class) {
+			if (defaultFactory == null) {
+				defaultFactory = new Builder().build();
+			}
+			return defaultFactory;
+		}
+	}
+
+	/**
+	 * Sets the factory that the bot's commands and tasks use.
+	 * @param factory the factory
+	 */
+	public static synchronized void setDefault(HttpFactory factory) {
+		defaultFactory = factory;
+	}
+
+	/**
+	 * Gets the shared HTTP client. The client's cookies are shared by
+	 * everything that uses it, so use {@link #newClient} if the requests
+	 * need cookies of their own (such as login sessions).
+	 * @return the HTTP client (do not close it)
+	 */
+	public CloseableHttpClient getClient() {
+		return client;
+	}
+
+	/**
+	 * Creates an HTTP client that has its own cookies, but shares the
+	 * factory's connection pool.
+	 * @param cookieStore the cookie store
+	 * @return the HTTP client (closing it does not close the connection pool)
+	 */
+	public CloseableHttpClient newClient(CookieStore cookieStore) {
+		//@formatter:off
+		return HttpClients.custom()
+			.setConnectionManager(connectionManager)
+			.setConnectionManagerShared(true)
+			.setDefaultRequestConfig(requestConfig)
+			.setKeepAliveStrategy(keepAliveStrategy)
+			.setDefaultCookieStore(cookieStore)
+		.build();
+		//@formatter:on
+	}
+
+	/**
+	 * Sends a GET request using the shared HTTP client.
+	 * @param url the URL
+	 * @return the response body (the stream must be closed)
+	 * @throws IOException if there's a network problem or the server responds
+	 * with an error status code
+	 */
+	public InputStream get(String url) throws IOException {
+		CloseableHttpResponse response = client.execute(new HttpGet(url));
+		int statusCode = response.getStatusLine().getStatusCode();
+		if (statusCode >= 400) {
+			response.close();
+			throw new IOException("HTTP " + statusCode + " response returned from " + url);
+		}
+
+		/*
+		 * Closing the stream returns the connection to the pool.
+		 */
+		return response.getEntity().getContent();
+	}
+
+	/**
+	 * Gets statistics about the entire connection pool.
+	 * @return the statistics
+	 */
+	public PoolStats getStats() {
+		return connectionManager.getTotalStats();
+	}
+
+	/**
+	 * Gets statistics about the connection pool of each route (website) that
+	 * the pool has connections for.
+	 * @return the statistics
+	 */
+	public Map<HttpRoute, PoolStats> getRouteStats() {
+		Map<HttpRoute, PoolStats> stats = new LinkedHashMap<>();
+		for (HttpRoute route : connectionManager.getRoutes()) {
+			stats.put(route, connectionManager.getStats(route));
+		}
+		return stats;
+	}
+
+	/**
+	 * Closes all pooled connections and stops the eviction thread.
+	 */
+	@Override
+	public void close() throws IOException {
+		evictor.shutdownNow();
+		client.close();
+		connectionManager.shutdown();
+	}
+
+	/**
+	 * Creates {@link HttpFactory} instances.
+	 * @author Michael Angstadt
+	 */
+	public static class Builder {
+		private int maxConnections = 50;
+		private int maxConnectionsPerRoute = 10;
+		private Duration connectTimeout = Duration.ofSeconds(10);
+		private Duration readTimeout = Duration.ofSeconds(30);
+		private Duration keepAlive = Duration.ofSeconds(30);
+		private Duration idleTimeout = Duration.ofMinutes(1);
+
+		/**
+		 * Sets the maximum number of open connections.
+		 * @param maxConnections the maximum number of connections in total
+		 * (defaults to 50)
+		 * @param maxConnectionsPerRoute the maximum number of connections to
+		 * the same website (defaults to 10)
+		 * @return this
+		 */
+		public Builder maxConnections(int maxConnections, int maxConnectionsPerRoute) {
+			this.maxConnections = maxConnections;
+			this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+			return this;
+		}
+
+		/**
+		 * Sets how long to wait for a connection to be established (and how
+		 * long to wait for a connection from the pool if the pool is full).
+		 * @param connectTimeout the timeout (defaults to 10 seconds)
+		 * @return this
+		 */
+		public Builder connectTimeout(Duration connectTimeout) {
+			this.connectTimeout = connectTimeout;
+			return this;
+		}
+
+		/**
+		 * Sets how long to wait for data to arrive once a request has been
+		 * sent.
+		 * @param readTimeout the timeout (defaults to 30 seconds)
+		 * @return this
+		 */
+		public Builder readTimeout(Duration readTimeout) {
+			this.readTimeout = readTimeout;
+			return this;
+		}
+
+		/**
+		 * Sets how long to keep a connection open for reuse if the server does
+		 * not say how long it will keep it open. If the server does say, the
+		 * shorter of the two is used.
+		 * @param keepAlive the keep-alive time (defaults to 30 seconds)
+		 * @return this
+		 */
+		public Builder keepAlive(Duration keepAlive) {
+			this.keepAlive = keepAlive;
+			return this;
+		}
+
+		/**
+		 * Sets how long a connection can sit unused in the pool before it is
+		 * closed.
+		 * @param idleTimeout the timeout (defaults to 1 minute)
+		 * @return this
+		 */
+		public Builder idleTimeout(Duration idleTimeout) {
+			this.idleTimeout = idleTimeout;
+			return this;
+		}
+
+		public HttpFactory build() {
+			return new HttpFactory(this);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package oakbot.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <p>
+ * A set of ints that is stored as a sorted array.
+ * </p>
+ * <p>
+ * Each value takes up 4 bytes, compared to the roughly 50 bytes that a
+ * {@code HashSet<Integer>} needs for the boxed value and its hash table
+ * entry. Lookups use a binary search. Insertions shift the array, so this
+ * class is best suited for sets that are read much more often than they are
+ * written to. This class is not thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class IntSet {
+	private int[] values;
+	private int size;
+
+	/**
+	 * Creates an empty set.
+	 */
+	public IntSet() {
+		values = new int[8];
+	}
+
+	/**
+	 * @param values the initial values of the set (duplicates are ignored)
+	 */
+	public IntSet(Collection<Integer> values) {
+		this.values = new int[Math.max(values.size(), 8)];
+		for (Integer value : values) {
+			this.values[size++] = value;
+		}
+
+		Arrays.sort(this.values, 0, size);
+
+		//remove duplicates
+		if (size > 1) {
+			int j = 1;
+			for (int i = 1; i < size; i++) {
+				if (this.values[i] != this.values[j - 1]) {
+					this.values[j++] = this.values[i];
+				}
+			}
+			size = j;
+		}
+	}
+
+	/**
+	 * Determines if the set contains a value.
+	 * @param value the value
+	 * @return true if it contains the value, false if not
+	 */
+	public boolean contains(int value) {
+		return Arrays.binarySearch(values, 0, size, value) >= 0;
+	}
+
+	/**
+	 * Adds a value to the set.
+	 * @param value the value
+	 * @return true if the value was added, false if it was already in the set
+	 */
+	public boolean add(int value) {
+		int index = Arrays.binarySearch(values, 0, size, value);
+		if (index >= 0) {
+			return false;
+		}
+
+		int insertAt = -(index + 1);
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size + (size >> 1) + 1);
+		}
+		System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+		values[insertAt] = value;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Gets the number of values in the set.
+	 * @return the size of the set
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets a read-only view of the set's values as a list. The values are
+	 * boxed as they are accessed.
+	 * @return the values (in ascending order)
+	 */
+	public List<Integer> asList() {
+		return new AbstractList<Integer>() {
+			@Override
+			public Integer get(int index) {
+				if (index >= size) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+				}
+				return values[index];
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+}
@@ -0,0 +1,62 @@
+package oakbot.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A shared thread pool for running blocking I/O operations (such as HTTP
+ * requests) off of the bot's message-handling thread.
+ * @author Michael Angstadt
+ */
+public final class IoExecutor {
+	//@formatter:off
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+		.setNameFormat("io-%d")
+		.setDaemon(true)
+	.build());
+	//@formatter:on
+
+	/**
+	 * Runs a task on the shared thread pool. If the returned future is
+	 * cancelled or completed exceptionally before the task finishes (for
+	 * example, because the caller gave up waiting for it), the task's thread
+	 * is interrupted.
+	 * @param supplier the task
+	 * @return a future that completes with the task's return value
+	 */
+	public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		Future<?> task = executor.submit(() -> {
+			try {
+				future.complete(supplier.get());
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		});
+
+		future.whenComplete((result, thrown) -> {
+			if (thrown != null) {
+				task.cancel(true);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Gets the shared thread pool.
+	 * @return the thread pool
+	 */
+	public static ExecutorService get() {
+		return executor;
+	}
+
+	private IoExecutor() {
+		//hide constructor
+	}
+}
@@ -5,22 +5,32 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.endsWith;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.logging.LogManager;
 
@@ -29,18 +39,25 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.base.Strings;
+
+import oakbot.Database;
 import oakbot.bot.BotContext.JoinRoomCallback;
 import oakbot.chat.ChatMessage;
 import oakbot.chat.IChatClient;
 import oakbot.chat.IRoom;
 import oakbot.chat.InvalidCredentialsException;
+import oakbot.chat.Room;
 import oakbot.chat.RoomNotFoundException;
 import oakbot.chat.SplitStrategy;
+import oakbot.chat.event.MessageEditedEvent;
 import oakbot.chat.event.MessagePostedEvent;
+import oakbot.command.AsyncCommand;
 import oakbot.command.Command;
 import oakbot.command.learn.LearnedCommands;
 import oakbot.filter.ChatResponseFilter;
 import oakbot.listener.Listener;
+import oakbot.util.Http.ThrottledException;
 
 /**
  * @author Michael Angstadt
@@ -233,6 +250,41 @@ public class BotTest {
 		verify(room1).sendMessage("reply", SplitStrategy.NONE);
 	}
 
+	@Test
+	public void stop_flushes_database() throws Exception {
+		/**
+		 * Setup the chat rooms.
+		 */
+		chatServer.createRoom(1);
+
+		/*
+		 * Define the chat room events to push.
+		 */
+		MessagePostedEvent event1 = event("message");
+
+		/**
+		 * Create the bot.
+		 */
+		Database database = mock(Database.class);
+
+		//@formatter:off
+		Bot bot = bot()
+			.rooms(1)
+			.database(database)
+		.build();
+		//@formatter:on
+
+		/**
+		 * Run the bot.
+		 */
+		run(bot, event1);
+
+		/*
+		 * Verify.
+		 */
+		verify(database).flush();
+	}
+
 	@Test
 	public void command() throws Exception {
 		/**
@@ -286,6 +338,68 @@ public class BotTest {
 		verify(room1).sendMessage("reply", SplitStrategy.NONE);
 	}
 
+	@Test
+	public void edited_command_updates_reply() throws Exception {
+		/**
+		 * Setup the chat rooms.
+		 */
+		IRoom room1 = chatServer.createRoom(1);
+		long replyId = messageId - 1;
+
+		/*
+		 * Define the chat room events to push.
+		 */
+		MessagePostedEvent event1 = event("=name one");
+		MessagePostedEvent event2 = event("=name unchanged");
+		MessageEditedEvent edit1a = edit(event1, "=name two");
+		MessageEditedEvent edit1b = edit(event1, "=name three");
+		MessageEditedEvent edit2 = edit(event2, "=name unchanged ");
+
+		/**
+		 * Create the command.
+		 */
+		Command command = mock(Command.class);
+		when(command.name()).thenReturn("name");
+		when(command.aliases()).thenReturn(Arrays.asList());
+		when(command.onMessage(any(ChatCommand.class), any(BotContext.class))).then((invocation) -> {
+			ChatCommand chatCommand = (ChatCommand) invocation.getArguments()[0];
+			return new ChatResponse("reply " + chatCommand.getContent().trim());
+		});
+
+		/**
+		 * Create the bot.
+		 */
+		//@formatter:off
+		Bot bot = bot()
+			.rooms(1)
+			.commands(command)
+			.editWindow(Duration.ofMinutes(1))
+		.build();
+		//@formatter:on
+
+		/**
+		 * Run the bot. The edits are held until the bot is stopped.
+		 */
+		Thread t = bot.connect(true);
+		chatServer.pushEvents(event1, event2);
+		chatServer.pushEdits(edit1a, edit1b, edit2);
+		assertEquals(1, bot.getEditCoalescer().getCoalescedCount());
+		bot.stop();
+		t.join();
+
+		/*
+		 * Verify. Only the latest edit is handled, and the existing reply is
+		 * edited instead of a new reply being posted. A reply that does not
+		 * change is left alone.
+		 */
+		verify(command, times(4)).onMessage(any(ChatCommand.class), any(BotContext.class));
+		verify(room1, times(2)).sendMessage(anyString(), any(SplitStrategy.class));
+		verify(room1).sendMessage("reply one", SplitStrategy.NONE);
+		verify(room1).sendMessage("reply unchanged", SplitStrategy.NONE);
+		verify(room1).editMessage(replyId, "reply three");
+		verify(room1, times(1)).editMessage(any(Long.class), anyString());
+	}
+
 	@Test
 	public void learned_command() throws Exception {
 		/**
@@ -564,6 +678,63 @@ public class BotTest {
 		assertEquals(Arrays.asList(1), bot.getRooms().getRooms());
 	}
 
+	@Test
+	public void broadcast() throws Exception {
+		/**
+		 * Setup the chat rooms.
+		 */
+		IRoom room1 = chatServer.createRoom(1);
+		IRoom room2 = chatServer.createRoom(2);
+		IRoom room3 = chatServer.createRoom(3);
+
+		/**
+		 * Create the filter.
+		 */
+		List<String> filtered = new ArrayList<>();
+		ChatResponseFilter filter = new ChatResponseFilter() {
+			@Override
+			public String filter(String message) {
+				filtered.add(message);
+				return message.toUpperCase();
+			}
+		};
+		filter.setEnabled(2, true);
+		filter.setEnabled(3, true);
+
+		/**
+		 * Create the bot.
+		 */
+		//@formatter:off
+		Bot bot = bot()
+			.rooms(1, 2, 3)
+			.responseFilters(filter)
+		.build();
+		//@formatter:on
+
+		/**
+		 * Run the bot.
+		 */
+		Thread t = bot.connect(true);
+		Map<Integer, CompletableFuture<List<Long>>> results = bot.broadcast("Hello.");
+		for (CompletableFuture<List<Long>> result : results.values()) {
+			assertEquals(1, result.get(1, TimeUnit.SECONDS).size());
+		}
+		bot.stop();
+		t.join();
+
+		/*
+		 * Verify.
+		 */
+		assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(results.keySet()));
+
+		//rooms 2 and 3 have the same filters, so the message is only filtered once
+		assertEquals(Arrays.asList("Hello."), filtered);
+
+		verify(room1).sendMessage("Hello.", SplitStrategy.NONE);
+		verify(room2).sendMessage("HELLO.", SplitStrategy.NONE);
+		verify(room3).sendMessage("HELLO.", SplitStrategy.NONE);
+	}
+
 	@Test
 	public void shutdown_broadcast() throws Exception {
 		shutdown(true, true);
@@ -876,11 +1047,376 @@ public class BotTest {
 		verify(room1).sendMessage("reply", SplitStrategy.NONE);
 	}
 
+	@Test
+	public void message_workers() throws Exception {
+		/**
+		 * Setup the chat rooms.
+		 */
+		IRoom room1 = chatServer.createRoom(1);
+		IRoom room2 = chatServer.createRoom(2);
+
+		/*
+		 * Define the chat room events to push.
+		 */
+		MessagePostedEvent event1 = event("=slow", 2, 1);
+		MessagePostedEvent event2 = event("=fast", 2, 2);
+
+		/**
+		 * Create the commands. The "slow" command in room 1 does not finish
+		 * until the "fast" command in room 2 runs.
+		 */
+		CountDownLatch fastCommandRan = new CountDownLatch(1);
+		List<Boolean> slowCommandResults = new ArrayList<>();
+
+		Command slow = mock(Command.class);
+		when(slow.name()).thenReturn("slow");
+		when(slow.onMessage(any(ChatCommand.class), any(BotContext.class))).then((invocation) -> {
+			slowCommandResults.add(fastCommandRan.await(10, TimeUnit.SECONDS));
+			return new ChatResponse("slow");
+		});
+
+		Command fast = mock(Command.class);
+		when(fast.name()).thenReturn("fast");
+		when(fast.onMessage(any(ChatCommand.class), any(BotContext.class))).then((invocation) -> {
+			fastCommandRan.countDown();
+			return new ChatResponse("fast");
+		});
+
+		/**
+		 * Create the bot.
+		 */
+		//@formatter:off
+		Bot bot = bot()
+			.rooms(1, 2)
+			.commands(slow, fast)
+			.messageWorkers(2)
+		.build();
+		//@formatter:on
+
+		/**
+		 * Run the bot.
+		 */
+		run(bot, event1, event2);
+
+		/*
+		 * Verify.
+		 */
+		assertEquals(Arrays.asList(true), slowCommandResults);
+		verify(room1).sendMessage("slow", SplitStrategy.NONE);
+		verify(room2).sendMessage("fast", SplitStrategy.NONE);
+
+		ShardedMessageProcessor processor = bot.getMessageProcessor();
+		assertEquals(2, processor.getWorkerCount());
+		assertEquals(2, processor.getMessagesHandled());
+		assertEquals(0, processor.getQueueDepth());
+		assertTrue(processor.getMaxLatency().compareTo(processor.getAverageLatency()) >= 0);
+	}
+
+	@Test
+	public void async_command() throws Exception {
+		/**
+		 * Setup the chat rooms.
+		 */
+		IRoom room1 = chatServer.createRoom(1);
+
+		/*
+		 * Define the chat room events to push.
+		 */
+		MessagePostedEvent event1 = event("=name");
+		MessagePostedEvent event2 = event("=other");
+
+		/**
+		 * Create the commands.
+		 */
+		CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+		AsyncCommand asyncCommand = new AsyncCommand() {
+			@Override
+			public String name() {
+				return "name";
+			}
+
+			@Override
+			public String description() {
+				return "";
+			}
+
+			@Override
+			public String helpText(String trigger) {
+				return "";
+			}
+
+			@Override
+			public ChatResponse onMessage(ChatCommand chatCommand, BotContext context) {
+				return null;
+			}
+
+			@Override
+			public CompletableFuture<ChatResponse> onMessageAsync(ChatCommand chatCommand, BotContext context) {
+				return future;
+			}
+		};
+
+		Command command = mock(Command.class);
+		when(command.name()).thenReturn("other");
+		when(command.onMessage(any(ChatCommand.class), any(BotContext.class))).thenReturn(new ChatResponse("other"));
+
+		/**
+		 * Create the bot.
+		 */
+		//@formatter:off
+		Bot bot = bot()
+			.rooms(1)
+			.commands(asyncCommand, command)
+			.stillWorking("Working...", Duration.ofMillis(100))
+		.build();
+		//@formatter:on
+
+		/**
+		 * Run the bot.
+		 */
+		Thread t = bot.connect(true);
+		chatServer.pushEvents(event1, event2);
+
+		/*
+		 * The pending async command should not hold up the other command.
+		 */
+		verify(room1, timeout(5000)).sendMessage("other", SplitStrategy.NONE);
+		verify(room1, timeout(5000)).sendMessage(endsWith("Working..."), eq(SplitStrategy.NONE));
+
+		future.complete(new ChatResponse("reply"));
+		verify(room1, timeout(5000)).sendMessage("reply", SplitStrategy.NONE);
+
+		bot.stop();
+		t.join();
+
+		/*
+		 * Verify.
+		 */
+		verify(room1, times(3)).sendMessage(anyString(), any(SplitStrategy.class));
+	}
+
+	@Test
+	public void edited_async_command_updates_reply() throws Exception {
+		/**
+		 * Setup the chat rooms.
+		 */
+		IRoom room1 = chatServer.createRoom(1);
+		long replyId = messageId - 1;
+
+		/*
+		 * Define the chat room events to push.
+		 */
+		MessagePostedEvent event1 = event("=name one");
+		MessageEditedEvent edit1 = edit(event1, "=name two");
+
+		/**
+		 * Create the command.
+		 */
+		BlockingQueue<CompletableFuture<ChatResponse>> futures = new LinkedBlockingQueue<>();
+		AsyncCommand asyncCommand = new AsyncCommand() {
+			@Override
+			public String name() {
+				return "name";
+			}
+
+			@Override
+			public String description() {
+				return "";
+			}
+
+			@Override
+			public String helpText(String trigger) {
+				return "";
+			}
+
+			@Override
+			public ChatResponse onMessage(ChatCommand chatCommand, BotContext context) {
+				return null;
+			}
+
+			@Override
+			public CompletableFuture<ChatResponse> onMessageAsync(ChatCommand chatCommand, BotContext context) {
+				CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+				futures.add(future);
+				return future;
+			}
+		};
+
+		/**
+		 * Create the bot.
+		 */
+		//@formatter:off
+		Bot bot = bot()
+			.rooms(1)
+			.commands(asyncCommand)
+			.editWindow(Duration.ZERO)
+		.build();
+		//@formatter:on
+
+		/**
+		 * Run the bot.
+		 */
+		Thread t = bot.connect(true);
+		chatServer.pushEvents(event1);
+		futures.poll(5, TimeUnit.SECONDS).complete(new ChatResponse("reply one"));
+		verify(room1, timeout(5000)).sendMessage("reply one", SplitStrategy.NONE);
+
+		chatServer.pushEdits(edit1);
+		futures.poll(5, TimeUnit.SECONDS).complete(new ChatResponse("reply two"));
+		verify(room1, timeout(5000)).editMessage(replyId, "reply two");
+
+		bot.stop();
+		t.join();
+
+		/*
+		 * Verify. The reply is edited instead of a new reply being posted.
+		 */
+		verify(room1, times(1)).sendMessage(anyString(), any(SplitStrategy.class));
+	}
+
+	@Test
+	public void split_message_throttled_on_second_part() throws Exception {
+		/**
+		 * Setup the chat rooms.
+		 */
+		IRoom room1 = chatServer.createRoom(1);
+
+		String message = Strings.repeat("word ", 150).trim();
+		List<String> parts = Room.split(message, SplitStrategy.WORD);
+		assertEquals(2, parts.size());
+
+		when(room1.sendMessage(parts.get(0), SplitStrategy.NONE)).thenReturn(Arrays.asList(100L));
+		when(room1.sendMessage(parts.get(1), SplitStrategy.NONE)).thenThrow(new ThrottledException(10, "")).thenReturn(Arrays.asList(101L));
+
+		/*
+		 * Define the chat room events to push.
+		 */
+		MessagePostedEvent event1 = event("=name");
+
+		/**
+		 * Create the command.
+		 */
+		Command command = mock(Command.class);
+		when(command.name()).thenReturn("name");
+		when(command.onMessage(any(ChatCommand.class), any(BotContext.class))).thenReturn(new ChatResponse(message, SplitStrategy.WORD));
+
+		/**
+		 * Create the bot.
+		 */
+		//@formatter:off
+		Bot bot = bot()
+			.rooms(1)
+			.commands(command)
+		.build();
+		//@formatter:on
+
+		/**
+		 * Run the bot.
+		 */
+		run(bot, event1);
+
+		/*
+		 * Verify. Only the part that was rejected is posted again.
+		 */
+		verify(room1, times(1)).sendMessage(parts.get(0), SplitStrategy.NONE);
+		verify(room1, times(2)).sendMessage(parts.get(1), SplitStrategy.NONE);
+		verify(room1, times(3)).sendMessage(anyString(), any(SplitStrategy.class));
+	}
+
+	@Test
+	public void async_command_timeout() throws Exception {
+		/**
+		 * Setup the chat rooms.
+		 */
+		IRoom room1 = chatServer.createRoom(1);
+
+		/*
+		 * Define the chat room events to push.
+		 */
+		MessagePostedEvent event1 = event("=name");
+
+		/**
+		 * Create the command.
+		 */
+		CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+		AsyncCommand asyncCommand = new AsyncCommand() {
+			@Override
+			public String name() {
+				return "name";
+			}
+
+			@Override
+			public String description() {
+				return "";
+			}
+
+			@Override
+			public String helpText(String trigger) {
+				return "";
+			}
+
+			@Override
+			public ChatResponse onMessage(ChatCommand chatCommand, BotContext context) {
+				return null;
+			}
+
+			@Override
+			public CompletableFuture<ChatResponse> onMessageAsync(ChatCommand chatCommand, BotContext context) {
+				return future;
+			}
+
+			@Override
+			public Duration timeout() {
+				return Duration.ofMillis(100);
+			}
+		};
+
+		/**
+		 * Create the bot.
+		 */
+		//@formatter:off
+		Bot bot = bot()
+			.rooms(1)
+			.commands(asyncCommand)
+			.stillWorking(null, null)
+		.build();
+		//@formatter:on
+
+		/**
+		 * Run the bot.
+		 */
+		Thread t = bot.connect(true);
+		chatServer.pushEvents(event1);
+
+		try {
+			future.get(5, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+
+		/*
+		 * Completing the future after it timed out should have no effect.
+		 */
+		assertFalse(future.complete(new ChatResponse("reply")));
+
+		bot.stop();
+		t.join();
+
+		/*
+		 * Verify.
+		 */
+		verify(room1, times(0)).sendMessage(anyString(), any(SplitStrategy.class));
+	}
+
 	private MessagePostedEvent event(String content) {
 		return event(content, 2);
 	}
 
 	private MessagePostedEvent event(String content, int userId) {
+		return event(content, userId, 1);
+	}
+
+	private MessagePostedEvent event(String content, int userId, int roomId) {
 		LocalDateTime now = LocalDateTime.now();
 
 		//@formatter:off
@@ -890,7 +1426,7 @@ public class BotTest {
 			.message(new ChatMessage.Builder()
 				.content(content)
 				.messageId(messageId++)
-				.roomId(1)
+				.roomId(roomId)
 				.timestamp(now)
 				.userId(userId)
 				.username("User")
@@ -899,6 +1435,21 @@ public class BotTest {
 		//@formatter:on
 	}
 
+	private MessageEditedEvent edit(MessagePostedEvent original, String content) {
+		ChatMessage message = original.getMessage();
+
+		//@formatter:off
+		return new MessageEditedEvent.Builder()
+			.eventId(eventId++)
+			.timestamp(LocalDateTime.now())
+			.message(new ChatMessage.Builder(message)
+				.content(content)
+				.edits(message.getEdits() + 1)
+			.build())
+		.build();
+		//@formatter:on
+	}
+
 	private Bot.Builder bot() {
 		//@formatter:off
 		return new Bot.Builder()
@@ -910,6 +1461,7 @@ public class BotTest {
 
 	private class ChatServerMock {
 		private final Map<Integer, Consumer<MessagePostedEvent>> consumers = new HashMap<>();
+		private final Map<Integer, Consumer<MessageEditedEvent>> editConsumers = new HashMap<>();
 		private final Map<Integer, IRoom> rooms = new HashMap<>();
 
 		public void pushEvents(MessagePostedEvent... events) {
@@ -918,6 +1470,12 @@ public class BotTest {
 			}
 		}
 
+		public void pushEdits(MessageEditedEvent... events) {
+			for (MessageEditedEvent event : events) {
+				editConsumers.get(event.getMessage().getRoomId()).accept(event);
+			}
+		}
+
 		public IRoom createRoom(int roomId) throws IOException {
 			return createRoom(roomId, true);
 		}
@@ -940,6 +1498,12 @@ public class BotTest {
 				return null;
 			}).when(room).addEventListener(eq(MessagePostedEvent.class), any(Consumer.class));
 
+			doAnswer((invocations) -> {
+				Consumer<MessageEditedEvent> consumer = (Consumer<MessageEditedEvent>) invocations.getArguments()[1];
+				editConsumers.put(roomId, consumer);
+				return null;
+			}).when(room).addEventListener(eq(MessageEditedEvent.class), any(Consumer.class));
+
 			rooms.put(roomId, room);
 
 			return room;
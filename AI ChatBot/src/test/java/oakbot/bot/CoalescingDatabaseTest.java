@@ -0,0 +1,152 @@
+package oakbot.bot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import oakbot.CoalescingDatabase;
+import oakbot.Database;
+
+/**
+ * @author Michael Angstadt
+ */
+public class CoalescingDatabaseTest {
+	@Test
+	public void commits_are_batched() throws Exception {
+		CountingDatabase wrapped = new CountingDatabase();
+		CoalescingDatabase db = new CoalescingDatabase(wrapped, Duration.ofMillis(100));
+
+		for (int i = 0; i < 10; i++) {
+			db.set("key", i);
+			db.commit();
+		}
+		assertEquals(0, wrapped.commits.get());
+		assertEquals(9, db.get("key"));
+
+		Thread.sleep(500);
+		assertEquals(1, wrapped.commits.get());
+
+		db.set("key", 10);
+		db.commit();
+		Thread.sleep(500);
+		assertEquals(2, wrapped.commits.get());
+	}
+
+	@Test
+	public void values_are_copied() throws Exception {
+		CountingDatabase wrapped = new CountingDatabase();
+		CoalescingDatabase db = new CoalescingDatabase(wrapped, Duration.ofMillis(100));
+
+		List<Object> list = new ArrayList<>(Arrays.asList(1, 2));
+		db.set("key", list);
+		list.add(3);
+
+		assertEquals(Arrays.asList(1, 2), db.get("key"));
+	}
+
+	@Test
+	public void flush() throws Exception {
+		CountingDatabase wrapped = new CountingDatabase();
+		CoalescingDatabase db = new CoalescingDatabase(wrapped, Duration.ofMillis(100));
+
+		db.set("key", "value");
+		db.commit();
+		db.flush();
+		assertEquals(1, wrapped.commits.get());
+
+		/*
+		 * The scheduled commit should have been cancelled.
+		 */
+		Thread.sleep(500);
+		assertEquals(1, wrapped.commits.get());
+	}
+
+	@Test
+	public void commit_when_threshold_is_reached() throws Exception {
+		CountingDatabase wrapped = new CountingDatabase();
+		CoalescingDatabase db = new CoalescingDatabase(wrapped, Duration.ofMinutes(1), 3);
+
+		db.set("one", 1);
+		db.set("two", 2);
+		db.set("two", 2);
+		assertEquals(2, db.getDirtyKeyCount());
+		Thread.sleep(200);
+		assertEquals(0, wrapped.commits.get());
+
+		db.set("three", 3);
+		Thread.sleep(200);
+		assertEquals(1, wrapped.commits.get());
+		assertEquals(0, db.getDirtyKeyCount());
+	}
+
+	@Test
+	public void metrics() throws Exception {
+		CountingDatabase wrapped = new CountingDatabase();
+		CoalescingDatabase db = new CoalescingDatabase(wrapped, Duration.ofMinutes(1));
+
+		assertEquals(0, db.getFlushCount());
+		assertEquals(Duration.ZERO, db.getAverageFlushDuration());
+
+		db.set("key", "value");
+		db.flush();
+		db.set("key", "value2");
+		db.flush();
+
+		assertEquals(2, db.getFlushCount());
+		assertEquals(2, db.getBytesWritten());
+		assertTrue(db.getMaxFlushDuration().compareTo(db.getAverageFlushDuration()) >= 0);
+
+		/*
+		 * Flushes that don't write anything are not counted.
+		 */
+		db.flush();
+		assertEquals(2, db.getFlushCount());
+	}
+
+	@Test
+	public void commit_without_changes() throws Exception {
+		CountingDatabase wrapped = new CountingDatabase();
+		CoalescingDatabase db = new CoalescingDatabase(wrapped, Duration.ofMillis(100));
+
+		db.commit();
+		db.commit();
+		Thread.sleep(500);
+
+		assertEquals(0, wrapped.commits.get());
+		assertEquals(0, db.getFlushCount());
+	}
+
+	private static class CountingDatabase implements Database {
+		private final Map<String, Object> fields = new HashMap<>();
+		private final AtomicInteger commits = new AtomicInteger();
+
+		@Override
+		public synchronized Object get(String key) {
+			return fields.get(key);
+		}
+
+		@Override
+		public synchronized void set(String key, Object value) {
+			fields.put(key, value);
+		}
+
+		@Override
+		public void commit() {
+			commits.incrementAndGet();
+		}
+
+		@Override
+		public long getBytesWritten() {
+			return commits.get();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package oakbot.bot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import oakbot.command.Command;
+import oakbot.command.learn.LearnedCommand;
+import oakbot.command.learn.LearnedCommands;
+
+/**
+ * Measures how long it takes to look up a command as the number of learned
+ * commands grows. Compares {@link CommandIndex} to the linear scan that the
+ * bot used to perform on every message. Run with the "main" method; it is not
+ * part of the unit test suite.
+ * @author Michael Angstadt
+ */
+public class CommandIndexBenchmark {
+	private static final int LOOKUPS = 200_000;
+
+	public static void main(String[] args) {
+		List<Command> commands = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			commands.add(new LearnedCommand("builtin" + i, "output"));
+		}
+
+		System.out.println("learned commands | index (ns/lookup) | linear scan (ns/lookup)");
+		for (int learnedCount : new int[] { 10, 100, 1_000, 10_000, 50_000 }) {
+			LearnedCommands learnedCommands = new LearnedCommands();
+			for (int i = 0; i < learnedCount; i++) {
+				learnedCommands.add("learned" + i, "output");
+			}
+			CommandIndex index = new CommandIndex(commands, learnedCommands);
+
+			String[] names = { "builtin5", "learned" + (learnedCount - 1), "missing" };
+
+			//warm up
+			indexLookups(index, names);
+			linearLookups(commands, learnedCommands, names);
+
+			long indexTime = indexLookups(index, names);
+			long linearTime = linearLookups(commands, learnedCommands, names);
+			System.out.printf("%16d | %17d | %23d%n", learnedCount, indexTime / LOOKUPS, linearTime / LOOKUPS);
+		}
+	}
+
+	private static long indexLookups(CommandIndex index, String[] names) {
+		long sink = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < LOOKUPS; i++) {
+			sink += index.get(names[i % names.length]).size();
+		}
+		long time = System.nanoTime() - start;
+		consume(sink);
+		return time;
+	}
+
+	/**
+	 * How commands were looked up before {@link CommandIndex} was introduced.
+	 */
+	private static long linearLookups(List<Command> commands, LearnedCommands learnedCommands, String[] names) {
+		int lookups = LOOKUPS / 100; //the linear scan is too slow to do the full amount
+		long sink = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < lookups; i++) {
+			String name = names[i % names.length];
+			List<Command> result = new ArrayList<>();
+			for (Command command : commands) {
+				if (command.name().equals(name) || command.aliases().contains(name)) {
+					result.add(command);
+				}
+			}
+			for (LearnedCommand command : learnedCommands) {
+				if (command.name().equals(name) || command.aliases().contains(name)) {
+					result.add(command);
+				}
+			}
+			sink += result.size();
+		}
+		long time = System.nanoTime() - start;
+		consume(sink);
+		return time * 100;
+	}
+
+	private static void consume(long sink) {
+		if (sink == Long.MIN_VALUE) {
+			System.out.println(Arrays.asList(sink));
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package oakbot.bot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import oakbot.command.Command;
+import oakbot.command.learn.LearnedCommands;
+
+/**
+ * @author Michael Angstadt
+ */
+public class CommandIndexTest {
+	@Test
+	public void get() {
+		Command one = command("one", "uno");
+		Command two = command("two", "uno");
+		LearnedCommands learnedCommands = new LearnedCommands();
+		learnedCommands.add("three", "output");
+
+		CommandIndex index = new CommandIndex(Arrays.asList(one, two), learnedCommands);
+
+		assertEquals(Arrays.asList(one), index.get("one"));
+		assertEquals(Arrays.asList(one), index.get("ONE"));
+		assertEquals(Arrays.asList(one, two), index.get("uno"));
+		assertEquals(Arrays.asList(two), index.get("two"));
+		assertEquals(Arrays.asList(learnedCommands.get("three")), index.get("Three"));
+		assertTrue(index.get("four").isEmpty());
+	}
+
+	@Test
+	public void turkish_locale() {
+		Locale defaultLocale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+		try {
+			Command info = command("info");
+			LearnedCommands learnedCommands = new LearnedCommands();
+			learnedCommands.add("hi", "output");
+
+			CommandIndex index = new CommandIndex(Arrays.asList(info), learnedCommands);
+
+			assertEquals(Arrays.asList(info), index.get("INFO"));
+			assertEquals(Arrays.asList(learnedCommands.get("HI")), index.get("HI"));
+		} finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+
+	@Test
+	public void learned_commands_updated_in_place() {
+		Command one = command("one");
+		LearnedCommands learnedCommands = new LearnedCommands();
+		CommandIndex index = new CommandIndex(Arrays.asList(one), learnedCommands);
+
+		assertTrue(index.get("two").isEmpty());
+
+		learnedCommands.add("two", "output");
+		List<Command> commands = index.get("two");
+		assertEquals(1, commands.size());
+		assertEquals("output", learnedCommands.get("two").output());
+		assertEquals(learnedCommands.get("two"), commands.get(0));
+
+		learnedCommands.add("one", "output");
+		assertEquals(Arrays.asList(one, learnedCommands.get("one")), index.get("one"));
+
+		learnedCommands.remove("TWO");
+		assertTrue(index.get("two").isEmpty());
+
+		learnedCommands.remove("one");
+		assertEquals(Arrays.asList(one), index.get("one"));
+	}
+
+	private static Command command(String name, String... aliases) {
+		Command command = mock(Command.class);
+		when(command.name()).thenReturn(name);
+		when(command.aliases()).thenReturn(Arrays.asList(aliases));
+		return command;
+	}
+}
@@ -0,0 +1,164 @@
+package oakbot.bot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import oakbot.DirectoryDatabase;
+import oakbot.JsonDatabase;
+
+/**
+ * @author Michael Angstadt
+ */
+public class DirectoryDatabaseTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void round_trip() throws Exception {
+		Path dir = temp.getRoot().toPath().resolve("db");
+
+		Map<String, Object> map = new HashMap<>();
+		map.put("one", "One");
+		map.put("two", Arrays.asList(1, "2"));
+
+		DirectoryDatabase db = new DirectoryDatabase(dir);
+		db.set("map", map);
+		db.set("value", "three");
+		db.set("key/with:odd characters", 4);
+		db.commit();
+
+		db = new DirectoryDatabase(dir);
+		assertEquals(map, db.get("map"));
+		assertEquals("three", db.get("value"));
+		assertEquals(4, db.get("key/with:odd characters"));
+		assertNull(db.get("does-not-exist"));
+	}
+
+	@Test
+	public void only_changed_keys_are_written() throws Exception {
+		Path dir = temp.getRoot().toPath().resolve("db");
+
+		DirectoryDatabase db = new DirectoryDatabase(dir);
+		db.set("one", "1");
+		db.set("two", "2");
+		db.commit();
+
+		FileTime epoch = FileTime.fromMillis(0);
+		Files.setLastModifiedTime(dir.resolve("one.json"), epoch);
+		Files.setLastModifiedTime(dir.resolve("two.json"), epoch);
+
+		db.set("two", "changed");
+		db.commit();
+
+		assertEquals(epoch, Files.getLastModifiedTime(dir.resolve("one.json")));
+		assertTrue(Files.getLastModifiedTime(dir.resolve("two.json")).compareTo(epoch) > 0);
+	}
+
+	@Test
+	public void remove() throws Exception {
+		Path dir = temp.getRoot().toPath().resolve("db");
+
+		DirectoryDatabase db = new DirectoryDatabase(dir);
+		db.set("one", "1");
+		db.commit();
+		assertTrue(Files.exists(dir.resolve("one.json")));
+
+		db.remove("one");
+		assertNull(db.get("one"));
+		db.commit();
+		assertFalse(Files.exists(dir.resolve("one.json")));
+
+		db = new DirectoryDatabase(dir);
+		assertNull(db.get("one"));
+	}
+
+	@Test
+	public void keys_are_loaded_on_demand() throws Exception {
+		Path dir = temp.getRoot().toPath().resolve("db");
+
+		DirectoryDatabase db = new DirectoryDatabase(dir);
+		Files.write(dir.resolve("one.json"), "{\"one\":1}".getBytes(StandardCharsets.UTF_8));
+		assertEquals(1, db.get("one"));
+	}
+
+	@Test
+	public void least_recently_used_keys_are_evicted() throws Exception {
+		Path dir = temp.getRoot().toPath().resolve("db");
+
+		DirectoryDatabase db = new DirectoryDatabase(dir, 2);
+		db.set("one", 1);
+		db.set("two", 2);
+		db.set("three", 3);
+		db.commit();
+
+		db.set("dirty", 4);
+		db.get("three");
+		db.get("two");
+
+		/*
+		 * "one" was evicted, so it is read from disk again.
+		 */
+		Files.write(dir.resolve("one.json"), "{\"one\":10}".getBytes(StandardCharsets.UTF_8));
+		assertEquals(10, db.get("one"));
+
+		/*
+		 * Keys with uncommitted changes are never evicted.
+		 */
+		assertEquals(4, db.get("dirty"));
+		db.commit();
+		assertEquals(4, new DirectoryDatabase(dir).get("dirty"));
+	}
+
+	@Test
+	public void importJson() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+		Path dir = temp.getRoot().toPath().resolve("db");
+
+		Map<String, Object> map = new HashMap<>();
+		map.put("one", "One");
+
+		JsonDatabase json = new JsonDatabase(file);
+		json.set("map", map);
+		json.set("value", "two");
+		json.commit();
+
+		DirectoryDatabase db = new DirectoryDatabase(dir);
+		assertEquals(2, db.importJson(file));
+
+		db = new DirectoryDatabase(dir);
+		assertEquals(map, db.get("map"));
+		assertEquals("two", db.get("value"));
+	}
+
+	@Test(expected = IOException.class)
+	public void importJson_write_fails() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+		Path dir = temp.getRoot().toPath().resolve("db");
+
+		JsonDatabase json = new JsonDatabase(file);
+		json.set("value", "one");
+		json.commit();
+
+		/*
+		 * The key's file can't be replaced by a directory.
+		 */
+		DirectoryDatabase db = new DirectoryDatabase(dir);
+		Files.createDirectories(dir.resolve("value.json").resolve("child"));
+		db.importJson(file);
+	}
+}
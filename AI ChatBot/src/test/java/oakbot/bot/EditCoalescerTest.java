@@ -0,0 +1,84 @@
+package oakbot.bot;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import oakbot.chat.ChatMessage;
+
+/**
+ * @author Michael Angstadt
+ */
+public class EditCoalescerTest {
+	@Test
+	public void latest_revision_is_passed_on() throws Exception {
+		List<ChatMessage> received = new CopyOnWriteArrayList<>();
+		EditCoalescer coalescer = new EditCoalescer(Duration.ofMillis(100), received::add);
+
+		coalescer.add(edit(1, "one"));
+		coalescer.add(edit(1, "two"));
+		coalescer.add(edit(2, "other"));
+		coalescer.add(edit(1, "three"));
+		assertEquals(0, received.size());
+		assertEquals(2, coalescer.getPendingCount());
+
+		long timeout = System.currentTimeMillis() + 5000;
+		while (received.size() < 2 && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+
+		assertEquals(2, received.size());
+		assertEquals("three", received.get(0).getContent().getContent());
+		assertEquals("other", received.get(1).getContent().getContent());
+		assertEquals(2, coalescer.getCoalescedCount());
+		assertEquals(0, coalescer.getPendingCount());
+
+		/*
+		 * A new window starts after the previous one expires.
+		 */
+		coalescer.add(edit(1, "four"));
+		coalescer.shutdown();
+		assertEquals(3, received.size());
+		assertEquals("four", received.get(2).getContent().getContent());
+	}
+
+	@Test
+	public void no_window() {
+		List<ChatMessage> received = new CopyOnWriteArrayList<>();
+		EditCoalescer coalescer = new EditCoalescer(Duration.ZERO, received::add);
+
+		coalescer.add(edit(1, "one"));
+		coalescer.add(edit(1, "two"));
+		assertEquals(2, received.size());
+		assertEquals(0, coalescer.getCoalescedCount());
+	}
+
+	@Test
+	public void add_after_shutdown() {
+		List<ChatMessage> received = new CopyOnWriteArrayList<>();
+		EditCoalescer coalescer = new EditCoalescer(Duration.ofMinutes(1), received::add);
+
+		coalescer.add(edit(1, "one"));
+		coalescer.shutdown();
+		assertEquals(1, received.size());
+
+		coalescer.add(edit(2, "two"));
+		assertEquals(2, received.size());
+		assertEquals("two", received.get(1).getContent().getContent());
+		assertEquals(0, coalescer.getPendingCount());
+	}
+
+	private static ChatMessage edit(long messageId, String content) {
+		//@formatter:off
+		return new ChatMessage.Builder()
+			.messageId(messageId)
+			.content(content)
+			.edits(1)
+		.build();
+		//@formatter:on
+	}
+}
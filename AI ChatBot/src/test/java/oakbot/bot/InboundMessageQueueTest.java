@@ -0,0 +1,212 @@
+package oakbot.bot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+import java.util.logging.LogManager;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import oakbot.bot.InboundMessageQueue.OverflowPolicy;
+import oakbot.chat.ChatMessage;
+
+/**
+ * @author Michael Angstadt
+ */
+public class InboundMessageQueueTest {
+	@BeforeClass
+	public static void beforeClass() {
+		//turn off logging
+		LogManager.getLogManager().reset();
+	}
+
+	@Test
+	public void rooms_take_turns() throws Exception {
+		InboundMessageQueue queue = new InboundMessageQueue(100, OverflowPolicy.DROP_OLDEST);
+		queue.add(message(1, 1, 10));
+		queue.add(message(1, 2, 10));
+		queue.add(message(1, 3, 10));
+		queue.add(message(2, 4, 10));
+		queue.add(message(3, 5, 10));
+		queue.add(message(2, 6, 10));
+
+		assertEquals(6, queue.size());
+		assertEquals(3, queue.size(1));
+		assertEquals(Arrays.asList(1L, 4L, 5L, 2L, 6L, 3L), take(queue, 6));
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void drop_oldest() throws Exception {
+		InboundMessageQueue queue = new InboundMessageQueue(4, OverflowPolicy.DROP_OLDEST);
+		queue.add(message(1, 1, 10));
+		queue.add(message(1, 2, 10));
+		queue.add(message(1, 3, 10));
+		queue.add(message(2, 4, 10));
+
+		/*
+		 * Room 1 has the most messages, so its oldest message is dropped.
+		 */
+		queue.add(message(2, 5, 10));
+
+		assertEquals(4, queue.size());
+		assertEquals(1, queue.getDroppedCount());
+		assertEquals(0, queue.getCoalescedCount());
+		assertEquals(Arrays.asList(2L, 4L, 3L, 5L), take(queue, 4));
+	}
+
+	@Test
+	public void drop_edits_first() throws Exception {
+		InboundMessageQueue queue = new InboundMessageQueue(3, OverflowPolicy.DROP_EDITS_FIRST);
+		queue.add(message(1, 1, 10));
+		queue.add(edit(1, 2, 10));
+		queue.add(message(1, 3, 10));
+
+		queue.add(message(1, 4, 10));
+		assertEquals(Arrays.asList(1L, 3L, 4L), take(queue, 3));
+
+		/*
+		 * If there are no edits, the oldest message is dropped.
+		 */
+		queue.add(message(1, 5, 10));
+		queue.add(message(1, 6, 10));
+		queue.add(message(1, 7, 10));
+		queue.add(message(1, 8, 10));
+		assertEquals(Arrays.asList(6L, 7L, 8L), take(queue, 3));
+
+		assertEquals(2, queue.getDroppedCount());
+	}
+
+	@Test
+	public void coalesce_by_user() throws Exception {
+		InboundMessageQueue queue = new InboundMessageQueue(3, OverflowPolicy.COALESCE_BY_USER);
+		queue.add(message(1, 1, 10));
+		queue.add(message(1, 2, 20));
+		queue.add(message(1, 3, 10));
+
+		/*
+		 * The user's latest queued message is replaced.
+		 */
+		queue.add(message(1, 4, 10));
+		queue.add(message(1, 5, 10));
+
+		/*
+		 * The user has no queued messages, so the oldest message is dropped.
+		 */
+		queue.add(message(1, 6, 30));
+
+		assertEquals(2, queue.getCoalescedCount());
+		assertEquals(1, queue.getDroppedCount());
+		assertEquals(Arrays.asList(2L, 5L, 6L), take(queue, 3));
+	}
+
+	@Test
+	public void take_from_certain_rooms() throws Exception {
+		InboundMessageQueue queue = new InboundMessageQueue(100, OverflowPolicy.DROP_OLDEST);
+		queue.add(message(1, 1, 10));
+		queue.add(message(2, 2, 10));
+		queue.add(message(3, 3, 10));
+		queue.add(message(1, 4, 10));
+		queue.add(message(3, 5, 10));
+
+		IntPredicate oddRooms = roomId -> roomId % 2 == 1;
+		assertEquals(4, queue.size(oddRooms));
+		assertTrue(queue.getOldestWaitTime(oddRooms).toNanos() > 0);
+
+		assertEquals(1, queue.take(oddRooms).getMessageId());
+		assertEquals(3, queue.take(oddRooms).getMessageId());
+		assertEquals(4, queue.take(oddRooms).getMessageId());
+		assertEquals(5, queue.take(oddRooms).getMessageId());
+		assertEquals(0, queue.size(oddRooms));
+		assertEquals(Duration.ZERO, queue.getOldestWaitTime(oddRooms));
+		assertEquals(1, queue.size());
+
+		queue.close();
+		assertNull(queue.take(oddRooms));
+		assertEquals(2, queue.take().getMessageId());
+	}
+
+	@Test
+	public void close() throws Exception {
+		InboundMessageQueue queue = new InboundMessageQueue(10, OverflowPolicy.DROP_OLDEST);
+		queue.add(message(1, 1, 10));
+		queue.close();
+		queue.add(message(1, 2, 10));
+
+		assertEquals(Arrays.asList(1L), take(queue, 1));
+		assertNull(queue.take());
+	}
+
+	@Test
+	public void take_waits_for_message() throws Exception {
+		InboundMessageQueue queue = new InboundMessageQueue(10, OverflowPolicy.DROP_OLDEST);
+
+		Thread thread = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException ignored) {
+			}
+			queue.add(message(1, 1, 10));
+		});
+		thread.start();
+
+		assertEquals(1, queue.take().getMessageId());
+		thread.join();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_policy() {
+		assertEquals(OverflowPolicy.DROP_OLDEST, OverflowPolicy.parse("drop-oldest"));
+		assertEquals(OverflowPolicy.DROP_EDITS_FIRST, OverflowPolicy.parse("drop-edits-first"));
+		assertEquals(OverflowPolicy.COALESCE_BY_USER, OverflowPolicy.parse(" Coalesce-By-User "));
+		OverflowPolicy.parse("invalid");
+	}
+
+	@Test
+	public void parse_policy_turkish_locale() {
+		Locale defaultLocale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+		try {
+			assertEquals(OverflowPolicy.DROP_EDITS_FIRST, OverflowPolicy.parse("drop-edits-first"));
+		} finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+
+	private static List<Long> take(InboundMessageQueue queue, int count) throws InterruptedException {
+		List<Long> messageIds = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			messageIds.add(queue.take().getMessageId());
+		}
+		return messageIds;
+	}
+
+	private static ChatMessage message(int roomId, long messageId, int userId) {
+		//@formatter:off
+		return new ChatMessage.Builder()
+			.roomId(roomId)
+			.messageId(messageId)
+			.userId(userId)
+		.build();
+		//@formatter:on
+	}
+
+	private static ChatMessage edit(int roomId, long messageId, int userId) {
+		//@formatter:off
+		return new ChatMessage.Builder()
+			.roomId(roomId)
+			.messageId(messageId)
+			.userId(userId)
+			.edits(1)
+		.build();
+		//@formatter:on
+	}
+}
@@ -0,0 +1,149 @@
+package oakbot.bot;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import oakbot.JsonDatabase;
+
+/**
+ * Measures how long it takes {@link JsonDatabase} to load a large database
+ * file. Compares the streaming loader to the tree-based loader that the bot
+ * used to use, which tried to parse every string as a date. Run with the
+ * "main" method; it is not part of the unit test suite.
+ * @author Michael Angstadt
+ */
+public class JsonDatabaseBenchmark {
+	private static final int RUNS = 10;
+	private static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	public static void main(String[] args) throws Exception {
+		Path file = Files.createTempFile("oakbot-benchmark", ".json");
+		try {
+			System.out.println("entries | file size (KB) | streaming (ms) | tree (ms)");
+			for (int entries : new int[] { 1_000, 10_000, 50_000 }) {
+				createDatabase(file, entries);
+
+				//warm up
+				new JsonDatabase(file);
+				loadTree(file);
+
+				long streamingTime = 0, treeTime = 0;
+				for (int i = 0; i < RUNS; i++) {
+					long start = System.nanoTime();
+					new JsonDatabase(file);
+					streamingTime += System.nanoTime() - start;
+
+					start = System.nanoTime();
+					loadTree(file);
+					treeTime += System.nanoTime() - start;
+				}
+
+				System.out.printf("%7d | %14d | %14.1f | %9.1f%n", entries, Files.size(file) / 1024, streamingTime / RUNS / 1_000_000.0, treeTime / RUNS / 1_000_000.0);
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Creates a database that resembles the bot's, with lots of learned
+	 * commands and welcomed users.
+	 * @param file the file to write to
+	 * @param entries the number of entries to create in each map
+	 */
+	private static void createDatabase(Path file, int entries) throws IOException {
+		Files.deleteIfExists(file);
+
+		Map<String, Object> learnedCommands = new LinkedHashMap<>();
+		for (int i = 0; i < entries; i++) {
+			learnedCommands.put("command" + i, "This is the output of learned command number " + i + ".");
+		}
+
+		Map<String, Object> welcomed = new LinkedHashMap<>();
+		for (int i = 0; i < entries; i++) {
+			List<Object> users = new ArrayList<>();
+			users.add(i);
+			users.add(i + 1);
+			welcomed.put("" + i, users);
+		}
+
+		Map<String, Object> lastSeen = new HashMap<>();
+		for (int i = 0; i < entries; i++) {
+			lastSeen.put("" + i, LocalDateTime.of(2017, 3, 26, 0, 0).plusMinutes(i));
+		}
+
+		JsonDatabase db = new JsonDatabase(file);
+		db.set("learned-commands", learnedCommands);
+		db.set("welcome", welcomed);
+		db.set("last-seen", lastSeen);
+		db.commit();
+	}
+
+	/**
+	 * How the database was loaded before it was streamed.
+	 */
+	private static Map<String, Object> loadTree(Path file) throws IOException {
+		JsonNode root;
+		try (Reader reader = Files.newBufferedReader(file)) {
+			root = new ObjectMapper().readTree(reader);
+		}
+
+		Map<String, Object> fields = new HashMap<>();
+		Iterator<String> it = root.fieldNames();
+		while (it.hasNext()) {
+			String fieldName = it.next();
+			fields.put(fieldName, parse(root.get(fieldName)));
+		}
+		return fields;
+	}
+
+	private static Object parse(JsonNode node) {
+		if (node.isArray()) {
+			List<Object> list = new ArrayList<>();
+			for (JsonNode element : node) {
+				list.add(parse(element));
+			}
+			return list;
+		}
+
+		if (node.isObject()) {
+			Map<String, Object> map = new LinkedHashMap<>();
+			Iterator<String> it = node.fieldNames();
+			while (it.hasNext()) {
+				String fieldName = it.next();
+				map.put(fieldName, parse(node.get(fieldName)));
+			}
+			return map;
+		}
+
+		if (node.isInt()) {
+			return node.asInt();
+		}
+
+		if (node.isNull()) {
+			return null;
+		}
+
+		String text = node.asText();
+		try {
+			return LocalDateTime.parse(text, dateTimeFormatter);
+		} catch (DateTimeParseException e) {
+			//not a date string
+		}
+		return text;
+	}
+}
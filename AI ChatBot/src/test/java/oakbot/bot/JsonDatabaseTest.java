@@ -1,8 +1,10 @@
 package oakbot.bot;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.ParseException;
@@ -62,6 +64,72 @@ public class JsonDatabaseTest {
 		assertEquals(value, value);
 	}
 
+	@Test
+	public void commit_replaces_file() throws Exception {
+		Path file = temp.newFile().toPath();
+		Files.delete(file);
+
+		JsonDatabase db = new JsonDatabase(file);
+		db.set("value", "one");
+		db.commit();
+		db.set("value", "two");
+		db.commit();
+
+		assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+
+		db = new JsonDatabase(file);
+		assertEquals("two", db.get("value"));
+	}
+
+	@Test
+	public void remove() throws Exception {
+		Path file = temp.newFile().toPath();
+		Files.delete(file);
+
+		JsonDatabase db = new JsonDatabase(file);
+		db.set("one", "1");
+		db.set("two", "2");
+		db.commit();
+
+		db.remove("one");
+		db.commit();
+
+		String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		assertFalse(json.contains("\"one\""));
+
+		db = new JsonDatabase(file);
+		assertNull(db.get("one"));
+		assertEquals("2", db.get("two"));
+	}
+
+	@Test
+	public void load() throws Exception {
+		Path file = temp.newFile().toPath();
+
+		//@formatter:off
+		String json =
+		"{" +
+			"\"date\": \"2017-03-26 13:05:00\"," +
+			"\"not-a-date\": \"2017-13-45 00:00:00\"," +
+			"\"almost-a-date\": \"2017-03-26T13:05:00\"," +
+			"\"int\": 42," +
+			"\"long\": 12345678901," +
+			"\"boolean\": true," +
+			"\"list\": [1, \"two\", null, {}]" +
+		"}";
+		//@formatter:on
+		Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+
+		JsonDatabase db = new JsonDatabase(file);
+		assertEquals(date("2017-03-26 13:05:00"), db.get("date"));
+		assertEquals("2017-13-45 00:00:00", db.get("not-a-date"));
+		assertEquals("2017-03-26T13:05:00", db.get("almost-a-date"));
+		assertEquals(42, db.get("int"));
+		assertEquals("12345678901", db.get("long"));
+		assertEquals("true", db.get("boolean"));
+		assertEquals(Arrays.asList(1, "two", null, new HashMap<>()), db.get("list"));
+	}
+
 	@Test
 	public void non_existant_key() throws Exception {
 		Path file = temp.newFile().toPath();
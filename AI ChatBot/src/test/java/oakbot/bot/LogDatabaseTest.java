@@ -0,0 +1,297 @@
+package oakbot.bot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import oakbot.JsonDatabase;
+import oakbot.LogDatabase;
+
+/**
+ * @author Michael Angstadt
+ */
+public class LogDatabaseTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void round_trip() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+
+		Map<String, Object> map = new HashMap<>();
+		{
+			map.put("one", "One");
+			map.put("three", 3);
+			map.put("four", Arrays.asList(1, "2"));
+			map.put("six", null);
+		}
+		List<Object> list = Arrays.asList(1, 2);
+
+		LogDatabase db = new LogDatabase(file);
+		db.set("map", map);
+		db.set("list", list);
+		db.set("value", "three");
+		db.commit();
+
+		db = new LogDatabase(file);
+		assertEquals(map, db.get("map"));
+		assertEquals(list, db.get("list"));
+		assertEquals("three", db.get("value"));
+		assertNull(db.get("does-not-exist"));
+	}
+
+	@Test
+	public void map_entries() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+
+		LogDatabase db = new LogDatabase(file);
+		db.setMapEntry("map", "one", "1");
+		db.setMapEntry("map", "two", "2");
+		db.setMapEntry("map", "three", "3");
+		db.removeMapEntry("map", "two");
+		db.removeMapEntry("map", "does-not-exist");
+		db.removeMapEntry("does-not-exist", "one");
+		db.commit();
+
+		Path log = file.resolveSibling("db.json.log");
+		List<String> lines = Files.readAllLines(log);
+		assertEquals(4, lines.size());
+		assertEquals("{\"seq\":1,\"op\":\"put\",\"key\":\"map\",\"field\":\"one\",\"value\":\"1\"}", lines.get(0));
+		assertEquals("{\"seq\":4,\"op\":\"remove\",\"key\":\"map\",\"field\":\"two\"}", lines.get(3));
+
+		Map<String, Object> expected = new HashMap<>();
+		expected.put("one", "1");
+		expected.put("three", "3");
+
+		db = new LogDatabase(file);
+		assertEquals(expected, db.get("map"));
+	}
+
+	@Test
+	public void remove() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+
+		LogDatabase db = new LogDatabase(file);
+		db.set("one", "1");
+		db.set("two", "2");
+		db.remove("one");
+		db.remove("does-not-exist");
+		db.commit();
+
+		List<String> lines = Files.readAllLines(file.resolveSibling("db.json.log"));
+		assertEquals(3, lines.size());
+		assertEquals("{\"seq\":3,\"op\":\"delete\",\"key\":\"one\"}", lines.get(2));
+
+		db = new LogDatabase(file);
+		assertNull(db.get("one"));
+		assertEquals("2", db.get("two"));
+
+		/*
+		 * The key should not be in the snapshot that was created on startup.
+		 */
+		String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		assertFalse(json.contains("\"one\""));
+	}
+
+	@Test
+	public void values_are_copied() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+
+		List<Object> list = new ArrayList<>(Arrays.asList(1, 2));
+		Map<String, Object> map = new HashMap<>();
+		map.put("list", list);
+
+		LogDatabase db = new LogDatabase(file);
+		db.set("map", map);
+		db.addListItem("items", list);
+		list.add(3);
+		map.put("one", "1");
+
+		Map<String, Object> expected = new HashMap<>();
+		expected.put("list", Arrays.asList(1, 2));
+		assertEquals(expected, db.get("map"));
+		assertEquals(Arrays.asList(Arrays.asList(1, 2)), db.get("items"));
+	}
+
+	@Test
+	public void uncommitted_changes_are_not_persisted() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+
+		LogDatabase db = new LogDatabase(file);
+		db.set("one", "1");
+		db.commit();
+		db.set("two", "2");
+
+		db = new LogDatabase(file);
+		assertEquals("1", db.get("one"));
+		assertNull(db.get("two"));
+	}
+
+	@Test
+	public void partially_written_entry() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+
+		LogDatabase db = new LogDatabase(file);
+		db.set("one", "1");
+		db.commit();
+
+		Path log = file.resolveSibling("db.json.log");
+		Files.write(log, "{\"op\":\"set\",\"key\":\"two\",\"val".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		db = new LogDatabase(file);
+		assertEquals("1", db.get("one"));
+		assertNull(db.get("two"));
+
+		/*
+		 * The damaged log should have been replaced by a snapshot.
+		 */
+		assertEquals(0, Files.size(log));
+		db.set("two", "2");
+		db.commit();
+
+		db = new LogDatabase(file);
+		assertEquals("2", db.get("two"));
+	}
+
+	@Test
+	public void compact() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+
+		LogDatabase db = new LogDatabase(file);
+		for (int i = 0; i < 10; i++) {
+			db.setMapEntry("map", "key" + i, i);
+			db.commit();
+		}
+		assertTrue(db.getLogSize() > 0);
+
+		db.compact();
+		assertEquals(0, db.getLogSize());
+		assertFalse(Files.exists(file.resolveSibling("db.json.log.compacting")));
+
+		db.set("value", "after");
+		db.commit();
+
+		/*
+		 * The snapshot should be readable by JsonDatabase.
+		 */
+		JsonDatabase json = new JsonDatabase(file);
+		assertEquals(10, json.getMap("map").size());
+		assertNull(json.get("value"));
+
+		db = new LogDatabase(file);
+		assertEquals(10, db.getMap("map").size());
+		assertEquals("after", db.get("value"));
+	}
+
+	@Test
+	public void crash_after_compaction_snapshot_written() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+		Path log = file.resolveSibling("db.json.log");
+		Path compactingLog = file.resolveSibling("db.json.log.compacting");
+
+		LogDatabase db = new LogDatabase(file);
+		db.addListItem("list", "one");
+		db.addListItem("list", "two");
+		db.commit();
+
+		/*
+		 * Simulate a crash that happens after the snapshot is written, but
+		 * before the old log is deleted.
+		 */
+		byte[] oldLog = Files.readAllBytes(log);
+		db.compact();
+		Files.write(compactingLog, oldLog);
+
+		db.addListItem("list", "three");
+		db.commit();
+
+		db = new LogDatabase(file);
+		assertEquals(Arrays.asList("one", "two", "three"), db.getList("list"));
+		assertFalse(Files.exists(compactingLog));
+
+		db.addListItem("list", "four");
+		db.commit();
+
+		db = new LogDatabase(file);
+		assertEquals(Arrays.asList("one", "two", "three", "four"), db.getList("list"));
+	}
+
+	@Test
+	public void compact_fails() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+		Path log = file.resolveSibling("db.json.log");
+		Path compactingLog = file.resolveSibling("db.json.log.compacting");
+
+		LogDatabase db = new LogDatabase(file);
+		db.addListItem("list", "one");
+		db.commit();
+
+		/*
+		 * The current log can't be appended to a directory, so the log
+		 * rotation fails.
+		 */
+		Files.createDirectory(compactingLog);
+		db.compact();
+		assertTrue(Files.exists(log));
+
+		db.addListItem("list", "two");
+		db.commit();
+		assertEquals(2, Files.readAllLines(log).size());
+
+		Files.delete(compactingLog);
+		db = new LogDatabase(file);
+		assertEquals(Arrays.asList("one", "two"), db.getList("list"));
+	}
+
+	@Test
+	public void compact_automatically() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+
+		LogDatabase db = new LogDatabase(file, 100);
+		for (int i = 0; i < 10; i++) {
+			db.setMapEntry("map", "key" + i, i);
+			db.commit();
+		}
+
+		/*
+		 * Wait for the background compaction to finish.
+		 */
+		Path compactingLog = file.resolveSibling("db.json.log.compacting");
+		long timeout = System.currentTimeMillis() + 5000;
+		while ((db.getLogSize() >= 100 || Files.exists(compactingLog)) && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		assertTrue(db.getLogSize() < 100);
+		assertFalse(Files.exists(compactingLog));
+
+		db = new LogDatabase(file);
+		assertEquals(10, db.getMap("map").size());
+	}
+
+	@Test
+	public void existing_json_database() throws Exception {
+		Path file = temp.getRoot().toPath().resolve("db.json");
+
+		JsonDatabase json = new JsonDatabase(file);
+		json.set("one", "1");
+		json.commit();
+
+		LogDatabase db = new LogDatabase(file);
+		assertEquals("1", db.get("one"));
+	}
+}
@@ -0,0 +1,249 @@
+package oakbot.bot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.LogManager;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import oakbot.bot.OutboundSender.Stats;
+import oakbot.chat.IRoom;
+import oakbot.util.Http.ThrottledException;
+
+/**
+ * @author Michael Angstadt
+ */
+public class OutboundSenderTest {
+	@BeforeClass
+	public static void beforeClass() {
+		//turn off logging
+		LogManager.getLogManager().reset();
+	}
+
+	@Test
+	public void operations_run_in_order() throws Exception {
+		OutboundSender sender = new OutboundSender(100, Duration.ofMillis(1));
+		IRoom room = room(1);
+
+		List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			int n = i;
+			futures.add(sender.submit(room, (r) -> {
+				order.add(n);
+				return n;
+			}));
+		}
+
+		for (int i = 0; i < 20; i++) {
+			assertEquals(Integer.valueOf(i), futures.get(i).get(1, TimeUnit.SECONDS));
+		}
+
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			expected.add(i);
+		}
+		assertEquals(expected, order);
+		assertEquals(20, sender.getStats(1).getCompleted());
+		assertEquals(0, sender.getStats(1).getQueued());
+
+		assertTrue(sender.shutdown(Duration.ofSeconds(1)));
+	}
+
+	@Test
+	public void throttled_room_does_not_block_other_rooms() throws Exception {
+		OutboundSender sender = new OutboundSender();
+		IRoom room1 = room(1);
+		IRoom room2 = room(2);
+
+		AtomicInteger attempts = new AtomicInteger();
+		long start = System.nanoTime();
+		CompletableFuture<String> future1 = sender.submit(room1, (r) -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw new ThrottledException(500, "You can perform this action again in 1 second");
+			}
+			return "one";
+		});
+		CompletableFuture<String> future2 = sender.submit(room2, (r) -> "two");
+
+		assertEquals("two", future2.get(1, TimeUnit.SECONDS));
+		assertFalse(future1.isDone());
+		assertTrue(elapsed(start) < 500);
+
+		assertEquals("one", future1.get(2, TimeUnit.SECONDS));
+		assertTrue(elapsed(start) >= 500);
+		assertEquals(2, attempts.get());
+
+		Stats stats = sender.getStats(1);
+		assertEquals(1, stats.getThrottledCount());
+		assertEquals(Duration.ofMillis(500), stats.getThrottledTime());
+		assertTrue(stats.getMaxLatency().toMillis() >= 500);
+		assertEquals(0, sender.getStats(2).getThrottledCount());
+
+		assertTrue(sender.shutdown(Duration.ofSeconds(1)));
+	}
+
+	@Test
+	public void throttled_too_many_times() throws Exception {
+		OutboundSender sender = new OutboundSender();
+		IRoom room = room(1);
+
+		AtomicInteger attempts = new AtomicInteger();
+		CompletableFuture<String> future1 = sender.submit(room, (r) -> {
+			attempts.incrementAndGet();
+			throw new ThrottledException(10, "");
+		});
+		CompletableFuture<String> future2 = sender.submit(room, (r) -> "two");
+
+		try {
+			future1.get(1, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ThrottledException);
+		}
+		assertEquals(5, attempts.get());
+
+		/*
+		 * The next operation still runs.
+		 */
+		assertEquals("two", future2.get(1, TimeUnit.SECONDS));
+		assertEquals(5, sender.getStats(1).getThrottledCount());
+
+		assertTrue(sender.shutdown(Duration.ofSeconds(1)));
+	}
+
+	@Test
+	public void rate_limit() throws Exception {
+		OutboundSender sender = new OutboundSender(2, Duration.ofMillis(200));
+		IRoom room = room(1);
+
+		List<Long> times = Collections.synchronizedList(new ArrayList<>());
+		long start = System.nanoTime();
+		CompletableFuture<?> last = null;
+		for (int i = 0; i < 4; i++) {
+			last = sender.submit(room, (r) -> {
+				times.add(elapsed(start));
+				return null;
+			});
+		}
+		last.get(2, TimeUnit.SECONDS);
+
+		/*
+		 * The first two messages are sent immediately, the rest have to wait
+		 * for the bucket to refill.
+		 */
+		assertTrue(times.get(1) < 200);
+		assertTrue(times.get(2) >= 190);
+		assertTrue(times.get(3) >= 390);
+
+		assertTrue(sender.shutdown(Duration.ofSeconds(1)));
+	}
+
+	@Test
+	public void shutdown_waits_for_queued_operations() throws Exception {
+		OutboundSender sender = new OutboundSender(1, Duration.ofMillis(100));
+		IRoom room = room(1);
+
+		List<Integer> sent = Collections.synchronizedList(new ArrayList<>());
+		for (int i = 0; i < 3; i++) {
+			int n = i;
+			sender.submit(room, (r) -> sent.add(n));
+		}
+
+		assertTrue(sender.shutdown(Duration.ofSeconds(2)));
+		assertEquals(Arrays.asList(0, 1, 2), sent);
+
+		/*
+		 * Operations submitted after shutdown fail.
+		 */
+		CompletableFuture<Boolean> future = sender.submit(room, (r) -> sent.add(3));
+		assertTrue(future.isCompletedExceptionally());
+	}
+
+	@Test
+	public void shutdown_timeout() throws Exception {
+		OutboundSender sender = new OutboundSender();
+		IRoom room = room(1);
+
+		CompletableFuture<String> future1 = sender.submit(room, (r) -> {
+			throw new ThrottledException(5000, "");
+		});
+		CompletableFuture<String> future2 = sender.submit(room, (r) -> "two");
+
+		assertFalse(sender.shutdown(Duration.ofMillis(100)));
+
+		/*
+		 * The operations that are still queued fail instead of never
+		 * completing.
+		 */
+		assertTrue(future1.isCompletedExceptionally());
+		assertTrue(future2.isCompletedExceptionally());
+	}
+
+	@Test
+	public void throttled_after_shutdown() throws Exception {
+		OutboundSender sender = new OutboundSender();
+		IRoom room = room(1);
+
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> future1 = sender.submit(room, (r) -> {
+			running.countDown();
+
+			//shutdown() interrupts this thread
+			Uninterruptibles.awaitUninterruptibly(release);
+			throw new ThrottledException(100, "");
+		});
+		CompletableFuture<String> future2 = sender.submit(room, (r) -> "two");
+
+		running.await();
+		assertFalse(sender.shutdown(Duration.ZERO));
+		release.countDown();
+
+		/*
+		 * The retry can't be scheduled, so the room's operations fail instead
+		 * of never completing.
+		 */
+		try {
+			future1.get(1, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		try {
+			future2.get(1, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+	}
+
+	private static IRoom room(int roomId) {
+		IRoom room = mock(IRoom.class);
+		when(room.getRoomId()).thenReturn(roomId);
+		return room;
+	}
+
+	private static long elapsed(long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+}
@@ -8,18 +8,31 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.LogManager;
 
 import javax.websocket.ClientEndpointConfig;
 import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler.Whole;
 import javax.websocket.Session;
 import javax.websocket.WebSocketContainer;
 
@@ -28,6 +41,9 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import oakbot.chat.event.Event;
+import oakbot.chat.event.MessagePostedEvent;
+
 /**
  * @author Michael Angstadt
  */
@@ -266,6 +282,333 @@ public class ChatClientTest {
 		verifyHttpClient(httpClient, 4);
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void joinRoom_multiple_rooms_share_web_socket() throws Exception {
+		//@formatter:off
+		CloseableHttpClient httpClient = new MockHttpClientBuilder()
+			.joinRoom(1, "0123456789abcdef0123456789abcdef", "wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247", 1417023460)
+			
+			.request("GET", "https://chat.stackoverflow.com/rooms/2")
+			.response(200, ResponseSamples.chatRoom("0123456789abcdef0123456789abcdef"))
+			
+			.request("POST", "https://chat.stackoverflow.com/chats/2/events",
+				"mode", "messages",
+				"msgCount", "1",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, ResponseSamples.events()
+				.event(1417041460, "message 1", 50, "User1", 2, 20157245)
+			.build())
+			
+			.request("POST", "https://chat.stackoverflow.com/chats/leave/all",
+				"quiet", "true",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, "")
+		.build();
+		//@formatter:on
+
+		List<Whole<String>> handlers = new ArrayList<>();
+		Session session = mock(Session.class);
+		doAnswer((invocation) -> {
+			handlers.add((Whole<String>) invocation.getArguments()[1]);
+			return null;
+		}).when(session).addMessageHandler(eq(String.class), any(Whole.class));
+
+		WebSocketContainer ws = mock(WebSocketContainer.class);
+		when(ws.connectToServer(any(Endpoint.class), any(ClientEndpointConfig.class), any(URI.class))).then((invocation) -> {
+			Endpoint endpoint = (Endpoint) invocation.getArguments()[0];
+			endpoint.onOpen(session, mock(EndpointConfig.class));
+			return session;
+		});
+
+		try (ChatClient client = new ChatClient(httpClient, ws)) {
+			Room room1 = client.joinRoom(1);
+			Room room2 = client.joinRoom(2);
+
+			List<Event> room1Events = new ArrayList<>();
+			room1.addEventListener(room1Events::add);
+			List<Event> room2Events = new ArrayList<>();
+			room2.addEventListener(room2Events::add);
+
+			assertEquals(1, handlers.size());
+
+			//@formatter:off
+			handlers.get(0).onMessage(ResponseSamples.webSocket()
+			.room(1, "Sandbox")
+				.newMessage().id(1).timestamp(1417041460).content("one").user(50, "User").messageId(1).done()
+			.room(2, "Java")
+				.newMessage().id(2).timestamp(1417041460).content("two").user(50, "User").messageId(2).done()
+			.room(3, "Not Joined")
+				.newMessage().id(3).timestamp(1417041460).content("three").user(50, "User").messageId(3).done()
+			.build());
+			//@formatter:on
+
+			assertEquals(1, room1Events.size());
+			assertEquals("one", ((MessagePostedEvent) room1Events.get(0)).getMessage().getContent().getContent());
+			assertEquals(1, room2Events.size());
+			assertEquals("two", ((MessagePostedEvent) room2Events.get(0)).getMessage().getContent().getContent());
+
+			/*
+			 * The connection should stay open as long as there are rooms
+			 * left.
+			 */
+			room2.close();
+			verify(session, never()).close();
+		}
+
+		verify(ws, times(1)).connectToServer(any(Endpoint.class), any(ClientEndpointConfig.class), any(URI.class));
+		verify(session).close();
+		verifyHttpClient(httpClient, 6);
+	}
+
+	@Test
+	public void joinRoom_does_not_block_other_threads_while_connecting() throws Exception {
+		//@formatter:off
+		CloseableHttpClient httpClient = new MockHttpClientBuilder()
+			.joinRoom(1, "0123456789abcdef0123456789abcdef", "wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247", 1417023460)
+			
+			.request("POST", "https://chat.stackoverflow.com/chats/leave/all",
+				"quiet", "true",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, "")
+		.build();
+		//@formatter:on
+
+		CountDownLatch connecting = new CountDownLatch(1);
+		CountDownLatch connect = new CountDownLatch(1);
+		Session session = mock(Session.class);
+		WebSocketContainer ws = mock(WebSocketContainer.class);
+		when(ws.connectToServer(any(Endpoint.class), any(ClientEndpointConfig.class), any(URI.class))).then((invocation) -> {
+			connecting.countDown();
+			connect.await();
+			return session;
+		});
+
+		try (ChatClient client = new ChatClient(httpClient, ws)) {
+			CompletableFuture<Room> join = CompletableFuture.supplyAsync(() -> {
+				try {
+					return client.joinRoom(1);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			assertTrue(connecting.await(5, TimeUnit.SECONDS));
+
+			/*
+			 * The web socket thread and other callers should not have to wait
+			 * for the connection to be made.
+			 */
+			assertTrue(CompletableFuture.supplyAsync(client::getRooms).get(5, TimeUnit.SECONDS).isEmpty());
+			assertNull(CompletableFuture.supplyAsync(() -> client.getRoom(1)).get(5, TimeUnit.SECONDS));
+
+			connect.countDown();
+			Room room = join.get(5, TimeUnit.SECONDS);
+			assertSame(room, client.getRoom(1));
+		}
+
+		verifyHttpClient(httpClient, 4);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void reconnect_and_backfill() throws Exception {
+		//@formatter:off
+		CloseableHttpClient httpClient = new MockHttpClientBuilder()
+			.joinRoom(1, "0123456789abcdef0123456789abcdef", "wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247", 1417023460)
+			
+			//reconnect
+			.request("POST", "https://chat.stackoverflow.com/ws-auth",
+				"roomid", "1",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, ResponseSamples.wsAuth("wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247"))
+			
+			.request("POST", "https://chat.stackoverflow.com/chats/1/events",
+				"mode", "messages",
+				"msgCount", "1",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, ResponseSamples.events()
+				.event(1417023560, "three", 50, "User", 1, 20157248)
+			.build())
+			
+			//backfill
+			.request("POST", "https://chat.stackoverflow.com/chats/1/events",
+				"mode", "messages",
+				"msgCount", "100",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, ResponseSamples.events()
+				.event(1417023460, "content", 50, "UserName", 1, 20157245)
+				.event(1417023500, "one", 50, "User", 1, 20157246)
+				.event(1417023520, "two", 50, "User", 1, 20157247)
+				.event(1417023560, "three", 50, "User", 1, 20157248)
+			.build())
+			
+			.request("POST", "https://chat.stackoverflow.com/chats/leave/all",
+				"quiet", "true",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, "")
+		.build();
+		//@formatter:on
+
+		List<Endpoint> endpoints = new ArrayList<>();
+		List<Whole<String>> handlers = new ArrayList<>();
+		Session session = mock(Session.class);
+		doAnswer((invocation) -> {
+			handlers.add((Whole<String>) invocation.getArguments()[1]);
+			return null;
+		}).when(session).addMessageHandler(eq(String.class), any(Whole.class));
+
+		WebSocketContainer ws = mock(WebSocketContainer.class);
+		when(ws.connectToServer(any(Endpoint.class), any(ClientEndpointConfig.class), any(URI.class))).then((invocation) -> {
+			Endpoint endpoint = (Endpoint) invocation.getArguments()[0];
+			endpoints.add(endpoint);
+			endpoint.onOpen(session, mock(EndpointConfig.class));
+			return session;
+		});
+
+		try (ChatClient client = new ChatClient(httpClient, ws)) {
+			client.setReconnectDelay(Duration.ofMillis(1), Duration.ofMillis(1));
+			Room room = client.joinRoom(1);
+
+			List<MessagePostedEvent> events = new CopyOnWriteArrayList<>();
+			room.addEventListener(MessagePostedEvent.class, events::add);
+
+			endpoints.get(0).onError(session, new IOException());
+
+			long timeout = System.currentTimeMillis() + 5000;
+			while (events.size() < 3 && System.currentTimeMillis() < timeout) {
+				Thread.sleep(10);
+			}
+
+			/*
+			 * Messages that were already published should not be published
+			 * again.
+			 */
+			//@formatter:off
+			handlers.get(1).onMessage(ResponseSamples.webSocket()
+			.room(1, "Sandbox")
+				.newMessage().id(1).timestamp(1417023560).content("three").user(50, "User").messageId(20157248).done()
+				.newMessage().id(2).timestamp(1417023600).content("four").user(50, "User").messageId(20157249).done()
+			.build());
+			//@formatter:on
+
+			List<String> contents = new ArrayList<>();
+			for (MessagePostedEvent event : events) {
+				contents.add(event.getMessage().getContent().getContent());
+			}
+			assertEquals(Arrays.asList("one", "two", "three", "four"), contents);
+		}
+
+		verify(ws, times(2)).connectToServer(any(Endpoint.class), any(ClientEndpointConfig.class), any(URI.class));
+		verify(session, times(2)).close();
+		verifyHttpClient(httpClient, 7);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void reconnect_live_events_published_after_backfill() throws Exception {
+		//@formatter:off
+		CloseableHttpClient httpClient = new MockHttpClientBuilder()
+			.joinRoom(1, "0123456789abcdef0123456789abcdef", "wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247", 1417023460)
+			
+			//reconnect
+			.request("POST", "https://chat.stackoverflow.com/ws-auth",
+				"roomid", "1",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, ResponseSamples.wsAuth("wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247"))
+			
+			.request("POST", "https://chat.stackoverflow.com/chats/1/events",
+				"mode", "messages",
+				"msgCount", "1",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, ResponseSamples.events()
+				.event(1417023560, "three", 50, "User", 1, 20157248)
+			.build())
+			
+			//backfill
+			.request("POST", "https://chat.stackoverflow.com/chats/1/events",
+				"mode", "messages",
+				"msgCount", "100",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, ResponseSamples.events()
+				.event(1417023460, "content", 50, "UserName", 1, 20157245)
+				.event(1417023500, "one", 50, "User", 1, 20157246)
+				.event(1417023520, "two", 50, "User", 1, 20157247)
+				.event(1417023560, "three", 50, "User", 1, 20157248)
+			.build())
+			
+			.request("POST", "https://chat.stackoverflow.com/chats/leave/all",
+				"quiet", "true",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, "")
+		.build();
+		//@formatter:on
+
+		List<Endpoint> endpoints = new ArrayList<>();
+		List<Whole<String>> handlers = new ArrayList<>();
+		Session session = mock(Session.class);
+		doAnswer((invocation) -> {
+			handlers.add((Whole<String>) invocation.getArguments()[1]);
+			return null;
+		}).when(session).addMessageHandler(eq(String.class), any(Whole.class));
+
+		WebSocketContainer ws = mock(WebSocketContainer.class);
+		when(ws.connectToServer(any(Endpoint.class), any(ClientEndpointConfig.class), any(URI.class))).then((invocation) -> {
+			Endpoint endpoint = (Endpoint) invocation.getArguments()[0];
+			endpoints.add(endpoint);
+			endpoint.onOpen(session, mock(EndpointConfig.class));
+
+			if (endpoints.size() == 2) {
+				/*
+				 * A new message arrives over the new connection before the
+				 * missed messages are retrieved.
+				 */
+				//@formatter:off
+				handlers.get(1).onMessage(ResponseSamples.webSocket()
+				.room(1, "Sandbox")
+					.newMessage().id(2).timestamp(1417023600).content("four").user(50, "User").messageId(20157249).done()
+				.build());
+				//@formatter:on
+			}
+			return session;
+		});
+
+		try (ChatClient client = new ChatClient(httpClient, ws)) {
+			client.setReconnectDelay(Duration.ofMillis(1), Duration.ofMillis(1));
+			Room room = client.joinRoom(1);
+
+			List<MessagePostedEvent> events = new CopyOnWriteArrayList<>();
+			room.addEventListener(MessagePostedEvent.class, events::add);
+
+			endpoints.get(0).onError(session, new IOException());
+
+			long timeout = System.currentTimeMillis() + 5000;
+			while (events.size() < 4 && System.currentTimeMillis() < timeout) {
+				Thread.sleep(10);
+			}
+
+			List<String> contents = new ArrayList<>();
+			for (MessagePostedEvent event : events) {
+				contents.add(event.getMessage().getContent().getContent());
+			}
+			assertEquals(Arrays.asList("one", "two", "three", "four"), contents);
+		}
+
+		verify(ws, times(2)).connectToServer(any(Endpoint.class), any(ClientEndpointConfig.class), any(URI.class));
+		verify(session, times(2)).close();
+		verifyHttpClient(httpClient, 7);
+	}
+
 	@Test
 	public void leave_room() throws Exception {
 		//@formatter:off
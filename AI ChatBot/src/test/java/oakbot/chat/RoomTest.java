@@ -23,6 +23,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.LogManager;
 
 import javax.websocket.ClientEndpointConfig;
@@ -45,6 +47,7 @@ import oakbot.chat.event.MessageStarredEvent;
 import oakbot.chat.event.MessagesMovedEvent;
 import oakbot.chat.event.UserEnteredEvent;
 import oakbot.chat.event.UserLeftEvent;
+import oakbot.util.Http.ThrottledException;
 
 /**
  * @author Michael Angstadt
@@ -704,6 +707,56 @@ public class RoomTest {
 		verifyHttpClient(httpClient, 3);
 	}
 
+	@Test
+	public void webSocket_listeners() throws Exception {
+		//@formatter:off
+		CloseableHttpClient httpClient = new MockHttpClientBuilder()
+			.joinRoom(1, "0123456789abcdef0123456789abcdef", "wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247", 1417023460)
+		.build();
+		//@formatter:on
+
+		WebSocketContainer container = mock(WebSocketContainer.class);
+		MockWebSocketServer wsRoom1 = new MockWebSocketServer(container, "wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247?l=1417005460");
+
+		ChatClient chatClient = new ChatClient(httpClient, container);
+		Room room = chatClient.joinRoom(1);
+
+		List<String> calls = new ArrayList<>();
+		room.addEventListener(MessagePostedEvent.class, (event) -> {
+			calls.add("posted " + event.getEventId());
+
+			/*
+			 * Listeners can be added while events are being dispatched. They
+			 * receive the next message.
+			 */
+			if (event.getEventId() == 1) {
+				room.addEventListener(MessagePostedEvent.class, (event2) -> {
+					calls.add("added " + event2.getEventId());
+				});
+			}
+		});
+		room.addEventListener((event) -> {
+			calls.add("all " + event.getEventId());
+		});
+
+		//@formatter:off
+		wsRoom1.send(ResponseSamples.webSocket()
+		.room(1, "Sandbox")
+			.newMessage().id(1).timestamp(1417041460).content("one").user(50, "User").messageId(1).done()
+			.userEntered().id(2).timestamp(1417041460).user(50, "User").done()
+		.build());
+		
+		wsRoom1.send(ResponseSamples.webSocket()
+		.room(1, "Sandbox")
+			.newMessage().id(3).timestamp(1417041460).content("two").user(50, "User").messageId(2).done()
+		.build());
+		//@formatter:on
+
+		assertEquals(Arrays.asList("all 1", "posted 1", "all 2", "all 3", "posted 3", "added 3"), calls);
+
+		verifyHttpClient(httpClient, 3);
+	}
+
 	@Test
 	public void webSocket_listen_for_all_events() throws Exception {
 		//@formatter:off
@@ -1020,6 +1073,87 @@ public class RoomTest {
 		verifyHttpClient(httpClient, 5);
 	}
 
+	@Test
+	public void sendMessageAsync_posting_too_fast() throws Exception {
+		//@formatter:off
+		CloseableHttpClient httpClient = new MockHttpClientBuilder()
+			.joinRoom(1, "0123456789abcdef0123456789abcdef", "wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247", 1417023460)
+			
+			.request("POST", "https://chat.stackoverflow.com/chats/1/messages/new",
+				"text", "one",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(409, "You can perform this action again in 2 seconds")
+			
+			.request("POST", "https://chat.stackoverflow.com/chats/1/messages/new",
+				"text", "one",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(200, ResponseSamples.newMessage(1))
+		.build();
+		//@formatter:on
+
+		WebSocketContainer ws = mock(WebSocketContainer.class);
+		Session session = mock(Session.class);
+		doReturn(session).when(ws).connectToServer(any(Endpoint.class), any(ClientEndpointConfig.class), eq(new URI("wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247?l=1417023460")));
+
+		ChatClient chatClient = new ChatClient(httpClient, ws);
+
+		/*
+		 * This setting only applies to the blocking methods. The bot turns it
+		 * off.
+		 */
+		chatClient.setRetryWhenThrottled(false);
+		Room room1 = chatClient.joinRoom(1);
+
+		/*
+		 * The calling thread does not wait for the retry.
+		 */
+		long start = System.currentTimeMillis();
+		CompletableFuture<List<Long>> future = room1.sendMessageAsync("one", SplitStrategy.NONE);
+		assertTrue(System.currentTimeMillis() - start < 1000);
+
+		assertEquals(Arrays.asList(1L), future.get(5, TimeUnit.SECONDS));
+		assertTrue(System.currentTimeMillis() - start >= 2000);
+
+		verifyHttpClient(httpClient, 5);
+	}
+
+	@Test
+	public void sendMessage_posting_too_fast_no_retry() throws Exception {
+		//@formatter:off
+		CloseableHttpClient httpClient = new MockHttpClientBuilder()
+			.joinRoom(1, "0123456789abcdef0123456789abcdef", "wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247", 1417023460)
+			
+			.request("POST", "https://chat.stackoverflow.com/chats/1/messages/new",
+				"text", "one",
+				"fkey", "0123456789abcdef0123456789abcdef"
+			)
+			.response(409, "You can perform this action again in 2 seconds")
+		.build();
+		//@formatter:on
+
+		WebSocketContainer ws = mock(WebSocketContainer.class);
+		Session session = mock(Session.class);
+		doReturn(session).when(ws).connectToServer(any(Endpoint.class), any(ClientEndpointConfig.class), eq(new URI("wss://chat.sockets.stackexchange.com/events/1/37516a6eb3464228bf48a33088b3c247?l=1417023460")));
+
+		ChatClient chatClient = new ChatClient(httpClient, ws);
+		chatClient.setRetryWhenThrottled(false);
+		Room room1 = chatClient.joinRoom(1);
+
+		long start = System.currentTimeMillis();
+		try {
+			room1.sendMessage("one");
+			fail();
+		} catch (ThrottledException e) {
+			assertEquals(2000, e.getWaitTime());
+		}
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed < 2000);
+
+		verifyHttpClient(httpClient, 4);
+	}
+
 	@Test
 	public void sendMessage_permission_problem() throws Exception {
 		//@formatter:off
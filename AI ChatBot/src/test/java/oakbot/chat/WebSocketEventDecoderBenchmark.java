@@ -0,0 +1,146 @@
+package oakbot.chat;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+import oakbot.chat.ResponseSamples.WebSocketMessageBuilder;
+
+/**
+ * Measures how quickly web socket messages are decoded. Compares
+ * {@link WebSocketEventDecoder}, which decodes the events of every room in a
+ * single pass, to the tree-based decoding that each {@link Room} used to do on
+ * its own copy of the message (parse into a {@link JsonNode} tree, group the
+ * nodes by type, sort them by ID, and extract the chat messages). Run with the
+ * "main" method; it is not part of the unit test suite.
+ * @author Michael Angstadt
+ */
+public class WebSocketEventDecoderBenchmark {
+	private static final int ITERATIONS = 200_000;
+	private static final int ROOMS = 3;
+
+	public static void main(String[] args) throws Exception {
+		List<String> frames = frames();
+		WebSocketEventDecoder decoder = new WebSocketEventDecoder();
+		ObjectMapper mapper = new ObjectMapper();
+
+		//warm up
+		for (int i = 0; i < ITERATIONS / 4; i++) {
+			String frame = frames.get(i % frames.size());
+			decoder.decode(frame);
+			for (int room = 1; room <= ROOMS; room++) {
+				decodeTree(mapper, frame, room);
+			}
+		}
+
+		System.out.println("decoder   | frames/sec | bytes allocated/frame");
+
+		long sink = 0;
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink += decoder.decode(frames.get(i % frames.size())).size();
+		}
+		print("streaming", System.nanoTime() - start, allocatedBytes() - allocatedBefore);
+
+		allocatedBefore = allocatedBytes();
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			String frame = frames.get(i % frames.size());
+			for (int room = 1; room <= ROOMS; room++) {
+				sink += decodeTree(mapper, frame, room).size();
+			}
+		}
+		print("tree", System.nanoTime() - start, allocatedBytes() - allocatedBefore);
+
+		if (sink == 0) {
+			System.out.println();
+		}
+	}
+
+	private static void print(String name, long time, long allocated) {
+		System.out.printf("%-9s | %10d | %21d%n", name, ITERATIONS * 1_000_000_000L / time, allocated / ITERATIONS);
+	}
+
+	/**
+	 * Builds a mix of the kinds of messages the web socket sends. Most of
+	 * them contain events for more than one room, since the web socket sends
+	 * the events of every room the bot is in.
+	 */
+	private static List<String> frames() throws IOException {
+		List<String> frames = new ArrayList<>();
+		long id = 1;
+		for (int i = 0; i < 20; i++) {
+			WebSocketMessageBuilder builder = ResponseSamples.webSocket();
+			for (int room = 1; room <= ROOMS; room++) {
+				builder.room(room, "Room " + room);
+				for (int j = 0; j < i % 3 + 1; j++) {
+					//@formatter:off
+					builder.newMessage()
+						.id(id++)
+						.timestamp(1417041460)
+						.content("Message <b>number</b> " + id + " with some text in it.")
+						.user(50 + j, "User " + j)
+						.messageId(20157245 + id)
+					.done();
+					//@formatter:on
+				}
+			}
+			if (i % 5 == 0) {
+				builder.room(1, "Room 1").userEntered().id(id++).timestamp(1417041460).user(99, "New User").done();
+			}
+			frames.add(builder.build());
+		}
+		return frames;
+	}
+
+	/**
+	 * How web socket messages were decoded before {@link WebSocketEventDecoder}
+	 * was introduced.
+	 */
+	private static List<ChatMessage> decodeTree(ObjectMapper mapper, String json, int roomId) throws IOException {
+		JsonNode node = mapper.readTree(json);
+		JsonNode roomNode = node.get("r" + roomId);
+		if (roomNode == null) {
+			return Collections.emptyList();
+		}
+
+		JsonNode eventsNode = roomNode.get("e");
+		if (eventsNode == null || !eventsNode.isArray()) {
+			return Collections.emptyList();
+		}
+
+		Multimap<Integer, JsonNode> eventsByType = ArrayListMultimap.create();
+		for (JsonNode eventNode : eventsNode) {
+			eventsByType.put(eventNode.get("event_type").asInt(), eventNode);
+		}
+
+		List<JsonNode> eventNodes = new ArrayList<>(eventsByType.values());
+		Collections.sort(eventNodes, (a, b) -> {
+			JsonNode idNode = a.get("id");
+			long id1 = (idNode == null) ? 0 : idNode.asLong();
+			idNode = b.get("id");
+			long id2 = (idNode == null) ? 0 : idNode.asLong();
+			return (id1 < id2) ? -1 : (id1 > id2) ? 1 : 0;
+		});
+
+		List<ChatMessage> messages = new ArrayList<>();
+		for (JsonNode eventNode : eventNodes) {
+			messages.add(WebSocketEventDecoder.parseChatMessage(eventNode));
+		}
+		return messages;
+	}
+
+	@SuppressWarnings("restriction")
+	private static long allocatedBytes() {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,74 @@
+package oakbot.chat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import oakbot.chat.event.Event;
+import oakbot.chat.event.MessagePostedEvent;
+import oakbot.chat.event.UserEnteredEvent;
+
+/**
+ * @author Michael Angstadt
+ */
+public class WebSocketEventDecoderTest {
+	@Test
+	public void multiple_rooms() throws Exception {
+		//@formatter:off
+		String json = ResponseSamples.webSocket()
+		.room(2, "Other")
+			.newMessage().id(1).timestamp(1417041460).content("other").user(50, "User").messageId(1).done()
+		.room(1, "Sandbox")
+			.newMessage().id(3).timestamp(1417041460).content("two").user(50, "User").messageId(3).done()
+			.userEntered().id(2).timestamp(1417041460).user(50, "User").done()
+		.build();
+		//@formatter:on
+
+		Map<Integer, List<Event>> eventsByRoom = new WebSocketEventDecoder().decode(json);
+		assertEquals(Arrays.asList(2, 1), new ArrayList<>(eventsByRoom.keySet()));
+
+		List<Event> events = eventsByRoom.get(2);
+		assertEquals(1, events.size());
+		assertEquals("other", ((MessagePostedEvent) events.get(0)).getMessage().getContent().getContent());
+
+		events = eventsByRoom.get(1);
+		assertEquals(2, events.size());
+
+		/*
+		 * Events are sorted by ID.
+		 */
+		UserEnteredEvent entered = (UserEnteredEvent) events.get(0);
+		assertEquals(2, entered.getEventId());
+		assertEquals(1, entered.getRoomId());
+
+		MessagePostedEvent posted = (MessagePostedEvent) events.get(1);
+		assertEquals(3, posted.getEventId());
+		assertEquals("two", posted.getMessage().getContent().getContent());
+	}
+
+	@Test
+	public void unknown_fields_are_skipped() throws Exception {
+		String json = "{\"r1\":{\"t\":1,\"e\":[{\"event_type\":1,\"id\":1,\"extra\":{\"nested\":[1,2,{}]},\"message_id\":5,\"content\":\"hi\",\"list\":[]}],\"d\":[1]}}";
+
+		List<Event> events = new WebSocketEventDecoder().decode(json).get(1);
+		assertEquals(1, events.size());
+
+		MessagePostedEvent posted = (MessagePostedEvent) events.get(0);
+		assertEquals(5, posted.getMessage().getMessageId());
+		assertEquals("hi", posted.getMessage().getContent().getContent());
+	}
+
+	@Test
+	public void no_rooms() throws Exception {
+		WebSocketEventDecoder decoder = new WebSocketEventDecoder();
+		assertTrue(decoder.decode("{\"r2\":{\"e\":[]}}").isEmpty());
+		assertTrue(decoder.decode("{\"rooms\":{\"e\":[{\"event_type\":1}]}}").isEmpty());
+		assertTrue(decoder.decode("[]").isEmpty());
+	}
+}
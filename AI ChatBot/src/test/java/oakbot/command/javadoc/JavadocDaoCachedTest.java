@@ -2,7 +2,9 @@ package oakbot.command.javadoc;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -11,6 +13,7 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
@@ -23,6 +26,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.google.common.cache.CacheStats;
+
 /**
  * @author Michael Angstadt
  */
@@ -80,6 +85,75 @@ public class JavadocDaoCachedTest {
 		assertNull(info);
 	}
 
+	@Test
+	public void cache_stats() throws Exception {
+		JavadocDaoCached dao = new JavadocDaoCached(root);
+
+		ClassInfo info = dao.getClassInfo("java.util.List");
+		assertSame(info, dao.getClassInfo("java.util.List"));
+		assertNull(dao.getClassInfo("java.lang.Foo"));
+		assertNull(dao.getClassInfo("java.lang.Foo"));
+
+		CacheStats stats = dao.getCacheStats();
+		assertEquals(2, stats.hitCount());
+		assertEquals(2, stats.missCount());
+		assertEquals(0, stats.evictionCount());
+	}
+
+	@Test
+	public void cache_eviction() throws Exception {
+		/*
+		 * Every class has at least one method, so nothing fits in the cache.
+		 */
+		JavadocDaoCached dao = new JavadocDaoCached(root, 1);
+
+		ClassInfo info = dao.getClassInfo("java.util.List");
+		assertNotSame(info, dao.getClassInfo("java.util.List"));
+
+		CacheStats stats = dao.getCacheStats();
+		assertEquals(0, stats.hitCount());
+		assertEquals(2, stats.missCount());
+		assertEquals(2, stats.evictionCount());
+	}
+
+	@Test
+	public void class_names_are_read_from_index() throws Exception {
+		Path dir = temporaryFolder.getRoot().toPath();
+		Path zip = dir.resolve("JavadocZipFileTest.zip");
+		Files.copy(root.resolve("JavadocZipFileTest.zip"), zip);
+
+		/*
+		 * Create an index from a different ZIP file to prove that the index is
+		 * read instead of the ZIP file.
+		 */
+		byte[] index;
+		try (JavadocZipFile other = new JavadocZipFile(root.resolve("JavadocZipFileTest-javadocUrlPattern.zip"))) {
+			index = JavadocIndexWriter.compile(other, Files.size(zip), Files.getLastModifiedTime(zip).toMillis());
+		}
+		Files.write(JavadocIndex.getIndexFile(zip), index);
+
+		JavadocDaoCached dao = new JavadocDaoCached(dir);
+		assertEquals(Arrays.asList("android.app.Application"), new ArrayList<>(dao.search("application")));
+		assertTrue(dao.search("list").isEmpty());
+	}
+
+	@Test
+	public void stale_index_is_ignored() throws Exception {
+		Path dir = temporaryFolder.getRoot().toPath();
+		Path zip = dir.resolve("JavadocZipFileTest.zip");
+		Files.copy(root.resolve("JavadocZipFileTest.zip"), zip);
+
+		byte[] index;
+		try (JavadocZipFile other = new JavadocZipFile(root.resolve("JavadocZipFileTest-javadocUrlPattern.zip"))) {
+			index = JavadocIndexWriter.compile(other, Files.size(zip), Files.getLastModifiedTime(zip).toMillis() - 5000);
+		}
+		Files.write(JavadocIndex.getIndexFile(zip), index);
+
+		JavadocDaoCached dao = new JavadocDaoCached(dir);
+		assertTrue(dao.search("application").isEmpty());
+		assertEquals("java.util.List", dao.getClassInfo("java.util.List").getName().getFullyQualifiedName());
+	}
+
 	@Test
 	public void directory_watcher_ignore_non_zip_files() throws Exception {
 		Path dir = temporaryFolder.getRoot().toPath();
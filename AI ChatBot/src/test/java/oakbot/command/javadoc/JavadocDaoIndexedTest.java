@@ -0,0 +1,116 @@
+package oakbot.command.javadoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.LogManager;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael Angstadt
+ */
+public class JavadocDaoIndexedTest {
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final Path root = Paths.get("src", "test", "resources", "oakbot", "command", "javadoc");
+	private Path dir, zip, index;
+
+	@BeforeClass
+	public static void beforeClass() {
+		//turn off logging
+		LogManager.getLogManager().reset();
+	}
+
+	@Before
+	public void before() throws Exception {
+		dir = temporaryFolder.getRoot().toPath();
+		zip = dir.resolve("JavadocZipFileTest.zip");
+		index = dir.resolve("JavadocZipFileTest.zip.idx");
+		Files.copy(root.resolve("JavadocZipFileTest.zip"), zip);
+	}
+
+	@Test
+	public void search() throws Exception {
+		JavadocDaoIndexed dao = new JavadocDaoIndexed(dir);
+
+		Set<String> expected = new HashSet<>(Arrays.asList("java.awt.List", "java.util.List"));
+		assertEquals(expected, new HashSet<>(dao.search("list")));
+		assertEquals(new HashSet<>(Arrays.asList("java.awt.List")), new HashSet<>(dao.search("java.awt.list")));
+		assertTrue(dao.search("lsit").isEmpty());
+	}
+
+	@Test
+	public void getClassInfo() throws Exception {
+		JavadocDaoIndexed dao = new JavadocDaoIndexed(dir);
+
+		ClassInfo info = dao.getClassInfo("java.util.List");
+		assertEquals("java.util.List", info.getName().getFullyQualifiedName());
+		assertEquals("https://docs.oracle.com/javase/8/docs/api/java/util/List.html", info.getUrl(false));
+
+		assertNull(dao.getClassInfo("java.util.list"));
+		assertNull(dao.getClassInfo("java.lang.Foo"));
+	}
+
+	@Test
+	public void index_is_saved_and_reused() throws Exception {
+		new JavadocDaoIndexed(dir);
+		assertTrue(Files.exists(index));
+
+		/*
+		 * The index is read instead of the ZIP file.
+		 */
+		FileTime indexModified = Files.getLastModifiedTime(index);
+		Thread.sleep(1100);
+		JavadocDaoIndexed dao = new JavadocDaoIndexed(dir);
+		assertEquals(indexModified, Files.getLastModifiedTime(index));
+		assertEquals("java.util.List", dao.getClassInfo("java.util.List").getName().getFullyQualifiedName());
+	}
+
+	@Test
+	public void index_is_recreated_when_zip_file_changes() throws Exception {
+		new JavadocDaoIndexed(dir);
+		FileTime indexModified = Files.getLastModifiedTime(index);
+
+		Files.setLastModifiedTime(zip, FileTime.fromMillis(Files.getLastModifiedTime(zip).toMillis() + 5000));
+		Thread.sleep(1100);
+		JavadocDaoIndexed dao = new JavadocDaoIndexed(dir);
+		assertTrue(Files.getLastModifiedTime(index).compareTo(indexModified) > 0);
+		assertEquals("java.util.List", dao.getClassInfo("java.util.List").getName().getFullyQualifiedName());
+	}
+
+	@Test
+	public void corrupt_index_is_recreated() throws Exception {
+		Files.write(index, new byte[] { 1, 2, 3 });
+
+		JavadocDaoIndexed dao = new JavadocDaoIndexed(dir);
+		assertEquals("java.util.List", dao.getClassInfo("java.util.List").getName().getFullyQualifiedName());
+		assertTrue(Files.size(index) > 3);
+	}
+
+	@Test
+	public void truncated_index_is_recreated() throws Exception {
+		byte[] data;
+		try (JavadocZipFile zipFile = new JavadocZipFile(zip)) {
+			data = JavadocIndexWriter.compile(zipFile, Files.size(zip), Files.getLastModifiedTime(zip).toMillis());
+		}
+		Files.write(index, Arrays.copyOf(data, data.length - 10));
+
+		JavadocDaoIndexed dao = new JavadocDaoIndexed(dir);
+		assertEquals("java.util.List", dao.getClassInfo("java.util.List").getName().getFullyQualifiedName());
+		assertEquals(data.length, Files.size(index));
+	}
+}
@@ -0,0 +1,156 @@
+package oakbot.command.javadoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class JavadocIndexTest {
+	private final Path file = Paths.get("src", "test", "resources", "oakbot", "command", "javadoc", "JavadocZipFileTest.zip");
+
+	@Test
+	public void same_as_zip_file() throws Exception {
+		try (JavadocZipFile zip = new JavadocZipFile(file)) {
+			JavadocIndex index = new JavadocIndex(ByteBuffer.wrap(JavadocIndexWriter.compile(zip, 1, 2)), file);
+
+			assertTrue(index.isUpToDate(1, 2));
+			assertFalse(index.isUpToDate(1, 3));
+
+			JavadocZipFile indexZip = index.getZipFile();
+			assertEquals(zip.getName(), indexZip.getName());
+			assertEquals(zip.getVersion(), indexZip.getVersion());
+			assertEquals(zip.getBaseUrl(), indexZip.getBaseUrl());
+			assertEquals(zip.getProjectUrl(), indexZip.getProjectUrl());
+
+			List<String> expectedNames = new ArrayList<>();
+			for (ClassName className : zip.getClassNames()) {
+				expectedNames.add(className.getFullyQualifiedName());
+			}
+			expectedNames.sort(null);
+
+			List<String> actualNames = new ArrayList<>();
+			for (ClassName className : index.getClassNames()) {
+				actualNames.add(className.getFullyQualifiedName());
+			}
+			assertEquals(expectedNames, actualNames);
+			assertEquals(expectedNames.size(), index.size());
+
+			for (String name : expectedNames) {
+				assertClassInfo(zip.getClassInfo(name), index.getClassInfo(name));
+			}
+		}
+	}
+
+	@Test
+	public void getClassInfo_not_found() throws Exception {
+		try (JavadocZipFile zip = new JavadocZipFile(file)) {
+			JavadocIndex index = new JavadocIndex(ByteBuffer.wrap(JavadocIndexWriter.compile(zip, 1, 2)), file);
+			assertNull(index.getClassInfo("java.lang.Foo"));
+			assertNull(index.getClassInfo("java.util.list"));
+			assertNull(index.getClassInfo("java"));
+			assertNull(index.getClassInfo("zzz"));
+		}
+	}
+
+	@Test
+	public void methods_are_decoded_once() throws Exception {
+		try (JavadocZipFile zip = new JavadocZipFile(file)) {
+			JavadocIndex index = new JavadocIndex(ByteBuffer.wrap(JavadocIndexWriter.compile(zip, 1, 2)), file);
+			ClassInfo info = index.getClassInfo("java.util.List");
+
+			MethodInfo method = info.getMethod("add").iterator().next();
+			assertSame(method, info.getMethods().stream().filter(m -> m.getName().equals("add")).findFirst().get());
+			assertSame(method, info.getMethod("ADD").iterator().next());
+		}
+	}
+
+	@Test
+	public void not_an_index() {
+		try {
+			new JavadocIndex(ByteBuffer.wrap(new byte[100]), file);
+			fail();
+		} catch (IOException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void truncated_string_pool() throws Exception {
+		byte[] data;
+		try (JavadocZipFile zip = new JavadocZipFile(file)) {
+			data = JavadocIndexWriter.compile(zip, 1, 2);
+		}
+
+		try {
+			new JavadocIndex(ByteBuffer.wrap(data, 0, data.length - 10).slice(), file);
+			fail();
+		} catch (IOException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void bad_string_reference() throws Exception {
+		byte[] data;
+		try (JavadocZipFile zip = new JavadocZipFile(file)) {
+			data = JavadocIndexWriter.compile(zip, 1, 2);
+		}
+
+		/*
+		 * Point the package name of the first class record past the end of
+		 * the string pool.
+		 */
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		int classCount = buffer.getInt(44);
+		int firstRecord = JavadocIndex.HEADER_SIZE + classCount * 8 + buffer.getInt(JavadocIndex.HEADER_SIZE + 4);
+		buffer.putInt(firstRecord, Integer.MAX_VALUE - 2);
+
+		JavadocIndex index = new JavadocIndex(buffer, file);
+		try {
+			index.getClassNames();
+			fail();
+		} catch (IOException e) {
+			//expected
+		}
+	}
+
+	private static void assertClassInfo(ClassInfo expected, ClassInfo actual) {
+		assertEquals(expected.getName().getFullyQualifiedName(), actual.getName().getFullyQualifiedName());
+		assertEquals(expected.getName().getPackageName(), actual.getName().getPackageName());
+		assertEquals(String.valueOf(expected.getSuperClass()), String.valueOf(actual.getSuperClass()));
+		assertEquals(expected.getSince(), actual.getSince());
+		assertEquals(expected.getDescription(), actual.getDescription());
+		assertEquals(expected.getModifiers(), actual.getModifiers());
+		assertEquals(expected.getInterfaces().toString(), actual.getInterfaces().toString());
+		assertEquals(expected.isDeprecated(), actual.isDeprecated());
+		assertEquals(expected.getUrl(false), actual.getUrl(false));
+
+		assertEquals(expected.getMethods().size(), actual.getMethods().size());
+		Iterator<MethodInfo> it = actual.getMethods().iterator();
+		for (MethodInfo expectedMethod : expected.getMethods()) {
+			MethodInfo actualMethod = it.next();
+			assertEquals(expectedMethod.getSignature(), actualMethod.getSignature());
+			assertEquals(expectedMethod.getSignatureString(), actualMethod.getSignatureString());
+			assertEquals(expectedMethod.getUrlAnchor(), actualMethod.getUrlAnchor());
+			assertEquals(expectedMethod.getSince(), actualMethod.getSince());
+			assertEquals(expectedMethod.getDescription(), actualMethod.getDescription());
+			assertEquals(expectedMethod.getModifiers(), actualMethod.getModifiers());
+			assertEquals(expectedMethod.isDeprecated(), actualMethod.isDeprecated());
+		}
+	}
+}
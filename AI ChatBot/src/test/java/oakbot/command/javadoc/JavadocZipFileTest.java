@@ -2,15 +2,21 @@ package oakbot.command.javadoc;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Test;
 
@@ -97,6 +103,57 @@ public class JavadocZipFileTest {
 		assertEquals("Object", info.getName().getSimpleName());
 	}
 
+	@Test
+	public void getClassInfo_after_close() throws Exception {
+		JavadocZipFile zip = load("");
+		assertEquals("java.util.List", zip.getClassInfo("java.util.List").getName().getFullyQualifiedName());
+
+		//the ZIP file is not reopened
+		zip.close();
+		try {
+			zip.getClassInfo("java.util.List");
+			fail();
+		} catch (IOException e) {
+			//expected
+		}
+		zip.close();
+	}
+
+	@Test(timeout = 10000)
+	public void close_while_reading() throws Exception {
+		JavadocZipFile zip = load("");
+		List<Throwable> unexpected = new CopyOnWriteArrayList<>();
+		CountDownLatch reading = new CountDownLatch(4);
+
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			Thread t = new Thread(() -> {
+				reading.countDown();
+				while (true) {
+					try {
+						zip.getClassInfo("java.util.List");
+					} catch (IOException e) {
+						//closed
+						return;
+					} catch (Throwable t2) {
+						unexpected.add(t2);
+						return;
+					}
+				}
+			});
+			t.start();
+			threads.add(t);
+		}
+
+		reading.await();
+		zip.close();
+		for (Thread t : threads) {
+			t.join();
+		}
+
+		assertEquals(Collections.emptyList(), unexpected);
+	}
+
 	private static JavadocZipFile load(String suffix) throws IOException, URISyntaxException {
 		URI uri = JavadocZipFileTest.class.getResource(JavadocZipFileTest.class.getSimpleName() + suffix + ".zip").toURI();
 		Path file = Paths.get(uri);
@@ -0,0 +1,119 @@
+package oakbot.command.learn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import oakbot.Database;
+
+/**
+ * @author Michael Angstadt
+ */
+public class LearnedCommandsTest {
+	@Test
+	public void case_insensitive() {
+		LearnedCommands commands = new LearnedCommands();
+		commands.add("Foo", "bar");
+
+		assertTrue(commands.contains("foo"));
+		assertEquals("Foo", commands.get("FOO").name());
+		assertEquals("bar", commands.get("fOo").output());
+
+		assertTrue(commands.remove("FOO"));
+		assertFalse(commands.contains("foo"));
+		assertFalse(commands.remove("foo"));
+	}
+
+	@Test
+	public void iteration_order() {
+		LearnedCommands commands = new LearnedCommands();
+		commands.add("b", "1");
+		commands.add("a", "2");
+		commands.add("c", "3");
+		commands.remove("a");
+
+		List<String> names = new ArrayList<>();
+		for (LearnedCommand command : commands) {
+			names.add(command.name());
+		}
+		assertEquals(Arrays.asList("b", "c"), names);
+	}
+
+	@Test
+	public void persistence() {
+		MemoryDatabase db = new MemoryDatabase();
+
+		LearnedCommands commands = new LearnedCommands(db);
+		commands.add("Foo", "bar");
+		commands.add("baz", "qux");
+		commands.remove("BAZ");
+
+		Map<String, Object> expected = new HashMap<>();
+		expected.put("Foo", "bar");
+		assertEquals(expected, db.get("learned-commands"));
+		assertEquals(3, db.changes);
+
+		commands = new LearnedCommands(db);
+		assertEquals("bar", commands.get("foo").output());
+		assertNull(commands.get("baz"));
+	}
+
+	@Test
+	public void legacy_format() {
+		MemoryDatabase db = new MemoryDatabase();
+
+		Map<String, String> command = new HashMap<>();
+		command.put("name", "Foo");
+		command.put("output", "bar");
+		db.set("learned-commands", Arrays.asList(command));
+
+		LearnedCommands commands = new LearnedCommands(db);
+		assertEquals("bar", commands.get("foo").output());
+
+		Map<String, Object> expected = new HashMap<>();
+		expected.put("Foo", "bar");
+		assertEquals(expected, db.get("learned-commands"));
+	}
+
+	private static class MemoryDatabase implements Database {
+		private final Map<String, Object> fields = new LinkedHashMap<>();
+		private int changes;
+
+		@Override
+		public Object get(String key) {
+			return fields.get(key);
+		}
+
+		@Override
+		public void set(String key, Object value) {
+			fields.put(key, value);
+		}
+
+		@Override
+		public void setMapEntry(String key, String field, Object value) {
+			changes++;
+			Database.super.setMapEntry(key, field, value);
+		}
+
+		@Override
+		public void removeMapEntry(String key, String field) {
+			changes++;
+			Database.super.removeMapEntry(key, field);
+		}
+
+		@Override
+		public void commit() {
+			//empty
+		}
+	}
+}
@@ -72,4 +72,26 @@ public class MentionListenerTest {
 		response = listener.onMessage(chatMessage, context);
 		assertNotNull(response);
 	}
+
+	@Test
+	public void ignore_next_message_other_thread() throws Exception {
+		//@formatter:off
+		ChatMessage chatMessage = new ChatMessage.Builder()
+			.content("Hey @Oakbot")
+		.build();
+		//@formatter:on
+
+		MentionListener listener = new MentionListener("OakBot");
+
+		/*
+		 * A message being handled on another thread (e.g. from another room)
+		 * should not be affected.
+		 */
+		Thread thread = new Thread(listener::ignoreNextMessage);
+		thread.start();
+		thread.join();
+
+		ChatResponse response = listener.onMessage(chatMessage, context);
+		assertNotNull(response);
+	}
 }
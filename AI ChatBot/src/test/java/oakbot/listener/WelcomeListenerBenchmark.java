@@ -0,0 +1,155 @@
+package oakbot.listener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import oakbot.util.IntSet;
+
+/**
+ * <p>
+ * Measures how much memory {@link WelcomeListener} needs to remember the
+ * users it has seen. Compares {@link IntSet} to the {@code HashSet<Integer>}
+ * that the listener used to use. Run with the "main" method; it is not part
+ * of the unit test suite.
+ * </p>
+ * <p>
+ * The database backends keep their own copy of each room's user IDs in memory
+ * as a {@code List<Integer>} (this is what they load from disk), so that copy
+ * is measured too. The "total" columns show how much memory the bot uses per
+ * room before and after switching to {@link IntSet}, counting both copies.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class WelcomeListenerBenchmark {
+	private static final int ROOMS = 10;
+
+	public static void main(String[] args) {
+		System.out.println("users per room | IntSet (KB) | HashSet<Integer> (KB) | DB List<Integer> (KB) | total before (KB) | total after (KB)");
+		for (int users : new int[] { 1_000, 10_000, 50_000, 100_000 }) {
+			int[][] userIds = userIds(users);
+
+			long intSetBytes = measure(() -> intSets(userIds));
+			long hashSetBytes = measure(() -> hashSets(dbLists(userIds)));
+			long dbListBytes = measure(() -> dbLists(userIds));
+
+			/*
+			 * Before, the HashSets were filled from the database's lists, so
+			 * they shared the same Integer objects.
+			 */
+			long beforeBytes = measure(() -> {
+				Map<String, List<Object>> dbLists = dbLists(userIds);
+				return Arrays.asList(dbLists, hashSets(dbLists));
+			});
+			long afterBytes = measure(() -> Arrays.asList(dbLists(userIds), intSets(userIds)));
+
+			//@formatter:off
+			System.out.printf("%14d | %11d | %21d | %21d | %17d | %16d%n", users,
+				kbPerRoom(intSetBytes),
+				kbPerRoom(hashSetBytes),
+				kbPerRoom(dbListBytes),
+				kbPerRoom(beforeBytes),
+				kbPerRoom(afterBytes)
+			);
+			//@formatter:on
+		}
+
+		System.out.println();
+		System.out.println("Note: IntSet only shrinks the listener's copy of the user IDs. The database still holds each room's IDs as a boxed List<Integer>.");
+	}
+
+	private static Map<Integer, IntSet> intSets(int[][] userIds) {
+		Map<Integer, IntSet> map = new HashMap<>();
+		for (int room = 0; room < ROOMS; room++) {
+			IntSet set = new IntSet();
+			for (int userId : userIds[room]) {
+				set.add(userId);
+			}
+			map.put(room, set);
+		}
+		return map;
+	}
+
+	private static Map<Integer, Set<Integer>> hashSets(Map<String, List<Object>> dbLists) {
+		Map<Integer, Set<Integer>> map = new HashMap<>();
+		for (int room = 0; room < ROOMS; room++) {
+			Set<Integer> set = new HashSet<>();
+			for (Object userId : dbLists.get("welcome-" + room)) {
+				set.add((Integer) userId);
+			}
+			map.put(room, set);
+		}
+		return map;
+	}
+
+	/**
+	 * Creates the lists that the database backends keep in memory (what they
+	 * load from disk).
+	 */
+	private static Map<String, List<Object>> dbLists(int[][] userIds) {
+		Map<String, List<Object>> fields = new HashMap<>();
+		for (int room = 0; room < ROOMS; room++) {
+			List<Object> list = new ArrayList<>();
+			for (int userId : userIds[room]) {
+				list.add(Integer.valueOf(userId));
+			}
+			fields.put("welcome-" + room, list);
+		}
+		return fields;
+	}
+
+	private static long kbPerRoom(long bytes) {
+		return bytes / ROOMS / 1024;
+	}
+
+	/**
+	 * Generates realistic user IDs (large numbers, in no particular order).
+	 */
+	private static int[][] userIds(int users) {
+		Random random = new Random(1);
+		int[][] userIds = new int[ROOMS][users];
+		for (int room = 0; room < ROOMS; room++) {
+			for (int i = 0; i < users; i++) {
+				userIds[room][i] = 100_000 + random.nextInt(10_000_000);
+			}
+		}
+		return userIds;
+	}
+
+	/**
+	 * Measures the amount of heap space an object graph uses.
+	 * @param factory creates the object graph
+	 * @return the number of bytes
+	 */
+	private static long measure(Supplier<Object> factory) {
+		List<Object> keep = new ArrayList<>();
+		long before = usedMemory();
+		keep.add(factory.get());
+		long after = usedMemory();
+		keep.clear();
+		return after - before;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			//take the lowest reading in case garbage was created in between
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+}
@@ -0,0 +1,141 @@
+package oakbot.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import oakbot.Database;
+import oakbot.bot.BotContext;
+import oakbot.bot.ChatResponse;
+import oakbot.chat.ChatMessage;
+import oakbot.chat.IChatClient;
+import oakbot.chat.IRoom;
+import oakbot.chat.UserInfo;
+
+/**
+ * @author Michael Angstadt
+ */
+public class WelcomeListenerTest {
+	@Test
+	public void welcome_new_users() throws Exception {
+		MemoryDatabase db = new MemoryDatabase();
+		db.set("welcome-1", new ArrayList<>(Arrays.asList(100)));
+
+		WelcomeListener listener = new WelcomeListener(db, Collections.singletonMap(1, "Welcome!"));
+		BotContext context = context(1);
+
+		assertNull(listener.onMessage(message(1, 100), context));
+
+		ChatResponse response = listener.onMessage(message(1, 200), context);
+		assertNotNull(response);
+		assertEquals(":1 Welcome!", response.getMessage());
+		assertNull(listener.onMessage(message(1, 200), context));
+
+		/*
+		 * Only the new user ID should have been persisted.
+		 */
+		assertEquals(Arrays.asList(200), db.added);
+		assertEquals(Arrays.asList(100, 200), db.get("welcome-1"));
+	}
+
+	@Test
+	public void ignore_rooms_without_welcome_message() throws Exception {
+		MemoryDatabase db = new MemoryDatabase();
+
+		WelcomeListener listener = new WelcomeListener(db, Collections.singletonMap(1, "Welcome!"));
+		assertNull(listener.onMessage(message(2, 200), context(2)));
+		assertEquals(Collections.emptyList(), db.added);
+	}
+
+	@Test
+	public void convert_legacy_data() throws Exception {
+		MemoryDatabase db = new MemoryDatabase();
+		{
+			Map<String, Object> room = new HashMap<>();
+			room.put("users", Arrays.asList(100, 101));
+
+			Map<String, Object> welcome = new HashMap<>();
+			welcome.put("1", room);
+			db.set("welcome", welcome);
+		}
+
+		WelcomeListener listener = new WelcomeListener(db, Collections.singletonMap(1, "Welcome!"));
+		assertFalse(db.fields.containsKey("welcome"));
+		assertEquals(Arrays.asList(100, 101), db.get("welcome-1"));
+
+		BotContext context = context(1);
+		assertNull(listener.onMessage(message(1, 101), context));
+	}
+
+	private static ChatMessage message(int roomId, int userId) {
+		//@formatter:off
+		return new ChatMessage.Builder()
+			.messageId(1)
+			.roomId(roomId)
+			.userId(userId)
+			.content("Hello")
+		.build();
+		//@formatter:on
+	}
+
+	private static BotContext context(int roomId) throws Exception {
+		//@formatter:off
+		UserInfo userInfo = new UserInfo.Builder()
+			.reputation(1)
+		.build();
+		//@formatter:on
+
+		IRoom room = mock(IRoom.class);
+		when(room.getUserInfo(anyListOf(Integer.class))).thenReturn(Arrays.asList(userInfo));
+
+		IChatClient connection = mock(IChatClient.class);
+		when(connection.getRoom(roomId)).thenReturn(room);
+
+		return new BotContext(false, "/", connection, Collections.emptyList(), Collections.emptyList(), 0);
+	}
+
+	private static class MemoryDatabase implements Database {
+		private final Map<String, Object> fields = new LinkedHashMap<>();
+		private final List<Object> added = new ArrayList<>();
+
+		@Override
+		public Object get(String key) {
+			return fields.get(key);
+		}
+
+		@Override
+		public void set(String key, Object value) {
+			fields.put(key, value);
+		}
+
+		@Override
+		public void remove(String key) {
+			fields.remove(key);
+		}
+
+		@Override
+		public void addListItem(String key, Object item) {
+			added.add(item);
+			Database.super.addListItem(key, item);
+		}
+
+		@Override
+		public void commit() {
+			//empty
+		}
+	}
+}
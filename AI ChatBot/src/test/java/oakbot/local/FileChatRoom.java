@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
@@ -137,6 +138,11 @@ public class FileChatRoom implements IRoom {
 		return Arrays.asList(id);
 	}
 
+	@Override
+	public CompletableFuture<List<Long>> sendMessageAsync(String message, SplitStrategy splitStrategy) {
+		return CompletableFuture.completedFuture(sendMessage(message, splitStrategy));
+	}
+
 	/**
 	 * Posts a message to a chat room.
 	 * @param roomId the room ID
@@ -187,11 +193,23 @@ public class FileChatRoom implements IRoom {
 		System.out.println(roomId + " > " + botUsername + " > (deleted message " + messageId + ")");
 	}
 
+	@Override
+	public CompletableFuture<Void> deleteMessageAsync(long messageId) {
+		System.out.println(roomId + " > " + botUsername + " > (deleted message " + messageId + ")");
+		return CompletableFuture.completedFuture(null);
+	}
+
 	@Override
 	public void editMessage(long messageId, String updatedMessage) throws RoomNotFoundException, RoomPermissionException, IOException {
 		System.out.println(roomId + " > " + botUsername + " > (edited message " + messageId + "): " + updatedMessage);
 	}
 
+	@Override
+	public CompletableFuture<Void> editMessageAsync(long messageId, String updatedMessage) {
+		System.out.println(roomId + " > " + botUsername + " > (edited message " + messageId + "): " + updatedMessage);
+		return CompletableFuture.completedFuture(null);
+	}
+
 	@Override
 	public List<UserInfo> getUserInfo(List<Integer> userIds) throws IOException {
 		//@formatter:off
@@ -206,6 +224,17 @@ public class FileChatRoom implements IRoom {
 		//@formatter:on
 	}
 
+	@Override
+	public CompletableFuture<List<UserInfo>> getUserInfoAsync(List<Integer> userIds) {
+		try {
+			return CompletableFuture.completedFuture(getUserInfo(userIds));
+		} catch (IOException e) {
+			CompletableFuture<List<UserInfo>> future = new CompletableFuture<>();
+			future.completeExceptionally(e);
+			return future;
+		}
+	}
+
 	@Override
 	public List<PingableUser> getPingableUsers() throws IOException {
 		//@formatter:off
@@ -216,6 +245,17 @@ public class FileChatRoom implements IRoom {
 		//@formatter:on
 	}
 
+	@Override
+	public CompletableFuture<List<PingableUser>> getPingableUsersAsync() {
+		try {
+			return CompletableFuture.completedFuture(getPingableUsers());
+		} catch (IOException e) {
+			CompletableFuture<List<PingableUser>> future = new CompletableFuture<>();
+			future.completeExceptionally(e);
+			return future;
+		}
+	}
+
 	@Override
 	public RoomInfo getRoomInfo() throws IOException {
 		return new RoomInfo(roomId, "name", "description", Arrays.asList("one", "two", "three"));
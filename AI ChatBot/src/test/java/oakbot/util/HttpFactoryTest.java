@@ -0,0 +1,163 @@
+package oakbot.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @author Michael Angstadt
+ */
+@SuppressWarnings("restriction")
+public class HttpFactoryTest {
+	private HttpServer server;
+	private String url;
+
+	@Before
+	public void before() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", (exchange) -> {
+			byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.createContext("/missing", (exchange) -> {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+		});
+		server.createContext("/slow", (exchange) -> {
+			try {
+				Thread.sleep(1000);
+			} catch (InterruptedException ignored) {
+			}
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+		});
+		server.start();
+
+		url = "http://localhost:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void after() {
+		server.stop(0);
+	}
+
+	@Test
+	public void connections_are_reused() throws Exception {
+		try (HttpFactory factory = new HttpFactory.Builder().build()) {
+			CloseableHttpClient client = factory.getClient();
+			CloseableHttpClient client2 = factory.newClient(new BasicCookieStore());
+
+			for (int i = 0; i < 5; i++) {
+				assertEquals("ok", get(client, url + "/"));
+				assertEquals("ok", get(client2, url + "/"));
+			}
+
+			PoolStats stats = factory.getStats();
+			assertEquals(0, stats.getLeased());
+			assertEquals(1, stats.getAvailable());
+
+			Map<HttpRoute, PoolStats> routeStats = factory.getRouteStats();
+			assertEquals(1, routeStats.size());
+			assertEquals(1, routeStats.values().iterator().next().getAvailable());
+
+			/*
+			 * Closing a client that has its own cookies does not close the
+			 * pool.
+			 */
+			client2.close();
+			assertEquals("ok", get(client, url + "/"));
+		}
+	}
+
+	@Test
+	public void get_request() throws Exception {
+		try (HttpFactory factory = new HttpFactory.Builder().build()) {
+			try (InputStream in = factory.get(url + "/")) {
+				assertEquals("ok", new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8));
+			}
+
+			try {
+				factory.get(url + "/missing");
+				fail();
+			} catch (IOException e) {
+				//expected
+			}
+
+			PoolStats stats = factory.getStats();
+			assertEquals(0, stats.getLeased());
+		}
+	}
+
+	@Test
+	public void read_timeout() throws Exception {
+		//@formatter:off
+		HttpFactory factory = new HttpFactory.Builder()
+			.readTimeout(Duration.ofMillis(100))
+		.build();
+		//@formatter:on
+
+		try {
+			get(factory.getClient(), url + "/slow");
+			fail();
+		} catch (SocketTimeoutException e) {
+			//expected
+		} finally {
+			factory.close();
+		}
+	}
+
+	@Test
+	public void idle_connections_are_closed() throws Exception {
+		//@formatter:off
+		HttpFactory factory = new HttpFactory.Builder()
+			.idleTimeout(Duration.ofMillis(1))
+			.keepAlive(Duration.ofMillis(1))
+		.build();
+		//@formatter:on
+
+		try {
+			assertEquals("ok", get(factory.getClient(), url + "/"));
+			assertEquals(1, factory.getStats().getAvailable());
+
+			//the eviction thread runs every second
+			long start = System.currentTimeMillis();
+			while (factory.getStats().getAvailable() > 0 && System.currentTimeMillis() - start < 5000) {
+				Thread.sleep(50);
+			}
+			assertEquals(0, factory.getStats().getAvailable());
+		} finally {
+			factory.close();
+		}
+	}
+
+	private static String get(CloseableHttpClient client, String url) throws IOException {
+		try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+			return EntityUtils.toString(response.getEntity());
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package oakbot.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.Test;
+
+import oakbot.util.Http.Response;
+
+/**
+ * @author Michael Angstadt
+ */
+public class HttpTest {
+	@Test
+	public void sync_requests_are_sent_on_calling_thread() throws Exception {
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		CloseableHttpClient client = client(threads);
+
+		try (Http http = new Http(client)) {
+			Response response = http.get("http://localhost");
+			assertEquals(200, response.getStatusCode());
+			assertEquals("ok", response.getBody());
+			assertSame(Thread.currentThread(), threads.get(0));
+
+			response = http.getAsync("http://localhost").get(5, TimeUnit.SECONDS);
+			assertEquals("ok", response.getBody());
+			assertNotSame(Thread.currentThread(), threads.get(1));
+		}
+	}
+
+	@Test
+	public void async_requests_fail_after_close() throws Exception {
+		CloseableHttpClient client = client(new CopyOnWriteArrayList<>());
+
+		Http http = new Http(client);
+		http.close();
+
+		CompletableFuture<Response> future = http.getAsync("http://localhost");
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+	}
+
+	private static CloseableHttpClient client(List<Thread> threads) throws Exception {
+		CloseableHttpClient client = mock(CloseableHttpClient.class);
+		doAnswer((invocation) -> {
+			threads.add(Thread.currentThread());
+
+			StatusLine statusLine = mock(StatusLine.class);
+			when(statusLine.getStatusCode()).thenReturn(200);
+
+			CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+			when(response.getStatusLine()).thenReturn(statusLine);
+			when(response.getEntity()).thenReturn(new StringEntity("ok"));
+			return response;
+		}).when(client).execute(any(HttpUriRequest.class));
+		return client;
+	}
+}
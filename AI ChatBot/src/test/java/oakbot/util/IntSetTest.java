@@ -0,0 +1,68 @@
+package oakbot.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class IntSetTest {
+	@Test
+	public void add() {
+		IntSet set = new IntSet();
+		assertTrue(set.add(5));
+		assertTrue(set.add(-1));
+		assertTrue(set.add(10));
+		assertFalse(set.add(5));
+
+		assertEquals(3, set.size());
+		assertEquals(Arrays.asList(-1, 5, 10), set.asList());
+	}
+
+	@Test
+	public void contains() {
+		IntSet set = new IntSet(Arrays.asList(3, 1, 2));
+		assertTrue(set.contains(1));
+		assertTrue(set.contains(2));
+		assertTrue(set.contains(3));
+		assertFalse(set.contains(0));
+		assertFalse(set.contains(4));
+	}
+
+	@Test
+	public void constructor_removes_duplicates() {
+		IntSet set = new IntSet(Arrays.asList(3, 1, 3, 2, 1));
+		assertEquals(3, set.size());
+		assertEquals(Arrays.asList(1, 2, 3), set.asList());
+	}
+
+	@Test
+	public void grow() {
+		Random random = new Random(1);
+		IntSet set = new IntSet();
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int i = 0; i < 10_000; i++) {
+			int value = random.nextInt(20_000);
+			assertEquals(expected.add(value), set.add(value));
+		}
+
+		assertEquals(new ArrayList<>(expected), set.asList());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void asList_out_of_bounds() {
+		IntSet set = new IntSet();
+		set.add(1);
+		List<Integer> list = set.asList();
+		list.get(1);
+	}
+}